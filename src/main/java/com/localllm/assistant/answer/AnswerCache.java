@@ -0,0 +1,242 @@
+package com.localllm.assistant.answer;
+
+import com.localllm.assistant.answer.model.CachedAnswer;
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.parser.model.CodeSegment;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of LLM answers keyed by everything that determines the prompt: the normalized query,
+ * the ordered IDs and content of the final code context, the prior questions included in the prompt,
+ * the chat model and its sampling parameters, and the {@link IndexGeneration}.
+ * <p>
+ * Entries live in an in-memory LRU map. With {@code answer.cache.persist} they are also written to
+ * H2 and survive restarts; rows from an older index generation are deleted on startup and the first
+ * time an answer is stored after the generation changed, since their keys can no longer match.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerCache.class);
+    private static final int TRIM_CHECK_INTERVAL = 100;
+
+    private final CachedAnswerRepository cachedAnswerRepository;
+    private final IndexGeneration indexGeneration;
+
+    @Value("${answer.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${answer.cache.maxEntries:500}")
+    private int maxEntries;
+
+    @Value("${answer.cache.persist:false}")
+    private boolean persist;
+
+    @Value("${answer.cache.maxPersistedEntries:5000}")
+    private int maxPersistedEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong persistedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong storesSinceTrim = new AtomicLong();
+    private volatile long prunedGeneration = Long.MIN_VALUE;
+
+    private final Map<String, String> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Key of a cached answer.
+     *
+     * @param hash       SHA-256 of the key components, hex encoded
+     * @param generation Index generation included in the hash
+     */
+    public record Key(String hash, long generation) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled && persist) {
+            pruneStaleGenerations(indexGeneration.current());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the cache key for a prompt at the current index generation.
+     *
+     * @param query          The user's question; trimmed, whitespace-collapsed and lowercased
+     * @param context        Final code context in prompt order
+     * @param priorQuestions Earlier questions of the conversation that are part of the prompt
+     */
+    public Key key(String query, List<CodeSegment> context, List<String> priorQuestions, String chatModel,
+                   double temperature, int numPredict) {
+        long generation = indexGeneration.current();
+        MessageDigest digest = sha256();
+        update(digest, query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT));
+        update(digest, chatModel);
+        update(digest, Double.toString(temperature));
+        update(digest, Integer.toString(numPredict));
+        update(digest, Long.toString(generation));
+        for (CodeSegment segment : context) {
+            update(digest, segment.getId());
+            update(digest, segment.getContent());
+        }
+        update(digest, "--");
+        for (String question : priorQuestions) {
+            update(digest, question);
+        }
+        return new Key(HexFormat.of().formatHex(digest.digest()), generation);
+    }
+
+    /**
+     * Returns the answer stored under {@code key}, looking in H2 when it is not in memory.
+     */
+    public Optional<String> get(Key key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String answer;
+        synchronized (this) {
+            answer = entries.get(key.hash());
+        }
+        if (answer == null && persist) {
+            try {
+                answer = cachedAnswerRepository.findById(key.hash()).map(CachedAnswer::getAnswer).orElse(null);
+            } catch (RuntimeException e) {
+                log.warn("Failed to read cached answer {}: {}", key.hash(), e.getMessage());
+            }
+            if (answer != null) {
+                persistedHits.incrementAndGet();
+                synchronized (this) {
+                    entries.put(key.hash(), answer);
+                }
+            }
+        }
+        if (answer == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(answer);
+    }
+
+    /**
+     * Stores an answer generated for the prompt identified by {@code key}.
+     */
+    public void put(Key key, String answer, String chatModel) {
+        if (!enabled || answer == null || answer.isBlank()) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(key.hash(), answer);
+        }
+        if (!persist) {
+            return;
+        }
+        try {
+            if (prunedGeneration != key.generation()) {
+                pruneStaleGenerations(key.generation());
+            }
+            cachedAnswerRepository.save(CachedAnswer.builder()
+                .cacheKey(key.hash())
+                .answer(answer)
+                .chatModel(chatModel)
+                .indexGeneration(key.generation())
+                .createdAt(LocalDateTime.now())
+                .build());
+            if (storesSinceTrim.incrementAndGet() >= TRIM_CHECK_INTERVAL) {
+                storesSinceTrim.set(0);
+                trimPersisted();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist cached answer {}: {}", key.hash(), e.getMessage());
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public AnswerCacheStats stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return AnswerCacheStats.builder()
+            .enabled(enabled)
+            .persistent(persist)
+            .hits(hitCount)
+            .persistedHits(persistedHits.get())
+            .misses(missCount)
+            .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+            .entries(size)
+            .maxEntries(maxEntries)
+            .indexGeneration(indexGeneration.current())
+            .build();
+    }
+
+    private void pruneStaleGenerations(long generation) {
+        prunedGeneration = generation;
+        try {
+            int deleted = cachedAnswerRepository.deleteByIndexGenerationNot(generation);
+            if (deleted > 0) {
+                log.info("Deleted {} cached answers from earlier index generations.", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete stale cached answers: {}", e.getMessage());
+        }
+    }
+
+    private void trimPersisted() {
+        long excess = cachedAnswerRepository.count() - maxPersistedEntries;
+        if (excess > 0) {
+            List<String> oldest = cachedAnswerRepository.findOldestKeys(PageRequest.of(0, (int) Math.min(excess, Integer.MAX_VALUE)));
+            cachedAnswerRepository.deleteAllById(oldest);
+            log.debug("Trimmed {} persisted answers over the limit of {}.", oldest.size(), maxPersistedEntries);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
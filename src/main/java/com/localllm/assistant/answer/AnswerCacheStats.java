@@ -0,0 +1,22 @@
+package com.localllm.assistant.answer;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the answer cache counters. {@code persistedHits} are the subset of {@code hits} that
+ * were served from H2 after missing in memory.
+ */
+@Getter
+@Builder
+public class AnswerCacheStats {
+    private final boolean enabled;
+    private final boolean persistent;
+    private final long hits;
+    private final long persistedHits;
+    private final long misses;
+    private final double hitRate;
+    private final int entries;
+    private final int maxEntries;
+    private final long indexGeneration;
+}
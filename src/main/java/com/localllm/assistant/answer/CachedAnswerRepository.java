@@ -0,0 +1,39 @@
+package com.localllm.assistant.answer;
+
+import com.localllm.assistant.answer.model.CachedAnswer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for persisted answer cache entries.
+ */
+@Repository
+public interface CachedAnswerRepository extends JpaRepository<CachedAnswer, String> {
+
+    /**
+     * Finds the keys of the oldest entries, for trimming the table to its size limit.
+     *
+     * @param pageable Number of keys to return.
+     * @return Cache keys ordered by creation time ascending.
+     */
+    @Query("SELECT a.cacheKey FROM CachedAnswer a ORDER BY a.createdAt ASC")
+    List<String> findOldestKeys(Pageable pageable);
+
+    /**
+     * Deletes entries produced at an index generation other than the given one.
+     *
+     * @param generation The current index generation.
+     * @return The number of entries deleted.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CachedAnswer a WHERE a.indexGeneration <> :generation")
+    int deleteByIndexGenerationNot(@Param("generation") long generation);
+}
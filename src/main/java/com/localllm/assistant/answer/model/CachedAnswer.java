@@ -0,0 +1,52 @@
+package com.localllm.assistant.answer.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted LLM answer, stored under the cache key of the prompt that produced it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "cached_answers", indexes = {
+    @Index(name = "idx_cached_answers_generation", columnList = "index_generation"),
+    @Index(name = "idx_cached_answers_created_at", columnList = "created_at")
+})
+public class CachedAnswer {
+
+    /**
+     * SHA-256 of the cache key components, hex encoded.
+     */
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    @Lob
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String answer;
+
+    @Column(nullable = false)
+    private String chatModel;
+
+    /**
+     * Index generation the answer was produced at; rows from older generations can no longer match.
+     */
+    @Column(nullable = false, name = "index_generation")
+    private long indexGeneration;
+
+    @Column(nullable = false, name = "created_at")
+    private LocalDateTime createdAt;
+}
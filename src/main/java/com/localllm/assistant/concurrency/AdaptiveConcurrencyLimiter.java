@@ -0,0 +1,420 @@
+package com.localllm.assistant.concurrency;
+
+import com.localllm.assistant.exception.UpstreamOverloadedException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) concurrency limiter for one upstream.
+ * <p>
+ * Requests beyond the current limit wait in a bounded FIFO queue; when that is full they are
+ * shed with {@link UpstreamOverloadedException} instead of piling up pooled connections.
+ * The limit grows by roughly one per limit's worth of successful, fully-utilized requests and is
+ * multiplied by {@code backoffRatio} when a request fails, is throttled (429/5xx), or takes longer
+ * than {@code latencyToleranceRatio} times the observed baseline latency.
+ * <p>
+ * One upstream serves requests of very different sizes (a one-input query embedding vs a batch of
+ * hundreds of segments), so latency is divided by the request's cost (inputs, characters, records) and
+ * compared with a baseline kept per request class and power-of-two cost bucket: a request is only judged
+ * against requests of the same kind and similar size. Each baseline is the minimum per-unit latency seen
+ * in its bucket, drifting slowly upward so it can follow a changed upstream.
+ * <p>
+ * {@code execute} returns an {@link Exchange}: cancelling it takes a queued request out of the queue
+ * before it is ever sent, or aborts the HTTP exchange (releasing its permit and connection) once it is.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    private static final double BASELINE_DRIFT = 1.01;
+    public static final String DEFAULT_REQUEST_CLASS = "default";
+
+    /**
+     * How a finished request should influence the limit.
+     */
+    public enum Outcome {
+        /** Completed normally; latency is taken into account. */
+        SUCCESS,
+        /** Overload signal (timeout, connection failure, 429, 5xx); the limit is backed off. */
+        DROPPED,
+        /** Finished without saying anything about upstream load (e.g. 4xx, cancellation). */
+        IGNORED
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final double backoffRatio;
+    private final double latencyToleranceRatio;
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private final Map<String, Double> baselineNanosPerUnit = new HashMap<>();
+    private long completedCount;
+    private long droppedCount;
+    private long rejectedCount;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      int maxQueueSize, double backoffRatio, double latencyToleranceRatio) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+        this.backoffRatio = Math.min(Math.max(backoffRatio, 0.1), 0.99);
+        this.latencyToleranceRatio = latencyToleranceRatio;
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        log.info("Adaptive limiter '{}' initialized: limit={}, min={}, max={}, queue={}, backoff={}, latencyTolerance={}",
+            name, this.limit, this.minLimit, this.maxLimit, this.maxQueueSize, this.backoffRatio, latencyToleranceRatio);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Acquires a permit for a unit-cost request of the default class.
+     */
+    public CompletableFuture<Permit> acquire() {
+        return acquire(DEFAULT_REQUEST_CLASS, 1);
+    }
+
+    /**
+     * Acquires a permit. Completes immediately if under the limit, later if queued, or exceptionally
+     * with {@link UpstreamOverloadedException} if the queue is full.
+     *
+     * @param requestClass Kind of request; latency baselines are not shared between classes.
+     * @param cost         Size of the request in the class's unit (at least 1), used to normalize its latency.
+     */
+    public CompletableFuture<Permit> acquire(String requestClass, long cost) {
+        return acquire(requestClass, cost, null);
+    }
+
+    private CompletableFuture<Permit> acquire(String requestClass, long cost, Exchange exchange) {
+        int inFlightNow;
+        int limitNow;
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit(requestClass, cost));
+            }
+            if (waiters.size() < maxQueueSize) {
+                CompletableFuture<Void> waiter = new CompletableFuture<>();
+                waiters.addLast(waiter);
+                if (exchange != null) {
+                    exchange.queued(waiter);
+                }
+                return waiter.thenApply(granted -> new Permit(requestClass, cost));
+            }
+            rejectedCount++;
+            inFlightNow = inFlight;
+            limitNow = (int) limit;
+        }
+        log.warn("Limiter '{}' shedding request: {} in flight, queue full ({}).", name, inFlightNow, maxQueueSize);
+        return CompletableFuture.failedFuture(new UpstreamOverloadedException(
+            "Upstream '" + name + "' is overloaded (limit " + limitNow + ", queue " + maxQueueSize + " full)"));
+    }
+
+    /**
+     * Executes an HTTP request under this limiter. The outcome is derived from the response status
+     * and the latency; {@code callback} receives exactly the same notifications as it would from
+     * {@code client.execute}, plus {@code failed} if the request is shed and {@code cancelled} if the
+     * returned exchange is cancelled while queued.
+     */
+    public Exchange execute(CloseableHttpAsyncClient client, SimpleHttpRequest request, FutureCallback<SimpleHttpResponse> callback) {
+        return execute(client, request, DEFAULT_REQUEST_CLASS, 1, callback);
+    }
+
+    /**
+     * Like {@link #execute(CloseableHttpAsyncClient, SimpleHttpRequest, FutureCallback)}, with the request's
+     * class and cost as described in {@link #acquire(String, long)}.
+     */
+    public Exchange execute(CloseableHttpAsyncClient client, SimpleHttpRequest request, String requestClass, long cost,
+                            FutureCallback<SimpleHttpResponse> callback) {
+        Exchange exchange = new Exchange();
+        acquire(requestClass, cost, exchange).whenComplete((permit, acquireEx) -> {
+            if (acquireEx != null) {
+                notifyNotStarted(exchange, acquireEx, callback);
+                return;
+            }
+            if (exchange.isCancelled()) {
+                permit.release(Outcome.IGNORED);
+                callback.cancelled();
+                return;
+            }
+            try {
+                exchange.started(client.execute(request, releasing(permit, SimpleHttpResponse::getCode, callback)));
+            } catch (RuntimeException e) {
+                permit.release(Outcome.IGNORED);
+                callback.failed(e);
+            }
+        });
+        return exchange;
+    }
+
+    /**
+     * Streaming variant of {@link #execute(CloseableHttpAsyncClient, SimpleHttpRequest, FutureCallback)} for
+     * callers that consume the response body with their own {@link AsyncResponseConsumer}.
+     *
+     * @param statusCode Extracts the HTTP status from the consumer's result, used to classify the outcome.
+     */
+    public <T> Exchange execute(CloseableHttpAsyncClient client, AsyncRequestProducer requestProducer,
+                                AsyncResponseConsumer<T> responseConsumer, ToIntFunction<T> statusCode, FutureCallback<T> callback) {
+        return execute(client, requestProducer, DEFAULT_REQUEST_CLASS, 1, responseConsumer, statusCode, callback);
+    }
+
+    /**
+     * Streaming variant with the request's class and cost as described in {@link #acquire(String, long)}.
+     */
+    public <T> Exchange execute(CloseableHttpAsyncClient client, AsyncRequestProducer requestProducer, String requestClass, long cost,
+                                AsyncResponseConsumer<T> responseConsumer, ToIntFunction<T> statusCode, FutureCallback<T> callback) {
+        Exchange exchange = new Exchange();
+        acquire(requestClass, cost, exchange).whenComplete((permit, acquireEx) -> {
+            if (acquireEx != null) {
+                responseConsumer.releaseResources();
+                notifyNotStarted(exchange, acquireEx, callback);
+                return;
+            }
+            if (exchange.isCancelled()) {
+                permit.release(Outcome.IGNORED);
+                responseConsumer.releaseResources();
+                callback.cancelled();
+                return;
+            }
+            try {
+                exchange.started(client.execute(requestProducer, responseConsumer, releasing(permit, statusCode, callback)));
+            } catch (RuntimeException e) {
+                permit.release(Outcome.IGNORED);
+                callback.failed(e);
+            }
+        });
+        return exchange;
+    }
+
+    private static void notifyNotStarted(Exchange exchange, Throwable acquireEx, FutureCallback<?> callback) {
+        if (exchange.isCancelled()) {
+            callback.cancelled();
+        } else {
+            callback.failed(acquireEx instanceof Exception ? (Exception) acquireEx : new RuntimeException(acquireEx));
+        }
+    }
+
+    private synchronized boolean removeWaiter(CompletableFuture<Void> waiter) {
+        return waiters.remove(waiter);
+    }
+
+    private <T> FutureCallback<T> releasing(Permit permit, ToIntFunction<T> statusCode, FutureCallback<T> callback) {
+        return new FutureCallback<T>() {
+            @Override
+            public void completed(T result) {
+                permit.release(classify(statusCode.applyAsInt(result)));
+                callback.completed(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                permit.release(Outcome.DROPPED);
+                callback.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                permit.release(Outcome.IGNORED);
+                callback.cancelled();
+            }
+        };
+    }
+
+    static Outcome classify(int statusCode) {
+        if (statusCode == 429 || statusCode >= 500) {
+            return Outcome.DROPPED;
+        }
+        if (statusCode >= 400) {
+            return Outcome.IGNORED;
+        }
+        return Outcome.SUCCESS;
+    }
+
+    public synchronized LimiterStats stats() {
+        return LimiterStats.builder()
+            .name(name)
+            .limit(limit)
+            .inFlight(inFlight)
+            .queued(waiters.size())
+            .completed(completedCount)
+            .dropped(droppedCount)
+            .rejected(rejectedCount)
+            .baselineLatencyMsPerUnit(baselineNanosPerUnit.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() / 1_000_000.0, (a, b) -> a, TreeMap::new)))
+            .build();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Baselines are bucketed by the highest power of two not above the cost, e.g. {@code embed:512}
+     * holds requests costing 512 to 1023 units.
+     */
+    static String baselineKey(String requestClass, long cost) {
+        return requestClass + ":" + Long.highestOneBit(Math.max(cost, 1));
+    }
+
+    private void onRelease(Permit permit, long latencyNanos, Outcome outcome) {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        synchronized (this) {
+            boolean wasSaturated = inFlight >= (int) limit;
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> {
+                    completedCount++;
+                    boolean slow = false;
+                    if (latencyToleranceRatio > 0) {
+                        double perUnit = (double) latencyNanos / permit.cost;
+                        double baseline = baselineNanosPerUnit.merge(baselineKey(permit.requestClass, permit.cost), perUnit,
+                            (previous, sample) -> Math.min(sample, previous * BASELINE_DRIFT));
+                        slow = perUnit > baseline * latencyToleranceRatio;
+                    }
+                    if (slow) {
+                        decrease(permit.requestClass + " latency " + latencyNanos / 1_000_000 + "ms for cost " + permit.cost);
+                    } else if (wasSaturated || waiters.size() > 0) {
+                        limit = Math.min(maxLimit, limit + 1.0 / limit);
+                    }
+                }
+                case DROPPED -> {
+                    droppedCount++;
+                    decrease("dropped request");
+                }
+                case IGNORED -> {
+                    // no load signal
+                }
+            }
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                granted.add(waiters.pollFirst());
+            }
+        }
+        // Complete outside the lock: completing runs the waiter's continuation (the HTTP call) inline.
+        for (CompletableFuture<Void> waiter : granted) {
+            waiter.complete(null);
+        }
+    }
+
+    private void decrease(String reason) {
+        double previous = limit;
+        limit = Math.max(minLimit, limit * backoffRatio);
+        if ((int) previous != (int) limit) {
+            log.info("Limiter '{}' backing off ({}): limit {} -> {}", name, reason, (int) previous, (int) limit);
+        }
+    }
+
+    /**
+     * Handle of a request submitted through {@code execute}.
+     */
+    public final class Exchange implements Cancellable {
+        private CompletableFuture<Void> waiter;
+        private Future<?> future;
+        private boolean cancelled;
+
+        /**
+         * Takes the request out of the queue if it is still waiting for a permit (the callback is told
+         * {@code cancelled}), or cancels the HTTP exchange if it was sent.
+         *
+         * @return false if already cancelled.
+         */
+        @Override
+        public boolean cancel() {
+            CompletableFuture<Void> queued;
+            Future<?> running;
+            synchronized (this) {
+                if (cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                queued = waiter;
+                running = future;
+            }
+            if (queued != null && removeWaiter(queued)) {
+                queued.completeExceptionally(new CancellationException("Cancelled while queued in limiter '" + name + "'"));
+            }
+            if (running != null) {
+                running.cancel(true);
+            }
+            return true;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized void queued(CompletableFuture<Void> waiter) {
+            this.waiter = waiter;
+        }
+
+        /**
+         * Keeps the HTTP future, or cancels it right away if the exchange was cancelled while it was being sent.
+         */
+        private void started(Future<?> future) {
+            if (future == null) {
+                return;
+            }
+            synchronized (this) {
+                this.future = future;
+                if (!cancelled) {
+                    return;
+                }
+            }
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * A granted slot. Must be released exactly once.
+     */
+    public final class Permit {
+        private final String requestClass;
+        private final long cost;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(String requestClass, long cost) {
+            this.requestClass = requestClass;
+            this.cost = Math.max(cost, 1);
+        }
+
+        public void release(Outcome outcome) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            onRelease(this, System.nanoTime() - startNanos, outcome);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.localllm.assistant.concurrency;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Snapshot of an {@link AdaptiveConcurrencyLimiter}'s state.
+ */
+@Getter
+@Builder
+public class LimiterStats {
+    private final String name;
+    private final double limit;
+    private final int inFlight;
+    private final int queued;
+    private final long completed;
+    private final long dropped;
+    private final long rejected;
+    /** Baseline latency per unit of cost, keyed by request class and power-of-two cost bucket, e.g. {@code embed:512}. */
+    private final Map<String, Double> baselineLatencyMsPerUnit;
+}
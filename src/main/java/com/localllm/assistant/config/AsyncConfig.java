@@ -22,6 +22,8 @@ public class AsyncConfig implements AsyncConfigurer {
     public static final String TASK_EXECUTOR_FILE_MONITOR = "taskExecutorFileMonitor";
     public static final String TASK_EXECUTOR_EMBEDDING = "taskExecutorEmbedding";
     public static final String TASK_EXECUTOR_VECTOR_STORE = "taskExecutorVectorStore";
+    public static final String TASK_EXECUTOR_STREAMING = "taskExecutorStreaming";
+    public static final String TASK_EXECUTOR_HISTORY = "taskExecutorHistory";
 
     @Bean(name = TASK_EXECUTOR_ORCHESTRATION)
     public Executor taskExecutorOrchestration() {
@@ -102,6 +104,46 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Writes SSE events to clients. Rejections are not run by the caller: callers include the HTTP client's
+     * I/O thread, which must not block on a servlet write, so a rejected stream is aborted instead.
+     */
+    @Bean(name = TASK_EXECUTOR_STREAMING)
+    public Executor taskExecutorStreaming() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("StreamingThread-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.initialize();
+        log.info("Initialized '{}' with CorePoolSize={}, MaxPoolSize={}, QueueCapacity={}",
+            TASK_EXECUTOR_STREAMING, executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getQueueCapacity());
+        return executor;
+    }
+
+    /**
+     * Saves answers to the history (and the answer cache) once the LLM call completes. Like streaming, it is
+     * fed from the HTTP client's I/O thread, which must never run a JDBC write, so rejections abort.
+     */
+    @Bean(name = TASK_EXECUTOR_HISTORY)
+    public Executor taskExecutorHistory() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("HistoryThread-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.initialize();
+        log.info("Initialized '{}' with CorePoolSize={}, MaxPoolSize={}, QueueCapacity={}",
+            TASK_EXECUTOR_HISTORY, executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getQueueCapacity());
+        return executor;
+    }
+
     @Override
     public Executor getAsyncExecutor() {
         return taskExecutorFileMonitor();
@@ -0,0 +1,51 @@
+package com.localllm.assistant.config;
+
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per-upstream adaptive concurrency limiters. Embedding and chat calls both go to Ollama but have
+ * very different latency profiles, so they are limited separately.
+ */
+@Configuration
+public class LimiterConfig {
+
+    public static final String LIMITER_OLLAMA_EMBEDDING = "limiterOllamaEmbedding";
+    public static final String LIMITER_OLLAMA_CHAT = "limiterOllamaChat";
+    public static final String LIMITER_CHROMADB = "limiterChromaDb";
+
+    @Bean(name = LIMITER_OLLAMA_EMBEDDING)
+    public AdaptiveConcurrencyLimiter limiterOllamaEmbedding(
+        @Value("${limiter.ollama-embedding.initialLimit:4}") int initialLimit,
+        @Value("${limiter.ollama-embedding.minLimit:1}") int minLimit,
+        @Value("${limiter.ollama-embedding.maxLimit:16}") int maxLimit,
+        @Value("${limiter.ollama-embedding.maxQueue:256}") int maxQueue,
+        @Value("${limiter.ollama-embedding.backoffRatio:0.7}") double backoffRatio,
+        @Value("${limiter.ollama-embedding.latencyToleranceRatio:5.0}") double latencyToleranceRatio) {
+        return new AdaptiveConcurrencyLimiter("ollama-embedding", initialLimit, minLimit, maxLimit, maxQueue, backoffRatio, latencyToleranceRatio);
+    }
+
+    @Bean(name = LIMITER_OLLAMA_CHAT)
+    public AdaptiveConcurrencyLimiter limiterOllamaChat(
+        @Value("${limiter.ollama-chat.initialLimit:2}") int initialLimit,
+        @Value("${limiter.ollama-chat.minLimit:1}") int minLimit,
+        @Value("${limiter.ollama-chat.maxLimit:4}") int maxLimit,
+        @Value("${limiter.ollama-chat.maxQueue:32}") int maxQueue,
+        @Value("${limiter.ollama-chat.backoffRatio:0.5}") double backoffRatio,
+        @Value("${limiter.ollama-chat.latencyToleranceRatio:0}") double latencyToleranceRatio) {
+        return new AdaptiveConcurrencyLimiter("ollama-chat", initialLimit, minLimit, maxLimit, maxQueue, backoffRatio, latencyToleranceRatio);
+    }
+
+    @Bean(name = LIMITER_CHROMADB)
+    public AdaptiveConcurrencyLimiter limiterChromaDb(
+        @Value("${limiter.chromadb.initialLimit:8}") int initialLimit,
+        @Value("${limiter.chromadb.minLimit:2}") int minLimit,
+        @Value("${limiter.chromadb.maxLimit:32}") int maxLimit,
+        @Value("${limiter.chromadb.maxQueue:512}") int maxQueue,
+        @Value("${limiter.chromadb.backoffRatio:0.7}") double backoffRatio,
+        @Value("${limiter.chromadb.latencyToleranceRatio:4.0}") double latencyToleranceRatio) {
+        return new AdaptiveConcurrencyLimiter("chromadb", initialLimit, minLimit, maxLimit, maxQueue, backoffRatio, latencyToleranceRatio);
+    }
+}
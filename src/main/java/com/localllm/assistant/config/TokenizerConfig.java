@@ -0,0 +1,41 @@
+package com.localllm.assistant.config;
+
+import com.localllm.assistant.tokenizer.BpeTokenizer;
+import com.localllm.assistant.tokenizer.HeuristicTokenCounter;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Token counter used for prompt budgeting. Loads the chat model's {@code tokenizer.json} from
+ * {@code tokenizer.path}; without one (or if it cannot be read) token counts fall back to a
+ * characters-per-token estimate.
+ */
+@Configuration
+public class TokenizerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenizerConfig.class);
+
+    @Bean
+    public TokenCounter tokenCounter(@Value("${tokenizer.path:}") String tokenizerPath,
+                                     @Value("${tokenizer.fallbackCharsPerToken:3.5}") double fallbackCharsPerToken) {
+        if (StringUtils.hasText(tokenizerPath)) {
+            try {
+                return BpeTokenizer.load(Path.of(tokenizerPath));
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to load tokenizer from {}. Falling back to {} chars per token: {}",
+                    tokenizerPath, fallbackCharsPerToken, e.getMessage(), e);
+            }
+        } else {
+            log.info("No tokenizer.path configured; estimating prompt tokens at {} chars per token.", fallbackCharsPerToken);
+        }
+        return new HeuristicTokenCounter(fallbackCharsPerToken);
+    }
+}
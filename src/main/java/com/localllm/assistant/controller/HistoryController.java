@@ -1,9 +1,13 @@
 package com.localllm.assistant.controller;
 
+import com.localllm.assistant.controller.dto.ConversationPageResponse;
 import com.localllm.assistant.controller.dto.HistoryResponse;
 import com.localllm.assistant.controller.dto.QueryResponse;
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.Conversation;
+import com.localllm.assistant.history.model.ConversationPage;
+import com.localllm.assistant.history.model.ConversationSummary;
+import com.localllm.assistant.history.model.MessageSummary;
 import com.localllm.assistant.service.HistoryService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -13,6 +17,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.format.DateTimeFormatter;
@@ -26,6 +31,8 @@ import java.util.stream.Collectors;
 public class HistoryController {
 
     private static final Logger log = LoggerFactory.getLogger(HistoryController.class);
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_MESSAGES_PER_CONVERSATION = 20;
     private final HistoryService historyService;
 
     @GetMapping("/{conversationId}")
@@ -69,31 +76,47 @@ public class HistoryController {
         }
     }
 
+    /**
+     * Lists all conversations with their last three messages (without source references).
+     * Prefer {@link #getConversationPage} for large histories.
+     */
     @GetMapping
     public ResponseEntity<List<HistoryResponse>> getAllConversations() {
         log.debug("Request received to list all conversations");
-        List<HistoryResponse> responses = historyService.getAllConversations().stream()
-            .map(conversation -> {
-                List<ChatMessage> recentMessages = historyService.getRecentMessagesForConversation(
-                    conversation.getId(), 3); // Get just a few recent messages
-
-                List<HistoryResponse.HistoryMessage> messageDtos = recentMessages.stream()
-                    .map(this::mapToHistoryMessageDto)
-                    .collect(Collectors.toList());
-
-                return HistoryResponse.builder()
-                    .conversationId(conversation.getId())
-                    .title(conversation.getTitle())
-                    .createdAt(conversation.getCreatedAt() != null ? conversation.getCreatedAt().format(DateTimeFormatter.ISO_DATE_TIME) : null)
-                    .updatedAt(conversation.getUpdatedAt() != null ? conversation.getUpdatedAt().format(DateTimeFormatter.ISO_DATE_TIME) : null)
-                    .messages(messageDtos)
-                    .build();
-            })
+        List<HistoryResponse> responses = historyService.listAllConversations(3).stream()
+            .map(this::mapToHistoryResponse)
             .collect(Collectors.toList());
 
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Lists conversations most recently updated first, one page at a time.
+     *
+     * @param cursor   {@code nextCursor} of the previous page; omit for the first page.
+     * @param limit    Page size (1 to 200).
+     * @param messages Number of most recent messages per conversation (0 to 20), without source references.
+     * @return The page, or 400 Bad Request for a malformed cursor.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<ConversationPageResponse> getConversationPage(@RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "50") int limit,
+                                                                        @RequestParam(defaultValue = "3") int messages) {
+        log.debug("Request received to list {} conversations after cursor {}", limit, cursor);
+        ConversationPage page;
+        try {
+            page = historyService.listConversations(cursor, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)),
+                Math.max(0, Math.min(messages, MAX_MESSAGES_PER_CONVERSATION)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected conversation page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ConversationPageResponse.builder()
+            .conversations(page.getConversations().stream().map(this::mapToHistoryResponse).collect(Collectors.toList()))
+            .nextCursor(page.getNextCursor())
+            .build());
+    }
+
     /**
      * Deletes all conversations and their messages.
      *
@@ -111,6 +134,29 @@ public class HistoryController {
         }
     }
 
+    private HistoryResponse mapToHistoryResponse(ConversationSummary conversation) {
+        List<HistoryResponse.HistoryMessage> messageDtos = conversation.getRecentMessages().stream()
+            .map(this::mapToHistoryMessageDto)
+            .collect(Collectors.toList());
+
+        return HistoryResponse.builder()
+            .conversationId(conversation.getId())
+            .title(conversation.getTitle())
+            .createdAt(conversation.getCreatedAt() != null ? conversation.getCreatedAt().format(DateTimeFormatter.ISO_DATE_TIME) : null)
+            .updatedAt(conversation.getUpdatedAt() != null ? conversation.getUpdatedAt().format(DateTimeFormatter.ISO_DATE_TIME) : null)
+            .messages(messageDtos)
+            .build();
+    }
+
+    private HistoryResponse.HistoryMessage mapToHistoryMessageDto(MessageSummary msg) {
+        return HistoryResponse.HistoryMessage.builder()
+            .role(msg.getRole().name().toLowerCase())
+            .content(msg.getContent())
+            .timestamp(msg.getTimestamp() != null ? msg.getTimestamp().format(DateTimeFormatter.ISO_DATE_TIME) : null)
+            .sources(Collections.emptyList())
+            .build();
+    }
+
     private HistoryResponse.HistoryMessage mapToHistoryMessageDto(ChatMessage msg) {
         @SuppressWarnings("unchecked") // Suppress warning for cast if metadata structure is known
         List<QueryResponse.SourceReference> sources = (msg.getMetadata() != null && msg.getMetadata().containsKey("codeReferences")) ?
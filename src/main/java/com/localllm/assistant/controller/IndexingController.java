@@ -52,7 +52,7 @@ public class IndexingController {
             // Basic path validation/normalization
             Path basePath = Paths.get(request.getCodebasePath()).toAbsolutePath().normalize();
 
-            return indexingService.startIndexing(basePath)
+            return indexingService.startIndexing(basePath, Boolean.TRUE.equals(request.getFullReindex()))
                 .thenApply(v -> ResponseEntity.accepted().body(IndexStatusResponse.builder()
                     .status("STARTED")
                     .details("Indexing process initiated for " + basePath)
@@ -0,0 +1,150 @@
+package com.localllm.assistant.controller;
+
+import com.localllm.assistant.answer.AnswerCache;
+import com.localllm.assistant.answer.AnswerCacheStats;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
+import com.localllm.assistant.concurrency.LimiterStats;
+import com.localllm.assistant.embedding.cache.DiskEmbeddingCache;
+import com.localllm.assistant.embedding.cache.EmbeddingCacheStats;
+import com.localllm.assistant.embedding.cache.QueryEmbeddingCache;
+import com.localllm.assistant.embedding.cache.QueryEmbeddingCacheStats;
+import com.localllm.assistant.history.ChatHistoryWriter;
+import com.localllm.assistant.history.ChatHistoryWriterStats;
+import com.localllm.assistant.history.RecentMessageCache;
+import com.localllm.assistant.history.RecentMessageCacheStats;
+import com.localllm.assistant.prompt.metrics.ContextPackingMetrics;
+import com.localllm.assistant.prompt.metrics.ContextPackingStats;
+import com.localllm.assistant.prompt.metrics.SnippetCompressionMetrics;
+import com.localllm.assistant.prompt.metrics.SnippetCompressionStats;
+import com.localllm.assistant.rerank.ReRankCache;
+import com.localllm.assistant.rerank.ReRankCacheStats;
+import com.localllm.assistant.vectorstore.metrics.UpsertPayloadMetrics;
+import com.localllm.assistant.vectorstore.metrics.UpsertPayloadStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller exposing runtime counters of the caches and pipelines.
+ */
+@RestController
+@RequestMapping("/api/v1/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final DiskEmbeddingCache embeddingCache;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final AnswerCache answerCache;
+    private final List<AdaptiveConcurrencyLimiter> limiters;
+    private final UpsertPayloadMetrics upsertPayloadMetrics;
+    private final ContextPackingMetrics contextPackingMetrics;
+    private final SnippetCompressionMetrics snippetCompressionMetrics;
+    private final ReRankCache reRankCache;
+    private final ChatHistoryWriter chatHistoryWriter;
+    private final RecentMessageCache recentMessageCache;
+
+    /**
+     * Returns the hit/miss counters and size of the persistent embedding cache.
+     *
+     * @return The embedding cache statistics.
+     */
+    @GetMapping("/embedding-cache")
+    public ResponseEntity<EmbeddingCacheStats> getEmbeddingCacheStats() {
+        return ResponseEntity.ok(embeddingCache.stats());
+    }
+
+    /**
+     * Returns the hit, coalesced and miss counters of the in-memory query embedding cache.
+     *
+     * @return The query embedding cache statistics.
+     */
+    @GetMapping("/query-embedding-cache")
+    public ResponseEntity<QueryEmbeddingCacheStats> getQueryEmbeddingCacheStats() {
+        return ResponseEntity.ok(queryEmbeddingCache.stats());
+    }
+
+    /**
+     * Returns the hit/miss counters of the answer cache and the current index generation.
+     *
+     * @return The answer cache statistics.
+     */
+    @GetMapping("/answer-cache")
+    public ResponseEntity<AnswerCacheStats> getAnswerCacheStats() {
+        return ResponseEntity.ok(answerCache.stats());
+    }
+
+    /**
+     * Returns the current limit, in-flight and queued request counts of each upstream concurrency limiter.
+     *
+     * @return One entry per upstream.
+     */
+    @GetMapping("/limiters")
+    public ResponseEntity<List<LimiterStats>> getLimiterStats() {
+        return ResponseEntity.ok(limiters.stream().map(AdaptiveConcurrencyLimiter::stats).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns request and byte counters of the upsert bodies sent to the vector store.
+     *
+     * @return The upsert payload statistics.
+     */
+    @GetMapping("/vectorstore-upserts")
+    public ResponseEntity<UpsertPayloadStats> getUpsertPayloadStats() {
+        return ResponseEntity.ok(upsertPayloadMetrics.stats());
+    }
+
+    /**
+     * Returns how many retrieved segments were packed into prompts and how much of the token budget they used.
+     *
+     * @return The context packing statistics.
+     */
+    @GetMapping("/context-packing")
+    public ResponseEntity<ContextPackingStats> getContextPackingStats() {
+        return ResponseEntity.ok(contextPackingMetrics.stats());
+    }
+
+    /**
+     * Returns the prompt tokens saved by snippet compression, in total and per mode.
+     *
+     * @return The snippet compression statistics.
+     */
+    @GetMapping("/snippet-compression")
+    public ResponseEntity<SnippetCompressionStats> getSnippetCompressionStats() {
+        return ResponseEntity.ok(snippetCompressionMetrics.stats());
+    }
+
+    /**
+     * Returns the hit/miss counters and size of the rerank result cache.
+     *
+     * @return The rerank cache statistics.
+     */
+    @GetMapping("/rerank-cache")
+    public ResponseEntity<ReRankCacheStats> getReRankCacheStats() {
+        return ResponseEntity.ok(reRankCache.stats());
+    }
+
+    /**
+     * Returns the queue depth and batch counters of the chat history write-behind.
+     *
+     * @return The chat history writer statistics.
+     */
+    @GetMapping("/history-writer")
+    public ResponseEntity<ChatHistoryWriterStats> getHistoryWriterStats() {
+        return ResponseEntity.ok(chatHistoryWriter.stats());
+    }
+
+    /**
+     * Returns the hit/miss counters and estimated size of the per-conversation recent-message cache.
+     *
+     * @return The recent-message cache statistics.
+     */
+    @GetMapping("/recent-message-cache")
+    public ResponseEntity<RecentMessageCacheStats> getRecentMessageCacheStats() {
+        return ResponseEntity.ok(recentMessageCache.stats());
+    }
+}
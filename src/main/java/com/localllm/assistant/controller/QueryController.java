@@ -1,27 +1,48 @@
 package com.localllm.assistant.controller;
 
+import com.localllm.assistant.config.AsyncConfig;
 import com.localllm.assistant.controller.dto.QueryRequest;
 import com.localllm.assistant.controller.dto.QueryResponse;
 import com.localllm.assistant.service.QueryService;
-import lombok.RequiredArgsConstructor;
+import com.localllm.assistant.service.QueryStreamListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/v1/query")
-@RequiredArgsConstructor
 public class QueryController {
 
     private static final Logger log = LoggerFactory.getLogger(QueryController.class);
     private final QueryService queryService;
+    private final Executor streamingExecutor;
+
+    @Value("${query.stream.timeoutMs:600000}")
+    private long streamTimeoutMs;
+
+    @Value("${query.stream.maxPendingEvents:1024}")
+    private int streamMaxPendingEvents;
+
+    public QueryController(QueryService queryService,
+                           @Qualifier(AsyncConfig.TASK_EXECUTOR_STREAMING) Executor streamingExecutor) {
+        this.queryService = queryService;
+        this.streamingExecutor = streamingExecutor;
+    }
 
     @PostMapping
     public CompletableFuture<ResponseEntity<QueryResponse>> handleQuery(@RequestBody QueryRequest request) {
@@ -49,4 +70,65 @@ public class QueryController {
                 return ResponseEntity.internalServerError().body(errorResponse);
             });
     }
+
+    /**
+     * Streams the answer as Server-Sent Events so the first tokens show up while the model is still
+     * generating. Events, all with JSON data:
+     * <ul>
+     *   <li>{@code sources}: {@code {conversationId, sources}}, sent once before generation starts</li>
+     *   <li>{@code token}: {@code {content}}, one per generated chunk</li>
+     *   <li>{@code done}: {@code {conversationId}}, after the answer has been queued for persistence; history reads include it right away</li>
+     *   <li>{@code error}: {@code {message}}, ends the stream on failure</li>
+     * </ul>
+     * Closing the connection stops generation, and so does a client that reads slower than the model
+     * generates: events are written from a bounded per-stream queue (see {@link SseEventQueue}), and the
+     * stream is aborted when it overflows.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamQuery(@RequestBody QueryRequest request) {
+        log.info("Received streaming query request: {}", request);
+        if (request.getQuery() == null || request.getQuery().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        SseEventQueue events = new SseEventQueue(emitter, streamingExecutor, streamMaxPendingEvents);
+        CompletableFuture<QueryResponse> future = queryService.streamQuery(request, new QueryStreamListener() {
+            @Override
+            public void onSources(String conversationId, List<QueryResponse.SourceReference> sources) {
+                events.send("sources", Map.of("conversationId", conversationId, "sources", sources));
+            }
+
+            @Override
+            public void onToken(String token) {
+                events.send("token", Map.of("content", token));
+            }
+        });
+
+        // Client went away, is too slow, or the stream timed out: stop generating.
+        events.onAbort(() -> future.cancel(true));
+        if (events.isAborted()) {
+            future.cancel(true);
+        }
+        emitter.onCompletion(() -> future.cancel(true));
+        emitter.onTimeout(() -> {
+            log.warn("Streaming query timed out after {}ms", streamTimeoutMs);
+            future.cancel(true);
+        });
+        emitter.onError(ex -> future.cancel(true));
+
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (ex == null) {
+                events.send("done", Map.of("conversationId", response.getConversationId()));
+            } else {
+                Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+                events.send("error", Map.of("message", "An internal error occurred: " + cause.getMessage()));
+            }
+            events.complete();
+        });
+        return ResponseEntity.ok(emitter);
+    }
 }
@@ -0,0 +1,140 @@
+package com.localllm.assistant.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes the events of one SSE stream from a bounded queue.
+ * <p>
+ * {@link SseEmitter#send} is a blocking servlet write, and token events are produced on the shared
+ * HTTP client's I/O thread, which must never wait for a slow client. {@link #send} and {@link #complete}
+ * only enqueue; the events are written in order by at most one task at a time on {@code executor}.
+ * If the client reads slower than events are produced and the queue fills up, the stream is aborted:
+ * pending events are dropped, the {@link #onAbort} callback runs (it should stop the producer) and
+ * the emitter completes with an error.
+ */
+class SseEventQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(SseEventQueue.class);
+
+    /**
+     * A named event with JSON data, or the end of the stream if {@code name} is null.
+     */
+    private record Event(String name, Object data) {
+    }
+
+    private static final Event END = new Event(null, null);
+
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final BlockingQueue<Event> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean aborted = new AtomicBoolean();
+    private volatile Runnable onAbort = () -> { };
+    private volatile boolean closed;
+
+    SseEventQueue(SseEmitter emitter, Executor executor, int capacity) {
+        this.emitter = emitter;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+    }
+
+    /**
+     * Called once if the stream is aborted because the queue overflowed or a write failed.
+     */
+    void onAbort(Runnable callback) {
+        this.onAbort = callback;
+    }
+
+    /**
+     * Queues an event without blocking. Returns false if the stream has been aborted or closed.
+     */
+    boolean send(String name, Object data) {
+        return enqueue(new Event(name, data));
+    }
+
+    /**
+     * Completes the emitter once all events queued before have been written.
+     */
+    void complete() {
+        enqueue(END);
+    }
+
+    boolean isAborted() {
+        return aborted.get();
+    }
+
+    private boolean enqueue(Event event) {
+        if (closed || aborted.get()) {
+            return false;
+        }
+        if (!queue.offer(event)) {
+            abort(new IOException("SSE client is not keeping up; " + queue.size() + " events pending"));
+            return false;
+        }
+        schedule();
+        return true;
+    }
+
+    private void schedule() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            abort(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            Event event;
+            while (!closed && (event = queue.poll()) != null) {
+                if (event == END) {
+                    closed = true;
+                    emitter.complete();
+                } else {
+                    emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+                }
+            }
+            if (aborted.get() && !closed) {
+                closed = true;
+                emitter.completeWithError(new IOException("SSE stream aborted"));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not write SSE event, client already disconnected: {}", e.getMessage());
+            closed = true;
+            abort(e);
+        } finally {
+            draining.set(false);
+        }
+        // An event, or the abort, may have arrived after the last poll but before the flag was cleared.
+        if (!closed && (!queue.isEmpty() || aborted.get())) {
+            schedule();
+        }
+    }
+
+    private void abort(Exception cause) {
+        if (!aborted.compareAndSet(false, true)) {
+            return;
+        }
+        log.warn("Aborting SSE stream: {}", cause.getMessage());
+        queue.clear();
+        onAbort.run();
+        if (!closed) {
+            // Completing the emitter may wait for a write in progress, so it happens on the executor.
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.localllm.assistant.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO for one page of the conversation listing.
+ */
+@Data
+@Builder
+public class ConversationPageResponse {
+    private List<HistoryResponse> conversations;
+    /**
+     * Pass as {@code cursor} to fetch the next page; null on the last page.
+     */
+    private String nextCursor;
+}
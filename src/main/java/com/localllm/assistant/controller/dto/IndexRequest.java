@@ -9,4 +9,8 @@ import lombok.Data;
 @Data
 public class IndexRequest {
     private String codebasePath;
+    /**
+     * Optional: Re-process every file instead of only those changed since the last run.
+     */
+    private Boolean fullReindex;
 } 
\ No newline at end of file
@@ -20,4 +20,5 @@ public class QueryRequest {
     private Integer llmMaxNewTokens;
     private String modelName;
     private String rerankerModelName;
+    private Boolean useAnswerCache;
 }
@@ -15,6 +15,10 @@ public class QueryResponse {
     private String answer;
     private List<SourceReference> sources;
     private String conversationId;
+    /**
+     * True if the answer was served from the answer cache instead of being generated.
+     */
+    private boolean cached;
 
     /**
      * Represents a code reference used as a source for the response.
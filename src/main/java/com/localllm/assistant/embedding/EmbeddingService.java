@@ -2,7 +2,9 @@ package com.localllm.assistant.embedding;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.parser.model.CodeSegment;
 
 /**
@@ -15,21 +17,42 @@ public interface EmbeddingService {
      * Generates a vector embedding for a single text string asynchronously.
      *
      * @param text The text content to embed.
-     * @return A CompletableFuture containing a List of Float representing the embedding vector.
-     *         Completes exceptionally with EmbeddingException if generation fails.
+     * @return A CompletableFuture containing the embedding vector ({@link EmbeddingVector#EMPTY} on failure).
      */
-    CompletableFuture<List<Float>> generateEmbeddingAsync(String text);
+    CompletableFuture<EmbeddingVector> embedAsync(String text);
 
     /**
      * Generates vector embeddings for a batch of CodeSegment objects asynchronously.
      * Implementations should handle batching requests to the embedding model if supported/efficient.
      *
      * @param segments A List of CodeSegment objects whose 'content' needs embedding.
-     * @return A CompletableFuture containing a List of List<Float>, where each inner list
-     *         is the embedding vector corresponding to the CodeSegment at the same index
-     *         in the input list. Completes exceptionally if batch generation fails.
-     *         Individual segment embedding errors should be handled (e.g., return null or empty list
-     *         for that segment and log the error).
+     * @return A CompletableFuture containing one vector per input segment, at the same index.
+     *         Individual segment embedding errors are reported as {@link EmbeddingVector#EMPTY}.
+     */
+    CompletableFuture<List<EmbeddingVector>> embedSegmentsAsync(List<CodeSegment> segments);
+
+    /**
+     * List-based adapter for {@link #embedAsync(String)}.
+     *
+     * @param text The text content to embed.
+     * @return A CompletableFuture containing a List of Float representing the embedding vector.
+     * @deprecated Use {@link #embedAsync(String)}; boxing every component is wasteful.
+     */
+    @Deprecated
+    default CompletableFuture<List<Float>> generateEmbeddingAsync(String text) {
+        return embedAsync(text).thenApply(EmbeddingVector::asList);
+    }
+
+    /**
+     * List-based adapter for {@link #embedSegmentsAsync(List)}.
+     *
+     * @param segments A List of CodeSegment objects whose 'content' needs embedding.
+     * @return A CompletableFuture containing a List of List&lt;Float&gt;, one per input segment.
+     * @deprecated Use {@link #embedSegmentsAsync(List)}; boxing every component is wasteful.
      */
-    CompletableFuture<List<List<Float>>> generateEmbeddingsAsync(List<CodeSegment> segments);
-} 
\ No newline at end of file
+    @Deprecated
+    default CompletableFuture<List<List<Float>>> generateEmbeddingsAsync(List<CodeSegment> segments) {
+        return embedSegmentsAsync(segments)
+            .thenApply(vectors -> vectors.stream().map(EmbeddingVector::asList).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,448 @@
+package com.localllm.assistant.embedding.cache;
+
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent, content-addressed embedding cache.
+ * <p>
+ * Embeddings are stored as packed floats in an append-only file; an in-memory
+ * LRU index maps {@code model + SHA-256(content)} to the record's offset. Records evicted from
+ * the index become dead bytes in the file; once they pass {@code embedding.cache.maxDeadFraction}
+ * of it, the live records are rewritten into a fresh file, at startup or right after the put that
+ * crossed the threshold. The copy runs outside the cache lock, so lookups and puts continue while
+ * it runs. A record that was only partially written (e.g. on crash) is truncated away on load.
+ * <p>
+ * Record layout: {@code [short keyLength][key bytes (UTF-8)][int dimension][dimension * float]}.
+ */
+@Component
+public class DiskEmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskEmbeddingCache.class);
+    private static final int MAGIC = 0x454D4243; // "EMBC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_DIMENSION = 1 << 16;
+
+    @Value("${embedding.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${embedding.cache.path:./data/embedding-cache.bin}")
+    private String cachePath;
+
+    @Value("${embedding.cache.maxEntries:200000}")
+    private int maxEntries;
+
+    @Value("${embedding.cache.maxDeadFraction:0.5}")
+    private double maxDeadFraction;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    private Map<String, RecordLocation> index;
+    private FileChannel channel;
+    private Path file;
+    /** Bytes of records no longer reachable from the index. Guarded by {@code this}. */
+    private long deadBytes;
+    /** Set while a compaction copies records, so only one runs at a time. Guarded by {@code this}. */
+    private boolean compacting;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            log.info("Embedding cache disabled.");
+            return;
+        }
+        index = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecordLocation> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    deadBytes += eldest.getValue().recordBytes;
+                    return true;
+                }
+                return false;
+            }
+        };
+        file = Path.of(cachePath);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+            compactIfNeeded();
+            log.info("Embedding cache opened at {} with {} entries (max {}), {} bytes on disk.",
+                file.toAbsolutePath(), index.size(), maxEntries, channel.size());
+        } catch (IOException e) {
+            log.error("Failed to open embedding cache at {}. Continuing without cache: {}", file, e.getMessage(), e);
+            closeQuietly();
+            enabled = false;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel != null) {
+            log.info("Closing embedding cache. Hit rate this session: {}", String.format("%.1f%%", stats().getHitRate() * 100));
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                log.warn("Failed to flush embedding cache: {}", e.getMessage());
+            }
+            closeQuietly();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the cache key for a piece of content embedded with the given model.
+     * The full SHA-256 is used rather than the shortened segment checksum to keep collisions out of the picture.
+     */
+    public static String cacheKey(String model, String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+            return model + ':' + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    /**
+     * Looks up an embedding.
+     *
+     * @param key Key produced by {@link #cacheKey(String, String)}.
+     * @return The cached embedding, or null on a miss.
+     */
+    public EmbeddingVector get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        RecordLocation location;
+        FileChannel source;
+        synchronized (this) {
+            location = index.get(key);
+            source = channel;
+        }
+        if (location == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            // The offset belongs to the channel it was read with; if a compaction has swapped the file
+            // since, the old channel is closed and this read fails as a miss instead of returning
+            // another record's bytes.
+            ByteBuffer buffer = ByteBuffer.allocate(location.dimension * Float.BYTES);
+            readFully(source, buffer, location.vectorOffset);
+            buffer.flip();
+            float[] values = new float[location.dimension];
+            buffer.asFloatBuffer().get(values);
+            hits.incrementAndGet();
+            return EmbeddingVector.wrap(values);
+        } catch (IOException e) {
+            log.warn("Failed to read cached embedding for key {}: {}", key, e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores an embedding. Empty embeddings are ignored so failures are never cached.
+     */
+    public void put(String key, EmbeddingVector embedding) {
+        if (!enabled || embedding == null || embedding.isEmpty()) {
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(Short.BYTES + keyBytes.length + Integer.BYTES + embedding.dimension() * Float.BYTES);
+        record.putShort((short) keyBytes.length).put(keyBytes).putInt(embedding.dimension());
+        record.asFloatBuffer().put(embedding.array());
+        record.position(record.position() + embedding.dimension() * Float.BYTES);
+        record.flip();
+        synchronized (this) {
+            if (channel == null || index.containsKey(key)) {
+                return;
+            }
+            try {
+                long recordOffset = channel.size();
+                while (record.hasRemaining()) {
+                    channel.write(record, recordOffset + record.position());
+                }
+                long vectorOffset = recordOffset + Short.BYTES + keyBytes.length + Integer.BYTES;
+                index.put(key, new RecordLocation(vectorOffset, embedding.dimension(), record.limit()));
+            } catch (IOException e) {
+                log.warn("Failed to append embedding to cache: {}", e.getMessage());
+                return;
+            }
+        }
+        compactIfNeeded();
+    }
+
+    public EmbeddingCacheStats stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        int size;
+        long fileSize = 0;
+        long dead;
+        synchronized (this) {
+            size = index != null ? index.size() : 0;
+            dead = deadBytes;
+            try {
+                fileSize = channel != null ? channel.size() : 0;
+            } catch (IOException ignored) {
+                // size is informational only
+            }
+        }
+        return EmbeddingCacheStats.builder()
+            .enabled(enabled)
+            .hits(hitCount)
+            .misses(missCount)
+            .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+            .entries(size)
+            .maxEntries(maxEntries)
+            .evictions(evictions.get())
+            .fileSizeBytes(fileSize)
+            .deadBytes(dead)
+            .compactions(compactions.get())
+            .build();
+    }
+
+    /**
+     * Scans the file and rebuilds the index. Returns the number of records found.
+     */
+    private synchronized int load() throws IOException {
+        deadBytes = 0;
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.write(header, 0);
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            log.warn("Embedding cache file has an unknown format. Discarding it.");
+            channel.truncate(0);
+            return load();
+        }
+
+        int records = 0;
+        long position = HEADER_BYTES;
+        ByteBuffer shortBuf = ByteBuffer.allocate(Short.BYTES);
+        ByteBuffer intBuf = ByteBuffer.allocate(Integer.BYTES);
+        while (position < fileSize) {
+            try {
+                shortBuf.clear();
+                readFully(shortBuf, position);
+                int keyLength = shortBuf.flip().getShort() & 0xFFFF;
+                ByteBuffer keyBuf = ByteBuffer.allocate(keyLength);
+                readFully(keyBuf, position + Short.BYTES);
+                intBuf.clear();
+                readFully(intBuf, position + Short.BYTES + keyLength);
+                int dimension = intBuf.flip().getInt();
+                long vectorOffset = position + Short.BYTES + keyLength + Integer.BYTES;
+                long recordEnd = vectorOffset + (long) dimension * Float.BYTES;
+                if (dimension <= 0 || dimension > MAX_DIMENSION || recordEnd > fileSize) {
+                    throw new IOException("truncated record");
+                }
+                RecordLocation replaced = index.put(new String(keyBuf.array(), StandardCharsets.UTF_8),
+                    new RecordLocation(vectorOffset, dimension, recordEnd - position));
+                if (replaced != null) {
+                    deadBytes += replaced.recordBytes;
+                }
+                records++;
+                position = recordEnd;
+            } catch (IOException e) {
+                log.warn("Embedding cache file has a damaged tail at offset {} of {}. Truncating.", position, fileSize);
+                channel.truncate(position);
+                break;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Compacts the file when dead records make up more than {@code maxDeadFraction} of it.
+     */
+    private void compactIfNeeded() {
+        synchronized (this) {
+            if (compacting || channel == null) {
+                return;
+            }
+            try {
+                long recordBytes = channel.size() - HEADER_BYTES;
+                if (deadBytes == 0 || deadBytes <= maxDeadFraction * recordBytes) {
+                    return;
+                }
+            } catch (IOException e) {
+                return;
+            }
+            compacting = true;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            log.warn("Failed to compact embedding cache at {}: {}", file, e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file with only the records still present in the index. The records present when
+     * the compaction starts are copied without holding the lock; the file is append-only, so they
+     * cannot change underneath. Records appended meanwhile are copied over as a block under the lock,
+     * right before the new file replaces the old one.
+     */
+    private void compact() throws IOException {
+        List<RecordLocation> snapshot;
+        FileChannel source;
+        long copiedEnd;
+        synchronized (this) {
+            source = channel;
+            copiedEnd = channel.size();
+            snapshot = new ArrayList<>(index.values());
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        Map<RecordLocation, RecordLocation> moved = new IdentityHashMap<>();
+        boolean replaced = false;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            out.write(header);
+            long position = HEADER_BYTES;
+            for (RecordLocation location : snapshot) {
+                long recordOffset = location.vectorOffset - (location.recordBytes - (long) location.dimension * Float.BYTES);
+                ByteBuffer record = ByteBuffer.allocate((int) location.recordBytes);
+                readFully(source, record, recordOffset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                moved.put(location, new RecordLocation(position + (location.vectorOffset - recordOffset),
+                    location.dimension, location.recordBytes));
+                position += location.recordBytes;
+            }
+
+            synchronized (this) {
+                long appendedBytes = channel.size() - copiedEnd;
+                long transferred = 0;
+                while (transferred < appendedBytes) {
+                    transferred += channel.transferTo(copiedEnd + transferred, appendedBytes - transferred, out);
+                }
+                out.force(true);
+
+                long shift = position - copiedEnd;
+                Map<String, RecordLocation> compacted = new LinkedHashMap<>();
+                long liveBytes = 0;
+                for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+                    RecordLocation location = entry.getValue();
+                    RecordLocation relocated = moved.get(location);
+                    if (relocated == null) {
+                        // Appended while the snapshot was being copied.
+                        relocated = new RecordLocation(location.vectorOffset + shift, location.dimension, location.recordBytes);
+                    }
+                    compacted.put(entry.getKey(), relocated);
+                    liveBytes += location.recordBytes;
+                }
+
+                channel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                replaced = true;
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                index.clear();
+                index.putAll(compacted);
+                deadBytes = channel.size() - HEADER_BYTES - liveBytes;
+                compactions.incrementAndGet();
+                log.info("Compacted embedding cache to {} entries ({} bytes).", index.size(), channel.size());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            synchronized (this) {
+                if (replaced) {
+                    // The new file is in place but the index still points into the old one.
+                    log.error("Embedding cache file could not be reopened after compaction. Continuing without cache.");
+                    closeQuietly();
+                    enabled = false;
+                } else if (channel != null && !channel.isOpen()) {
+                    // The old file was closed but not replaced; it still matches the index.
+                    channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        readFully(channel, buffer, position);
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of embedding cache file");
+            }
+            offset += read;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // nothing useful to do on close failure
+        }
+        channel = null;
+    }
+
+    private static final class RecordLocation {
+        private final long vectorOffset;
+        private final int dimension;
+        private final long recordBytes;
+
+        private RecordLocation(long vectorOffset, int dimension, long recordBytes) {
+            this.vectorOffset = vectorOffset;
+            this.dimension = dimension;
+            this.recordBytes = recordBytes;
+        }
+    }
+}
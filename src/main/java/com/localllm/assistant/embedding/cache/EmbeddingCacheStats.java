@@ -0,0 +1,22 @@
+package com.localllm.assistant.embedding.cache;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the embedding cache counters.
+ */
+@Getter
+@Builder
+public class EmbeddingCacheStats {
+    private final boolean enabled;
+    private final long hits;
+    private final long misses;
+    private final double hitRate;
+    private final int entries;
+    private final int maxEntries;
+    private final long evictions;
+    private final long fileSizeBytes;
+    private final long deadBytes;
+    private final long compactions;
+}
@@ -0,0 +1,170 @@
+package com.localllm.assistant.embedding.cache;
+
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory LRU/TTL cache of query embeddings with request coalescing.
+ * <p>
+ * Entries are keyed by embedding model and normalized query text (trimmed, whitespace collapsed,
+ * lowercased), so re-asked questions skip the Ollama round trip. Concurrent misses for the same key
+ * share one in-flight request (single-flight): the first caller loads, the others wait on its
+ * result. Failed or empty embeddings are never cached. Every caller gets its own copy of the shared
+ * future, so cancelling one does not affect the others.
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    @Value("${embedding.queryCache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${embedding.queryCache.maxEntries:1000}")
+    private int maxEntries;
+
+    @Value("${embedding.queryCache.ttlSeconds:3600}")
+    private long ttlSeconds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    private final ConcurrentMap<String, CompletableFuture<EmbeddingVector>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedEmbedding> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedEmbedding> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached embedding of {@code text}, joins an in-flight request for it, or starts one
+     * with {@code loader}.
+     *
+     * @param model  Embedding model the vector is produced by
+     * @param text   Query text as asked; normalization only applies to the key
+     * @param loader Embeds {@code text}; invoked at most once per key at a time
+     */
+    public CompletableFuture<EmbeddingVector> get(String model, String text, Supplier<CompletableFuture<EmbeddingVector>> loader) {
+        if (!enabled || text == null || text.isBlank()) {
+            return loader.get();
+        }
+        String key = cacheKey(model, text);
+        EmbeddingVector cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<EmbeddingVector> promise = new CompletableFuture<>();
+        CompletableFuture<EmbeddingVector> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy();
+        }
+        // A load may have completed between the lookup and winning the in-flight slot.
+        cached = lookup(key);
+        if (cached != null) {
+            inFlight.remove(key, promise);
+            promise.complete(cached);
+            hits.incrementAndGet();
+            return promise.copy();
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<EmbeddingVector> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((embedding, ex) -> {
+            if (ex == null && embedding != null && !embedding.isEmpty()) {
+                store(key, embedding);
+            }
+            inFlight.remove(key, promise);
+            if (ex != null) {
+                promise.completeExceptionally(ex);
+            } else {
+                promise.complete(embedding);
+            }
+        });
+        return promise.copy();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public QueryEmbeddingCacheStats stats() {
+        long hitCount = hits.get();
+        long coalescedCount = coalesced.get();
+        long missCount = misses.get();
+        long total = hitCount + coalescedCount + missCount;
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return QueryEmbeddingCacheStats.builder()
+            .enabled(enabled)
+            .hits(hitCount)
+            .coalesced(coalescedCount)
+            .misses(missCount)
+            .hitRate(total == 0 ? 0.0 : (double) (hitCount + coalescedCount) / total)
+            .inFlight(inFlight.size())
+            .entries(size)
+            .maxEntries(maxEntries)
+            .ttlSeconds(ttlSeconds)
+            .evictions(evictions.get())
+            .expirations(expirations.get())
+            .build();
+    }
+
+    /**
+     * Key for a query: model plus the text trimmed, whitespace-collapsed and lowercased, so trivially
+     * different phrasings of the same question share an entry.
+     */
+    static String cacheKey(String model, String text) {
+        return model + ':' + text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private synchronized EmbeddingVector lookup(String key) {
+        CachedEmbedding entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAtNanos > TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            return null;
+        }
+        return entry.embedding;
+    }
+
+    private synchronized void store(String key, EmbeddingVector embedding) {
+        entries.put(key, new CachedEmbedding(embedding, System.nanoTime()));
+    }
+
+    private record CachedEmbedding(EmbeddingVector embedding, long storedAtNanos) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.localllm.assistant.embedding.cache;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the query embedding cache counters. {@code coalesced} counts requests that joined an
+ * in-flight embedding for the same query; they count as hits in {@code hitRate}.
+ */
+@Getter
+@Builder
+public class QueryEmbeddingCacheStats {
+    private final boolean enabled;
+    private final long hits;
+    private final long coalesced;
+    private final long misses;
+    private final double hitRate;
+    private final int inFlight;
+    private final int entries;
+    private final int maxEntries;
+    private final long ttlSeconds;
+    private final long evictions;
+    private final long expirations;
+}
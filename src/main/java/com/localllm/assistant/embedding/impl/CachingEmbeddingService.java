@@ -0,0 +1,110 @@
+package com.localllm.assistant.embedding.impl;
+
+import com.localllm.assistant.config.OllamaConfig;
+import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.cache.DiskEmbeddingCache;
+import com.localllm.assistant.embedding.cache.EmbeddingCacheStats;
+import com.localllm.assistant.embedding.cache.QueryEmbeddingCache;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.parser.model.CodeSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link EmbeddingService} decorator that serves segment embeddings from the {@link DiskEmbeddingCache}
+ * and only forwards cache misses to the underlying Ollama service.
+ * Single-text (query) embeddings go through the in-memory {@link QueryEmbeddingCache}, which also
+ * coalesces concurrent identical queries into one Ollama request.
+ */
+@Service
+@Primary
+public class CachingEmbeddingService implements EmbeddingService {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingEmbeddingService.class);
+
+    private final EmbeddingService delegate;
+    private final DiskEmbeddingCache embeddingCache;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final OllamaConfig ollamaConfig;
+
+    public CachingEmbeddingService(
+        @Qualifier("ollamaEmbeddingServiceImpl") EmbeddingService delegate,
+        DiskEmbeddingCache embeddingCache,
+        QueryEmbeddingCache queryEmbeddingCache,
+        OllamaConfig ollamaConfig) {
+        this.delegate = delegate;
+        this.embeddingCache = embeddingCache;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.ollamaConfig = ollamaConfig;
+    }
+
+    @Override
+    public CompletableFuture<EmbeddingVector> embedAsync(String text) {
+        return queryEmbeddingCache.get(ollamaConfig.getEmbeddingModel(), text, () -> delegate.embedAsync(text));
+    }
+
+    @Override
+    public CompletableFuture<List<EmbeddingVector>> embedSegmentsAsync(List<CodeSegment> segments) {
+        if (!embeddingCache.isEnabled() || segments == null || segments.isEmpty()) {
+            return delegate.embedSegmentsAsync(segments);
+        }
+
+        String model = ollamaConfig.getEmbeddingModel();
+        List<EmbeddingVector> results = new ArrayList<>(Collections.nCopies(segments.size(), EmbeddingVector.EMPTY));
+        List<String> keys = new ArrayList<>(Collections.nCopies(segments.size(), null));
+        List<CodeSegment> missedSegments = new ArrayList<>();
+        List<Integer> missedIndexes = new ArrayList<>();
+        int hitCount = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            CodeSegment segment = segments.get(i);
+            if (segment == null || segment.getContent() == null || segment.getContent().isBlank()) {
+                continue;
+            }
+            String key = DiskEmbeddingCache.cacheKey(model, segment.getContent());
+            keys.set(i, key);
+            EmbeddingVector cached = embeddingCache.get(key);
+            if (cached != null) {
+                results.set(i, cached);
+                hitCount++;
+            } else {
+                missedSegments.add(segment);
+                missedIndexes.add(i);
+            }
+        }
+
+        int cacheHits = hitCount;
+        if (missedSegments.isEmpty()) {
+            logBatchStats(segments.size(), cacheHits);
+            return CompletableFuture.completedFuture(results);
+        }
+
+        return delegate.embedSegmentsAsync(missedSegments)
+            .thenApply(embeddings -> {
+                for (int j = 0; j < missedIndexes.size() && embeddings != null && j < embeddings.size(); j++) {
+                    int originalIndex = missedIndexes.get(j);
+                    EmbeddingVector embedding = embeddings.get(j);
+                    if (embedding != null && !embedding.isEmpty()) {
+                        results.set(originalIndex, embedding);
+                        embeddingCache.put(keys.get(originalIndex), embedding);
+                    }
+                }
+                logBatchStats(segments.size(), cacheHits);
+                return results;
+            });
+    }
+
+    private void logBatchStats(int requested, int cacheHits) {
+        EmbeddingCacheStats stats = embeddingCache.stats();
+        log.info("Embedding cache: {}/{} segments served from cache. Overall hit rate: {} ({} entries)",
+            cacheHits, requested, String.format("%.1f%%", stats.getHitRate() * 100), stats.getEntries());
+    }
+}
@@ -0,0 +1,268 @@
+package com.localllm.assistant.embedding.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming consumer for Ollama embedding responses.
+ * <p>
+ * Response bytes are fed to a non-blocking Jackson parser as they arrive and the numbers of the
+ * {@code "embedding"} (single) or {@code "embeddings"} (batch) arrays are written straight into
+ * float arrays. The body is never materialized as a String or a JSON tree; other fields are skipped.
+ * Non-200 bodies are not parsed, only their first few KB are kept for logging.
+ */
+class EmbeddingResponseConsumer extends AbstractBinResponseConsumer<EmbeddingResponseConsumer.Result> {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_ERROR_BODY_BYTES = 2048;
+    private static final int DEFAULT_DIMENSION_HINT = 1024;
+
+    private final JsonFactory jsonFactory;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final List<EmbeddingVector> vectors;
+
+    private int statusCode;
+    private JsonParser parser;
+    private ByteArrayOutputStream errorBody;
+    private String parseError;
+
+    // Parse state
+    private int depth;
+    private int skipDepth = -1;
+    private String embeddingField;
+    private boolean inOuterArray;
+    private boolean singleEmbedding;
+    private float[] current;
+    private int currentSize;
+    private int dimensionHint = DEFAULT_DIMENSION_HINT;
+
+    EmbeddingResponseConsumer(JsonFactory jsonFactory, int expectedCount) {
+        this.jsonFactory = jsonFactory;
+        this.vectors = new ArrayList<>(Math.max(1, expectedCount));
+    }
+
+    @Override
+    protected void start(HttpResponse response, ContentType contentType) throws IOException {
+        statusCode = response.getCode();
+        if (statusCode == 200) {
+            parser = jsonFactory.createNonBlockingByteArrayParser();
+        } else {
+            errorBody = new ByteArrayOutputStream();
+        }
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return CHUNK_SIZE;
+    }
+
+    @Override
+    protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+        if (errorBody != null) {
+            int room = MAX_ERROR_BODY_BYTES - errorBody.size();
+            int n = Math.min(room, src.remaining());
+            if (n > 0) {
+                src.get(chunk, 0, n);
+                errorBody.write(chunk, 0, n);
+            }
+            src.position(src.limit());
+            return;
+        }
+        if (parser == null || parseError != null) {
+            src.position(src.limit());
+            return;
+        }
+        ByteArrayFeeder feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        try {
+            while (src.hasRemaining()) {
+                int n = Math.min(chunk.length, src.remaining());
+                src.get(chunk, 0, n);
+                feeder.feedInput(chunk, 0, n);
+                drainTokens();
+            }
+            if (endOfStream) {
+                feeder.endOfInput();
+                drainTokens();
+            }
+        } catch (IOException e) {
+            parseError = e.getMessage();
+            src.position(src.limit());
+        }
+    }
+
+    private void drainTokens() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            onToken(token);
+        }
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+        if (skipDepth >= 0) {
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd() && --depth == skipDepth) {
+                skipDepth = -1;
+            }
+            return;
+        }
+        switch (token) {
+            case FIELD_NAME -> {
+                if (depth == 1) {
+                    String name = parser.currentName();
+                    embeddingField = "embedding".equals(name) || "embeddings".equals(name) ? name : null;
+                }
+            }
+            case START_OBJECT -> {
+                if (depth > 0 && embeddingField == null) {
+                    skipDepth = depth;
+                } else if (depth > 0) {
+                    throw new IOException("Unexpected object inside '" + embeddingField + "'");
+                }
+                depth++;
+            }
+            case START_ARRAY -> {
+                if (depth == 1 && embeddingField == null) {
+                    skipDepth = depth;
+                } else if (depth == 1 && "embeddings".equals(embeddingField)) {
+                    inOuterArray = true;
+                } else if ((depth == 1 && "embedding".equals(embeddingField)) || (depth == 2 && inOuterArray)) {
+                    current = new float[dimensionHint];
+                    currentSize = 0;
+                } else {
+                    throw new IOException("Unexpected array nesting in embedding response");
+                }
+                depth++;
+            }
+            case END_ARRAY -> {
+                depth--;
+                if (current != null) {
+                    finishVector();
+                } else if (depth == 1) {
+                    inOuterArray = false;
+                    embeddingField = null;
+                }
+            }
+            case END_OBJECT -> depth--;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                if (current != null) {
+                    if (currentSize == current.length) {
+                        current = Arrays.copyOf(current, current.length * 2);
+                    }
+                    current[currentSize++] = parser.getFloatValue();
+                } else {
+                    resetScalarField();
+                }
+            }
+            case VALUE_NULL -> {
+                if (current != null) {
+                    // Null components have always been read as 0; keep that so positions stay aligned.
+                    if (currentSize == current.length) {
+                        current = Arrays.copyOf(current, current.length * 2);
+                    }
+                    current[currentSize++] = 0.0f;
+                } else if (inOuterArray) {
+                    vectors.add(EmbeddingVector.EMPTY);
+                } else {
+                    resetScalarField();
+                }
+            }
+            default -> resetScalarField();
+        }
+    }
+
+    private void resetScalarField() {
+        if (depth == 1) {
+            embeddingField = null;
+        }
+    }
+
+    private void finishVector() {
+        float[] values = currentSize == current.length ? current : Arrays.copyOf(current, currentSize);
+        vectors.add(EmbeddingVector.wrap(values));
+        if (currentSize > 0) {
+            // Every vector from one model has the same dimension, so later arrays are sized exactly.
+            dimensionHint = currentSize;
+        }
+        current = null;
+        currentSize = 0;
+        if (!inOuterArray) {
+            singleEmbedding = true;
+            embeddingField = null;
+        }
+    }
+
+    @Override
+    protected Result buildResult() {
+        String error = errorBody != null ? errorBody.toString(StandardCharsets.UTF_8) : parseError;
+        return new Result(statusCode, vectors, singleEmbedding, error);
+    }
+
+    @Override
+    public void releaseResources() {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing useful to do, the parser only holds in-memory buffers.
+            }
+            parser = null;
+        }
+    }
+
+    /**
+     * Outcome of one embedding HTTP call.
+     */
+    static final class Result {
+        private final int statusCode;
+        private final List<EmbeddingVector> vectors;
+        private final boolean singleEmbedding;
+        private final String error;
+
+        Result(int statusCode, List<EmbeddingVector> vectors, boolean singleEmbedding, String error) {
+            this.statusCode = statusCode;
+            this.vectors = vectors;
+            this.singleEmbedding = singleEmbedding;
+            this.error = error;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Vectors in response order; empty if the response carried no embedding array.
+         */
+        List<EmbeddingVector> getVectors() {
+            return vectors;
+        }
+
+        /**
+         * True when the response used the single {@code "embedding"} field rather than {@code "embeddings"}.
+         */
+        boolean isSingleEmbedding() {
+            return singleEmbedding;
+        }
+
+        /**
+         * Error body (non-200) or JSON parse error message, null otherwise.
+         */
+        String getError() {
+            return error;
+        }
+    }
+}
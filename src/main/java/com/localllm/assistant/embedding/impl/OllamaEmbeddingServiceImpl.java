@@ -1,16 +1,18 @@
 package com.localllm.assistant.embedding.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
 import com.localllm.assistant.config.AsyncConfig;
+import com.localllm.assistant.config.LimiterConfig;
 import com.localllm.assistant.config.OllamaConfig;
 import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.exception.EmbeddingException;
 import com.localllm.assistant.parser.model.CodeSegment;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
-import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,22 +43,37 @@ public class OllamaEmbeddingServiceImpl implements EmbeddingService {
     private final OllamaConfig ollamaConfig;
     private final ObjectMapper objectMapper;
     private final URI embeddingsUri;
+    private final URI embedUri;
     private final Executor embeddingExecutor;
+    private final AdaptiveConcurrencyLimiter embeddingLimiter;
+    private final AtomicBoolean batchEndpointUnsupported = new AtomicBoolean(false);
 
     @Value("${ollama.embedding.batchSize:1}")
     private int ollamaClientBatchSize;
 
+    @Value("${ollama.embedding.useBatchEndpoint:true}")
+    private boolean useBatchEndpoint;
+
+    @Value("${ollama.embedding.maxBatchChars:16000}")
+    private int maxBatchChars;
+
+    @Value("${ollama.embedding.maxBatchItems:64}")
+    private int maxBatchItems;
+
     public OllamaEmbeddingServiceImpl(
         @Qualifier("sharedHttpAsyncClient") CloseableHttpAsyncClient httpAsyncClient,
         OllamaConfig ollamaConfig,
         ObjectMapper objectMapper,
-        @Qualifier(AsyncConfig.TASK_EXECUTOR_EMBEDDING) Executor embeddingExecutor) {
+        @Qualifier(AsyncConfig.TASK_EXECUTOR_EMBEDDING) Executor embeddingExecutor,
+        @Qualifier(LimiterConfig.LIMITER_OLLAMA_EMBEDDING) AdaptiveConcurrencyLimiter embeddingLimiter) {
         this.httpAsyncClient = httpAsyncClient;
         this.ollamaConfig = ollamaConfig;
         this.objectMapper = objectMapper;
         this.embeddingExecutor = embeddingExecutor;
+        this.embeddingLimiter = embeddingLimiter;
         try {
             this.embeddingsUri = new URI(ollamaConfig.getBaseUrl() + "/api/embeddings");
+            this.embedUri = new URI(ollamaConfig.getBaseUrl() + "/api/embed");
         } catch (URISyntaxException e) {
             log.error("Invalid Ollama base URL: {}", ollamaConfig.getBaseUrl(), e);
             throw new EmbeddingException("Invalid Ollama base URL configuration", e);
@@ -64,34 +82,40 @@ public class OllamaEmbeddingServiceImpl implements EmbeddingService {
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_EMBEDDING)
-    public CompletableFuture<List<Float>> generateEmbeddingAsync(String text) {
+    public CompletableFuture<EmbeddingVector> embedAsync(String text) {
         log.debug("Generating single embedding for text length {}", text.length());
         if (text == null || text.isBlank()) {
             log.warn("Attempted to generate embedding for null or blank text.");
-            return CompletableFuture.completedFuture(Collections.emptyList());
+            return CompletableFuture.completedFuture(EmbeddingVector.EMPTY);
         }
-        return callOllamaEmbeddingApi(List.of(text))
+        return embedBatch(List.of(text))
             .thenApplyAsync(embeddingsList -> {
                 if (embeddingsList == null || embeddingsList.isEmpty() || embeddingsList.get(0) == null || embeddingsList.get(0).isEmpty()) {
                     log.warn("Ollama returned null or empty embedding for single text request starting with: '{}...'",
                         text.substring(0, Math.min(50, text.length())));
-                    return Collections.<Float>emptyList();
+                    return EmbeddingVector.EMPTY;
                 }
                 return embeddingsList.get(0);
             }, embeddingExecutor)
             .exceptionally(ex -> {
                 log.error("Failed to generate single embedding for text starting with: '{}...': {}", text.substring(0, Math.min(50, text.length())),
                     ex.getMessage(), ex);
-                return Collections.emptyList();
+                return EmbeddingVector.EMPTY;
             });
     }
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_EMBEDDING)
-    public CompletableFuture<List<List<Float>>> generateEmbeddingsAsync(List<CodeSegment> segments) {
-        log.info("Generating embeddings for {} code segments, client-side batch size: {}", segments.size(), ollamaClientBatchSize);
+    public CompletableFuture<List<EmbeddingVector>> embedSegmentsAsync(List<CodeSegment> segments) {
+        boolean batched = isBatchEndpointActive();
+        if (batched) {
+            log.info("Generating embeddings for {} code segments via /api/embed, batch budget: {} chars / {} items",
+                segments.size(), maxBatchChars, maxBatchItems);
+        } else {
+            log.info("Generating embeddings for {} code segments, client-side batch size: {}", segments.size(), ollamaClientBatchSize);
+        }
 
-        List<List<Float>> finalEmbeddingsInOrder = new ArrayList<>(Collections.nCopies(segments.size(), Collections.emptyList()));
+        List<EmbeddingVector> finalEmbeddingsInOrder = new ArrayList<>(Collections.nCopies(segments.size(), EmbeddingVector.EMPTY));
         List<EmbeddingTask> tasksToProcess = new ArrayList<>();
         for (int i = 0; i < segments.size(); i++) {
             CodeSegment segment = segments.get(i);
@@ -106,23 +130,24 @@ public class OllamaEmbeddingServiceImpl implements EmbeddingService {
         }
 
         List<CompletableFuture<Void>> allBatchProcessingFutures = new ArrayList<>();
-        int numActualBatches = (tasksToProcess.size() + ollamaClientBatchSize - 1) / ollamaClientBatchSize;
+        List<List<EmbeddingTask>> taskBatches = batched ? partitionBySize(tasksToProcess) : partitionByCount(tasksToProcess);
+        int numActualBatches = taskBatches.size();
         log.info("Splitting {} non-blank contents into {} batches for Ollama.", tasksToProcess.size(), numActualBatches);
 
-        for (int i = 0; i < tasksToProcess.size(); i += ollamaClientBatchSize) {
-            List<EmbeddingTask> currentBatchTasks = tasksToProcess.subList(i, Math.min(i + ollamaClientBatchSize, tasksToProcess.size()));
+        for (int b = 0; b < taskBatches.size(); b++) {
+            List<EmbeddingTask> currentBatchTasks = taskBatches.get(b);
             List<String> currentBatchContents = currentBatchTasks.stream().map(EmbeddingTask::getContent).collect(Collectors.toList());
 
             if (!currentBatchContents.isEmpty()) {
-                int batchNumForLogging = (i / ollamaClientBatchSize) + 1;
+                int batchNumForLogging = b + 1;
                 log.debug("Submitting Ollama embedding batch {}/{} of size {}", batchNumForLogging, numActualBatches, currentBatchContents.size());
 
-                CompletableFuture<Void> batchCompletionFuture = callOllamaEmbeddingApi(currentBatchContents)
+                CompletableFuture<Void> batchCompletionFuture = embedBatch(currentBatchContents)
                     .thenAcceptAsync(batchEmbeddings -> {
                         if (batchEmbeddings != null && batchEmbeddings.size() == currentBatchTasks.size()) {
                             for (int j = 0; j < currentBatchTasks.size(); j++) {
                                 EmbeddingTask task = currentBatchTasks.get(j);
-                                List<Float> embedding = batchEmbeddings.get(j);
+                                EmbeddingVector embedding = batchEmbeddings.get(j);
                                 if (embedding != null && !embedding.isEmpty()) {
                                     finalEmbeddingsInOrder.set(task.getOriginalIndex(), embedding);
                                 } else {
@@ -153,10 +178,84 @@ public class OllamaEmbeddingServiceImpl implements EmbeddingService {
             }, embeddingExecutor)
             .exceptionally(ex -> {
                 log.error("Catastrophic failure during embedding batch processing orchestration: {}", ex.getMessage(), ex);
-                return Collections.nCopies(segments.size(), Collections.emptyList());
+                return Collections.nCopies(segments.size(), EmbeddingVector.EMPTY);
+            });
+    }
+
+    /**
+     * Groups tasks into batches bounded by total characters and item count, so a batch of many short
+     * segments and a batch of a few long ones cost Ollama roughly the same. Tasks keep their
+     * {@code originalIndex}, so results are written back in input order regardless of batching.
+     * A single task larger than the budget gets a batch of its own.
+     */
+    private List<List<EmbeddingTask>> partitionBySize(List<EmbeddingTask> tasks) {
+        int charBudget = Math.max(1, maxBatchChars);
+        int itemBudget = Math.max(1, maxBatchItems);
+        List<List<EmbeddingTask>> batches = new ArrayList<>();
+        List<EmbeddingTask> current = new ArrayList<>();
+        int currentChars = 0;
+        for (EmbeddingTask task : tasks) {
+            int taskChars = task.getContent().length();
+            if (!current.isEmpty() && (currentChars + taskChars > charBudget || current.size() >= itemBudget)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentChars = 0;
+            }
+            current.add(task);
+            currentChars += taskChars;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private List<List<EmbeddingTask>> partitionByCount(List<EmbeddingTask> tasks) {
+        int batchSize = Math.max(1, ollamaClientBatchSize);
+        List<List<EmbeddingTask>> batches = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i += batchSize) {
+            batches.add(tasks.subList(i, Math.min(i + batchSize, tasks.size())));
+        }
+        return batches;
+    }
+
+    private boolean isBatchEndpointActive() {
+        return useBatchEndpoint && !batchEndpointUnsupported.get();
+    }
+
+    /**
+     * Embeds one batch through /api/embed when enabled, falling back to the legacy /api/embeddings
+     * endpoint (permanently, for this process) if the Ollama server does not know the batch endpoint.
+     */
+    private CompletableFuture<List<EmbeddingVector>> embedBatch(List<String> contents) {
+        if (!isBatchEndpointActive()) {
+            return callOllamaEmbeddingApi(contents);
+        }
+        return callOllamaEmbedApi(contents)
+            .thenCompose(result -> {
+                if (result == null) {
+                    return embedWithLegacyEndpoint(contents);
+                }
+                return CompletableFuture.completedFuture(result);
             });
     }
 
+    /**
+     * Re-sends a size-based batch to the legacy endpoint in client-side batches of
+     * {@code ollama.embedding.batchSize}, the request size that endpoint is configured for.
+     */
+    private CompletableFuture<List<EmbeddingVector>> embedWithLegacyEndpoint(List<String> contents) {
+        int batchSize = Math.max(1, ollamaClientBatchSize);
+        List<CompletableFuture<List<EmbeddingVector>>> chunks = new ArrayList<>();
+        for (int i = 0; i < contents.size(); i += batchSize) {
+            chunks.add(callOllamaEmbeddingApi(contents.subList(i, Math.min(i + batchSize, contents.size()))));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+            .thenApply(v -> chunks.stream()
+                .flatMap(chunk -> chunk.join().stream())
+                .collect(Collectors.toList()));
+    }
+
     private static class EmbeddingTask {
         private final int originalIndex;
         private final String content;
@@ -175,139 +274,151 @@ public class OllamaEmbeddingServiceImpl implements EmbeddingService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private CompletableFuture<List<List<Float>>> callOllamaEmbeddingApi(List<String> promptsInBatch) {
-        CompletableFuture<List<List<Float>>> future = new CompletableFuture<>();
+    private CompletableFuture<List<EmbeddingVector>> callOllamaEmbeddingApi(List<String> promptsInBatch) {
         if (promptsInBatch == null || promptsInBatch.isEmpty()) {
             return CompletableFuture.completedFuture(Collections.emptyList());
         }
-        List<List<Float>> resultsForThisBatch = new ArrayList<>(Collections.nCopies(promptsInBatch.size(), Collections.emptyList()));
-
-        try {
-            Map<String, Object> requestBodyMap = new HashMap<>();
-            requestBodyMap.put("model", ollamaConfig.getEmbeddingModel());
-            if (promptsInBatch.size() == 1) {
-                requestBodyMap.put("prompt", promptsInBatch.get(0));
-            } else {
-                requestBodyMap.put("prompts", promptsInBatch);
-            }
-
-            String requestBodyJson = objectMapper.writeValueAsString(requestBodyMap);
-            SimpleHttpRequest request = SimpleRequestBuilder.post(embeddingsUri)
-                .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
-                .build();
-
-            log.debug("Sending Ollama embedding request for a batch of {} prompts using model '{}'. First prompt starts with: '{}...'",
-                promptsInBatch.size(), ollamaConfig.getEmbeddingModel(),
-                promptsInBatch.get(0).substring(0, Math.min(50, promptsInBatch.get(0).length())));
-
-            httpAsyncClient.execute(request, new FutureCallback<SimpleHttpResponse>() {
-                @Override
-                public void completed(SimpleHttpResponse response) {
-                    try {
-                        String responseBody = response.getBodyText();
-                        int statusCode = response.getCode();
-
-                        if (statusCode != 200) {
-                            log.error("Ollama API Error for batch: Status Code {}, Body: {}. Prompts count: {}", statusCode, responseBody,
-                                promptsInBatch.size());
-                            future.complete(resultsForThisBatch);
-                            return;
-                        }
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("model", ollamaConfig.getEmbeddingModel());
+        if (promptsInBatch.size() == 1) {
+            requestBodyMap.put("prompt", promptsInBatch.get(0));
+        } else {
+            requestBodyMap.put("prompts", promptsInBatch);
+        }
 
-                        JsonNode responseJsonNode = objectMapper.readTree(responseBody);
+        log.debug("Sending Ollama embedding request for a batch of {} prompts using model '{}'. First prompt starts with: '{}...'",
+            promptsInBatch.size(), ollamaConfig.getEmbeddingModel(),
+            promptsInBatch.get(0).substring(0, Math.min(50, promptsInBatch.get(0).length())));
 
-                        if (promptsInBatch.size() == 1 && responseJsonNode.has("embedding")) {
-                            JsonNode embeddingNode = responseJsonNode.get("embedding");
-                            if (embeddingNode.isArray() && !embeddingNode.isEmpty()) {
-                                List<Number> rawEmbedding = new ArrayList<>();
-                                for (JsonNode numNode : embeddingNode) {
-                                    rawEmbedding.add(numNode.numberValue());
-                                }
-                                resultsForThisBatch.set(0, convertToFloatList(rawEmbedding));
-                            } else {
-                                log.warn("Ollama returned single 'embedding' but it was not a valid array or was empty. Response: {}", responseBody);
-                            }
-                        } else if (promptsInBatch.size() > 1 && responseJsonNode.has("embeddings")) {
-                            JsonNode embeddingsArrayNode = responseJsonNode.get("embeddings");
-                            if (embeddingsArrayNode.isArray()) {
-                                if (embeddingsArrayNode.size() != promptsInBatch.size()) {
-                                    log.error(
-                                        "Ollama returned {} embedding lists in 'embeddings' field for a batch of {} prompts! Mismatch. Response: {}",
-                                        embeddingsArrayNode.size(), promptsInBatch.size(),
-                                        responseBody.substring(0, Math.min(500, responseBody.length())));
-
-                                    for (int i = 0; i < embeddingsArrayNode.size() && i < promptsInBatch.size(); i++) {
-                                        JsonNode singleEmbeddingArrayNode = embeddingsArrayNode.get(i);
-                                        if (singleEmbeddingArrayNode.isArray() && !singleEmbeddingArrayNode.isEmpty()) {
-                                            List<Number> rawEmbedding = new ArrayList<>();
-                                            for (JsonNode numNode : singleEmbeddingArrayNode) {
-                                                rawEmbedding.add(numNode.numberValue());
-                                            }
-                                            resultsForThisBatch.set(i, convertToFloatList(rawEmbedding));
-                                        }
-                                    }
-                                } else {
-                                    for (int i = 0; i < embeddingsArrayNode.size(); i++) {
-                                        JsonNode singleEmbeddingArrayNode = embeddingsArrayNode.get(i);
-                                        if (singleEmbeddingArrayNode.isArray() && !singleEmbeddingArrayNode.isEmpty()) {
-                                            List<Number> rawEmbedding = new ArrayList<>();
-                                            for (JsonNode numNode : singleEmbeddingArrayNode) {
-                                                rawEmbedding.add(numNode.numberValue());
-                                            }
-                                            resultsForThisBatch.set(i, convertToFloatList(rawEmbedding));
-                                        } else {
-                                            log.warn("Item at index {} in 'embeddings' array was not a valid array or was empty.", i);
-                                        }
-                                    }
-                                }
-                            } else {
-                                log.error("Ollama response 'embeddings' field was not an array. Response: {}", responseBody);
-                            }
-                        } else {
-                            log.error(
-                                "Ollama response missing 'embedding' (for single, size 1 batch) or 'embeddings' (for batch size > 1) field, or structure was unexpected. Response: {}. Prompts count: {}",
-                                responseBody, promptsInBatch.size());
-                        }
-                        log.debug("Successfully received and parsed response for a batch of {} prompts. Resulting valid embeddings in this batch: {}",
-                            promptsInBatch.size(), resultsForThisBatch.stream().filter(e -> !e.isEmpty()).count());
-                        future.complete(resultsForThisBatch);
-                    } catch (Exception e) {
-                        log.error("Failed to parse Ollama embedding response JSON for batch (prompts: {}): {}", promptsInBatch.size(), e.getMessage(),
-                            e);
-                        future.complete(resultsForThisBatch);
-                    }
+        return postForEmbeddings(embeddingsUri, "embeddings", requestBodyMap, promptsInBatch)
+            .thenApply(response -> {
+                if (response.getStatusCode() != 200) {
+                    log.error("Ollama API Error for batch: Status Code {}, Body: {}. Prompts count: {}", response.getStatusCode(),
+                        response.getError(), promptsInBatch.size());
+                    return emptyResults(promptsInBatch.size());
                 }
+                List<EmbeddingVector> results = alignResults(response, promptsInBatch.size(), "/api/embeddings");
+                log.debug("Successfully received and parsed response for a batch of {} prompts. Resulting valid embeddings in this batch: {}",
+                    promptsInBatch.size(), results.stream().filter(e -> !e.isEmpty()).count());
+                return results;
+            })
+            .exceptionally(ex -> {
+                log.error("Ollama embedding request failed for batch (prompts: {}): {}", promptsInBatch.size(), ex.getMessage(), ex);
+                return emptyResults(promptsInBatch.size());
+            });
+    }
 
-                @Override
-                public void failed(Exception ex) {
-                    log.error("Ollama embedding request failed for batch (prompts: {}): {}", promptsInBatch.size(), ex.getMessage(), ex);
-                    future.complete(resultsForThisBatch);
+    /**
+     * Calls Ollama's batch endpoint: {@code POST /api/embed {"model": ..., "input": [...]}} which answers
+     * with {@code {"embeddings": [[...], ...]}} in input order.
+     * Completes with {@code null} if the endpoint is not available (HTTP 404), so the caller can fall back.
+     */
+    private CompletableFuture<List<EmbeddingVector>> callOllamaEmbedApi(List<String> inputs) {
+        if (inputs == null || inputs.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        Map<String, Object> requestBodyMap = new HashMap<>();
+        requestBodyMap.put("model", ollamaConfig.getEmbeddingModel());
+        requestBodyMap.put("input", inputs);
+
+        log.debug("Sending Ollama /api/embed request for {} inputs ({} chars) using model '{}'",
+            inputs.size(), inputs.stream().mapToInt(String::length).sum(), ollamaConfig.getEmbeddingModel());
+
+        return postForEmbeddings(embedUri, "embed", requestBodyMap, inputs)
+            .thenApply(response -> {
+                int statusCode = response.getStatusCode();
+                if (statusCode == 404) {
+                    if (batchEndpointUnsupported.compareAndSet(false, true)) {
+                        log.warn("Ollama server does not support /api/embed (HTTP 404). Falling back to /api/embeddings.");
+                    }
+                    return null;
                 }
-
-                @Override
-                public void cancelled() {
-                    log.warn("Ollama embedding request cancelled for batch (prompts: {})", promptsInBatch.size());
-                    future.complete(resultsForThisBatch);
+                if (statusCode != 200) {
+                    log.error("Ollama /api/embed error: Status Code {}, Body: {}. Inputs count: {}", statusCode, response.getError(), inputs.size());
+                    return emptyResults(inputs.size());
                 }
+                return alignResults(response, inputs.size(), "/api/embed");
+            })
+            .exceptionally(ex -> {
+                log.error("Ollama /api/embed request failed for {} inputs: {}", inputs.size(), ex.getMessage(), ex);
+                return emptyResults(inputs.size());
             });
+    }
+
+    /**
+     * Posts an embedding request and stream-parses the response with {@link EmbeddingResponseConsumer},
+     * so vectors go from the socket buffers into float arrays without an intermediate String or JSON tree.
+     * The limiter judges latency per input character, so a large batch is not mistaken for an overloaded server.
+     */
+    private CompletableFuture<EmbeddingResponseConsumer.Result> postForEmbeddings(URI uri, String requestClass, Map<String, Object> requestBodyMap,
+                                                                                 List<String> inputs) {
+        CompletableFuture<EmbeddingResponseConsumer.Result> future = new CompletableFuture<>();
+        int expectedCount = inputs.size();
+        try {
+            SimpleHttpRequest request = SimpleRequestBuilder.post(uri)
+                .setBody(objectMapper.writeValueAsBytes(requestBodyMap), ContentType.APPLICATION_JSON)
+                .build();
+            embeddingLimiter.execute(httpAsyncClient, SimpleRequestProducer.create(request),
+                requestClass, inputs.stream().mapToLong(String::length).sum(),
+                new EmbeddingResponseConsumer(objectMapper.getFactory(), expectedCount),
+                EmbeddingResponseConsumer.Result::getStatusCode,
+                new FutureCallback<EmbeddingResponseConsumer.Result>() {
+                    @Override
+                    public void completed(EmbeddingResponseConsumer.Result result) {
+                        future.complete(result);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        future.completeExceptionally(ex);
+                    }
 
+                    @Override
+                    public void cancelled() {
+                        future.cancel(false);
+                    }
+                });
         } catch (JsonProcessingException e) {
-            log.error("Failed to serialize Ollama request body for batch (prompts: {})", promptsInBatch.size(), e);
-            future.complete(resultsForThisBatch);
-        } catch (Exception e) {
-            log.error("Unexpected error preparing Ollama embedding request for batch (prompts: {})", promptsInBatch.size(), e);
-            future.complete(resultsForThisBatch);
+            log.error("Failed to serialize Ollama request body for {} inputs", expectedCount, e);
+            future.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error preparing Ollama embedding request for {} inputs", expectedCount, e);
+            future.completeExceptionally(e);
         }
         return future;
     }
 
-    private List<Float> convertToFloatList(List<Number> numbers) {
-        if (numbers == null || numbers.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * Maps parsed vectors onto input positions. A count mismatch keeps the aligned prefix; missing or
+     * unparseable entries stay {@link EmbeddingVector#EMPTY}.
+     */
+    private List<EmbeddingVector> alignResults(EmbeddingResponseConsumer.Result response, int expectedCount, String endpoint) {
+        List<EmbeddingVector> results = emptyResults(expectedCount);
+        if (response.getError() != null) {
+            log.error("Failed to parse Ollama {} response for {} inputs: {}", endpoint, expectedCount, response.getError());
+            return results;
+        }
+        List<EmbeddingVector> vectors = response.getVectors();
+        if (vectors.isEmpty()) {
+            log.error("Ollama {} response had no 'embedding' or 'embeddings' array for {} inputs.", endpoint, expectedCount);
+            return results;
+        }
+        if (vectors.size() != expectedCount) {
+            log.error("Ollama {} returned {} embeddings for {} inputs. Keeping the aligned prefix only.",
+                endpoint, vectors.size(), expectedCount);
+        }
+        for (int i = 0; i < vectors.size() && i < expectedCount; i++) {
+            EmbeddingVector vector = vectors.get(i);
+            if (vector.isEmpty()) {
+                log.warn("Item at index {} in Ollama {} response was not a valid array or was empty.", i, endpoint);
+            } else {
+                results.set(i, vector);
+            }
         }
-        return numbers.stream()
-            .map(n -> n != null ? n.floatValue() : 0.0f)
-            .collect(Collectors.toList());
+        return results;
+    }
+
+    private static List<EmbeddingVector> emptyResults(int size) {
+        return new ArrayList<>(Collections.nCopies(size, EmbeddingVector.EMPTY));
     }
 }
@@ -0,0 +1,114 @@
+package com.localllm.assistant.embedding.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact, immutable embedding vector backed by a primitive {@code float[]}.
+ * <p>
+ * A 768-dimensional vector costs ~3 KB here instead of ~15 KB as a {@code List<Float>}.
+ * {@link #asList()} provides a read-only boxed view for code that still works with lists;
+ * it boxes on access and does not copy the array.
+ */
+public final class EmbeddingVector {
+
+    public static final EmbeddingVector EMPTY = new EmbeddingVector(new float[0]);
+
+    private final float[] values;
+
+    private EmbeddingVector(float[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Wraps an array without copying. The caller hands over ownership and must not modify it afterwards.
+     */
+    public static EmbeddingVector wrap(float[] values) {
+        if (values == null || values.length == 0) {
+            return EMPTY;
+        }
+        return new EmbeddingVector(values);
+    }
+
+    /**
+     * Creates a vector from a boxed list. Null elements become 0.
+     */
+    public static EmbeddingVector fromList(List<? extends Number> list) {
+        if (list == null || list.isEmpty()) {
+            return EMPTY;
+        }
+        if (list instanceof FloatListView view) {
+            return view.owner;
+        }
+        float[] values = new float[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            Number n = list.get(i);
+            values[i] = n != null ? n.floatValue() : 0.0f;
+        }
+        return new EmbeddingVector(values);
+    }
+
+    public int dimension() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    public float get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the backing array. It must be treated as read-only.
+     */
+    public float[] array() {
+        return values;
+    }
+
+    /**
+     * Returns a read-only {@code List<Float>} view for compatibility with list-based callers.
+     */
+    public List<Float> asList() {
+        return new FloatListView(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof EmbeddingVector other && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddingVector{dimension=" + values.length + '}';
+    }
+
+    private static final class FloatListView extends AbstractList<Float> implements RandomAccess {
+        private final EmbeddingVector owner;
+
+        private FloatListView(EmbeddingVector owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public Float get(int index) {
+            return owner.values[index];
+        }
+
+        @Override
+        public int size() {
+            return owner.values.length;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.localllm.assistant.exception;
+
+/**
+ * Exception thrown when a request to an upstream service (Ollama, ChromaDB) is shed
+ * because its concurrency limit is reached and the wait queue is full.
+ */
+public class UpstreamOverloadedException extends RuntimeException {
+
+    public UpstreamOverloadedException(String message) {
+        super(message);
+    }
+
+    public UpstreamOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
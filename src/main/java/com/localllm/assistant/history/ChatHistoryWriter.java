@@ -0,0 +1,363 @@
+package com.localllm.assistant.history;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.history.model.MessageRole;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence of chat messages.
+ * <p>
+ * {@link #enqueue} assigns the message ID and timestamp and returns immediately; a dedicated thread
+ * drains the bounded queue and writes each batch in one transaction: one {@code updatedAt} touch per
+ * conversation in the batch (the latest message wins) plus a JDBC batch insert of the messages.
+ * Messages of conversations that do not exist (deleted while the messages were queued, or never
+ * created) are dropped with a WARN log rather than creating the conversation; the touch locks the
+ * conversation row, so a concurrent delete either sees the committed messages or makes the touch miss.
+ * <p>
+ * A failed batch is retried up to {@code history.writeBehind.maxAttempts} times in total, with a growing
+ * pause of {@code history.writeBehind.retryBackoffMs}, and is only given up (and logged as an error) after that.
+ * Messages stay visible through {@link #pending(String)} until their batch is committed or given up, so the
+ * history service can merge them into reads. When the queue is full the caller writes the message
+ * itself. {@link #flush()} writes everything queued so far and is called before deletes and on shutdown.
+ */
+@Component
+public class ChatHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatHistoryWriter.class);
+
+    static final String INSERT_MESSAGE_SQL =
+        "INSERT INTO chat_messages (id, conversation_id, timestamp, role, content, metadata) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String TOUCH_CONVERSATION_SQL =
+        "UPDATE conversations SET updated_at = GREATEST(updated_at, ?), title = COALESCE(title, ?) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${history.writeBehind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${history.writeBehind.queueCapacity:1000}")
+    private int queueCapacity;
+
+    @Value("${history.writeBehind.batchSize:50}")
+    private int batchSize;
+
+    @Value("${history.writeBehind.maxDelayMs:100}")
+    private long maxDelayMs;
+
+    @Value("${history.writeBehind.maxAttempts:3}")
+    private int maxAttempts;
+
+    @Value("${history.writeBehind.retryBackoffMs:200}")
+    private long retryBackoffMs;
+
+    /** Immutable per-conversation lists, replaced atomically on enqueue and after each batch. */
+    private final Map<String, List<ChatMessage>> pendingByConversation = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong conversationTouches = new AtomicLong();
+    private final AtomicLong callerWrites = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private BlockingQueue<ChatMessage> queue;
+    private Thread drainThread;
+    private volatile boolean running;
+
+    public ChatHistoryWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        // flush() may run inside a caller's transaction (deletes); a failed batch must not roll that back.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        if (!enabled) {
+            log.info("Chat history write-behind disabled; messages are written by the caller.");
+            return;
+        }
+        running = true;
+        drainThread = new Thread(this::drainLoop, "ChatHistoryWriterThread");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        log.info("Chat history write-behind started (queue capacity {}, batch size {}, max delay {} ms).",
+            queueCapacity, batchSize, maxDelayMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // No interrupt: an interrupted thread in H2 file I/O closes the database channel.
+        running = false;
+        if (drainThread != null) {
+            try {
+                drainThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        log.info("Chat history writer stopped. {} messages written in {} batches.", written.get(), batches.get());
+    }
+
+    /**
+     * Queues a message for persistence.
+     *
+     * @param message Message without an ID; its ID and (if missing) timestamp are assigned here.
+     * @return The same message with ID and timestamp set.
+     */
+    public ChatMessage enqueue(ChatMessage message) {
+        if (message.getConversationId() == null || message.getConversationId().isBlank()) {
+            throw new IllegalArgumentException("ChatMessage conversationId cannot be null or blank");
+        }
+        if (message.getId() == null) {
+            message.setId(UUID.randomUUID().toString());
+        }
+        if (message.getTimestamp() == null) {
+            message.setTimestamp(LocalDateTime.now());
+        }
+        pendingByConversation.compute(message.getConversationId(), (id, pending) -> {
+            List<ChatMessage> updated = pending != null ? new ArrayList<>(pending) : new ArrayList<>();
+            updated.add(message);
+            return List.copyOf(updated);
+        });
+        enqueued.incrementAndGet();
+        if (!running || !queue.offer(message)) {
+            // Disabled, shutting down or queue full: the caller pays for the write instead of dropping it.
+            callerWrites.incrementAndGet();
+            synchronized (writeLock) {
+                writeBatch(List.of(message));
+            }
+        }
+        return message;
+    }
+
+    /**
+     * @return Messages of the conversation that are queued or being written, oldest first.
+     */
+    public List<ChatMessage> pending(String conversationId) {
+        List<ChatMessage> pending = conversationId != null ? pendingByConversation.get(conversationId) : null;
+        return pending == null ? Collections.emptyList() : pending;
+    }
+
+    /**
+     * Writes every message queued before this call and waits for the batch in progress to commit.
+     */
+    public void flush() {
+        if (queue == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            List<ChatMessage> batch = new ArrayList<>();
+            while (queue.drainTo(batch, Math.max(1, batchSize)) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    public ChatHistoryWriterStats stats() {
+        return ChatHistoryWriterStats.builder()
+            .enabled(enabled)
+            .queued(queue != null ? queue.size() : 0)
+            .queueCapacity(queueCapacity)
+            .enqueued(enqueued.get())
+            .written(written.get())
+            .batches(batches.get())
+            .conversationTouches(conversationTouches.get())
+            .callerWrites(callerWrites.get())
+            .retries(retries.get())
+            .dropped(dropped.get())
+            .failed(failed.get())
+            .build();
+    }
+
+    private void drainLoop() {
+        List<ChatMessage> batch = new ArrayList<>();
+        while (running) {
+            try {
+                ChatMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Gathered under the lock so that flush() never returns while a taken batch is unwritten.
+                synchronized (writeLock) {
+                    // Give concurrent requests a moment to join the batch.
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+                    batch.add(first);
+                    while (batch.size() < batchSize) {
+                        ChatMessage next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                synchronized (writeLock) {
+                    writeBatch(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Chat history writer failed unexpectedly: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, retrying failed attempts, and then releases it from {@link #pendingByConversation}.
+     * Must hold {@link #writeLock}.
+     */
+    private void writeBatch(List<ChatMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int attempts = Math.max(1, maxAttempts);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int skipped = writeOnce(batch);
+                // Released before the counters change, so a caller that sees the counters sees the batch gone.
+                release(batch);
+                written.addAndGet(batch.size() - skipped);
+                dropped.addAndGet(skipped);
+                batches.incrementAndGet();
+                conversationTouches.addAndGet(batch.stream().map(ChatMessage::getConversationId).distinct().count());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= attempts || !pauseBeforeRetry(attempt)) {
+                    release(batch);
+                    failed.addAndGet(batch.size());
+                    log.error("Giving up on {} chat messages after {} attempt(s); they are lost: {}",
+                        batch.size(), attempt, e.getMessage(), e);
+                    return;
+                }
+                retries.incrementAndGet();
+                log.warn("Failed to write {} chat messages (attempt {} of {}), retrying: {}",
+                    batch.size(), attempt, attempts, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Touches the conversations and inserts the messages of those that exist, in one transaction.
+     *
+     * @return How many messages were dropped because their conversation does not exist.
+     */
+    private int writeOnce(List<ChatMessage> batch) {
+        Map<String, ChatMessage> latestByConversation = new LinkedHashMap<>();
+        Map<String, String> titleByConversation = new LinkedHashMap<>();
+        for (ChatMessage message : batch) {
+            latestByConversation.merge(message.getConversationId(), message,
+                (a, b) -> b.getTimestamp().isAfter(a.getTimestamp()) ? b : a);
+            if (message.getRole() == MessageRole.USER && message.getContent() != null) {
+                titleByConversation.putIfAbsent(message.getConversationId(), title(message.getContent()));
+            }
+        }
+        Integer skipped = transactionTemplate.execute(status -> {
+            List<Object[]> touchRows = new ArrayList<>(latestByConversation.size());
+            latestByConversation.forEach((conversationId, latest) -> touchRows.add(new Object[]{
+                Timestamp.valueOf(latest.getTimestamp()), titleByConversation.get(conversationId), conversationId}));
+            int[] touched = jdbcTemplate.batchUpdate(TOUCH_CONVERSATION_SQL, touchRows);
+            Set<String> missing = new HashSet<>();
+            for (int i = 0; i < touched.length; i++) {
+                if (touched[i] == 0) {
+                    missing.add((String) touchRows.get(i)[2]);
+                }
+            }
+            List<Object[]> messageRows = new ArrayList<>(batch.size());
+            for (ChatMessage message : batch) {
+                if (!missing.contains(message.getConversationId())) {
+                    messageRows.add(new Object[]{message.getId(), message.getConversationId(), Timestamp.valueOf(message.getTimestamp()),
+                        message.getRole().name(), message.getContent(), metadataJson(message)});
+                }
+            }
+            if (!missing.isEmpty()) {
+                log.warn("Dropping {} chat message(s) of batch: conversation(s) {} do not exist (deleted or never created).",
+                    batch.size() - messageRows.size(), missing);
+            }
+            if (!messageRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, messageRows);
+            }
+            return batch.size() - messageRows.size();
+        });
+        log.debug("Wrote {} chat messages for {} conversation(s).", batch.size(), latestByConversation.size());
+        return skipped != null ? skipped : 0;
+    }
+
+    /**
+     * @return False if interrupted, in which case the batch is not retried.
+     */
+    private boolean pauseBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(Math.max(0, retryBackoffMs) * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void release(List<ChatMessage> batch) {
+        for (ChatMessage message : batch) {
+            pendingByConversation.computeIfPresent(message.getConversationId(), (id, pending) -> {
+                List<ChatMessage> remaining = pending.stream().filter(p -> p != message).toList();
+                return remaining.isEmpty() ? null : remaining;
+            });
+        }
+    }
+
+    /**
+     * Serializes the metadata the way Hibernate binds the H2 {@code JSON} column: UTF-8 JSON text as bytes.
+     */
+    private byte[] metadataJson(ChatMessage message) {
+        try {
+            Map<String, Object> metadata = message.getMetadata() != null ? message.getMetadata() : Map.of();
+            return objectMapper.writeValueAsString(metadata).getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize metadata of message {}: {}. Storing it without metadata.", message.getId(), e.getMessage());
+            return "{}".getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String title(String content) {
+        return content.substring(0, Math.min(content.length(), 50)) + (content.length() > 50 ? "..." : "");
+    }
+}
@@ -0,0 +1,26 @@
+package com.localllm.assistant.history;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the chat history write-behind counters. {@code callerWrites} were written on the
+ * caller's thread because the queue was full or write-behind is disabled. {@code retries} counts failed
+ * attempts that were retried, {@code dropped} messages of deleted conversations, and {@code failed}
+ * messages given up after the last attempt.
+ */
+@Getter
+@Builder
+public class ChatHistoryWriterStats {
+    private final boolean enabled;
+    private final int queued;
+    private final int queueCapacity;
+    private final long enqueued;
+    private final long written;
+    private final long batches;
+    private final long conversationTouches;
+    private final long callerWrites;
+    private final long retries;
+    private final long dropped;
+    private final long failed;
+}
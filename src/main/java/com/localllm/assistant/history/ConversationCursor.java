@@ -0,0 +1,35 @@
+package com.localllm.assistant.history;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the conversation listing: the {@code (updatedAt, id)} of the last conversation
+ * on a page. The next page starts strictly after it in {@code updatedAt DESC, id DESC} order.
+ * Clients receive it as an opaque URL-safe string.
+ */
+public record ConversationCursor(LocalDateTime updatedAt, String id) {
+
+    public String encode() {
+        String raw = updatedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException If the cursor was not produced by {@link #encode()}.
+     */
+    public static ConversationCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Invalid conversation cursor: " + cursor);
+            }
+            return new ConversationCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid conversation cursor: " + cursor, e);
+        }
+    }
+}
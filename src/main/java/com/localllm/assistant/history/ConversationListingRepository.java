@@ -0,0 +1,105 @@
+package com.localllm.assistant.history;
+
+import com.localllm.assistant.history.model.ConversationSummary;
+import com.localllm.assistant.history.model.MessageRole;
+import com.localllm.assistant.history.model.MessageSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only queries for the conversation listing. A page of conversations and the last messages of
+ * each are loaded in one statement, and the JSON metadata of conversations and messages is never read.
+ * <p>
+ * Pages are ordered by {@code updatedAt DESC, id DESC} and continue after a {@link ConversationCursor}
+ * (keyset pagination), served by the {@code (updated_at, id)} index on {@code conversations}; the
+ * per-conversation window over {@code chat_messages} uses the {@code (conversation_id, timestamp)} index.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConversationListingRepository {
+
+    private static final String PAGE_FIRST = """
+        SELECT id, title, created_at, updated_at FROM conversations
+        ORDER BY updated_at DESC, id DESC LIMIT %d""";
+
+    private static final String PAGE_AFTER_CURSOR = """
+        SELECT id, title, created_at, updated_at FROM conversations
+        WHERE updated_at < ? OR (updated_at = ? AND id < ?)
+        ORDER BY updated_at DESC, id DESC LIMIT %d""";
+
+    /**
+     * The page query appears twice as a derived table (H2 does not bind parameters reliably inside a CTE
+     * that is referenced twice), so its parameters are bound twice.
+     */
+    private static final String WITH_RECENT_MESSAGES = """
+        SELECT p.id, p.title, p.created_at, p.updated_at,
+               r.id AS message_id, r.timestamp AS message_timestamp, r.role AS message_role, r.content AS message_content
+        FROM (%1$s) p
+        LEFT JOIN (
+            SELECT m.conversation_id, m.id, m.timestamp, m.role, m.content,
+                   ROW_NUMBER() OVER (PARTITION BY m.conversation_id ORDER BY m.timestamp DESC, m.id DESC) AS rn
+            FROM chat_messages m
+            WHERE m.conversation_id IN (SELECT page_ids.id FROM (%1$s) page_ids)
+        ) r ON r.conversation_id = p.id AND r.rn <= ?
+        ORDER BY p.updated_at DESC, p.id DESC, r.timestamp ASC, r.id ASC""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Loads up to {@code limit} conversations after {@code after} with their last {@code messagesPerConversation}
+     * messages.
+     *
+     * @param after Position to continue from, or null for the most recently updated conversations.
+     * @return Conversations, most recently updated first; their messages oldest first.
+     */
+    public List<ConversationSummary> findPage(ConversationCursor after, int limit, int messagesPerConversation) {
+        int perConversation = Math.max(0, messagesPerConversation);
+        // H2 fails to bind a parameter to LIMIT in a nested query ("Invalid value NULL for parameter result FETCH"),
+        // so the page size goes into the statement as an integer literal.
+        int pageSize = Math.max(1, limit);
+        if (after == null) {
+            return jdbcTemplate.query(WITH_RECENT_MESSAGES.formatted(PAGE_FIRST.formatted(pageSize)), this::extract, perConversation);
+        }
+        return jdbcTemplate.query(WITH_RECENT_MESSAGES.formatted(PAGE_AFTER_CURSOR.formatted(pageSize)), this::extract,
+            after.updatedAt(), after.updatedAt(), after.id(),
+            after.updatedAt(), after.updatedAt(), after.id(),
+            perConversation);
+    }
+
+    private List<ConversationSummary> extract(ResultSet rs) throws SQLException {
+        Map<String, ConversationSummary> conversations = new LinkedHashMap<>();
+        while (rs.next()) {
+            String id = rs.getString("id");
+            ConversationSummary conversation = conversations.get(id);
+            if (conversation == null) {
+                conversation = ConversationSummary.builder()
+                    .id(id)
+                    .title(rs.getString("title"))
+                    .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                    .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                    .recentMessages(new ArrayList<>())
+                    .build();
+                conversations.put(id, conversation);
+            }
+            String messageId = rs.getString("message_id");
+            if (messageId != null) {
+                conversation.getRecentMessages().add(MessageSummary.builder()
+                    .id(messageId)
+                    .role(MessageRole.valueOf(rs.getString("message_role")))
+                    .content(rs.getString("message_content"))
+                    .timestamp(rs.getObject("message_timestamp", LocalDateTime.class))
+                    .build());
+            }
+        }
+        return new ArrayList<>(conversations.values());
+    }
+}
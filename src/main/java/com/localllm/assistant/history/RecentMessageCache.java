@@ -0,0 +1,208 @@
+package com.localllm.assistant.history;
+
+import com.localllm.assistant.history.model.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory ring buffers of the most recent messages of each conversation, so the history that goes
+ * into every prompt is read from memory rather than the database.
+ * <p>
+ * A buffer holds at most {@code history.recentCache.messagesPerConversation} messages in timestamp
+ * order and answers reads of up to that many messages. It is created empty for a new conversation,
+ * or filled from the database on the first read; every message written afterwards is appended.
+ * Buffers are evicted least recently used first once their estimated size exceeds
+ * {@code history.recentCache.maxBytes}.
+ * <p>
+ * A first read calls {@link #beginLoad} before querying, so messages written while the query runs
+ * are captured by the buffer and merged with the loaded ones in {@link #completeLoad}.
+ */
+@Component
+public class RecentMessageCache {
+
+    private static final long MESSAGE_OVERHEAD_BYTES = 160;
+
+    @Value("${history.recentCache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${history.recentCache.messagesPerConversation:20}")
+    private int messagesPerConversation;
+
+    @Value("${history.recentCache.maxBytes:16777216}")
+    private long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<String, Buffer> buffers = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private static final class Buffer {
+        private final List<ChatMessage> messages = new ArrayList<>();
+        private final Set<String> ids = new HashSet<>();
+        private boolean loaded;
+        private long bytes;
+    }
+
+    /**
+     * @return How many messages a buffer keeps; reads of more go to the database. 0 when disabled.
+     */
+    public int capacity() {
+        return enabled ? messagesPerConversation : 0;
+    }
+
+    /**
+     * Returns the last {@code limit} messages of the conversation, oldest first.
+     *
+     * @return Empty if the conversation is not cached yet or {@code limit} exceeds the buffer size.
+     */
+    public synchronized Optional<List<ChatMessage>> get(String conversationId, int limit) {
+        if (!enabled || limit > messagesPerConversation) {
+            return Optional.empty();
+        }
+        Buffer buffer = buffers.get(conversationId);
+        if (buffer == null || !buffer.loaded) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        List<ChatMessage> messages = buffer.messages;
+        return Optional.of(List.copyOf(messages.subList(Math.max(0, messages.size() - limit), messages.size())));
+    }
+
+    /**
+     * Starts buffering messages of a conversation that is about to be loaded from the database.
+     */
+    public synchronized void beginLoad(String conversationId) {
+        if (enabled) {
+            buffers.computeIfAbsent(conversationId, id -> new Buffer());
+        }
+    }
+
+    /**
+     * Adds the loaded messages to the buffer started by {@link #beginLoad} and makes it readable.
+     *
+     * @param recentMessages The most recent messages of the conversation, at least {@link #capacity()} of them
+     *                       unless the conversation has fewer.
+     */
+    public synchronized void completeLoad(String conversationId, List<ChatMessage> recentMessages) {
+        Buffer buffer = enabled ? buffers.get(conversationId) : null;
+        if (buffer == null) {
+            return; // Evicted or deleted while loading.
+        }
+        recentMessages.forEach(message -> add(buffer, message));
+        buffer.loaded = true;
+        enforceMemoryCap(conversationId);
+    }
+
+    /**
+     * Registers a conversation that has just been created and therefore has no messages yet.
+     */
+    public synchronized void createEmpty(String conversationId) {
+        if (enabled) {
+            buffers.computeIfAbsent(conversationId, id -> new Buffer()).loaded = true;
+        }
+    }
+
+    /**
+     * Appends a message that was just written. Conversations without a buffer are left alone; they
+     * are loaded on their first read.
+     */
+    public synchronized void append(ChatMessage message) {
+        Buffer buffer = enabled ? buffers.get(message.getConversationId()) : null;
+        if (buffer != null) {
+            add(buffer, message);
+            enforceMemoryCap(message.getConversationId());
+        }
+    }
+
+    public synchronized void evict(String conversationId) {
+        Buffer buffer = buffers.remove(conversationId);
+        if (buffer != null) {
+            totalBytes -= buffer.bytes;
+        }
+    }
+
+    public synchronized void clear() {
+        buffers.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized RecentMessageCacheStats stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return RecentMessageCacheStats.builder()
+            .enabled(enabled)
+            .hits(hitCount)
+            .misses(missCount)
+            .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+            .conversations(buffers.size())
+            .estimatedBytes(totalBytes)
+            .maxBytes(maxBytes)
+            .evictions(evictions.get())
+            .build();
+    }
+
+    /**
+     * Inserts in timestamp order (concurrent writers may append slightly out of order), skipping
+     * messages already present, and drops the oldest beyond the buffer size.
+     */
+    private void add(Buffer buffer, ChatMessage message) {
+        if (message.getId() != null && !buffer.ids.add(message.getId())) {
+            return;
+        }
+        List<ChatMessage> messages = buffer.messages;
+        int index = messages.size();
+        Comparator<ChatMessage> byTimestamp = Comparator.comparing(ChatMessage::getTimestamp,
+            Comparator.nullsLast(Comparator.naturalOrder()));
+        while (index > 0 && byTimestamp.compare(messages.get(index - 1), message) > 0) {
+            index--;
+        }
+        messages.add(index, message);
+        adjustBytes(buffer, estimateBytes(message));
+        while (messages.size() > messagesPerConversation) {
+            ChatMessage oldest = messages.remove(0);
+            buffer.ids.remove(oldest.getId());
+            adjustBytes(buffer, -estimateBytes(oldest));
+        }
+    }
+
+    private void adjustBytes(Buffer buffer, long delta) {
+        buffer.bytes += delta;
+        totalBytes += delta;
+    }
+
+    /**
+     * Evicts least recently used conversations, never the one just written, until the cache fits.
+     */
+    private void enforceMemoryCap(String keep) {
+        Iterator<Map.Entry<String, Buffer>> eldest = buffers.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Buffer> entry = eldest.next();
+            if (!entry.getKey().equals(keep)) {
+                totalBytes -= entry.getValue().bytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static long estimateBytes(ChatMessage message) {
+        long chars = (message.getContent() != null ? message.getContent().length() : 0)
+            + (message.getMetadata() != null && !message.getMetadata().isEmpty() ? String.valueOf(message.getMetadata()).length() : 0);
+        return MESSAGE_OVERHEAD_BYTES + 2 * chars;
+    }
+}
@@ -0,0 +1,21 @@
+package com.localllm.assistant.history;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the recent-message cache counters. {@code estimatedBytes} approximates the heap held
+ * by the cached messages' content and metadata.
+ */
+@Getter
+@Builder
+public class RecentMessageCacheStats {
+    private final boolean enabled;
+    private final long hits;
+    private final long misses;
+    private final double hitRate;
+    private final int conversations;
+    private final long estimatedBytes;
+    private final long maxBytes;
+    private final long evictions;
+}
@@ -0,0 +1,19 @@
+package com.localllm.assistant.history.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a conversation listing, most recently updated first.
+ */
+@Getter
+@Builder
+public class ConversationPage {
+    private final List<ConversationSummary> conversations;
+    /**
+     * Cursor of the next page, or null if this is the last one.
+     */
+    private final String nextCursor;
+}
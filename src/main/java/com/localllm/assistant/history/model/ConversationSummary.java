@@ -0,0 +1,20 @@
+package com.localllm.assistant.history.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lightweight view of a conversation for listings: no metadata, only its most recent messages (oldest first).
+ */
+@Getter
+@Builder
+public class ConversationSummary {
+    private final String id;
+    private final String title;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final List<MessageSummary> recentMessages;
+}
@@ -0,0 +1,18 @@
+package com.localllm.assistant.history.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a chat message for conversation listings, without its metadata.
+ */
+@Getter
+@Builder
+public class MessageSummary {
+    private final String id;
+    private final MessageRole role;
+    private final String content;
+    private final LocalDateTime timestamp;
+}
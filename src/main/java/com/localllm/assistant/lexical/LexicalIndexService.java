@@ -0,0 +1,63 @@
+package com.localllm.assistant.lexical;
+
+import com.localllm.assistant.lexical.model.LexicalSearchResult;
+import com.localllm.assistant.parser.model.CodeSegment;
+
+import java.util.List;
+
+/**
+ * Keyword (BM25) index over indexed code segments, complementing vector search for exact
+ * identifiers. Kept in sync per file by the indexing and update services.
+ */
+public interface LexicalIndexService {
+
+    /**
+     * Whether lexical search is enabled; when false all other methods are no-ops.
+     */
+    boolean isEnabled();
+
+    /**
+     * Replaces all indexed segments of a file.
+     *
+     * @param relativeFilePath Path relative to the indexed base path, '/'-separated
+     * @param segments         The file's current segments; empty removes the file
+     */
+    void indexFile(String relativeFilePath, List<CodeSegment> segments);
+
+    /**
+     * Removes all indexed segments of a file.
+     *
+     * @param relativeFilePath Path relative to the indexed base path, '/'-separated
+     */
+    void removeFile(String relativeFilePath);
+
+    /**
+     * Searches segment content and identifiers for the query's tokens.
+     *
+     * @param query      Free text; identifiers are split on camelCase and snake_case
+     * @param maxResults Maximum number of results to return
+     * @return Results ordered by descending BM25 score
+     */
+    List<LexicalSearchResult> search(String query, int maxResults);
+
+    /**
+     * Looks up the segments declaring a type, method, constructor or field by name.
+     *
+     * @param identifier Simple or qualified name ({@code Foo}, {@code Foo.bar}, {@code com.acme.Foo#bar});
+     *                   unqualified names may match several declarations
+     * @param maxResults Maximum number of segments to return
+     * @return Declaring segments in source order, empty if the name is unknown
+     */
+    List<CodeSegment> findSymbol(String identifier, int maxResults);
+
+    /**
+     * True when the index is enabled but holds no documents, e.g. the snapshot was lost, so the next
+     * indexing run must re-parse unchanged files to repopulate it.
+     */
+    boolean needsRebuild();
+
+    /**
+     * Number of indexed segments.
+     */
+    int size();
+}
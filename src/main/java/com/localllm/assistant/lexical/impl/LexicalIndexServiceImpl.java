@@ -0,0 +1,231 @@
+package com.localllm.assistant.lexical.impl;
+
+import com.localllm.assistant.lexical.LexicalIndexService;
+import com.localllm.assistant.lexical.index.InvertedIndex;
+import com.localllm.assistant.lexical.model.LexicalSearchResult;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.parser.model.SegmentType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * {@link LexicalIndexService} backed by an in-process {@link InvertedIndex}.
+ * <p>
+ * The index is snapshotted to {@code lexical.path} periodically when it changed and on shutdown,
+ * and loaded on startup. If the snapshot is missing or unreadable the index starts empty and
+ * {@link #needsRebuild()} makes the next indexing run re-parse unchanged files (without
+ * re-embedding them) to repopulate it.
+ */
+@Service
+public class LexicalIndexServiceImpl implements LexicalIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(LexicalIndexServiceImpl.class);
+
+    @Value("${lexical.enabled:true}")
+    private boolean enabled;
+
+    @Value("${lexical.path:./data/lexical-index.bin}")
+    private String snapshotPath;
+
+    @Value("${lexical.bm25.k1:1.2}")
+    private double k1;
+
+    @Value("${lexical.bm25.b:0.75}")
+    private double b;
+
+    @Value("${lexical.flushIntervalSeconds:30}")
+    private long flushIntervalSeconds;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private InvertedIndex index;
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Lexical index disabled.");
+            return;
+        }
+        index = new InvertedIndex(k1, b);
+        load();
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LexicalIndexFlusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        flush();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void indexFile(String relativeFilePath, List<CodeSegment> segments) {
+        if (!enabled || relativeFilePath == null) {
+            return;
+        }
+        List<InvertedIndex.Document> documents = new ArrayList<>(segments.size());
+        for (CodeSegment segment : segments) {
+            if (segment != null && segment.getId() != null && segment.getContent() != null) {
+                documents.add(toDocument(relativeFilePath, segment));
+            }
+        }
+        index.replaceFile(relativeFilePath, documents);
+        dirty.set(true);
+        log.debug("Lexical index: {} segments indexed for {}", documents.size(), relativeFilePath);
+    }
+
+    @Override
+    public void removeFile(String relativeFilePath) {
+        if (!enabled || relativeFilePath == null) {
+            return;
+        }
+        index.removeFile(relativeFilePath);
+        dirty.set(true);
+        log.debug("Lexical index: removed {}", relativeFilePath);
+    }
+
+    @Override
+    public List<LexicalSearchResult> search(String query, int maxResults) {
+        if (!enabled || query == null || query.isBlank()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<InvertedIndex.Hit> hits = index.search(query, maxResults);
+        List<LexicalSearchResult> results = new ArrayList<>(hits.size());
+        for (InvertedIndex.Hit hit : hits) {
+            results.add(LexicalSearchResult.builder()
+                .segment(toSegment(hit.document()))
+                .score(hit.score())
+                .build());
+        }
+        log.debug("Lexical search returned {} results in {}us", results.size(), (System.nanoTime() - start) / 1000);
+        return results;
+    }
+
+    @Override
+    public List<CodeSegment> findSymbol(String identifier, int maxResults) {
+        if (!enabled || identifier == null || identifier.isBlank()) {
+            return List.of();
+        }
+        return index.findSymbol(identifier, maxResults).stream()
+            .map(LexicalIndexServiceImpl::toSegment)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean needsRebuild() {
+        return enabled && index.size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return enabled ? index.size() : 0;
+    }
+
+    private void load() {
+        Path file = Path.of(snapshotPath);
+        if (!Files.exists(file)) {
+            log.info("No lexical index snapshot at {}. The index will be built by the next indexing run.", file.toAbsolutePath());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16))) {
+            index.readFrom(data);
+            log.info("Loaded lexical index from {}: {} segments, {} terms. (Took {}ms)", file.toAbsolutePath(), index.size(),
+                index.termCount(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load lexical index snapshot {} ({}). Starting empty; the next indexing run rebuilds it.",
+                file.toAbsolutePath(), e.getMessage());
+            index.clear();
+        }
+    }
+
+    private void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Path file = Path.of(snapshotPath);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(tmp);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))) {
+                index.writeTo(data);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Lexical index snapshot written to {} ({} segments).", file, index.size());
+        } catch (IOException e) {
+            dirty.set(true);
+            log.error("Failed to write lexical index snapshot {}: {}", file, e.getMessage(), e);
+        }
+    }
+
+    private static InvertedIndex.Document toDocument(String relativeFilePath, CodeSegment segment) {
+        Object fqn = segment.getMetadata() != null ? segment.getMetadata().get("fqn") : null;
+        return new InvertedIndex.Document(segment.getId(), relativeFilePath, segment.getStartLine(), segment.getEndLine(),
+            segment.getType(), segment.getEntityName(), fqn != null ? fqn.toString() : null, segment.getContent());
+    }
+
+    private static CodeSegment toSegment(InvertedIndex.Document document) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("id", document.segmentId());
+        metadata.put("relativeFilePath", document.relativeFilePath());
+        metadata.put("startLine", document.startLine());
+        metadata.put("endLine", document.endLine());
+        metadata.put("type", (document.type() != null ? document.type() : SegmentType.UNKNOWN).name());
+        if (document.entityName() != null) {
+            metadata.put("entityName", document.entityName());
+        }
+        if (document.fqn() != null) {
+            metadata.put("fqn", document.fqn());
+        }
+        return CodeSegment.builder()
+            .id(document.segmentId())
+            .content(document.content())
+            .relativeFilePath(document.relativeFilePath())
+            .startLine(document.startLine())
+            .endLine(document.endLine())
+            .type(document.type())
+            .entityName(document.entityName())
+            .metadata(metadata)
+            .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.localllm.assistant.lexical.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Code-aware tokenizer shared by indexing and querying.
+ * <p>
+ * Identifiers ({@code [letters, digits, _, $]} runs) are split at camelCase, acronym, snake_case and
+ * letter/digit boundaries, and each part is emitted lowercased. Compound identifiers are additionally
+ * emitted whole, so {@code upsertEmbeddingsAsync} yields {@code upsert}, {@code embeddings},
+ * {@code async} and {@code upsertembeddingsasync}; an exact identifier in a query then matches the
+ * rare whole-token posting as well as the parts. Java keywords and common English question words
+ * are dropped, as are tokens shorter than {@value #MIN_TOKEN_LENGTH} characters and identifiers
+ * longer than {@value #MAX_IDENTIFIER_LENGTH} (usually encoded blobs).
+ */
+public final class CodeTokenizer {
+
+    static final int MIN_TOKEN_LENGTH = 2;
+    static final int MAX_IDENTIFIER_LENGTH = 64;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        // Java keywords and literals
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+        "default", "do", "double", "else", "enum", "extends", "false", "final", "finally", "float", "for", "goto",
+        "if", "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "null", "package",
+        "private", "protected", "public", "return", "short", "static", "strictfp", "super", "switch",
+        "synchronized", "this", "throw", "throws", "transient", "true", "try", "var", "void", "volatile", "while",
+        // English words that dominate natural-language questions
+        "an", "and", "are", "as", "at", "be", "by", "can", "does", "from", "how", "in", "is", "it", "me", "of",
+        "on", "or", "that", "the", "there", "to", "what", "when", "where", "which", "who", "why", "with");
+
+    private CodeTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens::add);
+        return tokens;
+    }
+
+    /**
+     * Streams the tokens of {@code text} to {@code sink} in order of appearance; duplicates are emitted
+     * once per occurrence.
+     */
+    public static void tokenize(String text, Consumer<String> sink) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isIdentifierChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && isIdentifierChar(text.charAt(i))) {
+                i++;
+            }
+            if (i - start <= MAX_IDENTIFIER_LENGTH) {
+                emitIdentifier(text, start, i, sink);
+            }
+        }
+    }
+
+    private static void emitIdentifier(String text, int start, int end, Consumer<String> sink) {
+        int parts = 0;
+        int partStart = -1;
+        for (int j = start; j < end; j++) {
+            char c = text.charAt(j);
+            if (c == '_' || c == '$') {
+                if (partStart >= 0) {
+                    emit(text.substring(partStart, j), sink);
+                    parts++;
+                    partStart = -1;
+                }
+                continue;
+            }
+            if (partStart < 0) {
+                partStart = j;
+                continue;
+            }
+            char prev = text.charAt(j - 1);
+            boolean boundary = (Character.isUpperCase(c) && !Character.isUpperCase(prev) && !Character.isDigit(prev))
+                || (Character.isUpperCase(c) && Character.isUpperCase(prev) && j + 1 < end && Character.isLowerCase(text.charAt(j + 1)))
+                || (Character.isDigit(c) != Character.isDigit(prev));
+            if (boundary) {
+                emit(text.substring(partStart, j), sink);
+                parts++;
+                partStart = j;
+            }
+        }
+        if (partStart >= 0) {
+            emit(text.substring(partStart, end), sink);
+            parts++;
+        }
+        if (parts > 1) {
+            emit(text.substring(start, end), sink);
+        }
+    }
+
+    private static void emit(String token, Consumer<String> sink) {
+        if (token.length() < MIN_TOKEN_LENGTH) {
+            return;
+        }
+        String normalized = token.toLowerCase(Locale.ROOT);
+        if (!STOP_WORDS.contains(normalized)) {
+            sink.accept(normalized);
+        }
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,463 @@
+package com.localllm.assistant.lexical.index;
+
+import com.localllm.assistant.parser.model.SegmentType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over code segments with BM25 ranking.
+ * <p>
+ * Documents get dense, monotonically increasing ids, so every postings list is sorted by
+ * construction and stored as varint-encoded {@code (docDelta, termFrequency)} pairs in a single
+ * byte array — typically 2-3 bytes per posting. Documents are replaced per file: removing a
+ * document only tombstones it, and postings are rewritten (and ids renumbered) once tombstones
+ * exceed a quarter of the live documents. Until then, document frequencies still count
+ * tombstoned documents, which slightly understates IDF for frequently edited terms.
+ * <p>
+ * Document content is kept so lexical-only hits can be returned without a vector store round
+ * trip, and so a snapshot only needs the documents: postings are rebuilt on load. A
+ * {@link SymbolIndex} over the documents' FQNs is maintained alongside for direct lookups.
+ * <p>
+ * Thread-safe: searches share a read lock, updates take the write lock.
+ */
+public class InvertedIndex {
+
+    private static final int MAGIC = 0x4C584958; // "LXIX"
+    private static final int VERSION = 1;
+    private static final int COMPACT_MIN_DEAD = 1024;
+    private static final double COMPACT_DEAD_RATIO = 0.25;
+
+    /**
+     * Indexed view of one code segment.
+     */
+    public record Document(String segmentId, String relativeFilePath, int startLine, int endLine, SegmentType type,
+                           String entityName, String fqn, String content) {
+    }
+
+    public record Hit(Document document, double score) {
+    }
+
+    private final double k1;
+    private final double b;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> docBySegmentId = new HashMap<>();
+    private final Map<String, int[]> docsByFile = new HashMap<>();
+    private final SymbolIndex symbols = new SymbolIndex();
+    private Document[] documents = new Document[1024];
+    private int[] lengths = new int[1024];
+    private int docCount;
+    private int liveCount;
+    private int deadCount;
+    private long totalLength;
+
+    /**
+     * @param k1 Term-frequency saturation (BM25 {@code k1}, usually 1.2).
+     * @param b  Length normalization (BM25 {@code b}, usually 0.75).
+     */
+    public InvertedIndex(double k1, double b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * Replaces every document of {@code relativeFilePath} with {@code fileDocuments}; an empty list
+     * removes the file. A document whose segment id is already indexed under another file is moved.
+     */
+    public void replaceFile(String relativeFilePath, List<Document> fileDocuments) {
+        lock.writeLock().lock();
+        try {
+            removeFileLocked(relativeFilePath);
+            if (!fileDocuments.isEmpty()) {
+                int[] ids = new int[fileDocuments.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    Document document = fileDocuments.get(i);
+                    Integer previous = docBySegmentId.get(document.segmentId());
+                    if (previous != null) {
+                        removeDocument(previous);
+                    }
+                    ids[i] = addDocument(document);
+                }
+                docsByFile.put(relativeFilePath, ids);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFile(String relativeFilePath) {
+        lock.writeLock().lock();
+        try {
+            removeFileLocked(relativeFilePath);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docBySegmentId.clear();
+            docsByFile.clear();
+            symbols.clear();
+            documents = new Document[1024];
+            lengths = new int[1024];
+            docCount = 0;
+            liveCount = 0;
+            deadCount = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code maxResults} documents with the highest BM25 score for the query's tokens,
+     * best first. Documents matching none of the tokens are never returned.
+     */
+    public List<Hit> search(String query, int maxResults) {
+        Set<String> terms = new HashSet<>(CodeTokenizer.tokenize(query));
+        if (terms.isEmpty() || maxResults <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return List.of();
+            }
+            float[] scores = new float[docCount];
+            double avgLength = Math.max(1.0, (double) totalLength / liveCount);
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                int df = Math.min(list.count, liveCount);
+                double idf = Math.log(1.0 + (liveCount - df + 0.5) / (df + 0.5));
+                list.forEach((doc, tf) -> {
+                    if (documents[doc] == null) {
+                        return;
+                    }
+                    double norm = k1 * (1.0 - b + b * lengths[doc] / avgLength);
+                    scores[doc] += (float) (idf * tf * (k1 + 1.0) / (tf + norm));
+                });
+            }
+
+            PriorityQueue<Integer> top = new PriorityQueue<>(maxResults + 1, (x, y) -> Float.compare(scores[x], scores[y]));
+            for (int doc = 0; doc < docCount; doc++) {
+                if (scores[doc] <= 0f) {
+                    continue;
+                }
+                if (top.size() < maxResults) {
+                    top.add(doc);
+                } else if (scores[doc] > scores[top.peek()]) {
+                    top.poll();
+                    top.add(doc);
+                }
+            }
+            Hit[] hits = new Hit[top.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                int doc = top.poll();
+                hits[i] = new Hit(documents[doc], scores[doc]);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the documents declaring a type or member, in source order.
+     *
+     * @param identifier Simple or qualified name, e.g. {@code reRankAsync}, {@code Foo.bar}, {@code com.acme.Foo#bar()}
+     */
+    public List<Document> findSymbol(String identifier, int maxResults) {
+        lock.readLock().lock();
+        try {
+            return symbols.find(identifier, maxResults);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the live documents; postings are derived and rebuilt by {@link #readFrom}.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(liveCount);
+            for (int doc = 0; doc < docCount; doc++) {
+                Document document = documents[doc];
+                if (document == null) {
+                    continue;
+                }
+                writeString(out, document.segmentId());
+                writeString(out, document.relativeFilePath());
+                out.writeInt(document.startLine());
+                out.writeInt(document.endLine());
+                writeString(out, document.type() != null ? document.type().name() : null);
+                writeString(out, document.entityName());
+                writeString(out, document.fqn());
+                writeString(out, document.content());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of this index with a snapshot written by {@link #writeTo}.
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a lexical index snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported lexical index snapshot version " + version);
+        }
+        int count = in.readInt();
+        Map<String, List<Document>> byFile = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String segmentId = readString(in);
+            String relativeFilePath = readString(in);
+            int startLine = in.readInt();
+            int endLine = in.readInt();
+            String type = readString(in);
+            Document document = new Document(segmentId, relativeFilePath, startLine, endLine,
+                type != null ? SegmentType.valueOf(type) : SegmentType.UNKNOWN, readString(in), readString(in), readString(in));
+            byFile.computeIfAbsent(relativeFilePath, k -> new ArrayList<>()).add(document);
+        }
+        lock.writeLock().lock();
+        try {
+            clear();
+            byFile.forEach(this::replaceFile);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeFileLocked(String relativeFilePath) {
+        int[] ids = docsByFile.remove(relativeFilePath);
+        if (ids == null) {
+            return;
+        }
+        for (int doc : ids) {
+            if (documents[doc] != null && relativeFilePath.equals(documents[doc].relativeFilePath())) {
+                removeDocument(doc);
+            }
+        }
+    }
+
+    private int addDocument(Document document) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        int[] length = new int[1];
+        Consumer<String> counter = term -> {
+            frequencies.computeIfAbsent(term, k -> new int[1])[0]++;
+            length[0]++;
+        };
+        CodeTokenizer.tokenize(document.content(), counter);
+        CodeTokenizer.tokenize(document.entityName(), counter);
+        CodeTokenizer.tokenize(document.fqn(), counter);
+        CodeTokenizer.tokenize(fileName(document.relativeFilePath()), counter);
+
+        if (docCount == documents.length) {
+            documents = Arrays.copyOf(documents, docCount * 2);
+            lengths = Arrays.copyOf(lengths, docCount * 2);
+        }
+        int doc = docCount++;
+        documents[doc] = document;
+        lengths[doc] = length[0];
+        liveCount++;
+        totalLength += length[0];
+        docBySegmentId.put(document.segmentId(), doc);
+        symbols.add(document);
+        frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, k -> new Postings()).add(doc, tf[0]));
+        return doc;
+    }
+
+    private void removeDocument(int doc) {
+        Document document = documents[doc];
+        if (document == null) {
+            return;
+        }
+        documents[doc] = null;
+        docBySegmentId.remove(document.segmentId(), doc);
+        symbols.remove(document);
+        liveCount--;
+        deadCount++;
+        totalLength -= lengths[doc];
+    }
+
+    /**
+     * Drops tombstoned documents from every postings list and renumbers the survivors densely.
+     * The remapping preserves order, so lists stay sorted without re-sorting.
+     */
+    private void compactIfNeeded() {
+        if (deadCount < COMPACT_MIN_DEAD || deadCount < liveCount * COMPACT_DEAD_RATIO) {
+            return;
+        }
+        int[] remap = new int[docCount];
+        Document[] newDocuments = new Document[Math.max(1024, liveCount * 2)];
+        int[] newLengths = new int[newDocuments.length];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (documents[doc] == null) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = next;
+                newDocuments[next] = documents[doc];
+                newLengths[next] = lengths[doc];
+                next++;
+            }
+        }
+
+        Iterator<Map.Entry<String, Postings>> it = postings.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Postings> entry = it.next();
+            Postings rewritten = new Postings();
+            entry.getValue().forEach((doc, tf) -> {
+                if (remap[doc] >= 0) {
+                    rewritten.add(remap[doc], tf);
+                }
+            });
+            if (rewritten.count == 0) {
+                it.remove();
+            } else {
+                entry.setValue(rewritten);
+            }
+        }
+        docBySegmentId.replaceAll((segmentId, doc) -> remap[doc]);
+        docsByFile.replaceAll((file, ids) -> Arrays.stream(ids).map(doc -> remap[doc]).filter(doc -> doc >= 0).toArray());
+
+        documents = newDocuments;
+        lengths = newLengths;
+        docCount = next;
+        deadCount = 0;
+    }
+
+    private static String fileName(String relativeFilePath) {
+        if (relativeFilePath == null) {
+            return null;
+        }
+        return relativeFilePath.substring(relativeFilePath.lastIndexOf('/') + 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface PostingVisitor {
+        void visit(int doc, int termFrequency);
+    }
+
+    /**
+     * Postings list of one term: varint {@code (docId - previousDocId, tf)} pairs, doc ids ascending.
+     */
+    private static final class Postings {
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int lastDoc = -1;
+
+        void add(int doc, int termFrequency) {
+            writeVarInt(doc - lastDoc);
+            writeVarInt(termFrequency);
+            lastDoc = doc;
+            count++;
+        }
+
+        void forEach(PostingVisitor visitor) {
+            int pos = 0;
+            int doc = -1;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte current;
+                do {
+                    current = data[pos++];
+                    delta |= (current & 0x7F) << shift;
+                    shift += 7;
+                } while (current < 0);
+                int tf = 0;
+                shift = 0;
+                do {
+                    current = data[pos++];
+                    tf |= (current & 0x7F) << shift;
+                    shift += 7;
+                } while (current < 0);
+                doc += delta;
+                visitor.visit(doc, tf);
+            }
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
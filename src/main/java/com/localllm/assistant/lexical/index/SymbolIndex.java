@@ -0,0 +1,111 @@
+package com.localllm.assistant.lexical.index;
+
+import com.localllm.assistant.parser.model.SegmentType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Declared symbols (types, methods, constructors, fields) of indexed documents, keyed by simple
+ * name in a case-insensitive sorted map. A qualified lookup such as {@code Foo.bar},
+ * {@code Foo#bar} or {@code com.acme.Foo.bar} goes to the simple name's bucket and keeps the
+ * documents whose FQN ends with the qualified part, so only simple names are stored. Matches with
+ * the exact case are preferred over case-insensitive ones.
+ * <p>
+ * Not thread-safe; guarded by the owning {@link InvertedIndex}.
+ */
+final class SymbolIndex {
+
+    private static final Set<SegmentType> SYMBOL_TYPES = EnumSet.of(SegmentType.CLASS, SegmentType.INTERFACE, SegmentType.ENUM,
+        SegmentType.ANNOTATION, SegmentType.METHOD, SegmentType.CONSTRUCTOR, SegmentType.FIELD);
+
+    private static final Comparator<InvertedIndex.Document> SOURCE_ORDER =
+        Comparator.comparing(InvertedIndex.Document::relativeFilePath).thenComparingInt(InvertedIndex.Document::startLine);
+
+    private final TreeMap<String, List<InvertedIndex.Document>> bySimpleName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    void add(InvertedIndex.Document document) {
+        String fqn = normalize(document.fqn());
+        if (fqn == null || !SYMBOL_TYPES.contains(document.type())) {
+            return;
+        }
+        bySimpleName.computeIfAbsent(simpleName(fqn), k -> new ArrayList<>()).add(document);
+    }
+
+    void remove(InvertedIndex.Document document) {
+        String fqn = normalize(document.fqn());
+        if (fqn == null || !SYMBOL_TYPES.contains(document.type())) {
+            return;
+        }
+        String key = simpleName(fqn);
+        List<InvertedIndex.Document> bucket = bySimpleName.get(key);
+        if (bucket != null) {
+            bucket.removeIf(candidate -> candidate == document);
+            if (bucket.isEmpty()) {
+                bySimpleName.remove(key);
+            }
+        }
+    }
+
+    void clear() {
+        bySimpleName.clear();
+    }
+
+    /**
+     * Documents declaring {@code identifier}, in source order.
+     *
+     * @param identifier Simple or qualified name; {@code #} and {@code .} separators are equivalent and a
+     *                   trailing parameter list is ignored
+     */
+    List<InvertedIndex.Document> find(String identifier, int maxResults) {
+        String name = normalize(identifier);
+        if (name == null || maxResults <= 0) {
+            return List.of();
+        }
+        List<InvertedIndex.Document> bucket = bySimpleName.get(simpleName(name));
+        if (bucket == null) {
+            return List.of();
+        }
+        boolean qualified = name.indexOf('.') >= 0;
+        String suffix = "." + name.toLowerCase(Locale.ROOT);
+        List<InvertedIndex.Document> exactCase = new ArrayList<>();
+        List<InvertedIndex.Document> anyCase = new ArrayList<>();
+        for (InvertedIndex.Document document : bucket) {
+            String fqn = normalize(document.fqn());
+            String lowerFqn = fqn.toLowerCase(Locale.ROOT);
+            if (qualified && !lowerFqn.equals(suffix.substring(1)) && !lowerFqn.endsWith(suffix)) {
+                continue;
+            }
+            if (fqn.endsWith(name)) {
+                exactCase.add(document);
+            } else {
+                anyCase.add(document);
+            }
+        }
+        List<InvertedIndex.Document> matches = exactCase.isEmpty() ? anyCase : exactCase;
+        matches.sort(SOURCE_ORDER);
+        return matches.size() > maxResults ? List.copyOf(matches.subList(0, maxResults)) : matches;
+    }
+
+    int size() {
+        return bySimpleName.size();
+    }
+
+    private static String normalize(String name) {
+        if (name == null) {
+            return null;
+        }
+        int params = name.indexOf('(');
+        String trimmed = (params >= 0 ? name.substring(0, params) : name).replace('#', '.').trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String simpleName(String normalizedName) {
+        return normalizedName.substring(normalizedName.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,17 @@
+package com.localllm.assistant.lexical.model;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A keyword search hit: the matching segment and its BM25 score (unbounded, higher is better).
+ */
+@Getter
+@Builder
+@ToString
+public class LexicalSearchResult {
+    private final CodeSegment segment;
+    private final double score;
+}
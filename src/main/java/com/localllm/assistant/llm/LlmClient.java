@@ -5,6 +5,7 @@ import com.localllm.assistant.history.model.ChatMessage;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface LlmClient {
 
@@ -15,6 +16,23 @@ public interface LlmClient {
         int numPredict
     );
 
+    /**
+     * Streaming variant of {@link #generateChatCompletionAsync}: every content delta is passed to
+     * {@code onToken} as soon as the model produces it. {@code onToken} is called from an I/O thread,
+     * in order, and must not block.
+     * <p>
+     * Cancelling the returned future aborts the request, which stops generation upstream.
+     *
+     * @return A CompletableFuture completing with the full generated text once generation finishes.
+     */
+    CompletableFuture<String> streamChatCompletionAsync(
+        List<ChatMessage> messages,
+        String modelName,
+        double temperature,
+        int numPredict,
+        Consumer<String> onToken
+    );
+
     /**
      * Fetches the list of available models (tags) from the Ollama API.
      * @return A CompletableFuture containing a list of ModelDto.
@@ -0,0 +1,176 @@
+package com.localllm.assistant.llm.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Streaming consumer for Ollama's {@code /api/chat} with {@code "stream": true}.
+ * <p>
+ * Ollama answers with newline-delimited JSON, one object per generated chunk. Each line is parsed
+ * as soon as its newline arrives and the {@code message.content} delta is handed to the token
+ * callback, so callers see the first token as soon as the model emits it instead of after the
+ * whole answer. Only the current partial line is buffered. The callback runs on the HTTP client's
+ * I/O thread and must not block.
+ * <p>
+ * {@link #cancel()} aborts the exchange at the next received chunk; closing the connection makes
+ * Ollama stop generating.
+ */
+class ChatStreamConsumer extends AbstractBinResponseConsumer<ChatStreamConsumer.Result> {
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int MAX_ERROR_BODY_BYTES = 2048;
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> onToken;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+    private final StringBuilder content = new StringBuilder(2048);
+
+    private volatile boolean cancelled;
+    private int statusCode;
+    private ByteArrayOutputStream errorBody;
+    private String error;
+    private boolean done;
+    private int generatedTokens;
+
+    ChatStreamConsumer(ObjectMapper objectMapper, Consumer<String> onToken) {
+        this.objectMapper = objectMapper;
+        this.onToken = onToken;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    protected void start(HttpResponse response, ContentType contentType) {
+        statusCode = response.getCode();
+        if (statusCode != 200) {
+            errorBody = new ByteArrayOutputStream();
+        }
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return CHUNK_SIZE;
+    }
+
+    @Override
+    protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+        if (cancelled) {
+            src.position(src.limit());
+            throw new IOException("Chat stream cancelled by caller");
+        }
+        if (errorBody != null) {
+            int n = Math.min(MAX_ERROR_BODY_BYTES - errorBody.size(), src.remaining());
+            for (int i = 0; i < n; i++) {
+                errorBody.write(src.get());
+            }
+            src.position(src.limit());
+            return;
+        }
+        while (src.hasRemaining()) {
+            byte b = src.get();
+            if (b == '\n') {
+                processLine();
+            } else {
+                line.write(b);
+            }
+        }
+        if (endOfStream) {
+            processLine();
+        }
+    }
+
+    private void processLine() throws IOException {
+        if (line.size() == 0) {
+            return;
+        }
+        // Lines are complete JSON objects, so multi-byte characters are never split here.
+        JsonNode node = objectMapper.readTree(line.toByteArray());
+        line.reset();
+        if (node.hasNonNull("error")) {
+            error = node.get("error").asText();
+            return;
+        }
+        String delta = node.path("message").path("content").asText("");
+        if (!delta.isEmpty()) {
+            content.append(delta);
+            onToken.accept(delta);
+        }
+        if (node.path("done").asBoolean(false)) {
+            done = true;
+            generatedTokens = node.path("eval_count").asInt(0);
+        }
+    }
+
+    @Override
+    protected Result buildResult() {
+        String errorText = errorBody != null ? errorBody.toString(StandardCharsets.UTF_8) : error;
+        return new Result(statusCode, content.toString(), done, generatedTokens, errorText);
+    }
+
+    @Override
+    public void releaseResources() {
+        line.reset();
+    }
+
+    /**
+     * Outcome of one streamed chat call.
+     */
+    static final class Result {
+        private final int statusCode;
+        private final String content;
+        private final boolean done;
+        private final int generatedTokens;
+        private final String error;
+
+        Result(int statusCode, String content, boolean done, int generatedTokens, String error) {
+            this.statusCode = statusCode;
+            this.content = content;
+            this.done = done;
+            this.generatedTokens = generatedTokens;
+            this.error = error;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Concatenation of all content deltas received.
+         */
+        String getContent() {
+            return content;
+        }
+
+        /**
+         * True once Ollama sent its final {@code "done": true} line.
+         */
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * {@code eval_count} from the final line, 0 if absent.
+         */
+        int getGeneratedTokens() {
+            return generatedTokens;
+        }
+
+        /**
+         * Error body (non-200) or in-stream {@code error} message, null otherwise.
+         */
+        String getError() {
+            return error;
+        }
+    }
+}
@@ -4,10 +4,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
 import com.localllm.assistant.config.AsyncConfig;
+import com.localllm.assistant.config.LimiterConfig;
 import com.localllm.assistant.config.OllamaConfig;
 import com.localllm.assistant.exception.LlmException;
 import com.localllm.assistant.exception.OllamaAccessException;
+import com.localllm.assistant.exception.UpstreamOverloadedException;
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.MessageRole;
 import com.localllm.assistant.llm.LlmClient;
@@ -16,6 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
 import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
@@ -29,6 +33,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -42,14 +48,17 @@ public class OllamaClientImpl implements LlmClient {
     private final ObjectMapper objectMapper;
     private final URI chatUri;
     private final URI tagsUri;
+    private final AdaptiveConcurrencyLimiter chatLimiter;
 
     public OllamaClientImpl(
         @Qualifier("sharedHttpAsyncClient") CloseableHttpAsyncClient httpAsyncClient,
         OllamaConfig ollamaConfig,
-        ObjectMapper objectMapper) {
+        ObjectMapper objectMapper,
+        @Qualifier(LimiterConfig.LIMITER_OLLAMA_CHAT) AdaptiveConcurrencyLimiter chatLimiter) {
         this.httpAsyncClient = httpAsyncClient;
         this.ollamaConfig = ollamaConfig;
         this.objectMapper = objectMapper;
+        this.chatLimiter = chatLimiter;
         try {
             this.chatUri = new URI(ollamaConfig.getBaseUrl() + CHAT_ENDPOINT);
             this.tagsUri = new URI(ollamaConfig.getBaseUrl() + TAGS_ENDPOINT); // Initialize tagsUri
@@ -60,8 +69,11 @@ public class OllamaClientImpl implements LlmClient {
         log.info("OllamaClientImpl initialized with config: {}", ollamaConfig);
     }
 
+    /**
+     * Not {@code @Async}: the body only builds and submits the request, and the proxy's future would not
+     * propagate cancellation to it. Cancelling the returned future dequeues or aborts the request.
+     */
     @Override
-    @Async(AsyncConfig.TASK_EXECUTOR_EMBEDDING)
     public CompletableFuture<String> generateChatCompletionAsync(List<ChatMessage> messages, String modelName, double temperature, int numPredict) {
         if (messages == null || messages.isEmpty()) {
             return CompletableFuture.failedFuture(new LlmException("No messages provided for chat completion"));
@@ -75,7 +87,7 @@ public class OllamaClientImpl implements LlmClient {
         CompletableFuture<String> future = new CompletableFuture<>();
 
         try {
-            String requestBodyJson = buildChatRequestBody(messages, modelName, temperature, effectiveNumPredict);
+            String requestBodyJson = buildChatRequestBody(messages, modelName, temperature, effectiveNumPredict, false);
             if (log.isTraceEnabled()) {
                 log.trace("Ollama chat request body: {}", requestBodyJson);
             } else {
@@ -86,61 +98,164 @@ public class OllamaClientImpl implements LlmClient {
                 .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
                 .build();
 
-            httpAsyncClient.execute(request, new FutureCallback<SimpleHttpResponse>() {
-                @Override
-                public void completed(SimpleHttpResponse response) {
-                    try {
-                        String responseBody = response.getBodyText();
-                        int statusCode = response.getCode();
-                        if (log.isTraceEnabled()) {
-                            log.trace("Ollama chat response status code: {}, body: {}", statusCode, responseBody);
-                        } else {
-                            log.debug("Ollama chat response status code: {}, body (first 500 chars): {}", statusCode,
-                                responseBody.substring(0, Math.min(responseBody.length(), 500)));
+            AdaptiveConcurrencyLimiter.Exchange exchange = chatLimiter.execute(httpAsyncClient, request,
+                new FutureCallback<SimpleHttpResponse>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        try {
+                            String responseBody = response.getBodyText();
+                            int statusCode = response.getCode();
+                            if (log.isTraceEnabled()) {
+                                log.trace("Ollama chat response status code: {}, body: {}", statusCode, responseBody);
+                            } else {
+                                log.debug("Ollama chat response status code: {}, body (first 500 chars): {}", statusCode,
+                                    responseBody.substring(0, Math.min(responseBody.length(), 500)));
+                            }
+
+                            if (statusCode != 200) {
+                                log.error("Ollama Chat API Error: Status Code {}, Body: {}", statusCode, responseBody);
+                                future.completeExceptionally(
+                                    new LlmException("Ollama Chat API returned non-200 status code: " + statusCode + " Body: " + responseBody));
+                                return;
+                            }
+
+                            String generatedText = extractCompletionText(responseBody);
+                            future.complete(generatedText);
+
+                        } catch (Exception e) {
+                            log.error("Failed to process Ollama chat response: {}", e.getMessage(), e);
+                            future.completeExceptionally(new LlmException("Failed to process Ollama chat response", e));
                         }
+                    }
 
-                        if (statusCode != 200) {
-                            log.error("Ollama Chat API Error: Status Code {}, Body: {}", statusCode, responseBody);
-                            future.completeExceptionally(
-                                new LlmException("Ollama Chat API returned non-200 status code: " + statusCode + " Body: " + responseBody));
+                    @Override
+                    public void failed(Exception ex) {
+                        if (ex instanceof UpstreamOverloadedException) {
+                            future.completeExceptionally(ex);
                             return;
                         }
+                        log.error("Ollama chat request failed: {}", ex.getMessage(), ex);
+                        future.completeExceptionally(new LlmException("Ollama chat request failed", ex));
+                    }
 
-                        String generatedText = extractCompletionText(responseBody);
-                        future.complete(generatedText);
-
-                    } catch (Exception e) {
-                        log.error("Failed to process Ollama chat response: {}", e.getMessage(), e);
-                        future.completeExceptionally(new LlmException("Failed to process Ollama chat response", e));
+                    @Override
+                    public void cancelled() {
+                        if (future.isDone()) {
+                            log.debug("Ollama chat request aborted after caller cancelled.");
+                            return;
+                        }
+                        log.warn("Ollama chat request cancelled");
+                        future.completeExceptionally(new CancellationException("Ollama chat request cancelled."));
                     }
+                });
+            future.whenComplete((text, ex) -> {
+                if (future.isCancelled()) {
+                    exchange.cancel();
                 }
+            });
 
-                @Override
-                public void failed(Exception ex) {
-                    log.error("Ollama chat request failed: {}", ex.getMessage(), ex);
-                    future.completeExceptionally(new LlmException("Ollama chat request failed", ex));
-                }
+        } catch (Exception e) {
+            log.error("Unexpected error preparing Ollama chat request", e);
+            future.completeExceptionally(new LlmException("Unexpected error preparing Ollama chat request", e));
+        }
+
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<String> streamChatCompletionAsync(List<ChatMessage> messages, String modelName, double temperature,
+                                                               int numPredict, Consumer<String> onToken) {
+        if (messages == null || messages.isEmpty()) {
+            return CompletableFuture.failedFuture(new LlmException("No messages provided for chat completion"));
+        }
 
-                @Override
-                public void cancelled() {
-                    log.warn("Ollama chat request cancelled");
-                    future.completeExceptionally(new CancellationException("Ollama chat request cancelled."));
+        int effectiveNumPredict = (numPredict > 0) ? numPredict : ollamaConfig.getChatModelDefaultNumPredict();
+        log.debug("Streaming chat completion with model: {}, temperature: {}, num_predict: {}, message count: {}",
+            modelName, temperature, effectiveNumPredict, messages.size());
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long startTime = System.currentTimeMillis();
+        AtomicLong firstTokenAt = new AtomicLong();
+        ChatStreamConsumer consumer = new ChatStreamConsumer(objectMapper, token -> {
+            if (firstTokenAt.compareAndSet(0, System.currentTimeMillis())) {
+                log.info("PERF_LOG: First token after {}ms", firstTokenAt.get() - startTime);
+            }
+            onToken.accept(token);
+        });
+        try {
+            String requestBodyJson = buildChatRequestBody(messages, modelName, temperature, effectiveNumPredict, true);
+            SimpleHttpRequest request = SimpleRequestBuilder.post(chatUri)
+                .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
+                .build();
+
+            AdaptiveConcurrencyLimiter.Exchange exchange = chatLimiter.execute(httpAsyncClient, SimpleRequestProducer.create(request),
+                consumer, ChatStreamConsumer.Result::getStatusCode,
+                new FutureCallback<ChatStreamConsumer.Result>() {
+                    @Override
+                    public void completed(ChatStreamConsumer.Result result) {
+                        if (result.getStatusCode() != 200) {
+                            log.error("Ollama Chat API Error (stream): Status Code {}, Body: {}", result.getStatusCode(), result.getError());
+                            future.completeExceptionally(new LlmException(
+                                "Ollama Chat API returned non-200 status code: " + result.getStatusCode() + " Body: " + result.getError()));
+                        } else if (result.getError() != null) {
+                            log.error("Ollama API returned error in stream: {}", result.getError());
+                            future.completeExceptionally(new LlmException("Ollama API error: " + result.getError()));
+                        } else {
+                            if (!result.isDone()) {
+                                log.warn("Ollama chat stream ended without a final 'done' message; returning partial answer.");
+                            }
+                            log.info("PERF_LOG: Streamed chat completion finished: {} tokens in {}ms",
+                                result.getGeneratedTokens(), System.currentTimeMillis() - startTime);
+                            future.complete(result.getContent());
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        if (future.isDone()) {
+                            log.debug("Ollama chat stream aborted after caller cancelled: {}", ex.getMessage());
+                            return;
+                        }
+                        if (ex instanceof UpstreamOverloadedException) {
+                            future.completeExceptionally(ex);
+                            return;
+                        }
+                        log.error("Ollama chat stream failed: {}", ex.getMessage(), ex);
+                        future.completeExceptionally(new LlmException("Ollama chat request failed", ex));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        if (future.isDone()) {
+                            log.debug("Ollama chat stream aborted after caller cancelled.");
+                            return;
+                        }
+                        log.warn("Ollama chat stream cancelled");
+                        future.completeExceptionally(new CancellationException("Ollama chat request cancelled."));
+                    }
+                });
+            // A cancelled caller (e.g. a disconnected SSE client) takes the request out of the limiter queue,
+            // or aborts the exchange so Ollama stops evaluating the prompt and the permit and connection are freed.
+            future.whenComplete((text, ex) -> {
+                if (future.isCancelled()) {
+                    consumer.cancel();
+                    exchange.cancel();
                 }
             });
-
         } catch (Exception e) {
-            log.error("Unexpected error preparing Ollama chat request", e);
+            log.error("Unexpected error preparing Ollama chat stream request", e);
             future.completeExceptionally(new LlmException("Unexpected error preparing Ollama chat request", e));
         }
 
         return future;
     }
 
-    private String buildChatRequestBody(List<ChatMessage> messages, String modelName, double temperature, int numPredict) throws Exception {
+    private String buildChatRequestBody(List<ChatMessage> messages, String modelName, double temperature, int numPredict,
+                                        boolean stream) throws Exception {
         ObjectNode requestBody = objectMapper.createObjectNode();
 
         requestBody.put("model", modelName != null ? modelName : ollamaConfig.getChatModel());
-        requestBody.put("stream", false);
+        requestBody.put("stream", stream);
 
         ArrayNode messagesArray = objectMapper.createArrayNode();
         for (ChatMessage message : messages) {
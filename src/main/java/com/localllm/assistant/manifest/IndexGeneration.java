@@ -0,0 +1,87 @@
+package com.localllm.assistant.manifest;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic counter of changes to the indexed content. The indexing pipeline and the file monitor
+ * bump it whenever segments are stored or removed, so anything derived from the index (such as
+ * cached answers) can tell that it may be stale.
+ * <p>
+ * The value is written to {@code manifest.generationPath} on every bump and restored on startup,
+ * so it keeps increasing across restarts. If the file cannot be read the counter starts from the
+ * current time in milliseconds, which in practice is above any value an earlier run reached.
+ */
+@Component
+public class IndexGeneration {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexGeneration.class);
+
+    @Value("${manifest.generationPath:./data/index-generation}")
+    private String generationPath;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Path file = Path.of(generationPath);
+        if (Files.exists(file)) {
+            try {
+                generation.set(Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim()));
+                log.info("Index generation restored from {}: {}", file.toAbsolutePath(), generation.get());
+                return;
+            } catch (IOException | NumberFormatException e) {
+                log.warn("Failed to read index generation from {} ({}). Starting a new generation sequence.",
+                    file.toAbsolutePath(), e.getMessage());
+            }
+        }
+        generation.set(System.currentTimeMillis());
+        persist(generation.get());
+    }
+
+    /**
+     * @return The current generation.
+     */
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Records a change to the indexed content.
+     *
+     * @return The new generation.
+     */
+    public long bump() {
+        long next = generation.incrementAndGet();
+        persist(next);
+        return next;
+    }
+
+    private synchronized void persist(long value) {
+        // A later bump may already have been written by another thread.
+        if (value < generation.get()) {
+            return;
+        }
+        Path file = Path.of(generationPath);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(tmp, Long.toString(value), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write index generation to {}: {}", file, e.getMessage());
+        }
+    }
+}
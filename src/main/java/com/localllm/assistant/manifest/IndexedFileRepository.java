@@ -0,0 +1,49 @@
+package com.localllm.assistant.manifest;
+
+import com.localllm.assistant.manifest.model.IndexedFile;
+import com.localllm.assistant.manifest.model.IndexedFileId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the persistent index manifest.
+ */
+@Repository
+public interface IndexedFileRepository extends JpaRepository<IndexedFile, IndexedFileId> {
+
+    /**
+     * Finds all manifest records for a codebase root and vector store collection.
+     *
+     * @param basePath       The absolute, normalized codebase root.
+     * @param collectionName The vector store collection the files were indexed into.
+     * @return The manifest records.
+     */
+    List<IndexedFile> findByBasePathAndCollectionName(String basePath, String collectionName);
+
+    /**
+     * Checks whether any manifest record exists for a codebase root and collection.
+     *
+     * @param basePath       The absolute, normalized codebase root.
+     * @param collectionName The vector store collection.
+     * @return true if at least one record exists.
+     */
+    boolean existsByBasePathAndCollectionName(String basePath, String collectionName);
+
+    /**
+     * Deletes all manifest records for a codebase root and collection.
+     *
+     * @param basePath       The absolute, normalized codebase root.
+     * @param collectionName The vector store collection.
+     * @return The number of records deleted.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IndexedFile f WHERE f.basePath = :basePath AND f.collectionName = :collectionName")
+    int deleteByBasePathAndCollectionName(@Param("basePath") String basePath, @Param("collectionName") String collectionName);
+}
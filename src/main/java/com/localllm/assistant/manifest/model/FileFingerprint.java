@@ -0,0 +1,40 @@
+package com.localllm.assistant.manifest.model;
+
+import com.localllm.assistant.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Size, mtime and content hash of a file, taken before it is parsed so the manifest describes the
+ * content that was actually indexed. If the file changes while it is being processed, the next scan
+ * sees a mismatch and processes it again.
+ *
+ * @param sizeBytes          File size in bytes, or -1 if unknown.
+ * @param lastModifiedMillis Last modification time, or -1 if unknown.
+ * @param contentHash        SHA-256 of the content as hex, or empty if unknown.
+ */
+public record FileFingerprint(long sizeBytes, long lastModifiedMillis, String contentHash) {
+
+    /**
+     * Matches no file, so an entry recorded with it is always re-processed.
+     */
+    public static final FileFingerprint UNKNOWN = new FileFingerprint(-1, -1, "");
+
+    /**
+     * Reads the fingerprint of a file. Size and mtime are read before the content, so a write that
+     * races with hashing leaves a newer mtime on disk than the one recorded.
+     *
+     * @return The fingerprint, or {@link #UNKNOWN} if the file cannot be read.
+     */
+    public static FileFingerprint capture(Path file) {
+        try {
+            long size = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            return new FileFingerprint(size, lastModified, FileUtils.sha256Hex(file));
+        } catch (IOException e) {
+            return UNKNOWN;
+        }
+    }
+}
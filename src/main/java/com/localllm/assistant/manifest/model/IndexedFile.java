@@ -0,0 +1,76 @@
+package com.localllm.assistant.manifest.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Manifest record describing the last indexed state of a single source file in one collection.
+ * Used to decide whether a file needs to be re-parsed/re-embedded on the next indexing run.
+ * <p>
+ * Keyed by (collection, file), so indexing a codebase into a second collection keeps the first one's records.
+ * The table replaces {@code indexed_files}, which was keyed by file alone; existing manifests are rebuilt
+ * by the next indexing run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(IndexedFileId.class)
+@Table(name = "indexed_collection_files", indexes = {
+    @Index(name = "idx_indexed_collection_files_base_collection", columnList = "base_path, collection_name")
+})
+public class IndexedFile {
+
+    @Id
+    @Column(name = "collection_name")
+    private String collectionName;
+
+    /**
+     * Absolute, normalized path of the file.
+     */
+    @Id
+    @Column(name = "file_path", length = 2048)
+    private String filePath;
+
+    @Column(nullable = false, name = "base_path", length = 2048)
+    private String basePath;
+
+    @Column(nullable = false, name = "relative_path", length = 2048)
+    private String relativePath;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(nullable = false)
+    private long lastModifiedMillis;
+
+    /**
+     * SHA-256 of the file bytes, hex encoded.
+     */
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    /**
+     * IDs of the segments that were produced for this file and stored in the vector store.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "JSON")
+    private List<String> segmentIds;
+
+    @Column(nullable = false)
+    private LocalDateTime indexedAt;
+}
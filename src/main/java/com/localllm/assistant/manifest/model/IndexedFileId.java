@@ -0,0 +1,20 @@
+package com.localllm.assistant.manifest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Primary key of {@link IndexedFile}: the same file may be indexed into several collections.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexedFileId implements Serializable {
+
+    private String collectionName;
+
+    private String filePath;
+}
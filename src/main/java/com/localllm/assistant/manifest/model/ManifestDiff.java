@@ -0,0 +1,37 @@
+package com.localllm.assistant.manifest.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of comparing the files currently on disk with the persisted index manifest.
+ */
+@Getter
+@Builder
+public class ManifestDiff {
+
+    /**
+     * Files that were added or changed since the last run and must go through the pipeline.
+     */
+    private final List<Path> filesToProcess;
+
+    /**
+     * Manifest records whose files no longer exist; their segments must be removed from the vector store.
+     */
+    private final List<IndexedFile> deletedFiles;
+
+    /**
+     * Previously stored segment IDs keyed by relative file path, for files in {@link #filesToProcess}.
+     * Segment IDs embed a content checksum, so any ID still produced by the parser can be skipped.
+     */
+    private final Map<String, Set<String>> previousSegmentIds;
+
+    private final int addedCount;
+    private final int changedCount;
+    private final int unchangedCount;
+}
@@ -31,6 +31,7 @@
     import com.localllm.assistant.parser.ParserService;
     import com.localllm.assistant.parser.model.CodeSegment;
     import com.localllm.assistant.parser.model.SegmentType;
+    import com.localllm.assistant.tokenizer.TokenCounter;
     import org.slf4j.Logger;
     import org.slf4j.LoggerFactory;
     import org.springframework.beans.factory.annotation.Qualifier;
@@ -64,6 +65,7 @@
         private static final Logger log = LoggerFactory.getLogger(JavaParserServiceImpl.class);
         private static final MessageDigest SHA256_DIGEST;
         private final Executor parsingExecutor;
+        private final TokenCounter tokenCounter;
 
         @Value("${parser.maxSegmentCharLength:2000}")
         private int maxSegmentCharLength;
@@ -124,8 +126,9 @@
                 fileName.endsWith(".scala");
         }
 
-        public JavaParserServiceImpl(@Qualifier(AsyncConfig.TASK_EXECUTOR_PARSING) Executor parsingExecutor) {
+        public JavaParserServiceImpl(@Qualifier(AsyncConfig.TASK_EXECUTOR_PARSING) Executor parsingExecutor, TokenCounter tokenCounter) {
             this.parsingExecutor = parsingExecutor;
+            this.tokenCounter = tokenCounter;
         }
 
         @Override
@@ -148,7 +151,7 @@
                     LocalDateTime lastModified = readFileLastModified(filePath);
                     CompilationUnit cu = StaticJavaParser.parse(filePath);
                     List<CodeSegment> segments = new ArrayList<>();
-                    SegmentVisitor visitor = new SegmentVisitor(relativePath, lastModified, maxSegmentCharLength, subChunkOverlapChars);
+                    SegmentVisitor visitor = new SegmentVisitor(relativePath, lastModified, maxSegmentCharLength, subChunkOverlapChars, tokenCounter);
                     visitor.visit(cu, segments);
                     log.info("Successfully parsed file: {} into {} segments (including sub-chunks) using JavaParser", relativePath, segments.size());
                     return segments;
@@ -269,12 +272,24 @@
             private String currentPackage = "";
             private final int maxSegmentCharLength;
             private final int subChunkOverlapChars;
+            private final TokenCounter tokenCounter;
 
-            public SegmentVisitor(String relativeFilePath, LocalDateTime fileLastModified, int maxSegmentCharLength, int subChunkOverlapChars) {
+            public SegmentVisitor(String relativeFilePath, LocalDateTime fileLastModified, int maxSegmentCharLength, int subChunkOverlapChars,
+                                  TokenCounter tokenCounter) {
                 this.relativeFilePath = relativeFilePath;
                 this.fileLastModified = fileLastModified;
                 this.maxSegmentCharLength = maxSegmentCharLength;
                 this.subChunkOverlapChars = subChunkOverlapChars;
+                this.tokenCounter = tokenCounter;
+            }
+
+            /**
+             * Stores the token count of the content as it will appear in a prompt (trimmed), so query-time
+             * context packing does not have to tokenize it again.
+             */
+            private void putTokenCount(Map<String, Object> metadata, String content) {
+                metadata.put(TokenCounter.METADATA_TOKEN_COUNT, tokenCounter.countTokens(content.trim()));
+                metadata.put(TokenCounter.METADATA_TOKENIZER, tokenCounter.name());
             }
 
             private int getLine(Optional<com.github.javaparser.Position> position) {
@@ -372,6 +387,7 @@
                         chunkMetadata.put("originalSegmentId", finalizeId(baseSegmentId, originalContent));
                         chunkMetadata.put("chunkNumber", i);
                         chunkMetadata.put("totalChunks", chunks.size());
+                        putTokenCount(chunkMetadata, chunkContent);
 
                         CodeSegment chunkSegment = CodeSegment.builder()
                             .id(chunkId)
@@ -396,6 +412,7 @@
                     }
                     log.debug("Segment '{}' chunked into {} pieces.", entityName, chunks.size());
                 } else {
+                    putTokenCount(baseMetadata, originalContent);
                     CodeSegment segment = CodeSegment.builder()
                         .id(finalizeId(baseSegmentId, originalContent))
                         .relativeFilePath(relativeFilePath)
@@ -0,0 +1,43 @@
+package com.localllm.assistant.prompt;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The rewrites {@link SnippetCompressor} may apply to a snippet before it is packed into the prompt.
+ */
+public enum CompressionMode {
+    /** Removes Javadoc, block and line comments (license headers included). */
+    COMMENTS,
+    /** Drops blank lines and trailing whitespace and halves the indentation. */
+    WHITESPACE,
+    /** Replaces trivial getters and setters of a class by a one-line note listing them. */
+    ACCESSORS,
+    /** Replaces method and constructor bodies of low-scoring snippets by {@code { ... }}. */
+    BODIES;
+
+    public static CompressionMode fromName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "comments" -> COMMENTS;
+            case "whitespace" -> WHITESPACE;
+            case "accessors" -> ACCESSORS;
+            case "bodies" -> BODIES;
+            default -> throw new IllegalArgumentException("Unsupported snippet compression mode: " + name);
+        };
+    }
+
+    /**
+     * Parses a comma-separated list of mode names; a blank list enables no mode.
+     */
+    public static Set<CompressionMode> fromNames(String names) {
+        Set<CompressionMode> modes = EnumSet.noneOf(CompressionMode.class);
+        if (names != null) {
+            for (String name : names.split(",")) {
+                if (!name.isBlank()) {
+                    modes.add(fromName(name));
+                }
+            }
+        }
+        return modes;
+    }
+}
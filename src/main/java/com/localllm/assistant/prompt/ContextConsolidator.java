@@ -0,0 +1,288 @@
+package com.localllm.assistant.prompt;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Removes duplicated code from the retrieved context before it is packed into the prompt.
+ * <p>
+ * The parser emits overlapping {@code _chunkN} sub-segments for long declarations, and a class
+ * segment contains the text of its members, so retrieval often returns the same lines several times.
+ * Three passes, all within one file:
+ * <ol>
+ *   <li>consecutive sub-chunks of the same original segment are joined, dropping the overlap;</li>
+ *   <li>segments whose line range lies inside another retrieved whole segment (or whose
+ *       {@code parentId} was retrieved) are dropped;</li>
+ *   <li>whole segments with the same parent separated by at most {@code maxGapLines} lines are merged.</li>
+ * </ol>
+ * A merged segment keeps the best score and the best retrieval rank of its parts. Its token count
+ * is derived from the parts' stored counts rather than by tokenizing the merged text.
+ */
+@Component
+public class ContextConsolidator {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextConsolidator.class);
+    // Parser sub-chunk ids: <baseId>_chunk<N>:<checksum>
+    private static final Pattern CHUNK_ID = Pattern.compile("^(.*)_chunk(\\d+):[0-9a-f]+$");
+    private static final String ADJACENT_SEPARATOR = "\n\n";
+
+    private final boolean enabled;
+    private final int maxGapLines;
+    private final TokenCounter tokenCounter;
+
+    @Autowired
+    public ContextConsolidator(@Value("${query.consolidation.enabled:true}") boolean enabled,
+                               @Value("${query.consolidation.maxGapLines:1}") int maxGapLines,
+                               TokenCounter tokenCounter) {
+        this.enabled = enabled;
+        this.maxGapLines = maxGapLines;
+        this.tokenCounter = tokenCounter;
+    }
+
+    /**
+     * Mutable working copy of one (possibly merged) context entry.
+     */
+    private static final class Entry {
+        CodeSegment segment;
+        double score;
+        int rank;
+        final String file;
+        int startLine;
+        int endLine;
+        final String chunkKey;
+        int firstChunk;
+        int lastChunk;
+        final int totalChunks;
+        int tokens;
+
+        Entry(VectorSearchResult result, int rank, TokenCounter tokenCounter) {
+            this.segment = result.getSegment();
+            this.score = result.getScore();
+            this.rank = rank;
+            this.file = Objects.toString(segment.getRelativeFilePath(), "");
+            this.startLine = segment.getStartLine();
+            this.endLine = segment.getEndLine();
+            this.tokens = tokenCounter.countSegmentTokens(segment);
+
+            Map<String, Object> metadata = segment.getMetadata() != null ? segment.getMetadata() : Map.of();
+            Matcher chunkId = segment.getId() != null ? CHUNK_ID.matcher(segment.getId()) : null;
+            if (chunkId != null && chunkId.matches()) {
+                this.chunkKey = chunkId.group(1);
+                this.firstChunk = Integer.parseInt(chunkId.group(2));
+            } else if (segment.isSubChunk() && segment.getOriginalSegmentId() != null) {
+                this.chunkKey = segment.getOriginalSegmentId();
+                this.firstChunk = segment.getChunkNumber();
+            } else {
+                this.chunkKey = null;
+                this.firstChunk = 0;
+            }
+            this.lastChunk = firstChunk;
+            this.totalChunks = metadata.get("totalChunks") instanceof Number total ? total.intValue() : -1;
+        }
+
+        boolean isPartialChunk() {
+            return chunkKey != null && !(firstChunk == 0 && totalChunks > 0 && lastChunk == totalChunks - 1);
+        }
+
+        boolean covers(Entry other) {
+            if (this == other || isPartialChunk() || !file.equals(other.file)) {
+                return false;
+            }
+            if (segment.getId() != null && segment.getId().equals(other.segment.getParentId())) {
+                return true;
+            }
+            if (startLine <= 0 || startLine > other.startLine || other.endLine > endLine) {
+                return false;
+            }
+            boolean sameRange = startLine == other.startLine && endLine == other.endLine;
+            // Of two whole segments with the same range (e.g. "int a, b;"), the better-ranked one stays.
+            return !sameRange || other.isPartialChunk() || rank < other.rank;
+        }
+
+        void absorb(Entry other) {
+            score = Math.max(score, other.score);
+            rank = Math.min(rank, other.rank);
+        }
+    }
+
+    /**
+     * Consolidates the retrieved context.
+     *
+     * @param context Retrieved segments in rank order.
+     * @return The consolidated segments in rank order (rank of the best part for merged segments).
+     */
+    public List<VectorSearchResult> consolidate(List<VectorSearchResult> context) {
+        if (!enabled || context == null || context.size() < 2) {
+            return context;
+        }
+        Map<String, Entry> unique = new LinkedHashMap<>();
+        for (int i = 0; i < context.size(); i++) {
+            VectorSearchResult result = context.get(i);
+            if (result == null || result.getSegment() == null) {
+                continue;
+            }
+            String id = result.getSegment().getId() != null ? result.getSegment().getId() : "#" + i;
+            unique.putIfAbsent(id, new Entry(result, i, tokenCounter));
+        }
+        List<Entry> entries = new ArrayList<>(unique.values());
+        int tokensBefore = entries.stream().mapToInt(e -> e.tokens).sum();
+        int before = entries.size();
+
+        entries = mergeChunkRuns(entries);
+        int afterChunks = entries.size();
+        entries = dropCovered(entries);
+        int afterCovered = entries.size();
+        if (maxGapLines >= 0) {
+            entries = mergeAdjacent(entries);
+        }
+
+        entries.sort(Comparator.comparingInt(e -> e.rank));
+        int tokensAfter = entries.stream().mapToInt(e -> e.tokens).sum();
+        if (entries.size() < before) {
+            log.info("CONTEXT CONSOLIDATION: {} -> {} segments ({} chunk joins, {} covered, {} adjacent merges), ~{} -> {} tokens",
+                before, entries.size(), before - afterChunks, afterChunks - afterCovered, afterCovered - entries.size(),
+                tokensBefore, tokensAfter);
+        }
+        return entries.stream()
+            .map(e -> new VectorSearchResult(e.segment, e.score))
+            .collect(Collectors.toList());
+    }
+
+    private List<Entry> mergeChunkRuns(List<Entry> entries) {
+        Map<String, List<Entry>> runs = new LinkedHashMap<>();
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.chunkKey == null) {
+                result.add(entry);
+            } else {
+                runs.computeIfAbsent(entry.file + "\u0000" + entry.chunkKey, k -> new ArrayList<>()).add(entry);
+            }
+        }
+        for (List<Entry> chunks : runs.values()) {
+            chunks.sort(Comparator.comparingInt(e -> e.firstChunk));
+            Entry current = chunks.get(0);
+            for (int i = 1; i < chunks.size(); i++) {
+                Entry next = chunks.get(i);
+                if (next.firstChunk == current.lastChunk + 1) {
+                    joinChunks(current, next);
+                } else {
+                    result.add(current);
+                    current = next;
+                }
+            }
+            result.add(current);
+        }
+        return result;
+    }
+
+    private void joinChunks(Entry head, Entry tail) {
+        String headContent = Objects.toString(head.segment.getContent(), "");
+        String tailContent = Objects.toString(tail.segment.getContent(), "");
+        int overlap = overlapLength(headContent, tailContent);
+        String overlapText = tailContent.substring(0, overlap);
+        head.tokens = Math.max(0, head.tokens + tail.tokens - tokenCounter.countTokens(overlapText.trim()));
+        head.lastChunk = tail.lastChunk;
+        head.absorb(tail);
+        boolean complete = !head.isPartialChunk();
+        head.segment = copyWith(head.segment, headContent + tailContent.substring(overlap), head.startLine, head.endLine, head.tokens)
+            .toBuilder()
+            .isSubChunk(!complete)
+            .build();
+    }
+
+    private static int overlapLength(String head, String tail) {
+        for (int length = Math.min(head.length(), tail.length()); length > 0; length--) {
+            if (head.regionMatches(head.length() - length, tail, 0, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private List<Entry> dropCovered(List<Entry> entries) {
+        Set<Entry> dropped = new LinkedHashSet<>();
+        for (Entry inner : entries) {
+            Entry cover = null;
+            for (Entry outer : entries) {
+                if (!dropped.contains(outer) && outer.covers(inner) && (cover == null || outer.rank < cover.rank)) {
+                    cover = outer;
+                }
+            }
+            if (cover != null) {
+                cover.absorb(inner);
+                dropped.add(inner);
+            }
+        }
+        List<Entry> result = new ArrayList<>(entries);
+        result.removeAll(dropped);
+        return result;
+    }
+
+    private List<Entry> mergeAdjacent(List<Entry> entries) {
+        Map<String, List<Entry>> byFile = new HashMap<>();
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.isPartialChunk() || entry.startLine <= 0) {
+                result.add(entry);
+            } else {
+                byFile.computeIfAbsent(entry.file, k -> new ArrayList<>()).add(entry);
+            }
+        }
+        int separatorTokens = tokenCounter.countTokens(ADJACENT_SEPARATOR);
+        for (List<Entry> fileEntries : byFile.values()) {
+            fileEntries.sort(Comparator.comparingInt((Entry e) -> e.startLine).thenComparingInt(e -> e.endLine));
+            Entry current = fileEntries.get(0);
+            for (int i = 1; i < fileEntries.size(); i++) {
+                Entry next = fileEntries.get(i);
+                boolean adjacent = next.startLine > current.endLine && next.startLine - current.endLine - 1 <= maxGapLines;
+                if (adjacent && Objects.equals(current.segment.getParentId(), next.segment.getParentId())) {
+                    current.tokens += separatorTokens + next.tokens;
+                    current.endLine = next.endLine;
+                    current.absorb(next);
+                    current.segment = copyWith(current.segment,
+                        Objects.toString(current.segment.getContent(), "").trim() + ADJACENT_SEPARATOR
+                            + Objects.toString(next.segment.getContent(), "").trim(),
+                        current.startLine, current.endLine, current.tokens);
+                } else {
+                    result.add(current);
+                    current = next;
+                }
+            }
+            result.add(current);
+        }
+        return result;
+    }
+
+    private CodeSegment copyWith(CodeSegment segment, String content, int startLine, int endLine, int tokens) {
+        Map<String, Object> metadata = segment.getMetadata() != null ? new HashMap<>(segment.getMetadata()) : new HashMap<>();
+        metadata.put(TokenCounter.METADATA_TOKEN_COUNT, tokens);
+        metadata.put(TokenCounter.METADATA_TOKENIZER, tokenCounter.name());
+        metadata.put("startLine", startLine);
+        metadata.put("endLine", endLine);
+        return segment.toBuilder()
+            .content(content)
+            .startLine(startLine)
+            .endLine(endLine)
+            .metadata(metadata)
+            .build();
+    }
+}
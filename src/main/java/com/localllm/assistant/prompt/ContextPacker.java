@@ -0,0 +1,199 @@
+package com.localllm.assistant.prompt;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.prompt.metrics.ContextPackingMetrics;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Chooses which retrieved segments go into the prompt under a token budget.
+ * <p>
+ * Stopping at the first segment that does not fit lets one oversized early segment waste most of
+ * the budget. The default {@link PackingStrategy#KNAPSACK} strategy instead maximizes the summed
+ * relevance score of the selection. The DP runs over at most {@value #MAX_DP_CAPACITY} budget units:
+ * larger budgets are coarsened, and segment sizes are rounded up to whole units so the selection
+ * never exceeds the budget. An optional per-file cap keeps one large file from crowding out the rest.
+ */
+@Component
+public class ContextPacker {
+
+    private static final int MAX_DP_CAPACITY = 4096;
+    // Keeps zero-scored segments worth including when there is room for them.
+    private static final double MIN_VALUE = 1e-3;
+
+    private final PackingStrategy strategy;
+    private final int maxSegmentsPerFile;
+    private final ContextPackingMetrics metrics;
+
+    @Autowired
+    public ContextPacker(@Value("${query.packing.strategy:knapsack}") String strategy,
+                         @Value("${query.packing.maxSegmentsPerFile:0}") int maxSegmentsPerFile,
+                         ContextPackingMetrics metrics) {
+        this(PackingStrategy.fromName(strategy), maxSegmentsPerFile, metrics);
+    }
+
+    public ContextPacker(PackingStrategy strategy, int maxSegmentsPerFile, ContextPackingMetrics metrics) {
+        this.strategy = strategy;
+        this.maxSegmentsPerFile = maxSegmentsPerFile;
+        this.metrics = metrics;
+    }
+
+    /**
+     * A retrieved segment with the prompt tokens it costs, including its header and code fence.
+     */
+    public record Candidate(VectorSearchResult result, int tokens) {
+
+        String filePath() {
+            CodeSegment segment = result.getSegment();
+            return segment != null && segment.getRelativeFilePath() != null ? segment.getRelativeFilePath() : "";
+        }
+
+        double value() {
+            return Math.max(result.getScore(), 0.0) + MIN_VALUE;
+        }
+
+        double density() {
+            return value() / Math.max(tokens, 1);
+        }
+    }
+
+    /**
+     * Selects candidates whose tokens sum to at most {@code tokenBudget}.
+     *
+     * @param candidates Candidates in retrieval (score) order.
+     * @param tokenBudget Tokens available for segments.
+     * @return The selection, in the order the candidates were given.
+     */
+    public PackedContext pack(List<Candidate> candidates, int tokenBudget) {
+        TreeSet<Integer> chosen = new TreeSet<>();
+        if (tokenBudget > 0 && !candidates.isEmpty()) {
+            switch (strategy) {
+                case KNAPSACK -> {
+                    chosen.addAll(knapsack(candidates, tokenBudget));
+                    enforceFileCap(candidates, chosen);
+                    fillByDensity(candidates, chosen, tokenBudget);
+                }
+                case DENSITY -> fillByDensity(candidates, chosen, tokenBudget);
+                case GREEDY -> fillInOrder(candidates, chosen, tokenBudget);
+            }
+        }
+        List<Candidate> selected = chosen.stream().map(candidates::get).collect(Collectors.toList());
+        int usedTokens = selected.stream().mapToInt(Candidate::tokens).sum();
+        PackedContext packed = new PackedContext(selected, usedTokens, tokenBudget, candidates.size(), strategy);
+        metrics.record(packed);
+        return packed;
+    }
+
+    public PackingStrategy getStrategy() {
+        return strategy;
+    }
+
+    private static List<Integer> knapsack(List<Candidate> candidates, int tokenBudget) {
+        int unit = Math.max(1, (tokenBudget + MAX_DP_CAPACITY - 1) / MAX_DP_CAPACITY);
+        int capacity = tokenBudget / unit;
+        int n = candidates.size();
+        int[] weights = new int[n];
+        double[] best = new double[capacity + 1];
+        boolean[][] take = new boolean[n][capacity + 1];
+        for (int i = 0; i < n; i++) {
+            Candidate candidate = candidates.get(i);
+            weights[i] = (Math.max(candidate.tokens(), 0) + unit - 1) / unit;
+            if (weights[i] > capacity) {
+                continue;
+            }
+            double value = candidate.value();
+            for (int w = capacity; w >= weights[i]; w--) {
+                double withItem = best[w - weights[i]] + value;
+                if (withItem > best[w]) {
+                    best[w] = withItem;
+                    take[i][w] = true;
+                }
+            }
+        }
+        List<Integer> chosen = new ArrayList<>();
+        int w = capacity;
+        for (int i = n - 1; i >= 0; i--) {
+            if (take[i][w]) {
+                chosen.add(i);
+                w -= weights[i];
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Drops the lowest-scored selections of files that exceed the per-file cap.
+     */
+    private void enforceFileCap(List<Candidate> candidates, TreeSet<Integer> chosen) {
+        if (maxSegmentsPerFile <= 0) {
+            return;
+        }
+        Map<String, List<Integer>> byFile = new HashMap<>();
+        chosen.forEach(i -> byFile.computeIfAbsent(candidates.get(i).filePath(), k -> new ArrayList<>()).add(i));
+        for (List<Integer> indices : byFile.values()) {
+            if (indices.size() > maxSegmentsPerFile) {
+                indices.sort(Comparator.comparingDouble((Integer i) -> candidates.get(i).value()).reversed());
+                indices.subList(maxSegmentsPerFile, indices.size()).forEach(chosen::remove);
+            }
+        }
+    }
+
+    /**
+     * Adds unselected candidates in descending score-per-token order while they fit.
+     */
+    private void fillByDensity(List<Candidate> candidates, TreeSet<Integer> chosen, int tokenBudget) {
+        int used = chosen.stream().mapToInt(i -> candidates.get(i).tokens()).sum();
+        Map<String, Integer> perFile = countPerFile(candidates, chosen);
+        List<Integer> order = IntStream.range(0, candidates.size())
+            .filter(i -> !chosen.contains(i))
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer i) -> candidates.get(i).density()).reversed())
+            .collect(Collectors.toList());
+        for (int i : order) {
+            Candidate candidate = candidates.get(i);
+            if (used + candidate.tokens() <= tokenBudget && fileHasRoom(perFile, candidate)) {
+                chosen.add(i);
+                used += candidate.tokens();
+                perFile.merge(candidate.filePath(), 1, Integer::sum);
+            }
+        }
+    }
+
+    private void fillInOrder(List<Candidate> candidates, TreeSet<Integer> chosen, int tokenBudget) {
+        int used = 0;
+        Map<String, Integer> perFile = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            if (!fileHasRoom(perFile, candidate)) {
+                continue;
+            }
+            if (used + candidate.tokens() > tokenBudget) {
+                break;
+            }
+            chosen.add(i);
+            used += candidate.tokens();
+            perFile.merge(candidate.filePath(), 1, Integer::sum);
+        }
+    }
+
+    private boolean fileHasRoom(Map<String, Integer> perFile, Candidate candidate) {
+        return maxSegmentsPerFile <= 0 || perFile.getOrDefault(candidate.filePath(), 0) < maxSegmentsPerFile;
+    }
+
+    private static Map<String, Integer> countPerFile(List<Candidate> candidates, TreeSet<Integer> chosen) {
+        Map<String, Integer> perFile = new HashMap<>();
+        chosen.forEach(i -> perFile.merge(candidates.get(i).filePath(), 1, Integer::sum));
+        return perFile;
+    }
+}
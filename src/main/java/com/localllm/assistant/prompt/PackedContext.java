@@ -0,0 +1,14 @@
+package com.localllm.assistant.prompt;
+
+import java.util.List;
+
+/**
+ * Segments selected for a prompt, in retrieval order, with the tokens they use out of the budget.
+ */
+public record PackedContext(List<ContextPacker.Candidate> selected, int usedTokens, int tokenBudget, int candidateCount,
+                            PackingStrategy strategy) {
+
+    public double utilization() {
+        return tokenBudget <= 0 ? 0.0 : (double) usedTokens / tokenBudget;
+    }
+}
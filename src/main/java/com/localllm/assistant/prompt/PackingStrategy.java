@@ -0,0 +1,25 @@
+package com.localllm.assistant.prompt;
+
+/**
+ * How {@link ContextPacker} chooses which retrieved segments fit the prompt's token budget.
+ */
+public enum PackingStrategy {
+    /** 0/1 knapsack: maximizes the summed relevance score of the selected segments. */
+    KNAPSACK,
+    /** Greedy by score per token; near-optimal and linear-time. */
+    DENSITY,
+    /** Score order, stopping at the first segment that does not fit. */
+    GREEDY;
+
+    public static PackingStrategy fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return KNAPSACK;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case "knapsack" -> KNAPSACK;
+            case "density" -> DENSITY;
+            case "greedy" -> GREEDY;
+            default -> throw new IllegalArgumentException("Unsupported context packing strategy: " + name);
+        };
+    }
+}
@@ -0,0 +1,361 @@
+package com.localllm.assistant.prompt;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.comments.LineComment;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.prompt.metrics.SnippetCompressionMetrics;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks retrieved snippets before they are packed into the prompt.
+ * <p>
+ * A snippet is parsed as the body of a synthetic class, so a single declaration and several merged
+ * siblings are handled alike. The enabled {@link CompressionMode}s then run in a fixed order:
+ * comments, trivial accessors, method bodies (only for snippets ranked below {@code keepBodiesTopN}
+ * whose score is under {@code stubBodiesBelowRelativeScore} times the best score), whitespace.
+ * Snippets that do not parse (sub-chunks, enum constants) only get the text-based comment and
+ * whitespace passes. The compressed snippet is re-counted after each mode that changed it, which
+ * gives the per-mode savings, and carries its new count in the segment metadata for the packer.
+ */
+@Component
+public class SnippetCompressor {
+
+    private static final Logger log = LoggerFactory.getLogger(SnippetCompressor.class);
+    private static final String WRAPPER_OPEN = "class __Snippet {\n";
+    private static final String WRAPPER_CLOSE = "\n}";
+    private static final String ELIDED_BODY_MARKER = "__elided_body__";
+    private static final Pattern ELIDED_BODY = Pattern.compile("\\{\\s*//" + ELIDED_BODY_MARKER + "\\s*}");
+    private static final String ELIDED_BODY_TEXT = "{ ... }";
+    private static final Pattern LINE_BREAK = Pattern.compile("\\R");
+
+    private final boolean enabled;
+    private final Set<CompressionMode> modes;
+    private final int keepBodiesTopN;
+    private final double stubBodiesBelowRelativeScore;
+    private final TokenCounter tokenCounter;
+    private final SnippetCompressionMetrics metrics;
+    private final ParserConfiguration parserConfiguration = new ParserConfiguration();
+
+    @Autowired
+    public SnippetCompressor(@Value("${query.compression.enabled:true}") boolean enabled,
+                             @Value("${query.compression.modes:comments,whitespace,accessors,bodies}") String modes,
+                             @Value("${query.compression.keepBodiesTopN:3}") int keepBodiesTopN,
+                             @Value("${query.compression.stubBodiesBelowRelativeScore:0.5}") double stubBodiesBelowRelativeScore,
+                             TokenCounter tokenCounter,
+                             SnippetCompressionMetrics metrics) {
+        this(enabled, CompressionMode.fromNames(modes), keepBodiesTopN, stubBodiesBelowRelativeScore, tokenCounter, metrics);
+    }
+
+    public SnippetCompressor(boolean enabled, Set<CompressionMode> modes, int keepBodiesTopN,
+                             double stubBodiesBelowRelativeScore, TokenCounter tokenCounter,
+                             SnippetCompressionMetrics metrics) {
+        this.enabled = enabled;
+        this.modes = modes;
+        this.keepBodiesTopN = keepBodiesTopN;
+        this.stubBodiesBelowRelativeScore = stubBodiesBelowRelativeScore;
+        this.tokenCounter = tokenCounter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Text and token count of one snippet as it goes through the modes.
+     */
+    private final class Snippet {
+        String text;
+        int tokens;
+        final Map<CompressionMode, Integer> saved = new EnumMap<>(CompressionMode.class);
+
+        Snippet(String text, int tokens) {
+            this.text = text;
+            this.tokens = tokens;
+        }
+
+        void update(CompressionMode mode, String compressed) {
+            if (compressed.equals(text)) {
+                return;
+            }
+            int compressedTokens = tokenCounter.countTokens(compressed.trim());
+            saved.merge(mode, tokens - compressedTokens, Integer::sum);
+            text = compressed;
+            tokens = compressedTokens;
+        }
+    }
+
+    /**
+     * Compresses the snippets of the retrieved context.
+     *
+     * @param context Retrieved segments in rank order.
+     * @return The same results in the same order, with compressed segment contents and token counts.
+     */
+    public List<VectorSearchResult> compress(List<VectorSearchResult> context) {
+        if (!enabled || modes.isEmpty() || context == null || context.isEmpty()) {
+            return context;
+        }
+        double bestScore = context.stream().filter(r -> r != null).mapToDouble(VectorSearchResult::getScore).max().orElse(0.0);
+        JavaParser parser = new JavaParser(parserConfiguration);
+        Map<CompressionMode, Integer> savedByMode = new EnumMap<>(CompressionMode.class);
+        Map<CompressionMode, Integer> changedByMode = new EnumMap<>(CompressionMode.class);
+        int before = 0;
+        int after = 0;
+        int segments = 0;
+        int unparsed = 0;
+
+        List<VectorSearchResult> compressed = new ArrayList<>(context.size());
+        for (int i = 0; i < context.size(); i++) {
+            VectorSearchResult result = context.get(i);
+            CodeSegment segment = result != null ? result.getSegment() : null;
+            if (segment == null || segment.getContent() == null || segment.getContent().isBlank()) {
+                compressed.add(result);
+                continue;
+            }
+            boolean stubBodies = modes.contains(CompressionMode.BODIES) && i >= keepBodiesTopN
+                && result.getScore() < bestScore * stubBodiesBelowRelativeScore;
+            Snippet snippet = new Snippet(segment.getContent(), tokenCounter.countSegmentTokens(segment));
+            before += snippet.tokens;
+            segments++;
+            if (!compressSnippet(parser, snippet, stubBodies)) {
+                unparsed++;
+            }
+            after += snippet.tokens;
+            snippet.saved.forEach((mode, saved) -> {
+                savedByMode.merge(mode, saved, Integer::sum);
+                changedByMode.merge(mode, 1, Integer::sum);
+            });
+            compressed.add(snippet.saved.isEmpty() ? result
+                : new VectorSearchResult(copyWith(segment, snippet.text, snippet.tokens), result.getScore()));
+        }
+
+        metrics.record(segments, unparsed, before, after, savedByMode, changedByMode);
+        if (before > after) {
+            log.info("SNIPPET COMPRESSION: ~{} -> {} tokens over {} segments ({} unparsed), saved by mode: {}",
+                before, after, segments, unparsed, savedByMode.entrySet().stream()
+                    .map(e -> e.getKey().name().toLowerCase() + "=" + e.getValue())
+                    .collect(Collectors.joining(", ")));
+        }
+        return compressed;
+    }
+
+    /**
+     * Runs the enabled modes over one snippet.
+     *
+     * @return Whether the snippet parsed, i.e. whether the AST-based modes could run.
+     */
+    private boolean compressSnippet(JavaParser parser, Snippet snippet, boolean stubBodies) {
+        Optional<TypeDeclaration<?>> wrapper = parse(parser, snippet.text);
+        if (wrapper.isPresent()) {
+            TypeDeclaration<?> type = wrapper.get();
+            if (modes.contains(CompressionMode.COMMENTS) && removeComments(type)) {
+                snippet.update(CompressionMode.COMMENTS, print(type));
+            }
+            if (modes.contains(CompressionMode.ACCESSORS) && elideAccessors(type)) {
+                snippet.update(CompressionMode.ACCESSORS, print(type));
+            }
+            if (stubBodies && stubBodies(type)) {
+                snippet.update(CompressionMode.BODIES, print(type));
+            }
+        } else if (modes.contains(CompressionMode.COMMENTS)) {
+            snippet.update(CompressionMode.COMMENTS, stripComments(snippet.text));
+        }
+        if (modes.contains(CompressionMode.WHITESPACE)) {
+            snippet.update(CompressionMode.WHITESPACE, collapseWhitespace(snippet.text));
+        }
+        return wrapper.isPresent();
+    }
+
+    private static Optional<TypeDeclaration<?>> parse(JavaParser parser, String content) {
+        try {
+            ParseResult<CompilationUnit> parsed = parser.parse(WRAPPER_OPEN + content + WRAPPER_CLOSE);
+            if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+                return Optional.empty();
+            }
+            CompilationUnit unit = parsed.getResult().get();
+            return unit.getTypes().size() == 1 && unit.getImports().isEmpty() && unit.getPackageDeclaration().isEmpty()
+                ? Optional.of(unit.getType(0)) : Optional.empty();
+        } catch (RuntimeException e) {
+            log.debug("Snippet did not parse, using text-based compression: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String print(TypeDeclaration<?> wrapper) {
+        String printed = wrapper.getMembers().stream()
+            .map(BodyDeclaration::toString)
+            .collect(Collectors.joining("\n\n"));
+        return ELIDED_BODY.matcher(printed).replaceAll(ELIDED_BODY_TEXT);
+    }
+
+    private static boolean removeComments(TypeDeclaration<?> wrapper) {
+        List<Comment> comments = wrapper.getAllContainedComments();
+        comments.forEach(Comment::remove);
+        return !comments.isEmpty();
+    }
+
+    /**
+     * Removes trivial getters and setters of the classes in the snippet and notes their signatures at
+     * the end of the class. A snippet that is itself a single accessor is left alone.
+     */
+    private static boolean elideAccessors(TypeDeclaration<?> wrapper) {
+        // AST nodes hash by structure, which changes as methods are removed.
+        Map<TypeDeclaration<?>, List<String>> elided = new IdentityHashMap<>();
+        for (MethodDeclaration method : wrapper.findAll(MethodDeclaration.class)) {
+            Optional<TypeDeclaration<?>> owner = method.getParentNode()
+                .filter(parent -> parent instanceof TypeDeclaration<?> && parent != wrapper)
+                .map(parent -> (TypeDeclaration<?>) parent);
+            if (owner.isPresent() && isTrivialAccessor(method)) {
+                elided.computeIfAbsent(owner.get(), k -> new ArrayList<>()).add(signature(method));
+                method.remove();
+            }
+        }
+        elided.forEach((owner, signatures) ->
+            owner.addOrphanComment(new LineComment(" trivial accessors elided: " + String.join(", ", signatures))));
+        return !elided.isEmpty();
+    }
+
+    private static boolean isTrivialAccessor(MethodDeclaration method) {
+        if (method.getBody().isEmpty() || method.getBody().get().getStatements().size() != 1
+            || method.getAnnotations().stream().anyMatch(a -> !a.getNameAsString().equals("Override"))) {
+            return false;
+        }
+        Statement statement = method.getBody().get().getStatement(0);
+        if (method.getParameters().isEmpty() && !method.getType().isVoidType()) {
+            return statement.isReturnStmt() && statement.asReturnStmt().getExpression().filter(SnippetCompressor::isField).isPresent();
+        }
+        if (method.getParameters().size() == 1 && method.getType().isVoidType() && statement.isExpressionStmt()
+            && statement.asExpressionStmt().getExpression().isAssignExpr()) {
+            AssignExpr assign = statement.asExpressionStmt().getExpression().asAssignExpr();
+            String parameter = method.getParameter(0).getNameAsString();
+            return assign.getOperator() == AssignExpr.Operator.ASSIGN && isField(assign.getTarget())
+                && assign.getValue().isNameExpr() && assign.getValue().asNameExpr().getNameAsString().equals(parameter);
+        }
+        return false;
+    }
+
+    private static boolean isField(Expression expression) {
+        return expression.isNameExpr()
+            || (expression.isFieldAccessExpr() && expression.asFieldAccessExpr().getScope().isThisExpr());
+    }
+
+    private static String signature(MethodDeclaration method) {
+        return method.getNameAsString() + method.getParameters().stream()
+            .map(Parameter::getTypeAsString)
+            .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static boolean stubBodies(TypeDeclaration<?> wrapper) {
+        boolean changed = false;
+        for (MethodDeclaration method : wrapper.findAll(MethodDeclaration.class)) {
+            if (method.getBody().filter(body -> !body.isEmpty()).isPresent()) {
+                method.setBody(elidedBody());
+                changed = true;
+            }
+        }
+        for (ConstructorDeclaration constructor : wrapper.findAll(ConstructorDeclaration.class)) {
+            if (!constructor.getBody().isEmpty()) {
+                constructor.setBody(elidedBody());
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static BlockStmt elidedBody() {
+        BlockStmt body = new BlockStmt();
+        body.addOrphanComment(new LineComment(ELIDED_BODY_MARKER));
+        return body;
+    }
+
+    /**
+     * Removes comments from code that does not parse, skipping string, character and text block literals.
+     */
+    static String stripComments(String code) {
+        StringBuilder out = new StringBuilder(code.length());
+        int n = code.length();
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (code.startsWith("\"\"\"", i)) {
+                int end = code.indexOf("\"\"\"", i + 3);
+                end = end < 0 ? n : end + 3;
+                out.append(code, i, end);
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < n && code.charAt(end) != c && code.charAt(end) != '\n') {
+                    end += code.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(n, end + 1);
+                out.append(code, i, end);
+                i = end;
+            } else if (code.startsWith("//", i)) {
+                int end = code.indexOf('\n', i);
+                i = end < 0 ? n : end;
+            } else if (code.startsWith("/*", i)) {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Drops blank lines and trailing whitespace and halves the indentation (a tab counts as four spaces).
+     */
+    static String collapseWhitespace(String code) {
+        StringBuilder out = new StringBuilder(code.length());
+        for (String line : LINE_BREAK.split(code)) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int width = 0;
+            for (int i = 0; i < line.length() && Character.isWhitespace(line.charAt(i)); i++) {
+                width += line.charAt(i) == '\t' ? 4 : 1;
+            }
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(" ".repeat((width + 1) / 2)).append(trimmed);
+        }
+        return out.toString();
+    }
+
+    private CodeSegment copyWith(CodeSegment segment, String content, int tokens) {
+        Map<String, Object> metadata = segment.getMetadata() != null ? new HashMap<>(segment.getMetadata()) : new HashMap<>();
+        metadata.put(TokenCounter.METADATA_TOKEN_COUNT, tokens);
+        metadata.put(TokenCounter.METADATA_TOKENIZER, tokenCounter.name());
+        return segment.toBuilder().content(content).metadata(metadata).build();
+    }
+}
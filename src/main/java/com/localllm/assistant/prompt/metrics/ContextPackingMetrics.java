@@ -0,0 +1,47 @@
+package com.localllm.assistant.prompt.metrics;
+
+import com.localllm.assistant.prompt.PackedContext;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how much of the prompt's context budget the packer fills, so the budget
+ * ({@code ollama.chatModelMaxPromptTokens}) can be sized to what retrieval actually delivers.
+ */
+@Component
+public class ContextPackingMetrics {
+
+    private final LongAdder packs = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder selected = new LongAdder();
+    private final LongAdder usedTokens = new LongAdder();
+    private final LongAdder budgetTokens = new LongAdder();
+    private final AtomicReference<PackedContext> last = new AtomicReference<>();
+
+    public void record(PackedContext packed) {
+        packs.increment();
+        candidates.add(packed.candidateCount());
+        selected.add(packed.selected().size());
+        usedTokens.add(packed.usedTokens());
+        budgetTokens.add(Math.max(0, packed.tokenBudget()));
+        last.set(packed);
+    }
+
+    public ContextPackingStats stats() {
+        long used = usedTokens.sum();
+        long budget = budgetTokens.sum();
+        PackedContext lastPacked = last.get();
+        return ContextPackingStats.builder()
+            .strategy(lastPacked != null ? lastPacked.strategy().name() : null)
+            .packs(packs.sum())
+            .candidates(candidates.sum())
+            .selected(selected.sum())
+            .usedTokens(used)
+            .budgetTokens(budget)
+            .avgUtilization(budget == 0 ? 0.0 : (double) used / budget)
+            .lastUtilization(lastPacked != null ? lastPacked.utilization() : 0.0)
+            .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.localllm.assistant.prompt.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the context packing counters. Utilization is used tokens over the token budget.
+ */
+@Getter
+@Builder
+public class ContextPackingStats {
+    private final String strategy;
+    private final long packs;
+    private final long candidates;
+    private final long selected;
+    private final long usedTokens;
+    private final long budgetTokens;
+    private final double avgUtilization;
+    private final double lastUtilization;
+}
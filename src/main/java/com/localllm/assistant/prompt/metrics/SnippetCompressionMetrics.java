@@ -0,0 +1,64 @@
+package com.localllm.assistant.prompt.metrics;
+
+import com.localllm.assistant.prompt.CompressionMode;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the prompt tokens each snippet compression mode saves, so modes that cost answer quality
+ * can be weighed against the latency they buy.
+ */
+@Component
+public class SnippetCompressionMetrics {
+
+    private final LongAdder compressions = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+    private final LongAdder unparsedSegments = new LongAdder();
+    private final LongAdder tokensBefore = new LongAdder();
+    private final LongAdder tokensAfter = new LongAdder();
+    private final Map<CompressionMode, LongAdder> tokensSaved = new EnumMap<>(CompressionMode.class);
+    private final Map<CompressionMode, LongAdder> segmentsChanged = new EnumMap<>(CompressionMode.class);
+
+    public SnippetCompressionMetrics() {
+        for (CompressionMode mode : CompressionMode.values()) {
+            tokensSaved.put(mode, new LongAdder());
+            segmentsChanged.put(mode, new LongAdder());
+        }
+    }
+
+    public void record(int segmentCount, int unparsed, int before, int after,
+                       Map<CompressionMode, Integer> savedByMode, Map<CompressionMode, Integer> changedByMode) {
+        compressions.increment();
+        segments.add(segmentCount);
+        unparsedSegments.add(unparsed);
+        tokensBefore.add(before);
+        tokensAfter.add(after);
+        savedByMode.forEach((mode, saved) -> tokensSaved.get(mode).add(saved));
+        changedByMode.forEach((mode, changed) -> segmentsChanged.get(mode).add(changed));
+    }
+
+    public SnippetCompressionStats stats() {
+        long before = tokensBefore.sum();
+        long after = tokensAfter.sum();
+        Map<String, Long> saved = new LinkedHashMap<>();
+        Map<String, Long> changed = new LinkedHashMap<>();
+        for (CompressionMode mode : CompressionMode.values()) {
+            saved.put(mode.name().toLowerCase(), tokensSaved.get(mode).sum());
+            changed.put(mode.name().toLowerCase(), segmentsChanged.get(mode).sum());
+        }
+        return SnippetCompressionStats.builder()
+            .compressions(compressions.sum())
+            .segments(segments.sum())
+            .unparsedSegments(unparsedSegments.sum())
+            .tokensBefore(before)
+            .tokensAfter(after)
+            .savedRatio(before == 0 ? 0.0 : (double) (before - after) / before)
+            .tokensSavedByMode(saved)
+            .segmentsChangedByMode(changed)
+            .build();
+    }
+}
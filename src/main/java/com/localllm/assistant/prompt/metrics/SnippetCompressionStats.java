@@ -0,0 +1,23 @@
+package com.localllm.assistant.prompt.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the snippet compression counters. Savings are counted per mode in the order the modes
+ * run (comments, accessors, bodies, whitespace), so each mode is credited only with what it removed.
+ */
+@Getter
+@Builder
+public class SnippetCompressionStats {
+    private final long compressions;
+    private final long segments;
+    private final long unparsedSegments;
+    private final long tokensBefore;
+    private final long tokensAfter;
+    private final double savedRatio;
+    private final Map<String, Long> tokensSavedByMode;
+    private final Map<String, Long> segmentsChangedByMode;
+}
@@ -0,0 +1,181 @@
+package com.localllm.assistant.rerank;
+
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded LRU cache of re-ranking results, keyed by the normalized query, the reranker model and
+ * the requested top-N. Each entry remembers the candidate set it was computed for (segment ID plus
+ * content checksum) and the resulting order.
+ * <p>
+ * A lookup with the same candidate set returns the cached order. If the candidate sets differ but
+ * their Jaccard overlap is at least {@code reranker.cache.minOverlap}, the cached order is reused
+ * for the candidates that are still present; candidates the cached rerank did not see follow in
+ * retrieval order, then the ones it ranked below the top-N. Entries are dropped when the
+ * {@link IndexGeneration} changes.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReRankCache {
+
+    private final IndexGeneration indexGeneration;
+
+    @Value("${reranker.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reranker.cache.maxEntries:200}")
+    private int maxEntries;
+
+    @Value("${reranker.cache.minOverlap:0.8}")
+    private double minOverlap;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong partialHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long generation = Long.MIN_VALUE;
+
+    private record Entry(Set<String> candidateKeys, List<String> ranking) {
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached ranking of {@code candidates}, fully or partially reused.
+     *
+     * @param candidates Candidates in retrieval order.
+     * @return The current candidate objects in cached order, at most {@code topN}; empty on a miss.
+     */
+    public Optional<List<VectorSearchResult>> get(String query, String model, int topN, List<VectorSearchResult> candidates) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Map<String, VectorSearchResult> current = byCandidateKey(candidates);
+        Entry entry;
+        synchronized (this) {
+            dropStaleGeneration();
+            entry = entries.get(queryKey(query, model, topN));
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        if (entry.candidateKeys().equals(current.keySet())) {
+            hits.incrementAndGet();
+            return Optional.of(entry.ranking().stream().map(current::get).filter(Objects::nonNull).collect(Collectors.toList()));
+        }
+        long shared = current.keySet().stream().filter(entry.candidateKeys()::contains).count();
+        double overlap = (double) shared / (current.size() + entry.candidateKeys().size() - shared);
+        if (overlap < minOverlap) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        Set<String> order = new LinkedHashSet<>();
+        entry.ranking().stream().filter(current::containsKey).forEach(order::add);
+        current.keySet().stream().filter(key -> !entry.candidateKeys().contains(key)).forEach(order::add);
+        order.addAll(current.keySet());
+        partialHits.incrementAndGet();
+        return Optional.of(order.stream().limit(topN).map(current::get).collect(Collectors.toList()));
+    }
+
+    /**
+     * Stores the ranking a reranker produced for {@code candidates}.
+     */
+    public void put(String query, String model, int topN, List<VectorSearchResult> candidates, List<VectorSearchResult> ranked) {
+        if (!enabled || ranked == null) {
+            return;
+        }
+        Entry entry = new Entry(byCandidateKey(candidates).keySet(),
+            ranked.stream().map(ReRankCache::candidateKey).collect(Collectors.toList()));
+        synchronized (this) {
+            dropStaleGeneration();
+            entries.put(queryKey(query, model, topN), entry);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public ReRankCacheStats stats() {
+        long hitCount = hits.get();
+        long partialHitCount = partialHits.get();
+        long missCount = misses.get();
+        long total = hitCount + partialHitCount + missCount;
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return ReRankCacheStats.builder()
+            .enabled(enabled)
+            .hits(hitCount)
+            .partialHits(partialHitCount)
+            .misses(missCount)
+            .hitRate(total == 0 ? 0.0 : (double) (hitCount + partialHitCount) / total)
+            .entries(size)
+            .maxEntries(maxEntries)
+            .evictions(evictions.get())
+            .build();
+    }
+
+    /**
+     * Identifies a candidate by segment ID and content; segments without a stored checksum (keyword
+     * index hits) use the content's hash code.
+     */
+    static String candidateKey(VectorSearchResult result) {
+        CodeSegment segment = result.getSegment();
+        String checksum = segment.getContentChecksum() != null ? segment.getContentChecksum()
+            : Integer.toHexString(Objects.hashCode(segment.getContent()));
+        return segment.getId() + "@" + checksum;
+    }
+
+    private static Map<String, VectorSearchResult> byCandidateKey(List<VectorSearchResult> candidates) {
+        Map<String, VectorSearchResult> byKey = new LinkedHashMap<>();
+        for (VectorSearchResult candidate : candidates) {
+            if (candidate != null && candidate.getSegment() != null) {
+                byKey.putIfAbsent(candidateKey(candidate), candidate);
+            }
+        }
+        return byKey;
+    }
+
+    private static String queryKey(String query, String model, int topN) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) + '\u0000' + model + '\u0000' + topN;
+    }
+
+    private void dropStaleGeneration() {
+        long current = indexGeneration.current();
+        if (current != generation) {
+            entries.clear();
+            generation = current;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.localllm.assistant.rerank;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the rerank cache counters. {@code partialHits} reused a cached ranking for an
+ * overlapping candidate set; they count as hits in {@code hitRate}.
+ */
+@Getter
+@Builder
+public class ReRankCacheStats {
+    private final boolean enabled;
+    private final long hits;
+    private final long partialHits;
+    private final long misses;
+    private final double hitRate;
+    private final int entries;
+    private final int maxEntries;
+    private final long evictions;
+}
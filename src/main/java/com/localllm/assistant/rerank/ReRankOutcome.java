@@ -0,0 +1,21 @@
+package com.localllm.assistant.rerank;
+
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+
+import java.util.List;
+
+/**
+ * A re-ranking and whether it is complete. Incomplete rankings (a grading call failed, timed out or
+ * answered for only some candidates, or nothing was graded at all) are usable but must not be cached:
+ * the next identical request may well get the full ranking.
+ */
+public record ReRankOutcome(List<VectorSearchResult> results, boolean complete) {
+
+    public static ReRankOutcome complete(List<VectorSearchResult> results) {
+        return new ReRankOutcome(results, true);
+    }
+
+    public static ReRankOutcome incomplete(List<VectorSearchResult> results) {
+        return new ReRankOutcome(results, false);
+    }
+}
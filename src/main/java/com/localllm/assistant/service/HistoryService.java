@@ -2,6 +2,8 @@ package com.localllm.assistant.service;
 
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.Conversation;
+import com.localllm.assistant.history.model.ConversationPage;
+import com.localllm.assistant.history.model.ConversationSummary;
 import com.localllm.assistant.history.model.MessageRole;
 
 import java.util.List;
@@ -15,11 +17,31 @@ public interface HistoryService {
 
     Conversation createConversation(String id, String title, String repositoryPath, Map<String, Object> initialMetadata);
     ChatMessage addMessage(String conversationId, MessageRole role, String content, Map<String, Object> metadata);
+    /**
+     * Queues a message for write-behind persistence and returns it with its ID and timestamp assigned.
+     * The message is visible to reads of its conversation immediately.
+     * <p>
+     * The conversation must already exist (see {@link #createConversation}): it is not created here. Messages
+     * whose conversation does not exist when their batch is written, e.g. because it was deleted meanwhile,
+     * are dropped with a WARN log naming the conversation.
+     */
+    ChatMessage enqueueMessage(String conversationId, MessageRole role, String content, Map<String, Object> metadata);
     List<ChatMessage> getMessagesForConversation(String conversationId);
     List<ChatMessage> getRecentMessagesForConversation(String conversationId, int limit);
     Optional<Conversation> getConversation(String conversationId);
     List<Conversation> getAllConversations();
     List<Conversation> getRecentConversations(int limit);
+    /**
+     * Lists conversations most recently updated first, one page at a time, with their last messages.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    ConversationPage listConversations(String cursor, int limit, int messagesPerConversation);
+    /**
+     * Lists all conversations most recently updated first with their last messages, in a single query.
+     */
+    List<ConversationSummary> listAllConversations(int messagesPerConversation);
     Conversation updateConversationMetadata(String conversationId, Map<String, Object> metadata);
     boolean deleteConversation(String conversationId);
     List<Conversation> searchConversationsByTitle(String keyword);
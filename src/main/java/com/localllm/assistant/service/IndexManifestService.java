@@ -0,0 +1,93 @@
+package com.localllm.assistant.service;
+
+import com.localllm.assistant.manifest.model.FileFingerprint;
+import com.localllm.assistant.manifest.model.ManifestDiff;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service maintaining the persistent file/segment manifest used for incremental indexing.
+ */
+public interface IndexManifestService {
+
+    /**
+     * Compares the current files with the manifest and works out which ones must be (re)processed.
+     *
+     * @param basePath       The root directory of the codebase.
+     * @param collectionName The vector store collection being indexed.
+     * @param currentFiles   All source files currently found under the base path.
+     * @param forceAll       If true, every current file is treated as changed (full re-index).
+     * @return The diff between disk and manifest.
+     */
+    ManifestDiff computeDiff(Path basePath, String collectionName, List<Path> currentFiles, boolean forceAll);
+
+    /**
+     * Records (or replaces) the manifest entry for a file after its segments were stored.
+     *
+     * @param basePath       The root directory of the codebase.
+     * @param collectionName The vector store collection.
+     * @param file           The absolute path of the indexed file.
+     * @param fingerprint    Size, mtime and hash captured before the file was parsed.
+     * @param segmentIds     The IDs of all segments now stored for the file.
+     */
+    void recordIndexedFile(Path basePath, String collectionName, Path file, FileFingerprint fingerprint, Collection<String> segmentIds);
+
+    /**
+     * Records a file of which only some segments could be stored (e.g. embeddings failed for the others).
+     * The next diff reports it as changed, with {@code storedSegmentIds} as its previous segments, so only
+     * the missing segments are embedded again.
+     *
+     * @param basePath         The root directory of the codebase.
+     * @param collectionName   The vector store collection.
+     * @param file             The absolute path of the indexed file.
+     * @param storedSegmentIds The IDs of the segments actually stored for the file.
+     */
+    void recordIncompleteFile(Path basePath, String collectionName, Path file, Collection<String> storedSegmentIds);
+
+    /**
+     * Returns the segment IDs recorded for a file, or an empty set if the file is not in the manifest.
+     *
+     * @param collectionName The vector store collection.
+     * @param file           The absolute path of the file.
+     * @return The recorded segment IDs.
+     */
+    Set<String> getSegmentIds(String collectionName, Path file);
+
+    /**
+     * Returns the segment IDs recorded for every file of a codebase and collection.
+     *
+     * @param basePath       The root directory of the codebase.
+     * @param collectionName The vector store collection.
+     * @return The recorded segment IDs, keyed by the absolute path of the file.
+     */
+    Map<Path, List<String>> getSegmentIdsByFile(Path basePath, String collectionName);
+
+    /**
+     * Removes a file from the manifest of a collection.
+     *
+     * @param collectionName The vector store collection.
+     * @param file           The absolute path of the file.
+     */
+    void removeFile(String collectionName, Path file);
+
+    /**
+     * Checks whether the manifest holds any records for the given codebase and collection.
+     *
+     * @param basePath       The root directory of the codebase.
+     * @param collectionName The vector store collection.
+     * @return true if at least one file is recorded.
+     */
+    boolean hasEntries(Path basePath, String collectionName);
+
+    /**
+     * Removes all manifest records for the given codebase and collection.
+     *
+     * @param basePath       The root directory of the codebase.
+     * @param collectionName The vector store collection.
+     */
+    void clearManifest(Path basePath, String collectionName);
+}
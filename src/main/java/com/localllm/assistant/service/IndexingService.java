@@ -20,6 +20,17 @@ public interface IndexingService {
      */
     CompletableFuture<Void> startIndexing(Path basePath);
 
+    /**
+     * Starts the indexing process for the specified base path asynchronously.
+     * Unless a full re-index is requested, only files that were added, changed or deleted
+     * since the last run (according to the persistent index manifest) are processed.
+     *
+     * @param basePath    The root directory of the codebase to index.
+     * @param fullReindex If true, every file is re-parsed and re-embedded regardless of the manifest.
+     * @return A CompletableFuture that completes when indexing is finished or fails.
+     */
+    CompletableFuture<Void> startIndexing(Path basePath, boolean fullReindex);
+
     /**
      * Checks if an indexing process is currently active.
      *
@@ -16,6 +16,20 @@ public interface QueryService {
      */
     CompletableFuture<QueryResponse> processQuery(QueryRequest queryRequest);
 
+    /**
+     * Streaming variant of {@link #processQuery(QueryRequest)}. The retrieved sources are reported to
+     * {@code listener} as soon as retrieval finishes, followed by the answer tokens as the model
+     * generates them. The assistant message is persisted once generation completes.
+     * <p>
+     * Unlike {@link #processQuery(QueryRequest)}, failures complete the future exceptionally.
+     * Cancelling the returned future stops generation; nothing is persisted in that case.
+     *
+     * @param queryRequest The DTO containing all query parameters.
+     * @param listener     Receives sources and tokens while the query runs.
+     * @return A CompletableFuture with the complete QueryResponse, once the answer has been persisted.
+     */
+    CompletableFuture<QueryResponse> streamQuery(QueryRequest queryRequest, QueryStreamListener listener);
+
     /**
      * Processes a user query using default parameters for temperature, context size, etc.
      *
@@ -0,0 +1,25 @@
+package com.localllm.assistant.service;
+
+import com.localllm.assistant.controller.dto.QueryResponse;
+
+import java.util.List;
+
+/**
+ * Receives the intermediate results of a streamed query, see {@link QueryService#streamQuery}.
+ * Callbacks arrive in order: {@link #onSources} once, then {@link #onToken} for every generated
+ * chunk. Token callbacks run on the shared HTTP client's I/O thread, which also serves embedding,
+ * vector store and chat exchanges, so they must not block: hand tokens off (e.g. to a bounded queue)
+ * instead of writing them to a client.
+ */
+public interface QueryStreamListener {
+
+    /**
+     * Called once retrieval has finished, before generation starts.
+     */
+    void onSources(String conversationId, List<QueryResponse.SourceReference> sources);
+
+    /**
+     * Called for every content delta generated by the model.
+     */
+    void onToken(String token);
+}
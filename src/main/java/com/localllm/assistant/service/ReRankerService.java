@@ -1,5 +1,6 @@
 package com.localllm.assistant.service;
 
+import com.localllm.assistant.rerank.ReRankOutcome;
 import com.localllm.assistant.vectorstore.model.VectorSearchResult;
 
 import java.util.List;
@@ -14,4 +15,12 @@ public interface ReRankerService {
         String rerankerModelName
     );
 
+    /**
+     * Like {@link #reRankAsync}, telling whether the ranking is complete; only complete rankings may be cached.
+     * Implementations that can degrade (e.g. LLM calls that fail or time out) override this.
+     */
+    default CompletableFuture<ReRankOutcome> reRankWithOutcomeAsync(String query, List<VectorSearchResult> initialResults,
+                                                                    int topN, String rerankerModelName) {
+        return reRankAsync(query, initialResults, topN, rerankerModelName).thenApply(ReRankOutcome::complete);
+    }
 }
@@ -0,0 +1,64 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.rerank.ReRankCache;
+import com.localllm.assistant.service.ReRankerService;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ReRankerService} decorator that serves repeated re-rankings from the {@link ReRankCache} and
+ * only forwards misses to the {@link RoutingReRankerService}. The in-process local reranker is cheaper
+ * than a cache lookup and bypasses the cache.
+ */
+@Service
+@Primary
+public class CachingReRankerService implements ReRankerService {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingReRankerService.class);
+
+    private final ReRankerService delegate;
+    private final ReRankCache reRankCache;
+    private final String localModelName;
+
+    public CachingReRankerService(@Qualifier("routingReRankerService") ReRankerService delegate,
+                                  ReRankCache reRankCache,
+                                  @Value("${reranker.local.modelName:local}") String localModelName) {
+        this.delegate = delegate;
+        this.reRankCache = reRankCache;
+        this.localModelName = localModelName;
+    }
+
+    @Override
+    public CompletableFuture<List<VectorSearchResult>> reRankAsync(String query, List<VectorSearchResult> initialResults,
+                                                                    int topN, String rerankerModelName) {
+        String model = rerankerModelName != null ? rerankerModelName.trim() : "";
+        if (!reRankCache.isEnabled() || initialResults == null || initialResults.isEmpty() || localModelName.equalsIgnoreCase(model)) {
+            return delegate.reRankAsync(query, initialResults, topN, rerankerModelName);
+        }
+        Optional<List<VectorSearchResult>> cached = reRankCache.get(query, model, topN, initialResults);
+        if (cached.isPresent()) {
+            log.info("RERANK CACHE: Reusing ranking of {} candidates for model {}", initialResults.size(), model);
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return delegate.reRankWithOutcomeAsync(query, initialResults, topN, rerankerModelName)
+            .thenApply(outcome -> {
+                // A degraded ranking (failed, timed-out or partly graded LLM calls) would otherwise stick until the
+                // next index generation; the next identical request gets another chance at the full ranking.
+                if (outcome.complete()) {
+                    reRankCache.put(query, model, topN, initialResults, outcome.results());
+                } else {
+                    log.debug("RERANK CACHE: Not caching incomplete ranking for model {}", model);
+                }
+                return outcome.results();
+            });
+    }
+}
@@ -1,9 +1,15 @@
 package com.localllm.assistant.service.impl;
 
+import com.localllm.assistant.history.ChatHistoryWriter;
 import com.localllm.assistant.history.ChatMessageRepository;
+import com.localllm.assistant.history.ConversationCursor;
+import com.localllm.assistant.history.ConversationListingRepository;
 import com.localllm.assistant.history.ConversationRepository;
+import com.localllm.assistant.history.RecentMessageCache;
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.Conversation;
+import com.localllm.assistant.history.model.ConversationPage;
+import com.localllm.assistant.history.model.ConversationSummary;
 import com.localllm.assistant.history.model.MessageRole;
 import com.localllm.assistant.service.HistoryService;
 import lombok.RequiredArgsConstructor;
@@ -17,7 +23,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +40,9 @@ public class HistoryServiceImpl implements HistoryService {
 
     private final ConversationRepository conversationRepository;
     private final ChatMessageRepository chatMessageRepository;
+    private final ChatHistoryWriter chatHistoryWriter;
+    private final ConversationListingRepository conversationListingRepository;
+    private final RecentMessageCache recentMessageCache;
 
     @Override
     @Transactional
@@ -67,6 +78,7 @@ public class HistoryServiceImpl implements HistoryService {
             .metadata(initialMetadata != null ? new HashMap<>(initialMetadata) : new HashMap<>())
             .build();
         Conversation saved = conversationRepository.save(conversation);
+        recentMessageCache.createEmpty(saved.getId());
         log.info("Created new conversation with ID: {}", saved.getId());
         return saved;
     }
@@ -106,17 +118,35 @@ public class HistoryServiceImpl implements HistoryService {
             .build();
 
         ChatMessage savedMessage = chatMessageRepository.save(message);
+        recentMessageCache.append(savedMessage);
         log.debug("Saved chat message with ID {} for conversation {}", savedMessage.getId(), conversation.getId());
         return savedMessage;
     }
 
+    @Override
+    public ChatMessage enqueueMessage(String conversationId, MessageRole role, String content, Map<String, Object> metadata) {
+        log.debug("Queueing message. Role: {}, Conversation: {}", role, conversationId);
+        ChatMessage message = ChatMessage.builder()
+            .conversationId(conversationId)
+            .timestamp(LocalDateTime.now())
+            .role(role)
+            .content(content)
+            .metadata(metadata != null ? new HashMap<>(metadata) : new HashMap<>())
+            .build();
+        ChatMessage queued = chatHistoryWriter.enqueue(message);
+        recentMessageCache.append(queued);
+        return queued;
+    }
+
     @Override
     public List<ChatMessage> getMessagesForConversation(String conversationId) {
         log.debug("Retrieving all messages for conversation {}", conversationId);
         if (conversationId == null) {
             return Collections.emptyList();
         }
-        return chatMessageRepository.findByConversationIdOrderByTimestampAsc(conversationId);
+        List<ChatMessage> pending = chatHistoryWriter.pending(conversationId);
+        List<ChatMessage> messages = chatMessageRepository.findByConversationIdOrderByTimestampAsc(conversationId);
+        return withPending(messages, pending, Integer.MAX_VALUE);
     }
 
     @Override
@@ -125,11 +155,41 @@ public class HistoryServiceImpl implements HistoryService {
         if (conversationId == null || limit <= 0) {
             return Collections.emptyList();
         }
-        Pageable pageable = PageRequest.of(0, limit, Sort.by("timestamp").descending());
+        Optional<List<ChatMessage>> cached = recentMessageCache.get(conversationId, limit);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // Messages written from here on go into the cache buffer, so none are missed while the query runs.
+        recentMessageCache.beginLoad(conversationId);
+        List<ChatMessage> pending = chatHistoryWriter.pending(conversationId);
+        int fetch = Math.max(limit, recentMessageCache.capacity());
+        Pageable pageable = PageRequest.of(0, fetch, Sort.by("timestamp").descending());
         List<ChatMessage> recentMessages = chatMessageRepository.findByConversationIdOrderByTimestampDesc(conversationId, pageable);
         // Results are DESC, reverse to get them in ASC order for display (oldest of the recent first)
         Collections.reverse(recentMessages);
-        return recentMessages;
+        List<ChatMessage> merged = withPending(recentMessages, pending, fetch);
+        recentMessageCache.completeLoad(conversationId, merged);
+        return merged.size() > limit ? merged.subList(merged.size() - limit, merged.size()) : merged;
+    }
+
+    /**
+     * Adds the queued messages that are not committed yet, so a conversation reads its own writes.
+     * The pending snapshot must be taken before the query: a message committed in between is then
+     * found by the query or still in the snapshot, and duplicates are dropped by ID.
+     *
+     * @return The last {@code limit} messages in timestamp order.
+     */
+    private static List<ChatMessage> withPending(List<ChatMessage> persisted, List<ChatMessage> pending, int limit) {
+        if (pending.isEmpty()) {
+            return persisted;
+        }
+        Map<String, ChatMessage> byId = new LinkedHashMap<>();
+        persisted.forEach(message -> byId.put(message.getId(), message));
+        pending.forEach(message -> byId.putIfAbsent(message.getId(), message));
+        List<ChatMessage> merged = byId.values().stream()
+            .sorted(Comparator.comparing(ChatMessage::getTimestamp))
+            .collect(Collectors.toList());
+        return merged.size() > limit ? merged.subList(merged.size() - limit, merged.size()) : merged;
     }
 
     @Override
@@ -154,6 +214,30 @@ public class HistoryServiceImpl implements HistoryService {
         return conversationRepository.findAll(pageable).getContent();
     }
 
+    @Override
+    public ConversationPage listConversations(String cursor, int limit, int messagesPerConversation) {
+        log.debug("Listing {} conversations after cursor {}", limit, cursor);
+        ConversationCursor after = (cursor == null || cursor.isBlank()) ? null : ConversationCursor.decode(cursor);
+        // One extra row tells whether another page follows.
+        List<ConversationSummary> conversations = conversationListingRepository.findPage(after, limit + 1, messagesPerConversation);
+        String nextCursor = null;
+        if (conversations.size() > limit) {
+            conversations = conversations.subList(0, limit);
+            ConversationSummary last = conversations.get(limit - 1);
+            nextCursor = new ConversationCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+        return ConversationPage.builder()
+            .conversations(conversations)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    @Override
+    public List<ConversationSummary> listAllConversations(int messagesPerConversation) {
+        log.debug("Listing all conversations with their last {} messages.", messagesPerConversation);
+        return conversationListingRepository.findPage(null, Integer.MAX_VALUE, messagesPerConversation);
+    }
+
     @Override
     @Transactional
     public Conversation updateConversationMetadata(String conversationId, Map<String, Object> metadata) {
@@ -178,10 +262,16 @@ public class HistoryServiceImpl implements HistoryService {
             return false;
         }
         log.warn("Attempting to delete conversation and associated messages for ID: {}", conversationId);
+        // Queued messages would otherwise be inserted after the delete.
+        chatHistoryWriter.flush();
         if (conversationRepository.existsById(conversationId)) {
+            // The conversation row goes first: the history writer locks it before inserting messages, so a batch
+            // written concurrently either commits before the messages are deleted or finds the conversation gone.
+            conversationRepository.deleteById(conversationId);
+            conversationRepository.flush();
             int deletedMessages = chatMessageRepository.deleteByConversationId(conversationId);
             log.info("Deleted {} messages for conversation {}", deletedMessages, conversationId);
-            conversationRepository.deleteById(conversationId);
+            recentMessageCache.evict(conversationId);
             log.info("Deleted conversation {}", conversationId);
             return true;
         } else {
@@ -202,11 +292,15 @@ public class HistoryServiceImpl implements HistoryService {
     @Transactional
     public void deleteAllConversations() {
         log.warn("Deleting ALL conversations and their messages.");
+        chatHistoryWriter.flush();
         List<Conversation> allConversations = conversationRepository.findAll();
+        // Conversations first, for the same reason as in deleteConversation.
+        conversationRepository.deleteAll();
+        conversationRepository.flush();
         for (Conversation conversation : allConversations) {
             chatMessageRepository.deleteByConversationId(conversation.getId());
         }
-        conversationRepository.deleteAll();
+        recentMessageCache.clear();
         log.info("Successfully deleted all conversations and messages.");
     }
 }
@@ -0,0 +1,190 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.manifest.IndexedFileRepository;
+import com.localllm.assistant.manifest.model.FileFingerprint;
+import com.localllm.assistant.manifest.model.IndexedFile;
+import com.localllm.assistant.manifest.model.IndexedFileId;
+import com.localllm.assistant.manifest.model.ManifestDiff;
+import com.localllm.assistant.service.IndexManifestService;
+import com.localllm.assistant.util.FileUtils;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * JPA-backed implementation of the index manifest.
+ * Change detection first compares size and mtime; only when those differ is the file hashed,
+ * so an unchanged tree can be re-scanned without reading file contents.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexManifestServiceImpl implements IndexManifestService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexManifestServiceImpl.class);
+
+    private final IndexedFileRepository indexedFileRepository;
+
+    @Override
+    @Transactional
+    public ManifestDiff computeDiff(Path basePath, String collectionName, List<Path> currentFiles, boolean forceAll) {
+        Map<String, IndexedFile> known = indexedFileRepository
+            .findByBasePathAndCollectionName(normalize(basePath), collectionName).stream()
+            .collect(Collectors.toMap(IndexedFile::getFilePath, Function.identity()));
+
+        List<Path> filesToProcess = new ArrayList<>();
+        Map<String, Set<String>> previousSegmentIds = new HashMap<>();
+        int added = 0;
+        int changed = 0;
+        int unchanged = 0;
+
+        for (Path file : currentFiles) {
+            IndexedFile entry = known.remove(normalize(file));
+            if (entry == null) {
+                added++;
+                filesToProcess.add(file);
+                continue;
+            }
+            if (!forceAll && isUnchanged(entry, file)) {
+                unchanged++;
+                continue;
+            }
+            changed++;
+            filesToProcess.add(file);
+            if (entry.getSegmentIds() != null && !entry.getSegmentIds().isEmpty()) {
+                previousSegmentIds.put(entry.getRelativePath(), new HashSet<>(entry.getSegmentIds()));
+            }
+        }
+
+        List<IndexedFile> deletedFiles = new ArrayList<>(known.values());
+        log.info("Manifest diff for {} (collection '{}'): {} added, {} changed, {} unchanged, {} deleted.",
+            basePath, collectionName, added, changed, unchanged, deletedFiles.size());
+
+        return ManifestDiff.builder()
+            .filesToProcess(filesToProcess)
+            .deletedFiles(deletedFiles)
+            .previousSegmentIds(previousSegmentIds)
+            .addedCount(added)
+            .changedCount(changed)
+            .unchangedCount(unchanged)
+            .build();
+    }
+
+    /**
+     * Checks a file against its manifest entry. A size/mtime match is trusted as-is; otherwise the
+     * content hash decides, and a hash match refreshes the stored size/mtime so the next scan is cheap.
+     */
+    private boolean isUnchanged(IndexedFile entry, Path file) {
+        try {
+            long size = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            if (size == entry.getSizeBytes() && lastModified == entry.getLastModifiedMillis()) {
+                return true;
+            }
+            if (size == entry.getSizeBytes() && FileUtils.sha256Hex(file).equals(entry.getContentHash())) {
+                log.trace("File {} touched but content unchanged. Refreshing manifest timestamps.", file);
+                entry.setLastModifiedMillis(lastModified);
+                indexedFileRepository.save(entry);
+                return true;
+            }
+        } catch (IOException e) {
+            log.warn("Could not check file {} against manifest, treating it as changed: {}", file, e.getMessage());
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public void recordIndexedFile(Path basePath, String collectionName, Path file, FileFingerprint fingerprint,
+                                  Collection<String> segmentIds) {
+        // An unknown fingerprint (file unreadable before parsing) matches nothing, so the file is re-processed next run.
+        indexedFileRepository.save(entry(basePath, collectionName, file, fingerprint, segmentIds));
+        log.trace("Recorded manifest entry for {} with {} segments.", file, segmentIds.size());
+    }
+
+    @Override
+    @Transactional
+    public void recordIncompleteFile(Path basePath, String collectionName, Path file, Collection<String> storedSegmentIds) {
+        // No size, mtime or hash can match these, so the next scan always re-processes the file.
+        indexedFileRepository.save(entry(basePath, collectionName, file, FileFingerprint.UNKNOWN, storedSegmentIds));
+        log.debug("Recorded incomplete manifest entry for {} with {} stored segments.", file, storedSegmentIds.size());
+    }
+
+    private static IndexedFile entry(Path basePath, String collectionName, Path file, FileFingerprint fingerprint,
+                                     Collection<String> segmentIds) {
+        return IndexedFile.builder()
+            .filePath(normalize(file))
+            .basePath(normalize(basePath))
+            .relativePath(basePath.relativize(file).toString().replace('\\', '/'))
+            .collectionName(collectionName)
+            .sizeBytes(fingerprint.sizeBytes())
+            .lastModifiedMillis(fingerprint.lastModifiedMillis())
+            .contentHash(fingerprint.contentHash())
+            .segmentIds(new ArrayList<>(new LinkedHashSet<>(segmentIds)))
+            .indexedAt(LocalDateTime.now())
+            .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> getSegmentIds(String collectionName, Path file) {
+        return indexedFileRepository.findById(new IndexedFileId(collectionName, normalize(file)))
+            .map(IndexedFile::getSegmentIds)
+            .<Set<String>>map(HashSet::new)
+            .orElse(Collections.emptySet());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Path, List<String>> getSegmentIdsByFile(Path basePath, String collectionName) {
+        Map<Path, List<String>> idsByFile = new HashMap<>();
+        for (IndexedFile entry : indexedFileRepository.findByBasePathAndCollectionName(normalize(basePath), collectionName)) {
+            idsByFile.put(Path.of(entry.getFilePath()), entry.getSegmentIds() != null ? entry.getSegmentIds() : List.of());
+        }
+        return idsByFile;
+    }
+
+    @Override
+    @Transactional
+    public void removeFile(String collectionName, Path file) {
+        IndexedFileId key = new IndexedFileId(collectionName, normalize(file));
+        if (indexedFileRepository.existsById(key)) {
+            indexedFileRepository.deleteById(key);
+            log.debug("Removed manifest entry for {}", file);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean hasEntries(Path basePath, String collectionName) {
+        return indexedFileRepository.existsByBasePathAndCollectionName(normalize(basePath), collectionName);
+    }
+
+    @Override
+    @Transactional
+    public void clearManifest(Path basePath, String collectionName) {
+        int deleted = indexedFileRepository.deleteByBasePathAndCollectionName(normalize(basePath), collectionName);
+        log.info("Cleared {} manifest entries for {} (collection '{}').", deleted, basePath, collectionName);
+    }
+
+    private static String normalize(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+}
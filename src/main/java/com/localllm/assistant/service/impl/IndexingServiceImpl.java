@@ -4,10 +4,17 @@ package com.localllm.assistant.service.impl;
 import com.localllm.assistant.config.AsyncConfig;
 import com.localllm.assistant.config.ChromaDBConfig;
 import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.exception.IndexingException;
+import com.localllm.assistant.lexical.LexicalIndexService;
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.manifest.model.FileFingerprint;
+import com.localllm.assistant.manifest.model.IndexedFile;
+import com.localllm.assistant.manifest.model.ManifestDiff;
 import com.localllm.assistant.parser.ParserService;
 import com.localllm.assistant.parser.model.CodeSegment;
 import com.localllm.assistant.service.FileMonitorService;
+import com.localllm.assistant.service.IndexManifestService;
 import com.localllm.assistant.service.IndexingService;
 import com.localllm.assistant.util.FileUtils;
 import com.localllm.assistant.vectorstore.VectorStoreClient;
@@ -15,6 +22,7 @@ import com.localllm.assistant.vectorstore.model.VectorEntry;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
@@ -24,41 +32,74 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class IndexingServiceImpl implements IndexingService {
 
     private static final Logger log = LoggerFactory.getLogger(IndexingServiceImpl.class);
+    private static final int MISMATCH_LOG_THRESHOLD = 5;
 
     private final ParserService parserService;
     private final EmbeddingService embeddingService;
     private final VectorStoreClient vectorStoreClient;
     private final ChromaDBConfig chromaDBConfig;
     private final FileMonitorService fileMonitorService;
+    private final IndexManifestService indexManifestService;
+    private final LexicalIndexService lexicalIndexService;
+    private final IndexGeneration indexGeneration;
 
     private final AtomicBoolean indexingInProgress = new AtomicBoolean(false);
     private final AtomicInteger totalFilesToProcessCounter = new AtomicInteger(0);
     private final AtomicInteger totalSegmentsToProcessCounter = new AtomicInteger(0);
     private final AtomicInteger totalEntriesToUpsertCounter = new AtomicInteger(0);
     private final AtomicInteger entriesSuccessfullyUpsertedCounter = new AtomicInteger(0);
+    private final AtomicInteger filesProcessedCounter = new AtomicInteger(0);
+    private final AtomicInteger failedBatchesCounter = new AtomicInteger(0);
+    private final AtomicInteger filesUnchangedCounter = new AtomicInteger(0);
+    private final AtomicInteger filesDeletedCounter = new AtomicInteger(0);
+    private final AtomicInteger segmentsReusedCounter = new AtomicInteger(0);
+
+    @Value("${indexing.pipeline.fileBatchSize:25}")
+    private int pipelineFileBatchSize;
+
+    @Value("${indexing.pipeline.maxInFlightBatches:4}")
+    private int pipelineMaxInFlightBatches;
+
+    @Value("${indexing.incremental.enabled:true}")
+    private boolean incrementalIndexingEnabled;
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_ORCHESTRATION)
     public CompletableFuture<Void> startIndexing(Path basePath) {
+        return startIndexing(basePath, false);
+    }
+
+    @Override
+    @Async(AsyncConfig.TASK_EXECUTOR_ORCHESTRATION)
+    public CompletableFuture<Void> startIndexing(Path basePath, boolean fullReindex) {
         long overallStartTime = System.currentTimeMillis();
-        log.info("startIndexing called for path: {}", basePath);
+        log.info("startIndexing called for path: {} (fullReindex={}, incremental enabled={})", basePath, fullReindex, incrementalIndexingEnabled);
 
         totalFilesToProcessCounter.set(0);
         totalSegmentsToProcessCounter.set(0);
         totalEntriesToUpsertCounter.set(0);
         entriesSuccessfullyUpsertedCounter.set(0);
+        filesProcessedCounter.set(0);
+        failedBatchesCounter.set(0);
+        filesUnchangedCounter.set(0);
+        filesDeletedCounter.set(0);
+        segmentsReusedCounter.set(0);
 
         log.debug("Attempting to set/restart file monitor for path: {}", basePath.toAbsolutePath().normalize());
         try {
@@ -81,185 +122,90 @@ public class IndexingServiceImpl implements IndexingService {
             return CompletableFuture.failedFuture(
                 new IndexingException("Indexing is already in progress."));
         }
-        log.info("Indexing lock acquired. Starting full indexing process for: {}", basePath);
+        log.info("Indexing lock acquired. Starting indexing process for: {}", basePath);
 
         String collectionName = chromaDBConfig.getDefaultCollectionName();
         int batchSize = chromaDBConfig.getBatchSize();
-        log.info("Using ChromaDB collection: '{}', Batch size for upserts: {}", collectionName, batchSize);
+        log.info("Using ChromaDB collection: '{}', Batch size for upserts: {}, File batch size: {}, Max in-flight batches: {}",
+            collectionName, batchSize, pipelineFileBatchSize, pipelineMaxInFlightBatches);
 
         CompletableFuture<Void> overallIndexingFuture = new CompletableFuture<>();
         // ADD THIS LINE to clear cache before ensuring collection exists
         vectorStoreClient.clearCacheForCollection(collectionName);
         log.info("Cleared vector store client cache for collection '{}' before starting indexing.", collectionName);
         long stepStartTime = System.currentTimeMillis();
-        log.info("[Indexing Step 1/6] Ensuring collection '{}' exists...", collectionName);
+        log.info("[Indexing Step 1/4] Ensuring collection '{}' exists...", collectionName);
         vectorStoreClient.ensureCollectionExists(collectionName)
-            .thenCompose(v -> {
-                log.info("[Indexing Step 1/6] Collection '{}' ensured. (Took {}ms)", collectionName, System.currentTimeMillis() - stepStartTime);
+            .thenCompose(v -> resolveFullReindex(basePath, collectionName, fullReindex))
+            .thenCompose(forceAll -> forceAll
+                ? CompletableFuture.completedFuture(true)
+                : markFilesWithMissingSegments(basePath, collectionName).thenApply(v -> false))
+            .thenCompose(forceAll -> {
+                log.info("[Indexing Step 1/4] Collection '{}' ensured. (Took {}ms)", collectionName, System.currentTimeMillis() - stepStartTime);
                 long findFilesStartTime = System.currentTimeMillis();
-                log.info("[Indexing Step 2/6] Finding Java files in path: {}", basePath);
+                log.info("[Indexing Step 2/4] Finding Java files in path: {}", basePath);
+                List<Path> javaFiles;
                 try {
-                    List<Path> javaFiles = FileUtils.findAllJavaFiles(basePath);
-                    totalFilesToProcessCounter.set(javaFiles.size());
-                    log.info("[Indexing Step 2/6] Found {} Java files to index in {}. (Took {}ms)", javaFiles.size(), basePath,
-                        System.currentTimeMillis() - findFilesStartTime);
-
-                    if (javaFiles.isEmpty()) {
-                        log.warn("No Java files found in the directory: {}. Skipping parsing and embedding.", basePath);
-                        return CompletableFuture.completedFuture(Collections.<CodeSegment>emptyList());
-                    }
-                    if (log.isDebugEnabled()) {
-                        log.debug("First {} files to be indexed (relative to base path {}):", Math.min(5, javaFiles.size()), basePath);
-                        javaFiles.stream().limit(5).forEach(javaFile -> log.debug("  - {}", basePath.relativize(javaFile)));
-                        if (javaFiles.size() > 5) {
-                            log.debug("  ... and {} more files.", javaFiles.size() - 5);
-                        }
-                    }
-
-                    long parseFilesStartTime = System.currentTimeMillis();
-                    log.info("[Indexing Step 3/6] Parsing {} files...", javaFiles.size());
-                    return parserService.parseFilesAsync(javaFiles, basePath)
-                        .whenComplete((parsedSegmentsResult, ex) -> {
-                            if (ex != null) {
-                                log.error("[Indexing Step 3/6] File parsing failed after {}ms.", System.currentTimeMillis() - parseFilesStartTime,
-                                    ex);
-                            } else {
-                                log.info("[Indexing Step 3/6] File parsing completed. (Took {}ms)", System.currentTimeMillis() - parseFilesStartTime);
-                            }
-                        });
+                    javaFiles = FileUtils.findAllJavaFiles(basePath);
                 } catch (IOException e) {
-                    log.error("[Indexing Step 2/6] Failed to find source files in {}: {}", basePath, e.getMessage(), e);
+                    log.error("[Indexing Step 2/4] Failed to find source files in {}: {}", basePath, e.getMessage(), e);
                     throw new IndexingException("Failed to find source files in " + basePath, e);
                 }
-            })
-            .thenCompose(parsedSegments -> {
-                if (parsedSegments == null) {
-                    log.error("Parser service returned null segments list. This is unexpected.");
-                    throw new IndexingException("Parser service returned null segments list.");
-                }
-                totalSegmentsToProcessCounter.set(parsedSegments.size());
-                log.info("Successfully parsed {} files into {} code segments.", totalFilesToProcessCounter.get(), parsedSegments.size());
-
-                if (parsedSegments.isEmpty()) {
-                    log.info("No code segments extracted from parsing. Skipping embedding.");
-                    return CompletableFuture.completedFuture(Map.entry(Collections.<CodeSegment>emptyList(), Collections.<List<Float>>emptyList()));
+                log.info("[Indexing Step 2/4] Found {} Java files in {}. (Took {}ms)", javaFiles.size(), basePath,
+                    System.currentTimeMillis() - findFilesStartTime);
+
+                long diffStartTime = System.currentTimeMillis();
+                // An empty lexical index next to a populated manifest means its snapshot was lost: re-parse
+                // everything, but keep reusing stored embeddings.
+                boolean reparseAll = forceAll
+                    || (lexicalIndexService.needsRebuild() && indexManifestService.hasEntries(basePath, collectionName));
+                if (reparseAll && !forceAll) {
+                    log.info("[Indexing Step 3/4] Lexical index is empty. Re-parsing all files to rebuild it.");
                 }
-
-                long embedStartTime = System.currentTimeMillis();
-                log.info("[Indexing Step 4/6] Generating embeddings for {} segments...", parsedSegments.size());
-                return embeddingService.generateEmbeddingsAsync(parsedSegments)
-                    .thenApply(embeddings -> {
-                        log.info("[Indexing Step 4/6] Embedding generation completed. (Took {}ms)", System.currentTimeMillis() - embedStartTime);
-                        if (embeddings == null) {
-                            log.error("Embedding service returned null for embeddings list.");
-                            throw new IndexingException("Embedding service returned null for embeddings list.");
-                        }
-                        if (embeddings.size() != parsedSegments.size()) {
-                            log.warn(
-                                "CRITICAL MISMATCH: Embedding service returned {} embedding lists for {} input segments. This indicates a bug or partial failure in EmbeddingServiceImpl's result alignment. Proceeding with available data.",
-                                embeddings.size(), parsedSegments.size());
-                        }
-                        log.info("Received {} embedding lists from service (should match segment count).", embeddings.size());
-                        return Map.entry(parsedSegments, embeddings);
-                    });
-            })
-            .thenCompose((Map.Entry<List<CodeSegment>, List<List<Float>>> segmentsAndEmbeddingsEntry) -> {
-                List<CodeSegment> allParsedSegments = segmentsAndEmbeddingsEntry.getKey();
-                List<List<Float>> allEmbeddings = segmentsAndEmbeddingsEntry.getValue();
-
-                List<CodeSegment> successfullyEmbeddedSegments = new ArrayList<>();
-                List<List<Float>> correspondingValidEmbeddings = new ArrayList<>();
-
-                int MismatchedLogThreshold = 5;
-                int mismatchCount = 0;
-
-                for (int i = 0; i < allParsedSegments.size(); i++) {
-                    CodeSegment segment = allParsedSegments.get(i);
-                    if (i < allEmbeddings.size()) {
-                        List<Float> currentEmbedding = allEmbeddings.get(i);
-                        if (currentEmbedding != null && !currentEmbedding.isEmpty()) {
-                            successfullyEmbeddedSegments.add(segment);
-                            correspondingValidEmbeddings.add(currentEmbedding);
-                        } else {
-                            if (mismatchCount < MismatchedLogThreshold) {
-                                log.warn("Segment ID '{}' (Path: {}, Lines: {}-{}) was skipped or failed embedding (embedding list is null/empty).",
-                                    segment.getId(), segment.getRelativeFilePath(), segment.getStartLine(), segment.getEndLine());
-                            }
-                            mismatchCount++;
-                        }
-                    } else {
-                        if (mismatchCount < MismatchedLogThreshold) {
-                            log.warn("No corresponding embedding found for segment ID '{}' (index {}). Skipping.", segment.getId(), i);
-                        }
-                        mismatchCount++;
+                log.info("[Indexing Step 3/4] Comparing files against index manifest (full re-index: {})...", forceAll);
+                ManifestDiff diff = indexManifestService.computeDiff(basePath, collectionName, javaFiles, reparseAll);
+                List<Path> filesToProcess = diff.getFilesToProcess();
+                totalFilesToProcessCounter.set(filesToProcess.size());
+                filesUnchangedCounter.set(diff.getUnchangedCount());
+                log.info("[Indexing Step 3/4] {} added, {} changed, {} unchanged, {} deleted. (Took {}ms)",
+                    diff.getAddedCount(), diff.getChangedCount(), diff.getUnchangedCount(), diff.getDeletedFiles().size(),
+                    System.currentTimeMillis() - diffStartTime);
+
+                if (log.isDebugEnabled() && !filesToProcess.isEmpty()) {
+                    log.debug("First {} files to be indexed (relative to base path {}):", Math.min(5, filesToProcess.size()), basePath);
+                    filesToProcess.stream().limit(5).forEach(javaFile -> log.debug("  - {}", basePath.relativize(javaFile)));
+                    if (filesToProcess.size() > 5) {
+                        log.debug("  ... and {} more files.", filesToProcess.size() - 5);
                     }
                 }
-                if (mismatchCount > MismatchedLogThreshold) {
-                    log.warn("...and {} more segments were skipped or failed embedding.", mismatchCount - MismatchedLogThreshold);
-                }
-
-
-                long createEntriesStartTime = System.currentTimeMillis();
-                log.info("[Indexing Step 5/6] Creating vector entries from {} successfully embedded segments...",
-                    successfullyEmbeddedSegments.size());
-                List<VectorEntry> entriesToUpsert = createVectorEntries(successfullyEmbeddedSegments, correspondingValidEmbeddings);
-                totalEntriesToUpsertCounter.set(entriesToUpsert.size());
-                log.info("[Indexing Step 5/6] Created {} valid vector entries. (Took {}ms)",
-                    entriesToUpsert.size(), System.currentTimeMillis() - createEntriesStartTime);
-
-                entriesSuccessfullyUpsertedCounter.set(0);
 
-                if (entriesToUpsert.isEmpty()) {
-                    log.warn("No valid vector entries created after embedding. Skipping upsert.");
-                    return CompletableFuture.completedFuture(null);
+                CompletableFuture<Void> deletions = removeDeletedFiles(diff.getDeletedFiles(), collectionName);
+                if (filesToProcess.isEmpty()) {
+                    log.info("[Indexing Step 4/4] No added or changed files. Skipping parsing and embedding.");
+                    return deletions;
                 }
 
-                long upsertStartTime = System.currentTimeMillis();
-                log.info("[Indexing Step 6/6] Upserting {} entries in batches to collection '{}' (batch size: {})...", entriesToUpsert.size(),
-                    collectionName, batchSize);
-
-                List<CompletableFuture<Void>> batchFutures = new ArrayList<>();
-                int numBatches = (entriesToUpsert.size() + batchSize - 1) / batchSize;
-
-                for (int i = 0; i < entriesToUpsert.size(); i += batchSize) {
-                    List<VectorEntry> currentBatch = entriesToUpsert.subList(i, Math.min(i + batchSize, entriesToUpsert.size()));
-                    if (!currentBatch.isEmpty()) {
-                        int currentBatchNum = (i / batchSize) + 1;
-                        log.info("Upserting batch {}/{} (size {}) to collection '{}'",
-                            currentBatchNum, numBatches, currentBatch.size(), collectionName);
-
-                        batchFutures.add(vectorStoreClient.upsertEmbeddingsAsync(collectionName, currentBatch)
-                            .thenRun(() -> {
-                                int batchCount = currentBatch.size();
-                                entriesSuccessfullyUpsertedCounter.addAndGet(batchCount);
-                                log.info("Batch {}/{} ({} entries) upsert completed. Total entries upserted so far: {}/{}",
-                                    currentBatchNum, numBatches, batchCount, entriesSuccessfullyUpsertedCounter.get(), entriesToUpsert.size());
-                            })
-                            .exceptionally(ex -> {
-                                log.error("Failed to upsert batch {}/{}: {}", currentBatchNum, numBatches, ex.getMessage(), ex);
-                                return null;
-                            }));
-                    }
-                }
-
-                return CompletableFuture.allOf(batchFutures.toArray(new CompletableFuture[0]))
+                long pipelineStartTime = System.currentTimeMillis();
+                log.info("[Indexing Step 4/4] Streaming {} files through parse -> embed -> upsert...", filesToProcess.size());
+                CompletableFuture<Void> pipeline = runStreamingPipeline(filesToProcess, basePath, collectionName,
+                    diff.getPreviousSegmentIds(), !forceAll)
                     .whenComplete((res, ex) -> {
                         if (ex != null) {
-                            log.error("[Indexing Step 6/6] One or more batch upsert operations failed after {}ms.",
-                                System.currentTimeMillis() - upsertStartTime, ex);
+                            log.error("[Indexing Step 4/4] Streaming pipeline failed after {}ms.", System.currentTimeMillis() - pipelineStartTime, ex);
                         } else {
-                            log.info(
-                                "[Indexing Step 6/6] All {} batch upsert operations initiated. Total entries successfully upserted (based on counters): {}. (Took {}ms for submitting all batches)",
-                                batchFutures.size(), entriesSuccessfullyUpsertedCounter.get(), System.currentTimeMillis() - upsertStartTime);
+                            log.info("[Indexing Step 4/4] Streaming pipeline completed. (Took {}ms)", System.currentTimeMillis() - pipelineStartTime);
                         }
                     });
+                return CompletableFuture.allOf(deletions, pipeline);
             })
             .thenRun(() -> {
-                log.info("Full indexing process completed successfully for path '{}'. Total time: {}ms",
+                log.info("Indexing process completed successfully for path '{}'. Total time: {}ms",
                     basePath, System.currentTimeMillis() - overallStartTime);
-                log.info("Summary: Files found: {}, Segments parsed: {}, Entries created: {}, Entries upserted: {}",
-                    totalFilesToProcessCounter.get(), totalSegmentsToProcessCounter.get(), totalEntriesToUpsertCounter.get(),
-                    entriesSuccessfullyUpsertedCounter.get());
+                log.info("Summary: Files processed: {}/{}, Files unchanged: {}, Files deleted: {}, Segments parsed: {}, Segments reused: {}, "
+                        + "Entries created: {}, Entries upserted: {}, Failed batches: {}",
+                    filesProcessedCounter.get(), totalFilesToProcessCounter.get(), filesUnchangedCounter.get(), filesDeletedCounter.get(),
+                    totalSegmentsToProcessCounter.get(), segmentsReusedCounter.get(),
+                    totalEntriesToUpsertCounter.get(), entriesSuccessfullyUpsertedCounter.get(), failedBatchesCounter.get());
                 overallIndexingFuture.complete(null);
             })
             .exceptionally(ex -> {
@@ -267,11 +213,11 @@ public class IndexingServiceImpl implements IndexingService {
                 if (ex instanceof java.util.concurrent.CompletionException && ex.getCause() != null) {
                     cause = ex.getCause();
                 }
-                log.error("Full indexing pipeline failed for path '{}': {}. Total time: {}ms",
+                log.error("Indexing pipeline failed for path '{}': {}. Total time: {}ms",
                     basePath, cause.getMessage(), System.currentTimeMillis() - overallStartTime, cause);
-                log.error("Partial Summary: Files found: {}, Segments parsed: {}, Entries created: {}, Entries upserted: {}",
-                    totalFilesToProcessCounter.get(), totalSegmentsToProcessCounter.get(), totalEntriesToUpsertCounter.get(),
-                    entriesSuccessfullyUpsertedCounter.get());
+                log.error("Partial Summary: Files found: {}, Files processed: {}, Segments parsed: {}, Entries created: {}, Entries upserted: {}",
+                    totalFilesToProcessCounter.get(), filesProcessedCounter.get(), totalSegmentsToProcessCounter.get(),
+                    totalEntriesToUpsertCounter.get(), entriesSuccessfullyUpsertedCounter.get());
                 overallIndexingFuture.completeExceptionally(cause);
                 return null;
             })
@@ -283,6 +229,308 @@ public class IndexingServiceImpl implements IndexingService {
         return overallIndexingFuture;
     }
 
+    /**
+     * Decides whether this run must re-process every file. Besides an explicit request or a disabled
+     * incremental mode, a manifest that has entries while the collection is empty (e.g. the vector store
+     * was wiped) would otherwise cause everything to be skipped, so that also forces a full run.
+     */
+    private CompletableFuture<Boolean> resolveFullReindex(Path basePath, String collectionName, boolean fullReindexRequested) {
+        if (fullReindexRequested || !incrementalIndexingEnabled) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (!indexManifestService.hasEntries(basePath, collectionName)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return vectorStoreClient.countEmbeddingsAsync(collectionName)
+            .thenApply(count -> {
+                if (count != null && count == 0L) {
+                    log.warn("Index manifest has entries for {} but collection '{}' is empty. Forcing full re-index.", basePath, collectionName);
+                    return true;
+                }
+                return false;
+            })
+            .exceptionally(ex -> {
+                log.warn("Could not count entries in collection '{}' ({}). Proceeding incrementally.", collectionName, ex.getMessage());
+                return false;
+            });
+    }
+
+    /**
+     * Finds manifest segments the vector store no longer holds (the embedded store loses writes made after
+     * its last flush when the process dies) and records their files as incomplete, so this run re-processes
+     * them and embeds only the lost segments.
+     */
+    private CompletableFuture<Void> markFilesWithMissingSegments(Path basePath, String collectionName) {
+        Map<Path, List<String>> idsByFile = indexManifestService.getSegmentIdsByFile(basePath, collectionName);
+        Set<String> recordedIds = new HashSet<>();
+        idsByFile.values().forEach(recordedIds::addAll);
+        if (recordedIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return vectorStoreClient.findMissingIdsAsync(collectionName, recordedIds)
+            .thenAccept(missing -> {
+                if (missing.isEmpty()) {
+                    return;
+                }
+                int files = 0;
+                for (Map.Entry<Path, List<String>> entry : idsByFile.entrySet()) {
+                    List<String> storedIds = entry.getValue().stream().filter(id -> !missing.contains(id)).collect(Collectors.toList());
+                    if (storedIds.size() < entry.getValue().size()) {
+                        indexManifestService.recordIncompleteFile(basePath, collectionName, entry.getKey(), storedIds);
+                        files++;
+                    }
+                }
+                log.warn("{} segments recorded in the index manifest are missing from collection '{}'. Re-processing {} files.",
+                    missing.size(), collectionName, files);
+            })
+            .exceptionally(ex -> {
+                log.warn("Could not check collection '{}' for missing segments ({}). Proceeding with the manifest as is.",
+                    collectionName, ex.getMessage());
+                return null;
+            });
+    }
+
+    /**
+     * Removes the vector store entries of files that disappeared since the last run, then drops them from the manifest.
+     */
+    private CompletableFuture<Void> removeDeletedFiles(List<IndexedFile> deletedFiles, String collectionName) {
+        if (deletedFiles.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> deleteFutures = new ArrayList<>();
+        for (IndexedFile deletedFile : deletedFiles) {
+            CompletableFuture<Void> deleteFuture;
+            if (deletedFile.getSegmentIds() != null && !deletedFile.getSegmentIds().isEmpty()) {
+                deleteFuture = vectorStoreClient.deleteEmbeddingsByIdsAsync(collectionName, deletedFile.getSegmentIds());
+            } else {
+                deleteFuture = CompletableFuture.completedFuture(null);
+            }
+            deleteFutures.add(deleteFuture.thenRun(() -> {
+                lexicalIndexService.removeFile(deletedFile.getRelativePath());
+                indexManifestService.removeFile(collectionName, Path.of(deletedFile.getFilePath()));
+                indexGeneration.bump();
+                filesDeletedCounter.incrementAndGet();
+                log.debug("Removed {} segments of deleted file {}", deletedFile.getSegmentIds() != null ? deletedFile.getSegmentIds().size() : 0,
+                    deletedFile.getRelativePath());
+            }));
+        }
+        return CompletableFuture.allOf(deleteFutures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Streams the given files through parse -> embed -> upsert in file micro-batches.
+     * At most {@code pipelineMaxInFlightBatches} batches are alive at any time; a new batch is only
+     * admitted when an earlier one has been fully upserted, so heap usage stays flat regardless of
+     * repository size while the parser, Ollama and ChromaDB all work on different batches concurrently.
+     */
+    private CompletableFuture<Void> runStreamingPipeline(List<Path> javaFiles, Path basePath, String collectionName,
+                                                         Map<String, Set<String>> previousSegmentIds, boolean reuseUnchangedSegments) {
+        int fileBatchSize = Math.max(1, pipelineFileBatchSize);
+        List<List<Path>> fileBatches = new ArrayList<>();
+        for (int i = 0; i < javaFiles.size(); i += fileBatchSize) {
+            fileBatches.add(javaFiles.subList(i, Math.min(i + fileBatchSize, javaFiles.size())));
+        }
+
+        PipelineState state = new PipelineState(fileBatches, basePath, collectionName, previousSegmentIds, reuseUnchangedSegments);
+        int window = Math.min(Math.max(1, pipelineMaxInFlightBatches), fileBatches.size());
+        log.info("Pipeline split {} files into {} batches, admitting up to {} batches concurrently.",
+            javaFiles.size(), fileBatches.size(), window);
+        for (int i = 0; i < window; i++) {
+            admitNextBatch(state);
+        }
+        return state.done;
+    }
+
+    private void admitNextBatch(PipelineState state) {
+        int batchIndex = state.nextBatch.getAndIncrement();
+        if (batchIndex >= state.fileBatches.size()) {
+            return;
+        }
+        List<Path> batch = state.fileBatches.get(batchIndex);
+        int batchNum = batchIndex + 1;
+        int totalBatches = state.fileBatches.size();
+
+        CompletableFuture<Void> batchFuture;
+        try {
+            batchFuture = processFileBatch(batch, state, batchNum, totalBatches);
+        } catch (Exception e) {
+            batchFuture = CompletableFuture.failedFuture(e);
+        }
+
+        batchFuture.whenComplete((res, ex) -> {
+            if (ex != null) {
+                failedBatchesCounter.incrementAndGet();
+                log.error("Pipeline batch {}/{} ({} files) failed: {}", batchNum, totalBatches, batch.size(), ex.getMessage(), ex);
+            }
+            int processed = filesProcessedCounter.addAndGet(batch.size());
+            log.debug("Pipeline batch {}/{} finished. Files processed so far: {}/{}", batchNum, totalBatches, processed,
+                totalFilesToProcessCounter.get());
+            if (state.remainingBatches.decrementAndGet() == 0) {
+                state.done.complete(null);
+            } else {
+                admitNextBatch(state);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> processFileBatch(List<Path> files, PipelineState state, int batchNum, int totalBatches) {
+        log.debug("Pipeline batch {}/{}: parsing {} files", batchNum, totalBatches, files.size());
+        // Taken before parsing, so an edit made while the batch is in flight is picked up by the next scan.
+        Map<Path, FileFingerprint> fingerprints = new HashMap<>();
+        for (Path file : files) {
+            fingerprints.put(file, FileFingerprint.capture(file));
+        }
+        return parserService.parseFilesAsync(files, state.basePath)
+            .thenCompose(parsedSegments -> {
+                List<CodeSegment> segments = parsedSegments != null ? parsedSegments : Collections.emptyList();
+                totalSegmentsToProcessCounter.addAndGet(segments.size());
+
+                Map<String, List<String>> segmentIdsByFile = new LinkedHashMap<>();
+                Map<String, List<CodeSegment>> segmentsByFile = new LinkedHashMap<>();
+                for (Path file : files) {
+                    segmentIdsByFile.put(toRelativePath(state.basePath, file), new ArrayList<>());
+                    segmentsByFile.put(toRelativePath(state.basePath, file), new ArrayList<>());
+                }
+                List<CodeSegment> segmentsToEmbed = new ArrayList<>();
+                for (CodeSegment segment : segments) {
+                    segmentIdsByFile.computeIfAbsent(segment.getRelativeFilePath(), k -> new ArrayList<>()).add(segment.getId());
+                    segmentsByFile.computeIfAbsent(segment.getRelativeFilePath(), k -> new ArrayList<>()).add(segment);
+                    Set<String> previousIds = state.previousSegmentIds.getOrDefault(segment.getRelativeFilePath(), Collections.emptySet());
+                    if (state.reuseUnchangedSegments && segment.getId() != null && previousIds.contains(segment.getId())) {
+                        segmentsReusedCounter.incrementAndGet();
+                    } else {
+                        segmentsToEmbed.add(segment);
+                    }
+                }
+
+                // Segments whose embedding failed; their files must not be recorded as fully indexed.
+                Set<String> failedSegmentIds = new HashSet<>();
+                CompletableFuture<Void> upsertFuture;
+                if (segmentsToEmbed.isEmpty()) {
+                    log.debug("Pipeline batch {}/{}: no new or changed segments, nothing to embed.", batchNum, totalBatches);
+                    upsertFuture = CompletableFuture.completedFuture(null);
+                } else {
+                    log.debug("Pipeline batch {}/{}: embedding {} of {} segments", batchNum, totalBatches, segmentsToEmbed.size(), segments.size());
+                    upsertFuture = embeddingService.embedSegmentsAsync(segmentsToEmbed)
+                        .thenCompose(embeddings -> upsertEmbeddedSegments(segmentsToEmbed, embeddings, state.collectionName, batchNum, totalBatches,
+                            failedSegmentIds));
+                }
+                return upsertFuture
+                    .thenCompose(v -> deleteStaleSegments(segmentIdsByFile, state))
+                    .thenRun(() -> {
+                        segmentsByFile.forEach(lexicalIndexService::indexFile);
+                        recordManifestEntries(files, fingerprints, segmentIdsByFile, failedSegmentIds, state);
+                        indexGeneration.bump();
+                    });
+            });
+    }
+
+    /**
+     * Deletes segments that were stored for a file on a previous run but are no longer produced by the parser.
+     */
+    private CompletableFuture<Void> deleteStaleSegments(Map<String, List<String>> segmentIdsByFile, PipelineState state) {
+        List<String> staleIds = new ArrayList<>();
+        segmentIdsByFile.forEach((relativePath, currentIds) -> {
+            Set<String> previousIds = state.previousSegmentIds.get(relativePath);
+            if (previousIds != null) {
+                Set<String> stale = new HashSet<>(previousIds);
+                currentIds.forEach(stale::remove);
+                staleIds.addAll(stale);
+            }
+        });
+        if (staleIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        log.debug("Deleting {} stale segments from collection '{}'", staleIds.size(), state.collectionName);
+        return vectorStoreClient.deleteEmbeddingsByIdsAsync(state.collectionName, staleIds);
+    }
+
+    /**
+     * Records the batch's files in the manifest. A file with a segment that was not stored is recorded as
+     * incomplete, with only its stored segments, so the next incremental run embeds the missing ones.
+     */
+    private void recordManifestEntries(List<Path> files, Map<Path, FileFingerprint> fingerprints, Map<String, List<String>> segmentIdsByFile,
+                                       Set<String> failedSegmentIds, PipelineState state) {
+        for (Path file : files) {
+            List<String> ids = segmentIdsByFile.getOrDefault(toRelativePath(state.basePath, file), Collections.emptyList());
+            List<String> storedIds = ids.stream().filter(id -> !failedSegmentIds.contains(id)).collect(Collectors.toList());
+            if (storedIds.size() == ids.size()) {
+                indexManifestService.recordIndexedFile(state.basePath, state.collectionName, file, fingerprints.get(file), ids);
+            } else {
+                log.warn("{} of {} segments of {} were not stored. Marking the file for re-processing on the next run.",
+                    ids.size() - storedIds.size(), ids.size(), toRelativePath(state.basePath, file));
+                indexManifestService.recordIncompleteFile(state.basePath, state.collectionName, file, storedIds);
+            }
+        }
+    }
+
+    private static String toRelativePath(Path basePath, Path file) {
+        return basePath.relativize(file).toString().replace('\\', '/');
+    }
+
+    /**
+     * Upserts the segments that got an embedding and adds the IDs of those that did not to {@code failedSegmentIds}.
+     */
+    private CompletableFuture<Void> upsertEmbeddedSegments(List<CodeSegment> segments, List<EmbeddingVector> embeddings,
+                                                           String collectionName, int batchNum, int totalBatches,
+                                                           Set<String> failedSegmentIds) {
+        if (embeddings == null) {
+            throw new IndexingException("Embedding service returned null for embeddings list.");
+        }
+        if (embeddings.size() != segments.size()) {
+            log.warn(
+                "CRITICAL MISMATCH: Embedding service returned {} embedding lists for {} input segments in batch {}/{}. Proceeding with available data.",
+                embeddings.size(), segments.size(), batchNum, totalBatches);
+        }
+
+        List<CodeSegment> successfullyEmbeddedSegments = new ArrayList<>();
+        List<EmbeddingVector> correspondingValidEmbeddings = new ArrayList<>();
+        int mismatchCount = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            CodeSegment segment = segments.get(i);
+            EmbeddingVector currentEmbedding = i < embeddings.size() ? embeddings.get(i) : null;
+            if (currentEmbedding != null && !currentEmbedding.isEmpty()) {
+                successfullyEmbeddedSegments.add(segment);
+                correspondingValidEmbeddings.add(currentEmbedding);
+            } else {
+                if (mismatchCount < MISMATCH_LOG_THRESHOLD) {
+                    log.warn("Segment ID '{}' (Path: {}, Lines: {}-{}) was skipped or failed embedding (embedding list is null/empty).",
+                        segment.getId(), segment.getRelativeFilePath(), segment.getStartLine(), segment.getEndLine());
+                }
+                mismatchCount++;
+            }
+        }
+        if (mismatchCount > MISMATCH_LOG_THRESHOLD) {
+            log.warn("...and {} more segments were skipped or failed embedding in batch {}/{}.",
+                mismatchCount - MISMATCH_LOG_THRESHOLD, batchNum, totalBatches);
+        }
+
+        List<VectorEntry> entriesToUpsert = createVectorEntries(successfullyEmbeddedSegments, correspondingValidEmbeddings);
+        Set<String> upsertedIds = entriesToUpsert.stream().map(VectorEntry::getId).collect(Collectors.toSet());
+        segments.stream()
+            .map(CodeSegment::getId)
+            .filter(id -> id != null && !upsertedIds.contains(id))
+            .forEach(failedSegmentIds::add);
+        if (entriesToUpsert.isEmpty()) {
+            log.warn("Pipeline batch {}/{}: no valid vector entries created after embedding. Skipping upsert.", batchNum, totalBatches);
+            return CompletableFuture.completedFuture(null);
+        }
+        totalEntriesToUpsertCounter.addAndGet(entriesToUpsert.size());
+
+        int upsertBatchSize = Math.max(1, chromaDBConfig.getBatchSize());
+        List<CompletableFuture<Void>> upsertFutures = new ArrayList<>();
+        for (int i = 0; i < entriesToUpsert.size(); i += upsertBatchSize) {
+            List<VectorEntry> currentChunk = entriesToUpsert.subList(i, Math.min(i + upsertBatchSize, entriesToUpsert.size()));
+            upsertFutures.add(vectorStoreClient.upsertEmbeddingsAsync(collectionName, currentChunk)
+                .thenRun(() -> {
+                    int upserted = entriesSuccessfullyUpsertedCounter.addAndGet(currentChunk.size());
+                    log.info("Pipeline batch {}/{}: upserted {} entries. Total entries upserted so far: {}",
+                        batchNum, totalBatches, currentChunk.size(), upserted);
+                }));
+        }
+        return CompletableFuture.allOf(upsertFutures.toArray(new CompletableFuture[0]));
+    }
+
     @Override
     public boolean isIndexingInProgress() {
         boolean inProgress = indexingInProgress.get();
@@ -297,19 +545,13 @@ public class IndexingServiceImpl implements IndexingService {
             }
             return 1.0;
         }
-        if (totalEntriesToUpsertCounter.get() == 0) {
-            if (totalSegmentsToProcessCounter.get() > 0) {
-                return 0.5;
-            }
-            if (totalFilesToProcessCounter.get() > 0) {
-                return 0.2;
-            }
+        if (totalFilesToProcessCounter.get() == 0) {
             return 0.05;
         }
-        return (double) entriesSuccessfullyUpsertedCounter.get() / totalEntriesToUpsertCounter.get();
+        return (double) filesProcessedCounter.get() / totalFilesToProcessCounter.get();
     }
 
-    private List<VectorEntry> createVectorEntries(List<CodeSegment> segments, List<List<Float>> embeddings) {
+    private List<VectorEntry> createVectorEntries(List<CodeSegment> segments, List<EmbeddingVector> embeddings) {
         log.debug("Entering createVectorEntries with {} segments and {} embedding lists.", segments.size(), embeddings.size());
         if (segments.size() != embeddings.size()) {
             log.error(
@@ -321,7 +563,7 @@ public class IndexingServiceImpl implements IndexingService {
         List<VectorEntry> entries = new ArrayList<>();
         for (int i = 0; i < segments.size(); i++) {
             CodeSegment segment = segments.get(i);
-            List<Float> embedding = embeddings.get(i);
+            EmbeddingVector embedding = embeddings.get(i);
 
             if (embedding == null || embedding.isEmpty()) {
                 log.warn(
@@ -358,7 +600,7 @@ public class IndexingServiceImpl implements IndexingService {
 
             entries.add(VectorEntry.builder()
                 .id(entryId)
-                .embedding(embedding)
+                .vector(embedding)
                 .metadata(metadata)
                 .document(segment.getContent())
                 .build());
@@ -366,4 +608,28 @@ public class IndexingServiceImpl implements IndexingService {
         log.debug("Exiting createVectorEntries, created {} entries.", entries.size());
         return entries;
     }
+
+    /**
+     * Mutable bookkeeping for one streaming pipeline run.
+     */
+    private static class PipelineState {
+        private final List<List<Path>> fileBatches;
+        private final Path basePath;
+        private final String collectionName;
+        private final Map<String, Set<String>> previousSegmentIds;
+        private final boolean reuseUnchangedSegments;
+        private final AtomicInteger nextBatch = new AtomicInteger(0);
+        private final AtomicInteger remainingBatches;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PipelineState(List<List<Path>> fileBatches, Path basePath, String collectionName,
+                      Map<String, Set<String>> previousSegmentIds, boolean reuseUnchangedSegments) {
+            this.fileBatches = fileBatches;
+            this.basePath = basePath;
+            this.collectionName = collectionName;
+            this.previousSegmentIds = previousSegmentIds;
+            this.reuseUnchangedSegments = reuseUnchangedSegments;
+            this.remainingBatches = new AtomicInteger(fileBatches.size());
+        }
+    }
 }
@@ -0,0 +1,203 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.lexical.index.CodeTokenizer;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.parser.model.SegmentType;
+import com.localllm.assistant.service.ReRankerService;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * In-process re-ranker that scores candidates with cheap features instead of asking an LLM.
+ * <p>
+ * Each feature is in [0, 1] and the final score is their weighted sum:
+ * <ul>
+ *   <li>lexical: share of the query terms found in the segment content, each term weighted by its
+ *       inverse document frequency within the candidate set;</li>
+ *   <li>identifier: 1 if the query names the segment's entity, otherwise the share of query terms
+ *       found in its {@code entityName} and {@code parentFqn};</li>
+ *   <li>type: a prior per {@link SegmentType} (declarations with bodies over fields and directives);</li>
+ *   <li>path: share of query terms found in the file path, or half the directory overlap with the
+ *       best vector hit if that is higher;</li>
+ *   <li>vector: the retrieval score, min-max normalized over the candidates.</li>
+ * </ul>
+ * Query terms come from {@link CodeTokenizer}, so identifiers are split the same way as in the keyword
+ * index. The results carry the re-ranking score.
+ */
+@Service
+public class LocalReRankerServiceImpl implements ReRankerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReRankerServiceImpl.class);
+
+    /**
+     * Feature weights; they need not sum to 1.
+     */
+    public record Weights(double lexical, double identifier, double type, double path, double vector) {
+    }
+
+    private final Weights weights;
+
+    @Autowired
+    public LocalReRankerServiceImpl(@Value("${reranker.local.weights.lexical:0.35}") double lexical,
+                                    @Value("${reranker.local.weights.identifier:0.25}") double identifier,
+                                    @Value("${reranker.local.weights.type:0.05}") double type,
+                                    @Value("${reranker.local.weights.path:0.1}") double path,
+                                    @Value("${reranker.local.weights.vector:0.25}") double vector) {
+        this(new Weights(lexical, identifier, type, path, vector));
+    }
+
+    public LocalReRankerServiceImpl(Weights weights) {
+        this.weights = weights;
+    }
+
+    @Override
+    public CompletableFuture<List<VectorSearchResult>> reRankAsync(String query, List<VectorSearchResult> initialResults,
+                                                                    int topN, String rerankerModelName) {
+        if (initialResults == null || initialResults.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return CompletableFuture.completedFuture(reRank(query, initialResults, topN));
+    }
+
+    /**
+     * Scores and sorts the candidates synchronously; ties keep their retrieval order.
+     */
+    public List<VectorSearchResult> reRank(String query, List<VectorSearchResult> initialResults, int topN) {
+        long start = System.nanoTime();
+        List<VectorSearchResult> candidates = initialResults.stream().filter(Objects::nonNull)
+            .filter(r -> r.getSegment() != null).collect(Collectors.toList());
+        Set<String> queryTerms = new LinkedHashSet<>(CodeTokenizer.tokenize(query));
+        Set<String> queryWords = identifierWords(query);
+
+        // Query terms are matched as substrings of the lowercased content, which finds identifier parts
+        // (e.g. "cache" in "embeddingCache") without tokenizing every candidate.
+        String[] terms = queryTerms.toArray(new String[0]);
+        boolean[][] matches = new boolean[candidates.size()][terms.length];
+        int[] documentFrequency = new int[terms.length];
+        for (int i = 0; i < candidates.size(); i++) {
+            String content = Objects.toString(candidates.get(i).getSegment().getContent(), "").toLowerCase(Locale.ROOT);
+            for (int t = 0; t < terms.length; t++) {
+                if (content.contains(terms[t])) {
+                    matches[i][t] = true;
+                    documentFrequency[t]++;
+                }
+            }
+        }
+        double[] idf = new double[terms.length];
+        double idfTotal = 0;
+        for (int t = 0; t < terms.length; t++) {
+            idf[t] = Math.log(1.0 + (candidates.size() + 1.0) / (documentFrequency[t] + 1.0));
+            idfTotal += idf[t];
+        }
+        double minVector = candidates.stream().mapToDouble(VectorSearchResult::getScore).min().orElse(0.0);
+        double maxVector = candidates.stream().mapToDouble(VectorSearchResult::getScore).max().orElse(0.0);
+        String topDirectory = candidates.stream().max(Comparator.comparingDouble(VectorSearchResult::getScore))
+            .map(r -> directory(r.getSegment().getRelativeFilePath())).orElse("");
+
+        List<VectorSearchResult> scored = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            VectorSearchResult candidate = candidates.get(i);
+            CodeSegment segment = candidate.getSegment();
+
+            double lexical = 0;
+            for (int t = 0; t < terms.length; t++) {
+                if (matches[i][t]) {
+                    lexical += idf[t];
+                }
+            }
+            lexical = idfTotal > 0 ? lexical / idfTotal : 0;
+
+            double identifier = segment.getEntityName() != null && queryWords.contains(segment.getEntityName().toLowerCase(Locale.ROOT))
+                ? 1.0 : overlap(queryTerms, segment.getEntityName() + " " + segment.getParentFqn());
+            double path = Math.max(overlap(queryTerms, segment.getRelativeFilePath()),
+                0.5 * directoryOverlap(directory(segment.getRelativeFilePath()), topDirectory));
+            double vector = maxVector > minVector ? (candidate.getScore() - minVector) / (maxVector - minVector) : 1.0;
+
+            double score = weights.lexical() * lexical + weights.identifier() * identifier
+                + weights.type() * typePrior(segment.getType()) + weights.path() * path + weights.vector() * vector;
+            scored.add(new VectorSearchResult(segment, score));
+        }
+
+        // List.sort is stable, so equal scores keep the retrieval order.
+        scored.sort(Comparator.comparingDouble(VectorSearchResult::getScore).reversed());
+        List<VectorSearchResult> reRanked = scored.stream().limit(Math.max(topN, 0)).collect(Collectors.toList());
+        log.info("LOCAL RERANK: Scored {} candidates in {} us, kept top {}",
+            candidates.size(), (System.nanoTime() - start) / 1_000, reRanked.size());
+        return reRanked;
+    }
+
+    private static double overlap(Set<String> queryTerms, String text) {
+        if (queryTerms.isEmpty() || text == null) {
+            return 0;
+        }
+        Set<String> terms = new HashSet<>(CodeTokenizer.tokenize(text));
+        return (double) queryTerms.stream().filter(terms::contains).count() / queryTerms.size();
+    }
+
+    /**
+     * Identifier-like words of the query, lowercased, for exact entity-name matches.
+     */
+    private static Set<String> identifierWords(String query) {
+        Set<String> words = new HashSet<>();
+        if (query != null) {
+            for (String word : query.split("[^\\w$]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return words;
+    }
+
+    private static String directory(String relativeFilePath) {
+        if (relativeFilePath == null) {
+            return "";
+        }
+        int slash = relativeFilePath.lastIndexOf('/');
+        return slash < 0 ? "" : relativeFilePath.substring(0, slash);
+    }
+
+    /**
+     * Shared leading path components over the deeper directory's depth.
+     */
+    static double directoryOverlap(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return a.equals(b) ? 1.0 : 0.0;
+        }
+        String[] left = a.split("/");
+        String[] right = b.split("/");
+        int shared = 0;
+        while (shared < left.length && shared < right.length && left[shared].equals(right[shared])) {
+            shared++;
+        }
+        return (double) shared / Math.max(left.length, right.length);
+    }
+
+    private static double typePrior(SegmentType type) {
+        if (type == null) {
+            return 0.3;
+        }
+        return switch (type) {
+            case METHOD -> 1.0;
+            case CLASS, INTERFACE, ENUM, ANNOTATION -> 0.9;
+            case CONSTRUCTOR -> 0.8;
+            case FIELD, STATIC_BLOCK, INSTANCE_BLOCK -> 0.5;
+            default -> 0.3;
+        };
+    }
+}
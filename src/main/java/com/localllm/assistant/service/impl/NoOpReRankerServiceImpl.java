@@ -1,5 +1,6 @@
 package com.localllm.assistant.service.impl;
 
+import com.localllm.assistant.rerank.ReRankOutcome;
 import com.localllm.assistant.service.ReRankerService;
 import com.localllm.assistant.vectorstore.model.VectorSearchResult;
 import org.slf4j.Logger;
@@ -40,4 +41,13 @@ public class NoOpReRankerServiceImpl implements ReRankerService {
             .collect(Collectors.toList());
         return CompletableFuture.completedFuture(sortedAndTrimmed);
     }
+
+    /**
+     * Nothing is graded, so the result is never worth caching.
+     */
+    @Override
+    public CompletableFuture<ReRankOutcome> reRankWithOutcomeAsync(String query, List<VectorSearchResult> initialResults,
+                                                                   int topN, String rerankerModelName) {
+        return reRankAsync(query, initialResults, topN, rerankerModelName).thenApply(ReRankOutcome::incomplete);
+    }
 }
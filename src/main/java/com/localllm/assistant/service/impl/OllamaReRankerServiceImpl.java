@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.MessageRole;
 import com.localllm.assistant.llm.LlmClient;
+import com.localllm.assistant.rerank.ReRankOutcome;
 import com.localllm.assistant.service.ReRankerService;
 import com.localllm.assistant.vectorstore.model.VectorSearchResult;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,7 @@ public class OllamaReRankerServiceImpl implements ReRankerService {
     private static final Logger log = LoggerFactory.getLogger(OllamaReRankerServiceImpl.class);
     private final LlmClient llmClient;
     private final ObjectMapper objectMapper;
+    private final PointwiseReRanker pointwiseReRanker;
 
     @Value("${reranker.model}")
     private String defaultRerankerModel;
@@ -34,6 +36,8 @@ public class OllamaReRankerServiceImpl implements ReRankerService {
     private double rerankerTemp;
     @Value("${reranker.defaultTopN}")
     private int defaultTopNThreshold;
+    @Value("${reranker.mode:pointwise}")
+    private String mode;
 
     @Override
     public CompletableFuture<List<VectorSearchResult>> reRankAsync(
@@ -41,17 +45,35 @@ public class OllamaReRankerServiceImpl implements ReRankerService {
         List<VectorSearchResult> initialResults,
         int requestedTopN,
         String rerankerModelName
+    ) {
+        return reRankWithOutcomeAsync(query, initialResults, requestedTopN, rerankerModelName).thenApply(ReRankOutcome::results);
+    }
+
+    /**
+     * Pointwise rankings are complete when every issued batch was graded in time; listwise ones unless the
+     * model failed or its answer could not be parsed (retrieval order is returned then).
+     */
+    @Override
+    public CompletableFuture<ReRankOutcome> reRankWithOutcomeAsync(
+        String query,
+        List<VectorSearchResult> initialResults,
+        int requestedTopN,
+        String rerankerModelName
     ) {
         if (initialResults == null || initialResults.isEmpty()) {
             log.debug("Initial results for re-ranking are empty. Query: {}", query);
-            return CompletableFuture.completedFuture(List.of());
+            return CompletableFuture.completedFuture(ReRankOutcome.complete(List.of()));
         }
 
         int topN = Math.min(requestedTopN, this.defaultTopNThreshold);
         String modelToUse = StringUtils.hasText(rerankerModelName) ? rerankerModelName : this.defaultRerankerModel;
 
-        log.debug("Re-ranking with model: {}, query: '{}', initial results: {}, aiming for topN: {}",
-            modelToUse, query, initialResults.size(), topN);
+        log.debug("Re-ranking ({}) with model: {}, query: '{}', initial results: {}, aiming for topN: {}",
+            mode, modelToUse, query, initialResults.size(), topN);
+
+        if (!"listwise".equalsIgnoreCase(mode)) {
+            return pointwiseReRanker.reRank(query, initialResults, topN, modelToUse, rerankerTemp);
+        }
 
         StringBuilder sb = new StringBuilder();
         sb.append("Re-rank these code snippets by relevance to:\n\"")
@@ -91,16 +113,16 @@ public class OllamaReRankerServiceImpl implements ReRankerService {
                     });
                 } catch (Exception e) {
                     log.error("Failed to parse reranker JSON response: '{}'. Error: {}", responseText, e.getMessage(), e);
-                    return initialResults.stream().limit(topN).collect(Collectors.toList());
+                    return ReRankOutcome.incomplete(initialResults.stream().limit(topN).collect(Collectors.toList()));
                 }
-                return order.stream()
+                return ReRankOutcome.complete(order.stream()
                     .filter(idx -> idx >= 0 && idx < initialResults.size())
                     .map(initialResults::get)
                     .limit(topN)
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()));
             }).exceptionally(ex -> {
                 log.error("Error during re-ranking LLM call for query '{}': {}", query, ex.getMessage(), ex);
-                return initialResults.stream().limit(topN).collect(Collectors.toList());
+                return ReRankOutcome.incomplete(initialResults.stream().limit(topN).collect(Collectors.toList()));
             });
     }
 }
@@ -0,0 +1,258 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.history.model.MessageRole;
+import com.localllm.assistant.llm.LlmClient;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.rerank.ReRankOutcome;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * LLM re-ranking that grades candidates in small mini-batches instead of one listwise prompt.
+ * <p>
+ * Candidates are split, in retrieval order, into batches of {@code batchSize}; each snippet is cut to
+ * {@code snippetMaxTokens}. Batches are sent in waves of {@code parallelism} concurrent requests and the
+ * model answers one {@code <index>: <score>} line (0-10) per snippet. After each wave the top-N of the
+ * graded candidates is compared with the previous wave's; once it is unchanged, no further batches are
+ * issued. Requests still running when {@code latencyBudgetMs} expires are cancelled, which frees their
+ * limiter permit and stops Ollama from generating for them. The result lists
+ * graded candidates by score (ties in retrieval order) followed by the ungraded ones in retrieval order.
+ * It is incomplete if a batch failed, timed out or was graded only in part, or the budget stopped the run.
+ */
+@Component
+public class PointwiseReRanker {
+
+    private static final Logger log = LoggerFactory.getLogger(PointwiseReRanker.class);
+    // "3: 7", "[3] = 7.5", "\"3\": 7", "Snippet 3 - 8/10"
+    private static final Pattern INDEX_SCORE = Pattern.compile("\\[?\"?(\\d+)\"?]?\\s*[:=\\-)]\\s*(\\d+(?:\\.\\d+)?)");
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:\\.\\d+)?");
+    private static final double MAX_SCORE = 10.0;
+    private static final int OUTPUT_TOKENS_PER_SNIPPET = 8;
+    private static final String SYSTEM_PROMPT = "You grade how relevant code snippets are to a question. "
+        + "For every snippet output exactly one line '<index>: <score>' with a score from 0 (irrelevant) "
+        + "to 10 (directly answers the question). Output nothing else.";
+
+    private final LlmClient llmClient;
+    private final TokenCounter tokenCounter;
+    private final int batchSize;
+    private final int parallelism;
+    private final int snippetMaxTokens;
+    private final long latencyBudgetMs;
+
+    @Autowired
+    public PointwiseReRanker(LlmClient llmClient,
+                             TokenCounter tokenCounter,
+                             @Value("${reranker.pointwise.batchSize:4}") int batchSize,
+                             @Value("${reranker.pointwise.parallelism:3}") int parallelism,
+                             @Value("${reranker.pointwise.snippetMaxTokens:256}") int snippetMaxTokens,
+                             @Value("${reranker.pointwise.latencyBudgetMs:8000}") long latencyBudgetMs) {
+        this.llmClient = llmClient;
+        this.tokenCounter = tokenCounter;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.snippetMaxTokens = snippetMaxTokens;
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+
+    /**
+     * Grading state of one re-ranking request.
+     */
+    private final class Run {
+        final String query;
+        final List<VectorSearchResult> candidates;
+        final int topN;
+        final String model;
+        final double temperature;
+        final long deadlineNanos;
+        final long startNanos = System.nanoTime();
+        final Map<Integer, Double> scores = new HashMap<>();
+        int nextCandidate;
+        int batches;
+        Set<Integer> previousTop = Set.of();
+        volatile boolean degraded;
+
+        Run(String query, List<VectorSearchResult> candidates, int topN, String model, double temperature) {
+            this.query = query;
+            this.candidates = candidates;
+            this.topN = topN;
+            this.model = model;
+            this.temperature = temperature;
+            this.deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(latencyBudgetMs);
+        }
+
+        long remainingMs() {
+            return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        }
+    }
+
+    /**
+     * Re-ranks the candidates; never completes exceptionally.
+     *
+     * @param candidates Candidates in retrieval order.
+     * @return At most {@code topN} candidates, best first.
+     */
+    public CompletableFuture<ReRankOutcome> reRank(String query, List<VectorSearchResult> candidates, int topN,
+                                                              String model, double temperature) {
+        Run run = new Run(query, candidates, topN, model, temperature);
+        return nextWave(run).thenApply(stopReason -> finish(run, stopReason));
+    }
+
+    private CompletableFuture<String> nextWave(Run run) {
+        if (run.nextCandidate >= run.candidates.size()) {
+            return CompletableFuture.completedFuture("all graded");
+        }
+        if (run.remainingMs() <= 0) {
+            return CompletableFuture.completedFuture("latency budget");
+        }
+        List<CompletableFuture<Map<Integer, Double>>> wave = new ArrayList<>();
+        for (int i = 0; i < parallelism && run.nextCandidate < run.candidates.size(); i++) {
+            int from = run.nextCandidate;
+            int to = Math.min(from + batchSize, run.candidates.size());
+            run.nextCandidate = to;
+            run.batches++;
+            wave.add(gradeBatch(run, from, to));
+        }
+        return CompletableFuture.allOf(wave.toArray(new CompletableFuture[0])).thenCompose(ignored -> {
+            wave.forEach(batch -> run.scores.putAll(batch.join()));
+            Set<Integer> top = topGraded(run);
+            boolean stable = run.scores.size() >= run.topN && top.equals(run.previousTop);
+            run.previousTop = top;
+            return stable ? CompletableFuture.completedFuture("top-N stable") : nextWave(run);
+        });
+    }
+
+    private CompletableFuture<Map<Integer, Double>> gradeBatch(Run run, int from, int to) {
+        StringBuilder prompt = new StringBuilder("Question: ").append(run.query).append("\n\n");
+        for (int i = from; i < to; i++) {
+            CodeSegment segment = run.candidates.get(i).getSegment();
+            prompt.append('[').append(i).append("] ").append(Objects.toString(segment.getRelativeFilePath(), ""));
+            if (segment.getEntityName() != null) {
+                prompt.append(" (").append(segment.getEntityName()).append(')');
+            }
+            prompt.append("\n```java\n").append(truncate(segment)).append("\n```\n\n");
+        }
+        prompt.append("Scores:");
+        List<ChatMessage> messages = List.of(
+            ChatMessage.builder().role(MessageRole.SYSTEM).content(SYSTEM_PROMPT).build(),
+            ChatMessage.builder().role(MessageRole.USER).content(prompt.toString()).build());
+
+        CompletableFuture<String> call = llmClient.generateChatCompletionAsync(messages, run.model, run.temperature,
+            (to - from) * OUTPUT_TOKENS_PER_SNIPPET);
+        return call
+            .thenApply(response -> parseScores(response, from, to))
+            .exceptionally(ex -> {
+                if (!call.isCancelled()) {
+                    log.warn("Pointwise re-rank batch [{}, {}) failed: {}", from, to, ex.getMessage());
+                }
+                return Map.of();
+            })
+            .completeOnTimeout(Map.of(), Math.max(run.remainingMs(), 0), TimeUnit.MILLISECONDS)
+            .whenComplete((scores, ex) -> {
+                if (scores == null || scores.size() < to - from) {
+                    run.degraded = true;
+                }
+                // No-op once the call finished; otherwise it timed out and must not keep its permit and Ollama busy.
+                if (call.cancel(true)) {
+                    log.debug("Pointwise re-rank batch [{}, {}) cancelled after the latency budget expired.", from, to);
+                }
+            });
+    }
+
+    /**
+     * Cuts the snippet to {@code snippetMaxTokens}, at a line break where possible.
+     */
+    String truncate(CodeSegment segment) {
+        String content = Objects.toString(segment.getContent(), "").trim();
+        int tokens = tokenCounter.countSegmentTokens(segment);
+        if (snippetMaxTokens <= 0 || tokens <= snippetMaxTokens) {
+            return content;
+        }
+        int length = (int) ((long) content.length() * snippetMaxTokens / tokens);
+        while (length > 0) {
+            int lineEnd = content.lastIndexOf('\n', length);
+            String cut = content.substring(0, lineEnd > length / 2 ? lineEnd : length);
+            if (tokenCounter.countTokens(cut) <= snippetMaxTokens) {
+                return cut + "\n// ...";
+            }
+            length = length * 9 / 10;
+        }
+        return "// ...";
+    }
+
+    /**
+     * Reads {@code <index>: <score>} pairs for indices in {@code [from, to)}; if there are none but the
+     * response holds exactly one number per snippet, they are taken in order. Scores are clamped to 0-10.
+     */
+    static Map<Integer, Double> parseScores(String response, int from, int to) {
+        Map<Integer, Double> scores = new HashMap<>();
+        if (response == null) {
+            return scores;
+        }
+        Matcher pair = INDEX_SCORE.matcher(response);
+        while (pair.find()) {
+            int index = Integer.parseInt(pair.group(1));
+            if (index >= from && index < to) {
+                scores.putIfAbsent(index, clamp(Double.parseDouble(pair.group(2))));
+            }
+        }
+        if (scores.isEmpty()) {
+            List<Double> numbers = new ArrayList<>();
+            Matcher number = NUMBER.matcher(response);
+            while (number.find()) {
+                numbers.add(Double.parseDouble(number.group()));
+            }
+            if (numbers.size() == to - from) {
+                for (int i = from; i < to; i++) {
+                    scores.put(i, clamp(numbers.get(i - from)));
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static double clamp(double score) {
+        return Math.max(0.0, Math.min(MAX_SCORE, score));
+    }
+
+    private static Set<Integer> topGraded(Run run) {
+        return run.scores.entrySet().stream()
+            .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .limit(run.topN)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private ReRankOutcome finish(Run run, String stopReason) {
+        List<Integer> order = IntStream.range(0, run.candidates.size()).boxed()
+            .sorted(Comparator.comparing((Integer i) -> !run.scores.containsKey(i))
+                .thenComparing(i -> -run.scores.getOrDefault(i, 0.0))
+                .thenComparingInt(i -> i))
+            .collect(Collectors.toList());
+        log.info("POINTWISE RERANK: Graded {} of {} candidates in {} batches and {} ms (stopped: {})",
+            run.scores.size(), run.candidates.size(), run.batches,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.startNanos), stopReason);
+        List<VectorSearchResult> results = order.stream().limit(run.topN).map(run.candidates::get).collect(Collectors.toList());
+        return run.degraded || "latency budget".equals(stopReason) ? ReRankOutcome.incomplete(results) : ReRankOutcome.complete(results);
+    }
+}
@@ -1,23 +1,36 @@
 package com.localllm.assistant.service.impl;
 
+import com.localllm.assistant.answer.AnswerCache;
+import com.localllm.assistant.config.AsyncConfig;
 import com.localllm.assistant.config.ChromaDBConfig;
 import com.localllm.assistant.config.OllamaConfig;
 import com.localllm.assistant.controller.dto.QueryRequest;
 import com.localllm.assistant.controller.dto.QueryResponse;
 import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.Conversation;
 import com.localllm.assistant.history.model.MessageRole;
+import com.localllm.assistant.lexical.LexicalIndexService;
+import com.localllm.assistant.lexical.model.LexicalSearchResult;
 import com.localllm.assistant.llm.LlmClient;
 import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.prompt.ContextConsolidator;
+import com.localllm.assistant.prompt.ContextPacker;
+import com.localllm.assistant.prompt.PackedContext;
+import com.localllm.assistant.prompt.SnippetCompressor;
 import com.localllm.assistant.service.HistoryService;
 import com.localllm.assistant.service.QueryService;
+import com.localllm.assistant.service.QueryStreamListener;
 import com.localllm.assistant.service.ReRankerService;
+import com.localllm.assistant.tokenizer.TokenCounter;
 import com.localllm.assistant.vectorstore.VectorStoreService;
 import com.localllm.assistant.vectorstore.model.VectorSearchResult;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -26,13 +39,22 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,6 +62,10 @@ import java.util.stream.Collectors;
 public class QueryServiceImpl implements QueryService {
 
     private static final Logger log = LoggerFactory.getLogger(QueryServiceImpl.class);
+    private static final Pattern BACKTICK_SPAN = Pattern.compile("`([^`]+)`");
+    private static final Pattern CODE_IDENTIFIER = Pattern.compile("[A-Za-z_$][\\w$]*(?:[.#][A-Za-z_$][\\w$]*)*(?:\\(\\))?");
+    private static final Pattern CAMEL_HUMP = Pattern.compile("[a-z0-9][A-Z]");
+    private static final int MAX_SYMBOLS_PER_QUERY = 5;
 
     // === AGGRESSIVE CONTEXT CONFIGURATION ===
     @Value("${query.defaultTemperature:0.3}")
@@ -57,6 +83,27 @@ public class QueryServiceImpl implements QueryService {
     @Value("${query.defaultFetchKBonus:25}")
     private int defaultFetchKBonus;
 
+    @Value("${query.hybrid.enabled:true}")
+    private boolean hybridSearchEnabled;
+
+    @Value("${query.hybrid.fetchKMultiplier:1.0}")
+    private double hybridFetchKMultiplier;
+
+    @Value("${query.hybrid.fetchKBonus:5}")
+    private int hybridFetchKBonus;
+
+    @Value("${query.hybrid.rrfK:60}")
+    private int rrfK;
+
+    @Value("${query.symbolLookup.enabled:true}")
+    private boolean symbolLookupEnabled;
+
+    @Value("${query.symbolLookup.maxSegmentsPerSymbol:4}")
+    private int maxSegmentsPerSymbol;
+
+    @Value("${query.answerCache.defaultEnabled:false}")
+    private boolean answerCacheByDefault;
+
     @Value("${query.contextUtilizationRatio:0.85}")
     private double contextUtilizationRatio;
 
@@ -85,9 +132,125 @@ public class QueryServiceImpl implements QueryService {
     private final OllamaConfig ollamaConfig;
     private final ChromaDBConfig chromaDBConfig;
     private final ReRankerService reRankerService;
+    private final LexicalIndexService lexicalIndexService;
+    private final AnswerCache answerCache;
+    private final TokenCounter tokenCounter;
+    private final ContextConsolidator contextConsolidator;
+    private final SnippetCompressor snippetCompressor;
+    private final ContextPacker contextPacker;
+
+    // LLM futures complete on the HTTP client's I/O thread; saving the answer (a JDBC write when the history
+    // write-behind queue is full, a JPA save for persisted answer caches) must not run there.
+    @Autowired
+    @Qualifier(AsyncConfig.TASK_EXECUTOR_HISTORY)
+    private Executor historyExecutor;
+
+    /**
+     * Request parameters with defaults applied.
+     */
+    private record QueryOptions(double temperature, int maxContextSegments, double minSimilarityScore, boolean useReRanker,
+                                int reRankerTopN, int llmNumPredict, String chatModelName, String rerankerModelName,
+                                boolean useAnswerCache) {
+    }
+
+    /**
+     * LLM answer with the code context it was generated from; {@code cached} if it came from the answer cache.
+     */
+    private record GeneratedAnswer(String answer, List<VectorSearchResult> context, boolean cached) {
+    }
 
     @Override
     public CompletableFuture<QueryResponse> processQuery(QueryRequest queryRequest) {
+        QueryOptions options = resolveOptions(queryRequest);
+        return processQueryInternal(
+            queryRequest.getQuery(),
+            queryRequest.getConversationId(),
+            options.temperature(),
+            options.maxContextSegments(),
+            options.minSimilarityScore(),
+            options.useReRanker(),
+            options.reRankerTopN(),
+            options.llmNumPredict(),
+            options.chatModelName(),
+            options.rerankerModelName(),
+            options.useAnswerCache()
+        );
+    }
+
+    @Override
+    public CompletableFuture<QueryResponse> streamQuery(QueryRequest queryRequest, QueryStreamListener listener) {
+        QueryOptions options = resolveOptions(queryRequest);
+        String query = queryRequest.getQuery();
+        String requestConversationId = queryRequest.getConversationId();
+        String currentRequestConversationId = (requestConversationId == null || requestConversationId.isBlank()) ?
+            UUID.randomUUID().toString() : requestConversationId;
+
+        long startTime = System.currentTimeMillis();
+        log.info("PERF_LOG: Streaming query started for ConvID: {}. Timestamp: {}", currentRequestConversationId, startTime);
+
+        CompletableFuture<QueryResponse> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> generation = new AtomicReference<>();
+        result.whenComplete((response, ex) -> {
+            CompletableFuture<String> running = generation.get();
+            if (result.isCancelled() && running != null) {
+                running.cancel(true);
+            }
+        });
+
+        retrieveContext(query, currentRequestConversationId, options.maxContextSegments(), options.minSimilarityScore(),
+                options.useReRanker(), options.reRankerTopN(), options.rerankerModelName())
+            .thenCompose(historyAndFinalContext -> {
+                List<ChatMessage> history = historyAndFinalContext.getKey();
+                List<VectorSearchResult> codeContext = contextConsolidator.consolidate(historyAndFinalContext.getValue());
+                if (result.isDone()) {
+                    return CompletableFuture.<QueryResponse>failedFuture(new CancellationException("Streaming query cancelled."));
+                }
+                listener.onSources(currentRequestConversationId, extractSourceMetadata(codeContext));
+                log.info("PERF_LOG: Sources sent, starting streamed LLM call for ConvID: {}. Elapsed: {}ms",
+                    currentRequestConversationId, System.currentTimeMillis() - startTime);
+
+                List<ChatMessage> promptMessages = buildMaximumContextPrompt(query, history, codeContext);
+                AnswerCache.Key cacheKey = options.useAnswerCache()
+                    ? answerCacheKey(query, promptMessages, codeContext, options.chatModelName(), options.temperature(), options.llmNumPredict())
+                    : null;
+                Optional<String> cachedAnswer = cacheKey != null ? answerCache.get(cacheKey) : Optional.empty();
+                if (cachedAnswer.isPresent()) {
+                    log.info("PERF_LOG: Answer cache hit for ConvID: {}. Skipping LLM call.", currentRequestConversationId);
+                    listener.onToken(cachedAnswer.get());
+                    QueryResponse response = persistAnswer(currentRequestConversationId, cachedAnswer.get(), codeContext,
+                        options.chatModelName(), options.useReRanker(), options.rerankerModelName());
+                    response.setCached(true);
+                    return CompletableFuture.completedFuture(response);
+                }
+                CompletableFuture<String> llmFuture = llmClient.streamChatCompletionAsync(promptMessages, options.chatModelName(),
+                    options.temperature(), options.llmNumPredict(), listener::onToken);
+                generation.set(llmFuture);
+                if (result.isCancelled()) {
+                    llmFuture.cancel(true);
+                }
+                return llmFuture.thenApplyAsync(answer -> {
+                    if (cacheKey != null) {
+                        answerCache.put(cacheKey, answer, options.chatModelName());
+                    }
+                    return persistAnswer(currentRequestConversationId, answer, codeContext,
+                        options.chatModelName(), options.useReRanker(), options.rerankerModelName());
+                }, historyExecutor);
+            })
+            .whenComplete((response, ex) -> {
+                if (ex == null) {
+                    log.info("PERF_LOG: Streaming query finished for ConvID: {}. Total time: {}ms",
+                        currentRequestConversationId, System.currentTimeMillis() - startTime);
+                    result.complete(response);
+                } else if (!result.isDone()) {
+                    Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+                    log.error("PERF_LOG: Error in streaming query for conversation {}: {}", currentRequestConversationId, cause.getMessage(), cause);
+                    result.completeExceptionally(cause);
+                }
+            });
+        return result;
+    }
+
+    private QueryOptions resolveOptions(QueryRequest queryRequest) {
         String chatModelToUse = StringUtils.hasText(queryRequest.getModelName()) ?
             queryRequest.getModelName() : ollamaConfig.getChatModel();
 
@@ -105,9 +268,7 @@ public class QueryServiceImpl implements QueryService {
         log.info("Processing query with AGGRESSIVE CONTEXT. Chat Model: {}, Reranker: {}, MaxSegments: {}, ReRankTopN: {}",
             chatModelToUse, useReRankerActual ? rerankerModelToUse : "N/A", maxContextSegments, reRankerTopN);
 
-        return processQueryInternal(
-            queryRequest.getQuery(),
-            queryRequest.getConversationId(),
+        return new QueryOptions(
             Optional.ofNullable(queryRequest.getTemperature()).orElse(defaultTemperature),
             maxContextSegments,
             Optional.ofNullable(queryRequest.getMinSimilarityScore()).orElse(defaultMinSimilarityScore),
@@ -115,8 +276,8 @@ public class QueryServiceImpl implements QueryService {
             reRankerTopN,
             Optional.ofNullable(queryRequest.getLlmMaxNewTokens()).orElse(defaultLlmNumPredict),
             chatModelToUse,
-            rerankerModelToUse
-        );
+            rerankerModelToUse,
+            Optional.ofNullable(queryRequest.getUseAnswerCache()).orElse(answerCacheByDefault) && answerCache.isEnabled());
     }
 
     @Deprecated
@@ -124,14 +285,14 @@ public class QueryServiceImpl implements QueryService {
     public CompletableFuture<QueryResponse> processQuery(String query, String conversationId) {
         return processQueryInternal(query, conversationId, defaultTemperature, defaultMaxContextSegments,
             defaultMinSimilarityScore, rerankerEnabled, defaultRerankerTopN, defaultLlmNumPredict,
-            ollamaConfig.getChatModel(), this.defaultRerankerModelName);
+            ollamaConfig.getChatModel(), this.defaultRerankerModelName, answerCacheByDefault && answerCache.isEnabled());
     }
 
     private CompletableFuture<QueryResponse> processQueryInternal(String query, String requestConversationId,
                                                                   double temperature, int maxContextSegments,
                                                                   double minSimilarityScore, boolean useReRankerFlag,
                                                                   int reRankerTopN, int llmNumPredict, String chatModelName,
-                                                                  String rerankerModelName) {
+                                                                  String rerankerModelName, boolean useAnswerCache) {
 
         long startTime = System.currentTimeMillis();
         final String currentRequestConversationId = (requestConversationId == null || requestConversationId.isBlank()) ?
@@ -141,6 +302,70 @@ public class QueryServiceImpl implements QueryService {
         log.info("AGGRESSIVE CONTEXT MODE - ConvID: {}, MaxSeg: {}, MinScore: {}, UseReRanker: {}, TopN: {}",
             currentRequestConversationId, maxContextSegments, minSimilarityScore, useReRankerFlag, reRankerTopN);
 
+        return retrieveContext(query, currentRequestConversationId, maxContextSegments, minSimilarityScore, useReRankerFlag,
+                reRankerTopN, rerankerModelName)
+            .thenCompose(historyAndFinalContext -> {
+                List<ChatMessage> history = historyAndFinalContext.getKey();
+                List<VectorSearchResult> codeContext = contextConsolidator.consolidate(historyAndFinalContext.getValue());
+
+                List<ChatMessage> promptMessages = buildMaximumContextPrompt(query, history, codeContext);
+                log.info("AGGRESSIVE CONTEXT PROMPT: {} messages, {} code segments", promptMessages.size(), codeContext.size());
+
+                AnswerCache.Key cacheKey = useAnswerCache
+                    ? answerCacheKey(query, promptMessages, codeContext, chatModelName, temperature, llmNumPredict) : null;
+                Optional<String> cachedAnswer = cacheKey != null ? answerCache.get(cacheKey) : Optional.empty();
+                if (cachedAnswer.isPresent()) {
+                    log.info("PERF_LOG: Answer cache hit for ConvID: {}. Skipping LLM call.", currentRequestConversationId);
+                    return CompletableFuture.completedFuture(new GeneratedAnswer(cachedAnswer.get(), codeContext, true));
+                }
+
+                log.info("PERF_LOG: Starting LLM call for ConvID: {}. Timestamp: {}", currentRequestConversationId, System.currentTimeMillis());
+                return llmClient.generateChatCompletionAsync(
+                    promptMessages,
+                    chatModelName,
+                    temperature,
+                    llmNumPredict
+                ).thenApplyAsync(llmResponse -> {
+                    log.info("PERF_LOG: LLM call completed for ConvID: {}. Timestamp: {}", currentRequestConversationId, System.currentTimeMillis());
+                    if (cacheKey != null) {
+                        answerCache.put(cacheKey, llmResponse, chatModelName);
+                    }
+                    return new GeneratedAnswer(llmResponse, codeContext, false);
+                }, historyExecutor);
+            })
+            .thenCompose(generated -> {
+                QueryResponse responseDto = persistAnswer(currentRequestConversationId, generated.answer(), generated.context(), chatModelName,
+                    useReRankerFlag, rerankerModelName);
+                responseDto.setCached(generated.cached());
+
+                long endTime = System.currentTimeMillis();
+                log.info("PERF_LOG: Query processing finished for ConvID: {}. Total time: {}ms. Timestamp: {}",
+                    currentRequestConversationId, (endTime - startTime), endTime);
+
+                return CompletableFuture.completedFuture(responseDto);
+            })
+            .exceptionally(ex -> {
+                long errorTime = System.currentTimeMillis();
+                log.error("PERF_LOG: Error processing query for conversation {}. Timestamp: {}", currentRequestConversationId, errorTime, ex);
+                Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+                return QueryResponse.builder()
+                    .answer("Error processing query: " + cause.getMessage())
+                    .conversationId(currentRequestConversationId)
+                    .sources(Collections.emptyList())
+                    .build();
+            });
+    }
+
+    /**
+     * Loads or creates the conversation, records the user message, and retrieves the code context for
+     * the query (vector search, then re-ranking or score-ordered truncation).
+     *
+     * @return The recent conversation history paired with the final code context.
+     */
+    private CompletableFuture<Map.Entry<List<ChatMessage>, List<VectorSearchResult>>> retrieveContext(
+        String query, String currentRequestConversationId, int maxContextSegments, double minSimilarityScore,
+        boolean useReRankerFlag, int reRankerTopN, String rerankerModelName) {
+
         CompletableFuture<Conversation> conversationFuture = CompletableFuture.supplyAsync(() ->
             historyService.getConversation(currentRequestConversationId)
                 .orElseGet(() -> {
@@ -156,14 +381,67 @@ public class QueryServiceImpl implements QueryService {
                     .content(query)
                     .timestamp(LocalDateTime.now())
                     .build();
-                historyService.addMessage(userMessage.getConversationId(), userMessage.getRole(), userMessage.getContent(), userMessage.getMetadata());
+                // Written behind; the history read below still sees it.
+                historyService.enqueueMessage(userMessage.getConversationId(), userMessage.getRole(), userMessage.getContent(),
+                    userMessage.getMetadata());
 
-                CompletableFuture<List<ChatMessage>> historyFuture = CompletableFuture.supplyAsync(() ->
+                // Served from the recent-message cache; only the first read of a conversation queries the database.
+                CompletableFuture<List<ChatMessage>> historyFuture = CompletableFuture.completedFuture(
                     historyService.getRecentMessagesForConversation(conv.getId(), 15) // INCREASED history
                 );
 
+                // Exact identifiers are found by the keyword index, so the vector search can fetch fewer candidates.
+                boolean hybrid = hybridSearchEnabled && lexicalIndexService.size() > 0;
+                double fetchKMultiplier = hybrid ? hybridFetchKMultiplier : defaultFetchKMultiplier;
+                int fetchKBonus = hybrid ? hybridFetchKBonus : defaultFetchKBonus;
+                int initialFetchK;
+                if (useReRankerFlag) {
+                    // When using reranker, fetch MUCH more candidates
+                    initialFetchK = (int) (reRankerTopN * rerankerFetchMultiplier * fetchKMultiplier) + fetchKBonus;
+                    initialFetchK = Math.max(initialFetchK, hybrid ? reRankerTopN : 50); // Vector-only: minimum 50 candidates for reranking
+                    log.info("RERANKER MODE: Fetching {} candidates to rerank down to {} final segments (hybrid: {})",
+                        initialFetchK, reRankerTopN, hybrid);
+                } else {
+                    // Even without reranker, fetch more for better selection
+                    initialFetchK = (int) (maxContextSegments * fetchKMultiplier) + fetchKBonus;
+                    initialFetchK = Math.max(initialFetchK, hybrid ? maxContextSegments : 30); // Vector-only: minimum 30 candidates
+                    log.info("DIRECT MODE: Fetching {} candidates to select {} final segments (hybrid: {})",
+                        initialFetchK, maxContextSegments, hybrid);
+                }
+                int finalInitialFetchK = initialFetchK;
+
+                // Identifiers named in the question are resolved through the symbol index. If all of them are
+                // found, their declarations (plus keyword hits) are the context and no embedding is needed.
+                List<String> identifiers = symbolLookupEnabled ? extractIdentifiers(query) : Collections.emptyList();
+                List<VectorSearchResult> symbolResults = new ArrayList<>();
+                int resolvedIdentifiers = 0;
+                for (String identifier : identifiers) {
+                    List<CodeSegment> declarations = lexicalIndexService.findSymbol(identifier, maxSegmentsPerSymbol);
+                    if (!declarations.isEmpty()) {
+                        resolvedIdentifiers++;
+                        declarations.forEach(segment -> symbolResults.add(new VectorSearchResult(segment, 1.0)));
+                    }
+                }
+                if (!identifiers.isEmpty()) {
+                    log.info("SYMBOL LOOKUP: {} of {} identifiers resolved ({} segments): {}",
+                        resolvedIdentifiers, identifiers.size(), symbolResults.size(), identifiers);
+                }
+                if (!identifiers.isEmpty() && resolvedIdentifiers == identifiers.size()) {
+                    List<VectorSearchResult> keywordResults = hybrid
+                        ? fuseReciprocalRank(Collections.emptyList(), lexicalIndexService.search(query, finalInitialFetchK), finalInitialFetchK, rrfK)
+                        : Collections.emptyList();
+                    List<VectorSearchResult> candidates = prependSymbolResults(symbolResults, keywordResults, finalInitialFetchK);
+                    log.info("SYMBOL LOOKUP: Skipping query embedding and vector search; {} candidates for ConvID: {}",
+                        candidates.size(), currentRequestConversationId);
+                    return historyFuture.thenApply(history -> Map.entry(history, candidates));
+                }
+                int vectorFetchK = Math.max(finalInitialFetchK - symbolResults.size(), maxContextSegments);
+
                 log.info("PERF_LOG: Starting query embedding for ConvID: {}. Timestamp: {}", currentRequestConversationId, System.currentTimeMillis());
-                CompletableFuture<List<Float>> queryEmbeddingFuture = embeddingService.generateEmbeddingAsync(query);
+                CompletableFuture<EmbeddingVector> queryEmbeddingFuture = embeddingService.embedAsync(query);
+                CompletableFuture<List<LexicalSearchResult>> lexicalFuture = hybrid
+                    ? CompletableFuture.supplyAsync(() -> lexicalIndexService.search(query, vectorFetchK))
+                    : CompletableFuture.completedFuture(Collections.emptyList());
 
                 return historyFuture.thenCombine(queryEmbeddingFuture, (history, queryEmbedding) -> {
                     log.info("PERF_LOG: Query embedding completed for ConvID: {}. Timestamp: {}", currentRequestConversationId,
@@ -173,32 +451,23 @@ public class QueryServiceImpl implements QueryService {
                         throw new RuntimeException("Failed to generate query embedding.");
                     }
 
-                    // AGGRESSIVE FETCHING STRATEGY
-                    int initialFetchK;
-                    if (useReRankerFlag) {
-                        // When using reranker, fetch MUCH more candidates
-                        initialFetchK = (int) (reRankerTopN * rerankerFetchMultiplier * defaultFetchKMultiplier) + defaultFetchKBonus;
-                        initialFetchK = Math.max(initialFetchK, 50); // Minimum 50 candidates for reranking
-                        log.info("RERANKER MODE: Fetching {} candidates to rerank down to {} final segments", initialFetchK, reRankerTopN);
-                    } else {
-                        // Even without reranker, fetch more for better selection
-                        initialFetchK = (int) (maxContextSegments * defaultFetchKMultiplier) + defaultFetchKBonus;
-                        initialFetchK = Math.max(initialFetchK, 30); // Minimum 30 candidates
-                        log.info("DIRECT MODE: Fetching {} candidates to select {} final segments", initialFetchK, maxContextSegments);
-                    }
-
-                    int finalInitialFetchK = initialFetchK;
                     log.info("PERF_LOG: Starting vector search for ConvID: {}. Timestamp: {}", currentRequestConversationId, System.currentTimeMillis());
-                    return vectorStoreService.searchSimilarAsync(
+                    return vectorStoreService.searchSimilarVectorsAsync(
                         queryEmbedding,
-                        initialFetchK,
+                        vectorFetchK,
                         minSimilarityScore
-                    ).thenApply(vectorResults -> {
+                    ).thenCombine(lexicalFuture, (vectorResults, lexicalResults) -> {
                         log.info("PERF_LOG: Vector search completed for ConvID: {}. Timestamp: {}", currentRequestConversationId,
                             System.currentTimeMillis());
                         log.info("Vector search returned {} results (requested: {}, min_score: {})",
-                            vectorResults.size(), finalInitialFetchK, minSimilarityScore);
-                        return Map.entry(history, vectorResults);
+                            vectorResults.size(), vectorFetchK, minSimilarityScore);
+                        List<VectorSearchResult> searchResults = vectorResults;
+                        if (hybrid) {
+                            searchResults = fuseReciprocalRank(vectorResults, lexicalResults, vectorFetchK, rrfK);
+                            log.info("HYBRID: Fused {} vector and {} keyword results into {} candidates",
+                                vectorResults.size(), lexicalResults.size(), searchResults.size());
+                        }
+                        return Map.entry(history, prependSymbolResults(symbolResults, searchResults, finalInitialFetchK));
                     });
                 }).thenCompose(Function.identity());
             })
@@ -226,81 +495,139 @@ public class QueryServiceImpl implements QueryService {
                     log.info("NO RERANKING: Selected top {} from {} candidates", finalContext.size(), initialContext.size());
                     return CompletableFuture.completedFuture(Map.entry(history, finalContext));
                 }
-            })
-            .thenCompose(historyAndFinalContext -> {
-                List<ChatMessage> history = historyAndFinalContext.getKey();
-                List<VectorSearchResult> codeContext = historyAndFinalContext.getValue();
-
-                List<ChatMessage> promptMessages = buildMaximumContextPrompt(query, history, codeContext);
+            });
+    }
 
-                if (log.isInfoEnabled()) {
-                    int estimatedTokens = promptMessages.stream()
-                        .mapToInt(msg -> estimateTokens(msg.getContent()))
-                        .sum();
-                    log.info("AGGRESSIVE CONTEXT PROMPT: {} messages, ~{} tokens, {} code segments",
-                        promptMessages.size(), estimatedTokens, codeContext.size());
-                }
+    /**
+     * Finds the code identifiers a question names: every backtick-quoted name, plus unquoted words that
+     * only occur in code (camelCase humps, snake_case, {@code Type#member}, {@code Type.member},
+     * {@code call()}). Plain words are left to vector and keyword search.
+     */
+    static List<String> extractIdentifiers(String query) {
+        Set<String> identifiers = new LinkedHashSet<>();
+        Matcher quoted = BACKTICK_SPAN.matcher(query);
+        while (quoted.find()) {
+            String span = quoted.group(1).trim();
+            if (CODE_IDENTIFIER.matcher(span).matches()) {
+                identifiers.add(span);
+            }
+        }
+        Matcher words = CODE_IDENTIFIER.matcher(query);
+        while (words.find()) {
+            String word = words.group();
+            boolean codeLike = CAMEL_HUMP.matcher(word).find()
+                || word.indexOf('#') >= 0
+                || word.endsWith("()")
+                || word.indexOf('_', 1) > 0 && word.indexOf('_', 1) < word.length() - 1
+                || word.indexOf('.') > 0 && !word.equals(word.toLowerCase());
+            if (codeLike) {
+                identifiers.add(word);
+            }
+        }
+        return identifiers.stream().limit(MAX_SYMBOLS_PER_QUERY).collect(Collectors.toList());
+    }
 
-                log.info("PERF_LOG: Starting LLM call for ConvID: {}. Timestamp: {}", currentRequestConversationId, System.currentTimeMillis());
-                return llmClient.generateChatCompletionAsync(
-                    promptMessages,
-                    chatModelName,
-                    temperature,
-                    llmNumPredict
-                ).thenApply(llmResponse -> {
-                    log.info("PERF_LOG: LLM call completed for ConvID: {}. Timestamp: {}", currentRequestConversationId, System.currentTimeMillis());
-                    return Map.entry(llmResponse, codeContext);
-                });
-            })
-            .thenCompose(responseAndContext -> {
-                String llmResponseContent = responseAndContext.getKey();
-                List<VectorSearchResult> usedContext = responseAndContext.getValue();
+    /**
+     * Puts directly resolved declarations first, followed by search results not already among them.
+     */
+    private static List<VectorSearchResult> prependSymbolResults(List<VectorSearchResult> symbolResults,
+                                                                 List<VectorSearchResult> searchResults, int limit) {
+        if (symbolResults.isEmpty()) {
+            return searchResults;
+        }
+        Map<String, VectorSearchResult> merged = new LinkedHashMap<>();
+        symbolResults.forEach(result -> merged.putIfAbsent(result.getSegment().getId(), result));
+        for (VectorSearchResult result : searchResults) {
+            if (merged.size() >= Math.max(limit, symbolResults.size())) {
+                break;
+            }
+            merged.putIfAbsent(result.getSegment().getId(), result);
+        }
+        return new ArrayList<>(merged.values());
+    }
 
-                ChatMessage assistantMessage = ChatMessage.builder()
-                    .conversationId(currentRequestConversationId)
-                    .role(MessageRole.ASSISTANT)
-                    .content(llmResponseContent)
-                    .timestamp(LocalDateTime.now())
-                    .metadata(Map.of(
-                        "codeReferences", extractSourceMetadata(usedContext),
-                        "chatModelUsed", chatModelName,
-                        "rerankerModelUsed", useReRankerFlag ? rerankerModelName : "N/A",
-                        "contextSegmentsUsed", usedContext.size(),
-                        "aggressiveContextMode", true
-                    ))
-                    .build();
-                historyService.addMessage(assistantMessage.getConversationId(), assistantMessage.getRole(), assistantMessage.getContent(),
-                    assistantMessage.getMetadata());
+    /**
+     * Merges vector and keyword results by reciprocal-rank fusion: each segment scores
+     * {@code sum(1 / (rrfK + rank))} over the lists it appears in (rank starting at 1). Ranks are used
+     * instead of raw scores because cosine similarity and BM25 are not on comparable scales. The
+     * returned score is normalized so that rank 1 in both lists is 1.0. A segment listed twice in the
+     * same list counts once, at its best rank; ties keep vector order, then keyword order.
+     */
+    static List<VectorSearchResult> fuseReciprocalRank(List<VectorSearchResult> vectorResults,
+                                                       List<LexicalSearchResult> lexicalResults, int limit, int rrfK) {
+        Map<String, CodeSegment> segments = new LinkedHashMap<>();
+        Map<String, Double> fusedScores = new LinkedHashMap<>();
+        Set<String> ranked = new HashSet<>();
+        for (int i = 0; i < vectorResults.size(); i++) {
+            CodeSegment segment = vectorResults.get(i).getSegment();
+            if (ranked.add(segment.getId())) {
+                segments.putIfAbsent(segment.getId(), segment);
+                fusedScores.merge(segment.getId(), 1.0 / (rrfK + i + 1), Double::sum);
+            }
+        }
+        ranked.clear();
+        for (int i = 0; i < lexicalResults.size(); i++) {
+            CodeSegment segment = lexicalResults.get(i).getSegment();
+            if (ranked.add(segment.getId())) {
+                segments.putIfAbsent(segment.getId(), segment);
+                fusedScores.merge(segment.getId(), 1.0 / (rrfK + i + 1), Double::sum);
+            }
+        }
+        double maxScore = 2.0 / (rrfK + 1);
+        return fusedScores.entrySet().stream()
+            .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+            .limit(limit)
+            .map(entry -> new VectorSearchResult(segments.get(entry.getKey()), entry.getValue() / maxScore))
+            .collect(Collectors.toList());
+    }
 
-                QueryResponse responseDto = QueryResponse.builder()
-                    .answer(llmResponseContent)
-                    .conversationId(currentRequestConversationId)
-                    .sources(extractSourceMetadata(usedContext))
-                    .build();
+    /**
+     * Stores the assistant's answer with its source references and builds the response DTO.
+     */
+    private QueryResponse persistAnswer(String currentRequestConversationId, String llmResponseContent, List<VectorSearchResult> usedContext,
+                                        String chatModelName, boolean useReRankerFlag, String rerankerModelName) {
+        ChatMessage assistantMessage = ChatMessage.builder()
+            .conversationId(currentRequestConversationId)
+            .role(MessageRole.ASSISTANT)
+            .content(llmResponseContent)
+            .timestamp(LocalDateTime.now())
+            .metadata(Map.of(
+                "codeReferences", extractSourceMetadata(usedContext),
+                "chatModelUsed", chatModelName,
+                "rerankerModelUsed", useReRankerFlag ? rerankerModelName : "N/A",
+                "contextSegmentsUsed", usedContext.size(),
+                "aggressiveContextMode", true
+            ))
+            .build();
+        historyService.enqueueMessage(assistantMessage.getConversationId(), assistantMessage.getRole(), assistantMessage.getContent(),
+            assistantMessage.getMetadata());
 
-                long endTime = System.currentTimeMillis();
-                log.info("PERF_LOG: Query processing finished for ConvID: {}. Total time: {}ms. Timestamp: {}",
-                    currentRequestConversationId, (endTime - startTime), endTime);
+        return QueryResponse.builder()
+            .answer(llmResponseContent)
+            .conversationId(currentRequestConversationId)
+            .sources(extractSourceMetadata(usedContext))
+            .build();
+    }
 
-                return CompletableFuture.completedFuture(responseDto);
-            })
-            .exceptionally(ex -> {
-                long errorTime = System.currentTimeMillis();
-                log.error("PERF_LOG: Error processing query for conversation {}. Timestamp: {}", currentRequestConversationId, errorTime, ex);
-                Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
-                return QueryResponse.builder()
-                    .answer("Error processing query: " + cause.getMessage())
-                    .conversationId(currentRequestConversationId)
-                    .sources(Collections.emptyList())
-                    .build();
-            });
+    /**
+     * Answer cache key of a prompt. The earlier questions come from the prompt itself, so only history
+     * that actually reached the model takes part in the key.
+     */
+    private AnswerCache.Key answerCacheKey(String query, List<ChatMessage> promptMessages, List<VectorSearchResult> codeContext,
+                                           String chatModelName, double temperature, int llmNumPredict) {
+        List<CodeSegment> contextSegments = codeContext.stream()
+            .map(VectorSearchResult::getSegment)
+            .filter(segment -> segment != null)
+            .collect(Collectors.toList());
+        List<String> priorQuestions = promptMessages.subList(0, promptMessages.size() - 1).stream()
+            .filter(message -> message.getRole() == MessageRole.USER)
+            .map(ChatMessage::getContent)
+            .collect(Collectors.toList());
+        return answerCache.key(query, contextSegments, priorQuestions, chatModelName, temperature, llmNumPredict);
     }
 
-    private int estimateTokens(String text) {
-        if (text == null || text.isEmpty()) {
-            return 0;
-        }
-        return (int) (text.length() / 3.5);
+    private int countTokens(String text) {
+        return tokenCounter.countTokens(text);
     }
 
     private List<ChatMessage> buildMaximumContextPrompt(String currentQuery, List<ChatMessage> history, List<VectorSearchResult> codeContext) {
@@ -337,66 +664,66 @@ public class QueryServiceImpl implements QueryService {
             .content(systemPromptContent)
             .build();
         finalPromptMessages.add(systemMessage);
-        currentTokenCount += estimateTokens(systemMessage.getContent());
+        int systemTokens = countTokens(systemMessage.getContent());
+        currentTokenCount += systemTokens;
 
         ChatMessage userQueryMessage = ChatMessage.builder().role(MessageRole.USER).content(currentQuery).build();
-        int userQueryTokens = estimateTokens(userQueryMessage.getContent());
+        int userQueryTokens = countTokens(userQueryMessage.getContent());
         int reservedTokens = currentTokenCount + userQueryTokens;
 
         // ===== MAXIMUM CODE CONTEXT PACKING =====
+        // Segment contents are counted at index time (TokenCounter.METADATA_TOKEN_COUNT) and re-counted by the
+        // compressor when it rewrites them; only the short per-snippet headers and fences are tokenized here.
         List<ChatMessage> contextMessages = new ArrayList<>();
+        int contextMessageTokens = 0;
         if (codeContext != null && !codeContext.isEmpty()) {
+            // Only the prompt sees compressed snippets; the sources returned with the answer keep the original code.
+            List<VectorSearchResult> promptContext = snippetCompressor.compress(codeContext);
             StringBuilder contextStr = new StringBuilder();
             contextStr.append("=== COMPREHENSIVE CODE CONTEXT ===\n");
             contextStr.append("Analyze this extensive code context to provide detailed answers:\n\n");
-
-            int contextTokensUsed = 0;
-            int segmentsIncluded = 0;
-
-            for (int i = 0; i < codeContext.size(); i++) {
-                VectorSearchResult result = codeContext.get(i);
+            int frameTokens = countTokens(contextStr.toString());
+            int fenceTokens = countTokens("```java\n") + countTokens("\n```\n\n");
+
+            // Headers are sized with the candidate's retrieval rank, which is never smaller than the
+            // number it gets once packed.
+            List<ContextPacker.Candidate> candidates = new ArrayList<>();
+            for (int i = 0; i < promptContext.size(); i++) {
+                VectorSearchResult result = promptContext.get(i);
                 CodeSegment segment = result.getSegment();
                 if (segment == null) {
                     continue;
                 }
+                int contentTokens = segment.getContent() != null
+                    ? tokenCounter.countSegmentTokens(segment) : countTokens("// Content not available");
+                int snippetTokens = countTokens(snippetHeader(i + 1, result)) + contentTokens + fenceTokens;
+                candidates.add(new ContextPacker.Candidate(result, snippetTokens));
+            }
 
-                StringBuilder snippetBuilder = new StringBuilder();
-                snippetBuilder.append("### Code Segment ").append(i + 1).append(" ###\n");
-                snippetBuilder.append("📁 File: ").append(segment.getRelativeFilePath()).append("\n");
-
-                String fqn = (segment.getMetadata() != null) ? (String) segment.getMetadata().get("fqn") : null;
-                if (fqn != null && !fqn.isEmpty()) {
-                    snippetBuilder.append("🏷️  FQN: ").append(fqn).append("\n");
-                }
-
-                snippetBuilder.append("📍 Lines: ").append(segment.getStartLine()).append("-").append(segment.getEndLine()).append("\n");
-                snippetBuilder.append("⭐ Score: ").append(String.format("%.3f", result.getScore())).append("\n");
-                snippetBuilder.append("```java\n").append(segment.getContent() != null ? segment.getContent().trim() : "// Content not available")
+            PackedContext packed = contextPacker.pack(candidates, maxContextTokens - reservedTokens);
+            int contextTokensUsed = packed.usedTokens();
+            int segmentsIncluded = packed.selected().size();
+            for (int i = 0; i < packed.selected().size(); i++) {
+                VectorSearchResult result = packed.selected().get(i).result();
+                CodeSegment segment = result.getSegment();
+                contextStr.append(snippetHeader(i + 1, result));
+                contextStr.append("```java\n").append(segment.getContent() != null ? segment.getContent().trim() : "// Content not available")
                     .append("\n```\n\n");
-
-                int snippetTokens = estimateTokens(snippetBuilder.toString());
-
-                // Check if we can fit this snippet
-                if (reservedTokens + contextTokensUsed + snippetTokens <= maxContextTokens) {
-                    contextStr.append(snippetBuilder);
-                    contextTokensUsed += snippetTokens;
-                    segmentsIncluded++;
-                } else {
-                    log.info("CONTEXT LIMIT: Included {} of {} segments ({} tokens). Segment {} would exceed limit.",
-                        segmentsIncluded, codeContext.size(), contextTokensUsed, i + 1);
-                    break;
-                }
             }
+            log.info("CONTEXT PACKING ({}): Included {} of {} segments, {} of {} tokens ({}% utilization)",
+                packed.strategy(), segmentsIncluded, candidates.size(), contextTokensUsed, packed.tokenBudget(),
+                Math.round(packed.utilization() * 100));
 
-            contextStr.append("=== END CODE CONTEXT ===\n");
-            contextStr.append(String.format("📊 Context Summary: %d code segments included, ~%d tokens used\n",
-                segmentsIncluded, contextTokensUsed));
+            String summary = "=== END CODE CONTEXT ===\n" + String.format("📊 Context Summary: %d code segments included, ~%d tokens used\n",
+                segmentsIncluded, contextTokensUsed);
+            contextStr.append(summary);
 
             if (contextTokensUsed > 0) {
                 contextMessages.add(ChatMessage.builder()
                     .role(MessageRole.SYSTEM)
                     .content(contextStr.toString())
                     .build());
+                contextMessageTokens = frameTokens + contextTokensUsed + countTokens(summary);
                 log.info("PACKED CONTEXT: {} segments, {} tokens ({}% of available context space)",
                     segmentsIncluded, contextTokensUsed,
                     Math.round((double) contextTokensUsed / maxContextTokens * 100));
@@ -404,7 +731,7 @@ public class QueryServiceImpl implements QueryService {
         }
 
         // ===== MINIMAL HISTORY PROCESSING (CODE CONTEXT PRIORITY) =====
-        int usedTokens = reservedTokens + contextMessages.stream().mapToInt(m -> estimateTokens(m.getContent())).sum();
+        int usedTokens = reservedTokens + contextMessageTokens;
         int remainingTokens = maxTokens - usedTokens;
 
         // STRICT: Only use 200-300 tokens max for history, prioritize code context
@@ -414,6 +741,7 @@ public class QueryServiceImpl implements QueryService {
             usedTokens, remainingTokens, historyTokenBudget);
 
         List<ChatMessage> historyToAdd = new ArrayList<>();
+        int historyTokens = 0;
 
         if (history != null && !history.isEmpty() && historyTokenBudget > 50) {
             // Filter out the current user message
@@ -434,7 +762,7 @@ public class QueryServiceImpl implements QueryService {
             int historyTokensUsed = 0;
 
             for (ChatMessage userMsg : recentUserQuestions) {
-                int userMsgTokens = estimateTokens(userMsg.getContent());
+                int userMsgTokens = countTokens(userMsg.getContent());
 
                 if (historyTokensUsed + userMsgTokens <= historyTokenBudget) {
                     historyToAdd.add(userMsg);
@@ -449,6 +777,7 @@ public class QueryServiceImpl implements QueryService {
 
             // Sort chronologically
             historyToAdd.sort(Comparator.comparing(ChatMessage::getTimestamp));
+            historyTokens = historyTokensUsed;
 
             log.info("HISTORY_DEBUG: MINIMAL RESULT - Added {} user questions using {} tokens (budget: {})",
                 historyToAdd.size(), historyTokensUsed, historyTokenBudget);
@@ -462,9 +791,7 @@ public class QueryServiceImpl implements QueryService {
         finalPromptMessages.add(userQueryMessage);
 
         // Final token count and logging
-        int finalTokenCount = finalPromptMessages.stream()
-            .mapToInt(msg -> estimateTokens(msg.getContent()))
-            .sum();
+        int finalTokenCount = systemTokens + historyTokens + contextMessageTokens + userQueryTokens;
 
         log.info("FINAL PROMPT: {} messages, {} tokens ({}% of limit), {} code segments, {} history messages",
             finalPromptMessages.size(), finalTokenCount,
@@ -473,15 +800,28 @@ public class QueryServiceImpl implements QueryService {
             historyToAdd.size());
 
         // ===== DETAILED PROMPT BREAKDOWN =====
-        int historyTokens = historyToAdd.stream().mapToInt(m -> estimateTokens(m.getContent())).sum();
-        int contextTokens = contextMessages.stream().mapToInt(m -> estimateTokens(m.getContent())).sum();
-
-        log.info("PROMPT_BREAKDOWN: System={} tokens, History={} tokens, Context={} tokens, User={} tokens",
-            estimateTokens(systemMessage.getContent()), historyTokens, contextTokens, userQueryTokens);
+        log.info("PROMPT_BREAKDOWN: System={} tokens, History={} tokens, Context={} tokens, User={} tokens (tokenizer: {})",
+            systemTokens, historyTokens, contextMessageTokens, userQueryTokens, tokenCounter.name());
 
         return finalPromptMessages;
     }
 
+    private static String snippetHeader(int number, VectorSearchResult result) {
+        CodeSegment segment = result.getSegment();
+        StringBuilder header = new StringBuilder();
+        header.append("### Code Segment ").append(number).append(" ###\n");
+        header.append("📁 File: ").append(segment.getRelativeFilePath()).append("\n");
+
+        String fqn = (segment.getMetadata() != null) ? (String) segment.getMetadata().get("fqn") : null;
+        if (fqn != null && !fqn.isEmpty()) {
+            header.append("🏷️  FQN: ").append(fqn).append("\n");
+        }
+
+        header.append("📍 Lines: ").append(segment.getStartLine()).append("-").append(segment.getEndLine()).append("\n");
+        header.append("⭐ Score: ").append(String.format("%.3f", result.getScore())).append("\n");
+        return header.toString();
+    }
+
     private List<QueryResponse.SourceReference> extractSourceMetadata(List<VectorSearchResult> results) {
         if (results == null) {
             return Collections.emptyList();
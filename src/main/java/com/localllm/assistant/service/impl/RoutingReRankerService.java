@@ -0,0 +1,60 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.rerank.ReRankOutcome;
+import com.localllm.assistant.service.ReRankerService;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ReRankerService} that picks the implementation per request from the reranker model name:
+ * the reserved name {@code reranker.local.modelName} selects the in-process {@link LocalReRankerServiceImpl},
+ * any other name the LLM re-ranker ({@link OllamaReRankerServiceImpl} when {@code reranker.enabled=true},
+ * otherwise {@link NoOpReRankerServiceImpl}). It sits behind the {@link CachingReRankerService}.
+ */
+@Service
+public class RoutingReRankerService implements ReRankerService {
+
+    private final LocalReRankerServiceImpl localReRanker;
+    private final ObjectProvider<OllamaReRankerServiceImpl> llmReRanker;
+    private final ObjectProvider<NoOpReRankerServiceImpl> noOpReRanker;
+    private final String localModelName;
+
+    public RoutingReRankerService(LocalReRankerServiceImpl localReRanker,
+                                  ObjectProvider<OllamaReRankerServiceImpl> llmReRanker,
+                                  ObjectProvider<NoOpReRankerServiceImpl> noOpReRanker,
+                                  @Value("${reranker.local.modelName:local}") String localModelName) {
+        this.localReRanker = localReRanker;
+        this.llmReRanker = llmReRanker;
+        this.noOpReRanker = noOpReRanker;
+        this.localModelName = localModelName;
+    }
+
+    @Override
+    public CompletableFuture<List<VectorSearchResult>> reRankAsync(String query, List<VectorSearchResult> initialResults,
+                                                                    int topN, String rerankerModelName) {
+        return select(rerankerModelName).reRankAsync(query, initialResults, topN, rerankerModelName);
+    }
+
+    @Override
+    public CompletableFuture<ReRankOutcome> reRankWithOutcomeAsync(String query, List<VectorSearchResult> initialResults,
+                                                                   int topN, String rerankerModelName) {
+        return select(rerankerModelName).reRankWithOutcomeAsync(query, initialResults, topN, rerankerModelName);
+    }
+
+    private ReRankerService select(String rerankerModelName) {
+        if (localModelName.equalsIgnoreCase(rerankerModelName != null ? rerankerModelName.trim() : "")) {
+            return localReRanker;
+        }
+        OllamaReRankerServiceImpl llm = llmReRanker.getIfAvailable();
+        if (llm != null) {
+            return llm;
+        }
+        ReRankerService noOp = noOpReRanker.getIfAvailable();
+        return noOp != null ? noOp : localReRanker;
+    }
+}
@@ -3,8 +3,10 @@ package com.localllm.assistant.service.impl;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -12,15 +14,21 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import com.localllm.assistant.config.AsyncConfig;
 import com.localllm.assistant.config.ChromaDBConfig;
 import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.lexical.LexicalIndexService;
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.manifest.model.FileFingerprint;
 import com.localllm.assistant.parser.ParserService;
 import com.localllm.assistant.parser.model.CodeSegment;
 import com.localllm.assistant.service.FileMonitorService;
+import com.localllm.assistant.service.IndexManifestService;
 import com.localllm.assistant.service.UpdateService;
 import com.localllm.assistant.vectorstore.VectorStoreClient;
 import com.localllm.assistant.vectorstore.model.VectorEntry;
@@ -48,6 +56,9 @@ public class UpdateServiceImpl implements UpdateService {
     private final EmbeddingService embeddingService;
     private final VectorStoreClient vectorStoreClient;
     private final ChromaDBConfig chromaDBConfig;
+    private final IndexManifestService indexManifestService;
+    private final LexicalIndexService lexicalIndexService;
+    private final IndexGeneration indexGeneration;
     
     // Use Field Injection with @Lazy to break the cycle
     @Autowired
@@ -110,34 +121,47 @@ public class UpdateServiceImpl implements UpdateService {
             case MODIFY:
                 if (!Files.exists(filePath)) {
                     log.warn("File {} reported as {} but does not exist during debounced processing. Treating as DELETE.", filePath, changeType);
-                    return handleFileDelete(collectionName, relativePath);
+                    return handleFileDelete(collectionName, relativePath)
+                            .thenRun(() -> indexManifestService.removeFile(collectionName, filePath));
                 }
                 log.debug("Processing CREATE/MODIFY for {}", relativePath);
-                return parserService.parseFileAsync(filePath, basePath)
-                        .thenCompose(segments -> {
+                // Taken before parsing, so an edit made while this update runs is picked up by the next scan.
+                FileFingerprint fingerprint = FileFingerprint.capture(filePath);
+                return storedSegmentIds(collectionName, indexManifestService.getSegmentIds(collectionName, filePath))
+                        .thenCombine(parserService.parseFileAsync(filePath, basePath), (previousIds, segments) -> {
                             if (segments == null || segments.isEmpty()) {
                                 log.info("No segments parsed from {}. Deleting existing entries for this file.", relativePath);
-                                return handleFileDelete(collectionName, relativePath);
+                                return handleFileDelete(collectionName, relativePath)
+                                        .thenRun(() -> indexManifestService.recordIndexedFile(basePath, collectionName, filePath, fingerprint, List.of()));
                             }
-                            return embeddingService.generateEmbeddingsAsync(segments)
-                                    .thenCompose(embeddings -> {
-                                        if (embeddings == null || embeddings.size() != segments.size()) {
-                                            log.error("Mismatch between segments ({}) and embeddings ({}) count for {}. Aborting upsert.",
-                                                    segments.size(), embeddings != null ? embeddings.size() : "null", relativePath);
-                                            throw new RuntimeException("Embedding count mismatch during update");
-                                        }
-                                        List<VectorEntry> entries = mapSegmentsToEntries(segments, embeddings);
-                                        if (entries.isEmpty()) {
-                                             log.warn("No valid embeddings generated for segments in {}. Nothing to upsert.", relativePath);
-                                             return CompletableFuture.completedFuture(null);
-                                        }
-                                        log.debug("Upserting {} entries for {}", entries.size(), relativePath);
-                                        // Delete existing before upserting might be safer for MODIFY
-                                        // return handleFileDelete(collectionName, relativePath)
-                                        //        .thenCompose(v -> vectorStoreClient.upsertEmbeddingsAsync(collectionName, entries));
-                                        return vectorStoreClient.upsertEmbeddingsAsync(collectionName, entries);
-                                    });
+                            List<String> currentIds = segments.stream().map(CodeSegment::getId).collect(Collectors.toList());
+                            // Segment IDs embed a content checksum, so an ID we already stored needs no new embedding.
+                            List<CodeSegment> segmentsToEmbed = segments.stream()
+                                    .filter(segment -> segment.getId() == null || !previousIds.contains(segment.getId()))
+                                    .collect(Collectors.toList());
+                            Set<String> staleIds = new HashSet<>(previousIds);
+                            currentIds.forEach(staleIds::remove);
+                            log.debug("{}: {} segments parsed, {} to embed, {} stale", relativePath, segments.size(), segmentsToEmbed.size(), staleIds.size());
+                            return embedAndUpsert(segmentsToEmbed, collectionName, relativePath)
+                                    .thenCompose(failedIds -> (staleIds.isEmpty()
+                                            ? CompletableFuture.<Void>completedFuture(null)
+                                            : vectorStoreClient.deleteEmbeddingsByIdsAsync(collectionName, List.copyOf(staleIds)))
+                                            .thenRun(() -> {
+                                                lexicalIndexService.indexFile(relativePath, segments);
+                                                if (failedIds.isEmpty()) {
+                                                    indexManifestService.recordIndexedFile(basePath, collectionName, filePath, fingerprint, currentIds);
+                                                } else {
+                                                    log.warn("{} segments of {} were not stored. Marking the file for re-processing.",
+                                                            failedIds.size(), relativePath);
+                                                    List<String> storedIds = currentIds.stream()
+                                                            .filter(id -> !failedIds.contains(id))
+                                                            .collect(Collectors.toList());
+                                                    indexManifestService.recordIncompleteFile(basePath, collectionName, filePath, storedIds);
+                                                }
+                                                indexGeneration.bump();
+                                            }));
                         })
+                        .thenCompose(Function.identity())
                         .exceptionally(ex -> {
                             log.error("Failed to process CREATE/MODIFY update for {}: {}", relativePath, ex.getMessage(), ex);
                             return null;
@@ -145,7 +169,8 @@ public class UpdateServiceImpl implements UpdateService {
 
             case DELETE:
                 log.debug("Processing DELETE for {}", relativePath);
-                return handleFileDelete(collectionName, relativePath);
+                return handleFileDelete(collectionName, relativePath)
+                        .thenRun(() -> indexManifestService.removeFile(collectionName, filePath));
 
             default:
                 log.warn("Unhandled change type: {}", changeType);
@@ -153,17 +178,68 @@ public class UpdateServiceImpl implements UpdateService {
         }
     }
 
+    /**
+     * The segment IDs recorded for a file that the vector store still holds. Entries it lost (the embedded
+     * store after a crash) must be embedded again rather than reused.
+     */
+    private CompletableFuture<Set<String>> storedSegmentIds(String collectionName, Set<String> recordedIds) {
+        if (recordedIds.isEmpty()) {
+            return CompletableFuture.completedFuture(recordedIds);
+        }
+        return vectorStoreClient.findMissingIdsAsync(collectionName, recordedIds)
+                .thenApply(missing -> {
+                    if (missing.isEmpty()) {
+                        return recordedIds;
+                    }
+                    log.warn("{} recorded segments are missing from collection '{}'. Embedding them again.", missing.size(), collectionName);
+                    Set<String> stored = new HashSet<>(recordedIds);
+                    stored.removeAll(missing);
+                    return stored;
+                });
+    }
+
+    /**
+     * Embeds and upserts the segments. Completes with the IDs of the segments that got no embedding and were not stored.
+     */
+    private CompletableFuture<Set<String>> embedAndUpsert(List<CodeSegment> segments, String collectionName, String relativePath) {
+        if (segments.isEmpty()) {
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        return embeddingService.embedSegmentsAsync(segments)
+                .thenCompose(embeddings -> {
+                    if (embeddings == null || embeddings.size() != segments.size()) {
+                        log.error("Mismatch between segments ({}) and embeddings ({}) count for {}. Aborting upsert.",
+                                segments.size(), embeddings != null ? embeddings.size() : "null", relativePath);
+                        throw new RuntimeException("Embedding count mismatch during update");
+                    }
+                    List<VectorEntry> entries = mapSegmentsToEntries(segments, embeddings);
+                    Set<String> upsertedIds = entries.stream().map(VectorEntry::getId).collect(Collectors.toSet());
+                    Set<String> failedIds = segments.stream()
+                            .map(CodeSegment::getId)
+                            .filter(id -> id != null && !upsertedIds.contains(id))
+                            .collect(Collectors.toSet());
+                    if (entries.isEmpty()) {
+                         log.warn("No valid embeddings generated for segments in {}. Nothing to upsert.", relativePath);
+                         return CompletableFuture.completedFuture(failedIds);
+                    }
+                    log.debug("Upserting {} entries for {}", entries.size(), relativePath);
+                    return vectorStoreClient.upsertEmbeddingsAsync(collectionName, entries).thenApply(v -> failedIds);
+                });
+    }
+
     private CompletableFuture<Void> handleFileDelete(String collectionName, String relativePath) {
+        lexicalIndexService.removeFile(relativePath);
         Map<String, Object> filter = Map.of("relativeFilePath", relativePath);
         log.info("Deleting entries for file '{}' from collection '{}'", relativePath, collectionName);
         return vectorStoreClient.deleteEmbeddingsByMetadataAsync(collectionName, filter)
                 .exceptionally(ex -> {
                     log.error("Failed to delete embeddings for {}: {}", relativePath, ex.getMessage(), ex);
                     return null;
-                });
+                })
+                .thenRun(indexGeneration::bump);
     }
 
-    private List<VectorEntry> mapSegmentsToEntries(List<CodeSegment> segments, List<List<Float>> embeddings) {
+    private List<VectorEntry> mapSegmentsToEntries(List<CodeSegment> segments, List<EmbeddingVector> embeddings) {
         return IntStream.range(0, segments.size())
                 .filter(i -> segments.get(i) != null && segments.get(i).getId() != null &&
                              embeddings.get(i) != null && !embeddings.get(i).isEmpty())
@@ -172,7 +248,7 @@ public class UpdateServiceImpl implements UpdateService {
                     Map<String, Object> metadata = createMetadataMap(segment);
                     return VectorEntry.builder()
                             .id(segment.getId())
-                            .embedding(embeddings.get(i))
+                            .vector(embeddings.get(i))
                             .metadata(metadata)
                             .document(segment.getContent())
                             .build();
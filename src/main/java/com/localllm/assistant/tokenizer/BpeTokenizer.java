@@ -0,0 +1,250 @@
+package com.localllm.assistant.tokenizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Local BPE token counter loaded from a Hugging Face {@code tokenizer.json} (the file shipped with
+ * the chat model's weights).
+ * <p>
+ * Two families are supported:
+ * <ul>
+ *   <li>byte-level BPE (GPT-2, Llama 3, Qwen, StarCoder): text is split by the pre-tokenizer regex,
+ *       each word's UTF-8 bytes are mapped to printable characters and merged;</li>
+ *   <li>SentencePiece-style BPE (Llama 2, Mistral, CodeLlama): spaces become {@code ▁}, words are merged
+ *       from code points, and pieces missing from the vocabulary count as one token per byte.</li>
+ * </ul>
+ * Only counts are produced; token ids and special tokens are not needed for prompt budgeting. Counts
+ * of frequent short words are memoized, since code repeats the same identifiers and punctuation.
+ */
+public class BpeTokenizer implements TokenCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(BpeTokenizer.class);
+    static final String GPT2_PATTERN = "'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+";
+    private static final String SPACE_MARKER = "▁";
+    private static final Pattern METASPACE_WORD = Pattern.compile(SPACE_MARKER + "[^" + SPACE_MARKER + "]*|[^" + SPACE_MARKER + "]+");
+    private static final char MERGE_SEPARATOR = '\u0000';
+    private static final char[] BYTE_TO_UNICODE = byteToUnicode();
+    private static final int MAX_CACHED_WORD_LENGTH = 64;
+    private static final int MAX_CACHED_WORDS = 200_000;
+
+    enum Mode { BYTE_LEVEL, METASPACE }
+
+    private final String name;
+    private final Mode mode;
+    private final Pattern preTokenizer;
+    private final Map<String, Integer> mergeRanks;
+    private final Set<String> vocabulary;
+    private final Map<String, Integer> wordCache = new ConcurrentHashMap<>();
+
+    BpeTokenizer(String name, Mode mode, Pattern preTokenizer, Map<String, Integer> mergeRanks, Set<String> vocabulary) {
+        this.name = name;
+        this.mode = mode;
+        this.preTokenizer = preTokenizer;
+        this.mergeRanks = mergeRanks;
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Loads a {@code tokenizer.json}. The counter's name includes a hash of the file, so segment counts
+     * stored with another vocabulary are recomputed instead of reused.
+     */
+    public static BpeTokenizer load(Path tokenizerJson) throws IOException {
+        byte[] bytes = Files.readAllBytes(tokenizerJson);
+        JsonNode root = new ObjectMapper().readTree(bytes);
+        JsonNode model = root.path("model");
+        if (!"BPE".equals(model.path("type").asText("BPE"))) {
+            throw new IOException("Unsupported tokenizer model type '" + model.path("type").asText() + "' in " + tokenizerJson);
+        }
+
+        Map<String, Integer> mergeRanks = new HashMap<>();
+        JsonNode merges = model.path("merges");
+        for (int rank = 0; rank < merges.size(); rank++) {
+            JsonNode merge = merges.get(rank);
+            String left;
+            String right;
+            if (merge.isArray() && merge.size() == 2) {
+                left = merge.get(0).asText();
+                right = merge.get(1).asText();
+            } else {
+                String text = merge.asText();
+                int space = text.indexOf(' ', 1);
+                if (space < 0) {
+                    continue;
+                }
+                left = text.substring(0, space);
+                right = text.substring(space + 1);
+            }
+            mergeRanks.putIfAbsent(left + MERGE_SEPARATOR + right, rank);
+        }
+        if (mergeRanks.isEmpty()) {
+            throw new IOException("Tokenizer file has no BPE merges: " + tokenizerJson);
+        }
+
+        Set<String> vocabulary = new HashSet<>();
+        model.path("vocab").fieldNames().forEachRemaining(vocabulary::add);
+
+        String preTokenizerJson = root.path("pre_tokenizer").toString();
+        String normalizerJson = root.path("normalizer").toString();
+        boolean metaspace = model.path("byte_fallback").asBoolean(false)
+            || preTokenizerJson.contains("Metaspace") || normalizerJson.contains(SPACE_MARKER);
+        Mode mode = metaspace ? Mode.METASPACE : Mode.BYTE_LEVEL;
+
+        Pattern preTokenizer = Pattern.compile(GPT2_PATTERN);
+        List<JsonNode> regexes = root.path("pre_tokenizer").findValues("Regex");
+        if (mode == Mode.BYTE_LEVEL && !regexes.isEmpty()) {
+            try {
+                preTokenizer = Pattern.compile(regexes.get(0).asText());
+            } catch (PatternSyntaxException e) {
+                log.warn("Pre-tokenizer regex in {} is not supported by java.util.regex, using the GPT-2 pattern: {}",
+                    tokenizerJson, e.getDescription());
+            }
+        }
+
+        String name = "bpe:" + tokenizerJson.getFileName() + ":" + sha256Prefix(bytes);
+        log.info("Loaded {} BPE tokenizer from {}: {} merges, {} vocabulary entries ({}).",
+            mode, tokenizerJson, mergeRanks.size(), vocabulary.size(), name);
+        return new BpeTokenizer(name, mode, preTokenizer, mergeRanks, vocabulary);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        if (mode == Mode.BYTE_LEVEL) {
+            Matcher words = preTokenizer.matcher(text);
+            while (words.find()) {
+                count += countWord(toByteLevel(words.group()));
+            }
+        } else {
+            Matcher words = METASPACE_WORD.matcher(SPACE_MARKER + text.replace(" ", SPACE_MARKER));
+            while (words.find()) {
+                count += countWord(words.group());
+            }
+        }
+        return count;
+    }
+
+    private int countWord(String word) {
+        if (word.length() > MAX_CACHED_WORD_LENGTH) {
+            return mergeAndCount(word);
+        }
+        Integer cached = wordCache.get(word);
+        if (cached != null) {
+            return cached;
+        }
+        int count = mergeAndCount(word);
+        if (wordCache.size() >= MAX_CACHED_WORDS) {
+            wordCache.clear();
+        }
+        wordCache.put(word, count);
+        return count;
+    }
+
+    /**
+     * Applies merges in rank order, each time merging every occurrence of the best-ranked adjacent pair,
+     * until no adjacent pair has a merge.
+     */
+    private int mergeAndCount(String word) {
+        List<String> parts = new ArrayList<>(word.length());
+        word.codePoints().forEach(cp -> parts.add(new String(Character.toChars(cp))));
+
+        List<String> current = parts;
+        while (current.size() > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < current.size() - 1; i++) {
+                Integer rank = mergeRanks.get(current.get(i) + MERGE_SEPARATOR + current.get(i + 1));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            String left = current.get(bestIndex);
+            String right = current.get(bestIndex + 1);
+            List<String> merged = new ArrayList<>(current.size() - 1);
+            int i = 0;
+            while (i < current.size()) {
+                if (i < current.size() - 1 && current.get(i).equals(left) && current.get(i + 1).equals(right)) {
+                    merged.add(left + right);
+                    i += 2;
+                } else {
+                    merged.add(current.get(i));
+                    i++;
+                }
+            }
+            current = merged;
+        }
+
+        if (mode == Mode.BYTE_LEVEL || vocabulary.isEmpty()) {
+            return current.size();
+        }
+        int count = 0;
+        for (String piece : current) {
+            count += vocabulary.contains(piece) ? 1 : piece.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return count;
+    }
+
+    private static String toByteLevel(String word) {
+        byte[] utf8 = word.getBytes(StandardCharsets.UTF_8);
+        char[] mapped = new char[utf8.length];
+        for (int i = 0; i < utf8.length; i++) {
+            mapped[i] = BYTE_TO_UNICODE[utf8[i] & 0xFF];
+        }
+        return new String(mapped);
+    }
+
+    /**
+     * GPT-2's reversible byte-to-character table: printable Latin-1 bytes map to themselves, the rest
+     * to code points from 256 upwards.
+     */
+    private static char[] byteToUnicode() {
+        char[] table = new char[256];
+        int next = 256;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = (b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF);
+            table[b] = printable ? (char) b : (char) next++;
+        }
+        return table;
+    }
+
+    private static String sha256Prefix(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(hash).substring(0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
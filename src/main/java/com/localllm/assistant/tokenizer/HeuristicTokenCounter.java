@@ -0,0 +1,29 @@
+package com.localllm.assistant.tokenizer;
+
+/**
+ * Character-ratio estimate, used when no tokenizer vocabulary is configured.
+ */
+public class HeuristicTokenCounter implements TokenCounter {
+
+    private final double charsPerToken;
+
+    public HeuristicTokenCounter(double charsPerToken) {
+        if (charsPerToken <= 0) {
+            throw new IllegalArgumentException("charsPerToken must be positive");
+        }
+        this.charsPerToken = charsPerToken;
+    }
+
+    @Override
+    public String name() {
+        return "chars/" + charsPerToken;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (int) Math.ceil(text.length() / charsPerToken);
+    }
+}
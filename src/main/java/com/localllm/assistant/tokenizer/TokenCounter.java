@@ -0,0 +1,38 @@
+package com.localllm.assistant.tokenizer;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+
+import java.util.Map;
+
+/**
+ * Counts prompt tokens the way the chat model's tokenizer would.
+ * <p>
+ * Segment counts are computed once by the parser and stored in the segment metadata under
+ * {@link #METADATA_TOKEN_COUNT}, together with the {@link #name()} of the counter that produced them,
+ * so prompt assembly does not have to re-tokenize retrieved code.
+ */
+public interface TokenCounter {
+
+    String METADATA_TOKEN_COUNT = "tokenCount";
+    String METADATA_TOKENIZER = "tokenizer";
+
+    /**
+     * Identifies the vocabulary; stored counts from a different counter are not reused.
+     */
+    String name();
+
+    int countTokens(String text);
+
+    /**
+     * Token count of the segment's trimmed content, taken from its metadata when it was computed by
+     * this counter and counted now otherwise (e.g. segments indexed before counts were stored).
+     */
+    default int countSegmentTokens(CodeSegment segment) {
+        Map<String, Object> metadata = segment.getMetadata();
+        if (metadata != null && name().equals(metadata.get(METADATA_TOKENIZER))
+            && metadata.get(METADATA_TOKEN_COUNT) instanceof Number stored) {
+            return stored.intValue();
+        }
+        return segment.getContent() != null ? countTokens(segment.getContent().trim()) : 0;
+    }
+}
@@ -1,9 +1,12 @@
 package com.localllm.assistant.vectorstore;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.vectorstore.model.VectorEntry;
 
 /**
@@ -34,17 +37,32 @@ public interface VectorStoreClient {
      * Searches for similar embeddings in the vector store.
      *
      * @param collectionName the name of the collection to search in
-     * @param queryEmbedding the embedding vector to search for similarity with
+     * @param queryVector the embedding vector to search for similarity with
      * @param k the number of most similar results to return
      * @param metadataFilter optional filter to apply based on metadata (can be null)
      * @return a CompletableFuture with the list of similar vector entries
      */
-    CompletableFuture<List<VectorEntry>> searchSimilarEmbeddingsAsync(
+    CompletableFuture<List<VectorEntry>> searchSimilarVectorsAsync(
             String collectionName,
-            List<Float> queryEmbedding,
+            EmbeddingVector queryVector,
             int k,
             Map<String, Object> metadataFilter);
 
+    /**
+     * List-based adapter for {@link #searchSimilarVectorsAsync(String, EmbeddingVector, int, Map)}.
+     *
+     * @deprecated Use {@link #searchSimilarVectorsAsync(String, EmbeddingVector, int, Map)}.
+     */
+    @Deprecated
+    default CompletableFuture<List<VectorEntry>> searchSimilarEmbeddingsAsync(
+            String collectionName,
+            List<Float> queryEmbedding,
+            int k,
+            Map<String, Object> metadataFilter) {
+        return searchSimilarVectorsAsync(collectionName,
+                queryEmbedding != null ? EmbeddingVector.fromList(queryEmbedding) : null, k, metadataFilter);
+    }
+
     /**
      * Deletes embeddings from the vector store based on metadata.
      *
@@ -72,6 +90,19 @@ public interface VectorStoreClient {
      */
     CompletableFuture<Long> countEmbeddingsAsync(String collectionName);
 
+    /**
+     * Returns which of the given IDs the collection does not hold. A store that only acknowledges durable
+     * writes never loses an acknowledged entry, so the default reports none; stores that persist
+     * asynchronously override this so callers can find entries lost in a crash.
+     *
+     * @param collectionName the name of the collection to check
+     * @param ids the IDs expected to be stored
+     * @return a CompletableFuture with the subset of {@code ids} that is missing
+     */
+    default CompletableFuture<Set<String>> findMissingIdsAsync(String collectionName, Collection<String> ids) {
+        return CompletableFuture.completedFuture(Set.of());
+    }
+
 
     /**
      * Clears any cached information for a specific collection name,
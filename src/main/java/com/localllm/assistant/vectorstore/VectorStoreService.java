@@ -5,7 +5,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.parser.model.CodeSegment;
 import com.localllm.assistant.vectorstore.model.VectorSearchResult;
 
@@ -19,45 +21,83 @@ public interface VectorStoreService {
      * Stores a code segment with its embedding vector in the vector store.
      *
      * @param segment The code segment to store
-     * @param embedding The embedding vector associated with the segment
+     * @param vector The embedding vector associated with the segment
      * @return A future that completes when the segment has been stored
      */
-    CompletableFuture<Void> storeSegmentAsync(CodeSegment segment, List<Float> embedding);
+    CompletableFuture<Void> storeSegmentVectorAsync(CodeSegment segment, EmbeddingVector vector);
 
     /**
      * Stores multiple code segments with their associated embedding vectors.
      *
      * @param segments List of code segments to store
-     * @param embeddings List of embedding vectors corresponding to each segment
+     * @param vectors List of embedding vectors corresponding to each segment
      * @return A future that completes when all segments have been stored
      */
-    CompletableFuture<Void> storeSegmentsAsync(List<CodeSegment> segments, List<List<Float>> embeddings);
+    CompletableFuture<Void> storeSegmentVectorsAsync(List<CodeSegment> segments, List<EmbeddingVector> vectors);
 
     /**
      * Searches for code segments similar to the provided query text.
      *
-     * @param queryEmbedding The embedding vector of the query text
+     * @param queryVector The embedding vector of the query text
      * @param maxResults Maximum number of results to return
      * @param minScore Minimum similarity score threshold (0.0 to 1.0)
      * @return A future completing with a list of results ordered by similarity score
      */
-    CompletableFuture<List<VectorSearchResult>> searchSimilarAsync(List<Float> queryEmbedding, int maxResults, double minScore);
+    CompletableFuture<List<VectorSearchResult>> searchSimilarVectorsAsync(EmbeddingVector queryVector, int maxResults, double minScore);
 
     /**
      * Finds code segments similar to the provided query that also match specific filters.
      *
-     * @param queryEmbedding The embedding vector of the query text
+     * @param queryVector The embedding vector of the query text
      * @param maxResults Maximum number of results to return
      * @param minScore Minimum similarity score threshold (0.0 to 1.0)
      * @param filters Optional filters to apply to the search results (e.g., file path, type)
      * @return A future completing with a list of results ordered by similarity score
      */
-    CompletableFuture<List<VectorSearchResult>> findSimilarCodeSegments(
-            List<Float> queryEmbedding, 
-            int maxResults, 
+    CompletableFuture<List<VectorSearchResult>> findSimilarCodeSegmentsByVector(
+            EmbeddingVector queryVector,
+            int maxResults,
             double minScore,
             Map<String, Object> filters);
 
+    /**
+     * @deprecated Use {@link #storeSegmentVectorAsync(CodeSegment, EmbeddingVector)}.
+     */
+    @Deprecated
+    default CompletableFuture<Void> storeSegmentAsync(CodeSegment segment, List<Float> embedding) {
+        return storeSegmentVectorAsync(segment, embedding != null ? EmbeddingVector.fromList(embedding) : null);
+    }
+
+    /**
+     * @deprecated Use {@link #storeSegmentVectorsAsync(List, List)}.
+     */
+    @Deprecated
+    default CompletableFuture<Void> storeSegmentsAsync(List<CodeSegment> segments, List<List<Float>> embeddings) {
+        return storeSegmentVectorsAsync(segments, embeddings == null ? null
+                : embeddings.stream().map(EmbeddingVector::fromList).collect(Collectors.toList()));
+    }
+
+    /**
+     * @deprecated Use {@link #searchSimilarVectorsAsync(EmbeddingVector, int, double)}.
+     */
+    @Deprecated
+    default CompletableFuture<List<VectorSearchResult>> searchSimilarAsync(List<Float> queryEmbedding, int maxResults, double minScore) {
+        return searchSimilarVectorsAsync(queryEmbedding != null ? EmbeddingVector.fromList(queryEmbedding) : null, maxResults, minScore);
+    }
+
+    /**
+     * @deprecated Use {@link #findSimilarCodeSegmentsByVector(EmbeddingVector, int, double, Map)}.
+     */
+    @Deprecated
+    default CompletableFuture<List<VectorSearchResult>> findSimilarCodeSegments(
+            List<Float> queryEmbedding,
+            int maxResults,
+            double minScore,
+            Map<String, Object> filters) {
+        return findSimilarCodeSegmentsByVector(queryEmbedding != null ? EmbeddingVector.fromList(queryEmbedding) : null,
+                maxResults, minScore, filters);
+    }
+
     /**
      * Retrieves a code segment by its unique ID.
      *
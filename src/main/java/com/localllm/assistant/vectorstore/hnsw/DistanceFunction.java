@@ -0,0 +1,56 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+/**
+ * Distance functions supported by the embedded index, named and scaled like ChromaDB's
+ * {@code hnsw:space} options so scores computed from {@code _distance} stay comparable.
+ */
+public enum DistanceFunction {
+    /** {@code 1 - cos(a, b)}; vectors are normalized on insert so this is {@code 1 - dot}. */
+    COSINE,
+    /** {@code 1 - dot(a, b)}. */
+    IP,
+    /** Squared Euclidean distance. */
+    L2;
+
+    /**
+     * Brings a vector into the form it is stored and compared in: unit length for {@link #COSINE},
+     * unchanged otherwise. Zero vectors are returned as-is.
+     */
+    public float[] prepare(float[] vector) {
+        if (this != COSINE) {
+            return vector;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    /**
+     * Distance between a {@link #prepare prepared} query and a stored vector.
+     */
+    float distance(MappedVectorStorage storage, int slot, float[] prepared) {
+        return this == L2 ? storage.squaredDistance(slot, prepared) : 1.0f - storage.dot(slot, prepared);
+    }
+
+    public static DistanceFunction fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return COSINE;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case "l2" -> L2;
+            case "ip" -> IP;
+            case "cosine" -> COSINE;
+            default -> throw new IllegalArgumentException("Unsupported distance function: " + name);
+        };
+    }
+}
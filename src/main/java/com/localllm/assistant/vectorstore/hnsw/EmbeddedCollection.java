@@ -0,0 +1,417 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.vectorstore.model.VectorEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One named collection of the embedded vector store: a {@link VectorIndex} (HNSW graph or exact
+ * scan, see {@link IndexType}) whose vectors live in a memory-mapped file, plus id, metadata and
+ * document per node.
+ * <p>
+ * On disk a collection is a directory holding {@code index.bin} (graph, ids, metadata, documents)
+ * and the vectors file it names. {@link #flush()} rewrites {@code index.bin} atomically from a
+ * snapshot taken under the collection monitor, so upserts only wait for the snapshot, not for the
+ * write; vectors appended after the last flush are simply ignored on the next load. Upserting an existing id
+ * inserts a new node and tombstones the old one; when tombstones exceed the configured ratio the
+ * collection is rebuilt into a fresh vectors file on load.
+ */
+public final class EmbeddedCollection implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedCollection.class);
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 2;
+    private static final String INDEX_FILE = "index.bin";
+    private static final TypeReference<LinkedHashMap<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final String name;
+    private final Path directory;
+    private final Settings settings;
+    private final ObjectMapper objectMapper;
+    private final PayloadCodec codec;
+    private final Map<String, Integer> idToNode = new ConcurrentHashMap<>();
+    private final MappedVectorStorage storage;
+    private final VectorIndex<StoredRecord> index;
+    private final int generation;
+    /** Orders flushes, so an older snapshot never replaces a newer {@code index.bin}. Taken before the monitor. */
+    private final Object flushLock = new Object();
+    private volatile boolean dirty;
+
+    /**
+     * Index parameters shared by all collections of a store.
+     */
+    public record Settings(IndexType indexType, int dimension, DistanceFunction distanceFunction, int m, int efConstruction,
+                           double compactDeletedRatio) {
+    }
+
+    /**
+     * What is kept per node besides the vector.
+     */
+    public record StoredRecord(String id, Map<String, Object> metadata, String document) {
+    }
+
+    private EmbeddedCollection(String name, Path directory, Settings settings, ObjectMapper objectMapper,
+                               MappedVectorStorage storage, VectorIndex<StoredRecord> index, int generation) {
+        this.name = name;
+        this.directory = directory;
+        this.settings = settings;
+        this.objectMapper = objectMapper;
+        this.codec = new PayloadCodec(objectMapper);
+        this.storage = storage;
+        this.index = index;
+        this.generation = generation;
+        for (int node = 0; node < index.size(); node++) {
+            StoredRecord record = index.payload(node);
+            if (record != null) {
+                idToNode.put(record.id(), node);
+            }
+        }
+    }
+
+    /**
+     * Loads a collection from {@code directory}, creating an empty one if nothing was persisted yet.
+     */
+    public static EmbeddedCollection open(String name, Path directory, Settings settings, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(directory);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            MappedVectorStorage storage = MappedVectorStorage.open(directory.resolve(vectorsFileName(0)), settings.dimension());
+            log.info("Created embedded vector collection '{}' at {} ({}, dimension {}, {}).", name, directory,
+                settings.indexType(), settings.dimension(), settings.distanceFunction());
+            return new EmbeddedCollection(name, directory, settings, objectMapper, storage, newIndex(storage, settings), 0);
+        }
+
+        EmbeddedCollection collection;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unrecognized embedded index file: " + indexFile);
+            }
+            // Version 1 predates the exact index and was always HNSW.
+            IndexType indexType = version == 1 ? IndexType.HNSW : IndexType.values()[in.readByte()];
+            int dimension = in.readInt();
+            DistanceFunction distance = DistanceFunction.values()[in.readByte()];
+            int generation = in.readInt();
+            if (indexType != settings.indexType() || dimension != settings.dimension() || distance != settings.distanceFunction()) {
+                throw new IOException("Collection '" + name + "' was built as " + indexType + " / dimension " + dimension + " / " + distance +
+                    " but the configuration asks for " + settings.indexType() + " / dimension " + settings.dimension() + " / " +
+                    settings.distanceFunction() + ". Delete " + directory + " to rebuild it.");
+            }
+            MappedVectorStorage storage = MappedVectorStorage.open(directory.resolve(vectorsFileName(generation)), dimension);
+            PayloadCodec codec = new PayloadCodec(objectMapper);
+            VectorIndex<StoredRecord> index = indexType == IndexType.EXACT
+                ? FlatIndex.readFrom(in, storage, distance, codec)
+                : HnswIndex.readFrom(in, storage, distance, settings.m(), settings.efConstruction(), codec);
+            collection = new EmbeddedCollection(name, directory, settings, objectMapper, storage, index, generation);
+        }
+        log.info("Loaded embedded vector collection '{}': {} live entries, {} tombstones.", name, collection.count(), collection.index.deletedCount());
+
+        if (collection.shouldCompact()) {
+            return collection.compact();
+        }
+        return collection;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int count() {
+        return idToNode.size();
+    }
+
+    /**
+     * Inserts or replaces entries. Entries without a vector of the collection's dimension are rejected.
+     */
+    public synchronized void upsert(List<VectorEntry> entries) throws IOException {
+        for (VectorEntry entry : entries) {
+            EmbeddingVector vector = entry.getVector();
+            if (entry.getId() == null || vector == null || vector.dimension() != settings.dimension()) {
+                throw new IllegalArgumentException("Entry '" + entry.getId() + "' has no vector of dimension " + settings.dimension() +
+                    " (got " + (vector == null ? "none" : vector.dimension()) + ")");
+            }
+        }
+        for (VectorEntry entry : entries) {
+            StoredRecord record = new StoredRecord(entry.getId(), flattenMetadata(entry.getMetadata()), entry.getDocument());
+            int node = index.add(entry.getVector().array(), record);
+            Integer previous = idToNode.put(entry.getId(), node);
+            if (previous != null) {
+                index.markDeleted(previous);
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Nearest-neighbor search, optionally restricted by a {@code where} filter. Results carry the
+     * distance in metadata under {@code _distance}, as the ChromaDB client does.
+     */
+    public List<VectorEntry> search(float[] query, int k, int ef, Map<String, Object> where) {
+        List<VectorIndex.Hit<StoredRecord>> hits = index.search(query, k, ef,
+            where == null || where.isEmpty() ? null : record -> MetadataFilter.matches(where, record.metadata()));
+        List<VectorEntry> results = new ArrayList<>(hits.size());
+        Set<String> seen = new HashSet<>();
+        for (VectorIndex.Hit<StoredRecord> hit : hits) {
+            // An id can briefly appear twice while its replacement is being inserted.
+            if (seen.add(hit.payload().id())) {
+                results.add(toEntry(hit.payload(), hit.distance()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns up to {@code limit} live entries matching {@code where}, without ranking.
+     */
+    public List<VectorEntry> find(Map<String, Object> where, int limit) {
+        List<VectorEntry> results = new ArrayList<>();
+        for (int node = 0; node < index.size() && results.size() < limit; node++) {
+            StoredRecord record = index.payload(node);
+            if (record != null && MetadataFilter.matches(where, record.metadata())) {
+                results.add(toEntry(record, null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the IDs among {@code ids} that have no live entry.
+     */
+    public Set<String> missingIds(Collection<String> ids) {
+        Set<String> missing = new HashSet<>();
+        for (String id : ids) {
+            if (!idToNode.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    public synchronized int deleteByIds(Collection<String> ids) {
+        int deleted = 0;
+        for (String id : ids) {
+            Integer node = idToNode.remove(id);
+            if (node != null && index.markDeleted(node)) {
+                deleted++;
+            }
+        }
+        dirty |= deleted > 0;
+        return deleted;
+    }
+
+    public synchronized int deleteWhere(Map<String, Object> where) {
+        List<String> ids = new ArrayList<>();
+        for (int node = 0; node < index.size(); node++) {
+            StoredRecord record = index.payload(node);
+            if (record != null && MetadataFilter.matches(where, record.metadata())) {
+                ids.add(record.id());
+            }
+        }
+        return deleteByIds(ids);
+    }
+
+    /**
+     * Persists vectors and graph if anything changed since the last flush. Only the snapshot is taken
+     * under the collection monitor; vectors are forced and {@code index.bin} is written outside it.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            VectorIndex.Snapshot<StoredRecord> snapshot;
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                snapshot = index.snapshot();
+                dirty = false;
+            }
+            try {
+                // Every vector the snapshot references was stored before it was taken.
+                storage.force();
+                writeIndexFile(snapshot, generation);
+            } catch (IOException | RuntimeException e) {
+                dirty = true;
+                throw e;
+            }
+            log.debug("Flushed embedded vector collection '{}' ({} live entries).", name, count());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (flushLock) {
+            flush();
+            synchronized (this) {
+                storage.close();
+            }
+        }
+    }
+
+    private boolean shouldCompact() {
+        int total = index.size();
+        return total > 0 && index.deletedCount() > total * settings.compactDeletedRatio();
+    }
+
+    /**
+     * Rebuilds the collection from its live nodes into the next vectors file generation and
+     * switches {@code index.bin} over to it. The old vectors file is removed afterwards.
+     */
+    private EmbeddedCollection compact() throws IOException {
+        long start = System.currentTimeMillis();
+        int nextGeneration = generation + 1;
+        Path nextVectors = directory.resolve(vectorsFileName(nextGeneration));
+        Files.deleteIfExists(nextVectors);
+        MappedVectorStorage nextStorage = MappedVectorStorage.open(nextVectors, settings.dimension());
+        VectorIndex<StoredRecord> nextIndex = newIndex(nextStorage, settings);
+        for (int node = 0; node < index.size(); node++) {
+            StoredRecord record = index.payload(node);
+            if (record != null) {
+                nextIndex.add(index.vector(node), record);
+            }
+        }
+        nextStorage.force();
+        writeIndexFile(nextIndex.snapshot(), nextGeneration);
+        int removed = index.deletedCount();
+        storage.close();
+        try {
+            Files.deleteIfExists(directory.resolve(vectorsFileName(generation)));
+        } catch (IOException e) {
+            log.warn("Could not remove old vectors file of collection '{}': {}", name, e.getMessage());
+        }
+        log.info("Compacted embedded vector collection '{}': dropped {} tombstones, {} live entries. ({} ms)",
+            name, removed, nextIndex.size(), System.currentTimeMillis() - start);
+        return new EmbeddedCollection(name, directory, settings, objectMapper, nextStorage, nextIndex, nextGeneration);
+    }
+
+    private void writeIndexFile(VectorIndex.Snapshot<StoredRecord> target, int targetGeneration) throws IOException {
+        Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(settings.indexType().ordinal());
+            out.writeInt(settings.dimension());
+            out.writeByte(settings.distanceFunction().ordinal());
+            out.writeInt(targetGeneration);
+            target.writeTo(out, codec);
+        }
+        Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Chroma only stores scalar metadata values; nested values are flattened to JSON strings the same
+     * way the ChromaDB client does, so both backends return identical metadata.
+     */
+    private Map<String, Object> flattenMetadata(Map<String, Object> metadata) throws IOException {
+        if (metadata == null || metadata.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Object> flat = new HashMap<>(metadata.size());
+        for (Map.Entry<String, Object> m : metadata.entrySet()) {
+            Object value = m.getValue();
+            if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+                flat.put(m.getKey(), value);
+            } else {
+                flat.put(m.getKey(), objectMapper.writeValueAsString(value));
+            }
+        }
+        return flat;
+    }
+
+    private static VectorEntry toEntry(StoredRecord record, Float distance) {
+        Map<String, Object> metadata = new HashMap<>(record.metadata());
+        if (distance != null) {
+            metadata.put("_distance", distance.doubleValue());
+        }
+        return VectorEntry.builder()
+            .id(record.id())
+            .metadata(metadata)
+            .document(record.document())
+            .build();
+    }
+
+    private static VectorIndex<StoredRecord> newIndex(MappedVectorStorage storage, Settings settings) {
+        return settings.indexType() == IndexType.EXACT
+            ? new FlatIndex<>(storage, settings.distanceFunction())
+            : new HnswIndex<>(storage, settings.distanceFunction(), settings.m(), settings.efConstruction());
+    }
+
+    private static String vectorsFileName(int generation) {
+        return "vectors-" + generation + ".f32";
+    }
+
+    private static final class PayloadCodec implements VectorIndex.PayloadCodec<StoredRecord> {
+        private final ObjectMapper objectMapper;
+
+        private PayloadCodec(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public void write(DataOutput out, StoredRecord record) throws IOException {
+            writeString(out, record.id());
+            writeBytes(out, objectMapper.writeValueAsBytes(record.metadata()));
+            writeString(out, record.document());
+        }
+
+        @Override
+        public StoredRecord read(DataInput in) throws IOException {
+            String id = readString(in);
+            byte[] metadataJson = readBytes(in);
+            Map<String, Object> metadata = metadataJson == null ? Map.of() : objectMapper.readValue(metadataJson, METADATA_TYPE);
+            return new StoredRecord(id, metadata, readString(in));
+        }
+
+        private static void writeString(DataOutput out, String value) throws IOException {
+            writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String readString(DataInput in) throws IOException {
+            byte[] bytes = readBytes(in);
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+            if (bytes == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static byte[] readBytes(DataInput in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Exact nearest-neighbor index: every query scans the whole row-major vector matrix.
+ * <p>
+ * Up to a few hundred thousand vectors a linear scan over contiguous memory is both faster to build
+ * (no graph) and, unlike HNSW, has perfect recall. Large scans are split into slices that run on
+ * the common fork/join pool, each keeping its own bounded top-k heap; the heaps are merged at the
+ * end. The filter is only evaluated for rows that would make it into the current top-k, so a
+ * selective filter costs almost nothing on top of the distance computation.
+ *
+ * @param <T> Payload type stored with each node.
+ */
+public final class FlatIndex<T> implements VectorIndex<T> {
+
+    /** Below this many rows a single-threaded scan beats the fork/join overhead. */
+    static final int PARALLEL_THRESHOLD = 16_384;
+    /** Rows per fork/join leaf; matches the storage segment size so slices stay within one mapping. */
+    static final int SLICE_ROWS = MappedVectorStorage.VECTORS_PER_SEGMENT;
+
+    private final MappedVectorStorage storage;
+    private final DistanceFunction distanceFunction;
+
+    // A null payload marks a deleted row. Rows below 'size' are fully written before 'size' is published.
+    private volatile Object[] payloads = new Object[1024];
+    private volatile int size;
+    private volatile int deletedCount;
+
+    public FlatIndex(MappedVectorStorage storage, DistanceFunction distanceFunction) {
+        this.storage = storage;
+        this.distanceFunction = distanceFunction;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int deletedCount() {
+        return deletedCount;
+    }
+
+    @Override
+    public int dimension() {
+        return storage.dimension();
+    }
+
+    @Override
+    public DistanceFunction distanceFunction() {
+        return distanceFunction;
+    }
+
+    @Override
+    public boolean isDeleted(int node) {
+        return payloads[node] == null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T payload(int node) {
+        return (T) payloads[node];
+    }
+
+    @Override
+    public float[] vector(int node) {
+        return storage.get(node);
+    }
+
+    @Override
+    public synchronized int add(float[] vector, T payload) throws IOException {
+        if (payload == null) {
+            throw new IllegalArgumentException("Payload must not be null");
+        }
+        int id = size;
+        storage.ensureCapacity(id + 1);
+        storage.set(id, prepare(vector));
+        ensureCapacity(id + 1);
+        payloads[id] = payload;
+        size = id + 1;
+        return id;
+    }
+
+    @Override
+    public synchronized boolean markDeleted(int node) {
+        if (payloads[node] == null) {
+            return false;
+        }
+        payloads[node] = null;
+        deletedCount++;
+        return true;
+    }
+
+    @Override
+    public List<Hit<T>> search(float[] query, int k, int ef, Predicate<T> filter) {
+        int rows = size;
+        if (rows == 0 || k <= 0) {
+            return List.of();
+        }
+        float[] q = prepare(query);
+        Object[] snapshot = payloads;
+        NodeHeap found = rows < PARALLEL_THRESHOLD
+            ? scan(q, snapshot, 0, rows, k, filter)
+            : ForkJoinPool.commonPool().invoke(new ScanTask(q, snapshot, 0, rows, k, filter));
+
+        int[] sortedNodes = new int[found.size()];
+        float[] sortedDistances = new float[found.size()];
+        found.drainAscending(sortedNodes, sortedDistances);
+        List<Hit<T>> hits = new ArrayList<>(sortedNodes.length);
+        for (int i = 0; i < sortedNodes.length; i++) {
+            T payload = payload(sortedNodes[i]);
+            if (payload != null) {
+                hits.add(new Hit<>(sortedNodes[i], payload, sortedDistances[i]));
+            }
+        }
+        return hits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private NodeHeap scan(float[] q, Object[] snapshot, int from, int to, int k, Predicate<T> filter) {
+        NodeHeap heap = NodeHeap.farthestFirst(k + 1);
+        for (int row = from; row < to; row++) {
+            Object payload = snapshot[row];
+            if (payload == null) {
+                continue;
+            }
+            float d = distanceFunction.distance(storage, row, q);
+            if (heap.size() >= k && d >= heap.peekDistance()) {
+                continue;
+            }
+            if (filter == null || filter.test((T) payload)) {
+                heap.offer(row, d, k);
+            }
+        }
+        return heap;
+    }
+
+    private final class ScanTask extends RecursiveTask<NodeHeap> {
+        private final float[] q;
+        private final Object[] snapshot;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final Predicate<T> filter;
+
+        private ScanTask(float[] q, Object[] snapshot, int from, int to, int k, Predicate<T> filter) {
+            this.q = q;
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.filter = filter;
+        }
+
+        @Override
+        protected NodeHeap compute() {
+            if (to - from <= SLICE_ROWS) {
+                return scan(q, snapshot, from, to, k, filter);
+            }
+            // Split on a slice boundary so every leaf reads from a single mapped segment.
+            int mid = from + ((to - from) / 2 / SLICE_ROWS) * SLICE_ROWS;
+            if (mid == from) {
+                mid = from + SLICE_ROWS;
+            }
+            ScanTask left = new ScanTask(q, snapshot, from, mid, k, filter);
+            left.fork();
+            NodeHeap right = new ScanTask(q, snapshot, mid, to, k, filter).compute();
+            NodeHeap merged = left.join();
+            while (!right.isEmpty()) {
+                merged.offer(right.peekNode(), right.peekDistance(), k);
+                right.pop();
+            }
+            return merged;
+        }
+    }
+
+    private float[] prepare(float[] vector) {
+        if (vector.length != storage.dimension()) {
+            throw new IllegalArgumentException("Expected dimension " + storage.dimension() + " but got " + vector.length);
+        }
+        return distanceFunction.prepare(vector);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > payloads.length) {
+            payloads = Arrays.copyOf(payloads, Math.max(capacity, payloads.length * 2));
+        }
+    }
+
+    /**
+     * Captures the payload slots; a deleted node's slot is already null.
+     */
+    @Override
+    public synchronized Snapshot<T> snapshot() {
+        Object[] slots = Arrays.copyOf(payloads, size);
+        return (out, codec) -> writeSlots(slots, out, codec);
+    }
+
+    /**
+     * Writes the deleted flags and payloads. Vectors are not included; they live in the storage file.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void writeSlots(Object[] slots, DataOutput out, PayloadCodec<T> codec) throws IOException {
+        out.writeInt(slots.length);
+        for (Object slot : slots) {
+            out.writeBoolean(slot == null);
+            if (slot != null) {
+                codec.write(out, (T) slot);
+            }
+        }
+    }
+
+    /**
+     * Restores an index written by {@link #writeTo}. The storage must already hold the vectors.
+     */
+    public static <T> FlatIndex<T> readFrom(DataInput in, MappedVectorStorage storage, DistanceFunction distanceFunction,
+                                            PayloadCodec<T> codec) throws IOException {
+        FlatIndex<T> index = new FlatIndex<>(storage, distanceFunction);
+        int count = in.readInt();
+        storage.ensureCapacity(count);
+        index.ensureCapacity(count);
+        int deleted = 0;
+        for (int i = 0; i < count; i++) {
+            if (in.readBoolean()) {
+                deleted++;
+            } else {
+                index.payloads[i] = codec.read(in);
+            }
+        }
+        index.deletedCount = deleted;
+        index.size = count;
+        return index;
+    }
+}
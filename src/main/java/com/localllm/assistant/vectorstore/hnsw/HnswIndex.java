@@ -0,0 +1,446 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over vectors held in a
+ * {@link MappedVectorStorage}, with a payload attached to every node.
+ * <p>
+ * Writes ({@link #add}, {@link #markDeleted}) are serialized on the index monitor. Searches take no
+ * lock: neighbor lists are immutable arrays swapped atomically, and a node's vector and links are
+ * written before any other node links to it, so readers only ever see fully inserted nodes.
+ * Deletion is a tombstone; deleted nodes still route searches but are never returned.
+ *
+ * @param <T> Payload type stored with each node.
+ */
+public final class HnswIndex<T> implements VectorIndex<T> {
+
+    private static final int MAX_LEVEL = 16;
+
+    private final MappedVectorStorage storage;
+    private final DistanceFunction distanceFunction;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private volatile Node<T>[] nodes;
+    private volatile int size;
+    private volatile EntryPoint entryPoint;
+    private volatile int deletedCount;
+
+    private static final class Node<T> {
+        private final int level;
+        private final AtomicReferenceArray<int[]> links;
+        private volatile T payload;
+        private volatile boolean deleted;
+
+        private Node(int level, T payload) {
+            this.level = level;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            this.payload = payload;
+            for (int l = 0; l <= level; l++) {
+                links.set(l, new int[0]);
+            }
+        }
+    }
+
+    private record EntryPoint(int node, int level) {
+    }
+
+    @SuppressWarnings("unchecked")
+    public HnswIndex(MappedVectorStorage storage, DistanceFunction distanceFunction, int m, int efConstruction) {
+        this.storage = storage;
+        this.distanceFunction = distanceFunction;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+        this.nodes = (Node<T>[]) new Node[1024];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int deletedCount() {
+        return deletedCount;
+    }
+
+    @Override
+    public int dimension() {
+        return storage.dimension();
+    }
+
+    @Override
+    public DistanceFunction distanceFunction() {
+        return distanceFunction;
+    }
+
+    @Override
+    public boolean isDeleted(int node) {
+        return nodes[node].deleted;
+    }
+
+    @Override
+    public T payload(int node) {
+        return nodes[node].payload;
+    }
+
+    /**
+     * Returns a copy of the stored (for cosine: normalized) vector of a node.
+     */
+    @Override
+    public float[] vector(int node) {
+        return storage.get(node);
+    }
+
+    /**
+     * Inserts a vector and returns its node id.
+     */
+    @Override
+    public synchronized int add(float[] vector, T payload) throws IOException {
+        float[] stored = prepare(vector);
+        int id = size;
+        int level = randomLevel();
+        storage.ensureCapacity(id + 1);
+        storage.set(id, stored);
+        Node<T> node = new Node<>(level, payload);
+        ensureNodeCapacity(id + 1);
+        nodes[id] = node;
+
+        EntryPoint ep = entryPoint;
+        if (ep == null) {
+            entryPoint = new EntryPoint(id, level);
+            size = id + 1;
+            return id;
+        }
+
+        int current = ep.node();
+        float currentDistance = distance(stored, current);
+        for (int l = ep.level(); l > level; l--) {
+            long best = greedyClosest(stored, current, currentDistance, l);
+            current = (int) (best >>> 32);
+            currentDistance = Float.intBitsToFloat((int) best);
+        }
+
+        for (int l = Math.min(level, ep.level()); l >= 0; l--) {
+            NodeHeap found = searchLayer(stored, current, currentDistance, efConstruction, l, null, new BitSet(id + 1));
+            int[] sortedNodes = new int[found.size()];
+            float[] sortedDistances = new float[found.size()];
+            found.drainAscending(sortedNodes, sortedDistances);
+            int maxLinks = l == 0 ? maxM0 : m;
+            int[] neighbors = selectNeighbors(sortedNodes, sortedDistances, maxLinks);
+            node.links.set(l, neighbors);
+            for (int neighbor : neighbors) {
+                linkBack(neighbor, id, l, maxLinks);
+            }
+            if (sortedNodes.length > 0) {
+                current = sortedNodes[0];
+                currentDistance = sortedDistances[0];
+            }
+        }
+
+        if (level > ep.level()) {
+            entryPoint = new EntryPoint(id, level);
+        }
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * Tombstones a node and drops its payload. Returns false if it was already deleted.
+     */
+    @Override
+    public synchronized boolean markDeleted(int node) {
+        Node<T> n = nodes[node];
+        if (n.deleted) {
+            return false;
+        }
+        n.deleted = true;
+        n.payload = null;
+        deletedCount++;
+        return true;
+    }
+
+    /**
+     * Finds the {@code k} nearest live nodes whose payload passes {@code filter} (null accepts all).
+     * With a selective filter the search keeps expanding until {@code ef} matches are found or the
+     * reachable graph is exhausted, so results stay correct at the cost of latency.
+     *
+     * @return Hits ordered by ascending distance.
+     */
+    @Override
+    public List<Hit<T>> search(float[] query, int k, int ef, Predicate<T> filter) {
+        EntryPoint ep = entryPoint;
+        if (ep == null || k <= 0) {
+            return List.of();
+        }
+        float[] q = prepare(query);
+        int current = ep.node();
+        float currentDistance = distance(q, current);
+        for (int l = ep.level(); l > 0; l--) {
+            long best = greedyClosest(q, current, currentDistance, l);
+            current = (int) (best >>> 32);
+            currentDistance = Float.intBitsToFloat((int) best);
+        }
+        Predicate<T> accept = filter != null ? filter : payload -> true;
+        NodeHeap found = searchLayer(q, current, currentDistance, Math.max(ef, k), 0, accept, new BitSet(size));
+        while (found.size() > k) {
+            found.pop();
+        }
+        int[] sortedNodes = new int[found.size()];
+        float[] sortedDistances = new float[found.size()];
+        found.drainAscending(sortedNodes, sortedDistances);
+        List<Hit<T>> hits = new ArrayList<>(sortedNodes.length);
+        for (int i = 0; i < sortedNodes.length; i++) {
+            T payload = nodes[sortedNodes[i]].payload;
+            if (payload != null) {
+                hits.add(new Hit<>(sortedNodes[i], payload, sortedDistances[i]));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Greedy walk on one upper layer. Returns node and distance packed into a long.
+     */
+    private long greedyClosest(float[] q, int start, float startDistance, int level) {
+        int current = start;
+        float currentDistance = startDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : nodes[current].links.get(level)) {
+                float d = distance(q, neighbor);
+                if (d < currentDistance) {
+                    current = neighbor;
+                    currentDistance = d;
+                    changed = true;
+                }
+            }
+        }
+        return ((long) current << 32) | (Float.floatToRawIntBits(currentDistance) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Best-first search on one layer. {@code accept == null} means construction mode: every node,
+     * including tombstones, may be returned. Otherwise only live nodes passing {@code accept} are.
+     */
+    private NodeHeap searchLayer(float[] q, int entry, float entryDistance, int ef, int level, Predicate<T> accept, BitSet visited) {
+        NodeHeap candidates = NodeHeap.nearestFirst(ef * 2);
+        NodeHeap results = NodeHeap.farthestFirst(ef + 1);
+        visited.set(entry);
+        candidates.push(entry, entryDistance);
+        if (isResult(entry, accept)) {
+            results.push(entry, entryDistance);
+        }
+        while (!candidates.isEmpty()) {
+            int candidate = candidates.peekNode();
+            float candidateDistance = candidates.peekDistance();
+            if (results.size() >= ef && candidateDistance > results.peekDistance()) {
+                break;
+            }
+            candidates.pop();
+            for (int neighbor : nodes[candidate].links.get(level)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distance(q, neighbor);
+                if (results.size() < ef || d < results.peekDistance()) {
+                    candidates.push(neighbor, d);
+                    if (isResult(neighbor, accept)) {
+                        results.push(neighbor, d);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean isResult(int node, Predicate<T> accept) {
+        if (accept == null) {
+            return true;
+        }
+        Node<T> n = nodes[node];
+        T payload = n.payload;
+        return !n.deleted && payload != null && accept.test(payload);
+    }
+
+    /**
+     * Neighbor selection heuristic: a candidate is kept only if it is closer to the base than to any
+     * already kept neighbor, which keeps links spread across clusters. Remaining slots are filled
+     * with the closest pruned candidates.
+     */
+    private int[] selectNeighbors(int[] sortedNodes, float[] sortedDistances, int maxLinks) {
+        if (sortedNodes.length <= maxLinks) {
+            return sortedNodes;
+        }
+        int[] selected = new int[maxLinks];
+        int count = 0;
+        int[] pruned = new int[sortedNodes.length];
+        int prunedCount = 0;
+        for (int i = 0; i < sortedNodes.length && count < maxLinks; i++) {
+            float[] candidateVector = storage.get(sortedNodes[i]);
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidateVector, selected[j]) < sortedDistances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = sortedNodes[i];
+            } else {
+                pruned[prunedCount++] = sortedNodes[i];
+            }
+        }
+        for (int i = 0; i < prunedCount && count < maxLinks; i++) {
+            selected[count++] = pruned[i];
+        }
+        return count == maxLinks ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void linkBack(int neighbor, int newNode, int level, int maxLinks) {
+        Node<T> n = nodes[neighbor];
+        int[] existing = n.links.get(level);
+        if (existing.length < maxLinks) {
+            int[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = newNode;
+            n.links.set(level, grown);
+            return;
+        }
+        float[] base = storage.get(neighbor);
+        NodeHeap byDistance = NodeHeap.farthestFirst(existing.length + 1);
+        for (int linked : existing) {
+            byDistance.push(linked, distance(base, linked));
+        }
+        byDistance.push(newNode, distance(base, newNode));
+        int[] sortedNodes = new int[byDistance.size()];
+        float[] sortedDistances = new float[byDistance.size()];
+        byDistance.drainAscending(sortedNodes, sortedDistances);
+        n.links.set(level, selectNeighbors(sortedNodes, sortedDistances, maxLinks));
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(r) * levelMultiplier));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity > nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(capacity, nodes.length * 2));
+        }
+    }
+
+    private float[] prepare(float[] vector) {
+        if (vector.length != storage.dimension()) {
+            throw new IllegalArgumentException("Expected dimension " + storage.dimension() + " but got " + vector.length);
+        }
+        return distanceFunction.prepare(vector);
+    }
+
+    private float distance(float[] prepared, int node) {
+        return distanceFunction.distance(storage, node, prepared);
+    }
+
+    /**
+     * Captures the graph under the write monitor. Link arrays are replaced rather than modified in
+     * place, so the snapshot only copies references.
+     */
+    @Override
+    public synchronized Snapshot<T> snapshot() {
+        int count = size;
+        List<NodeState<T>> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Node<T> node = nodes[i];
+            int[][] links = new int[node.level + 1][];
+            for (int l = 0; l <= node.level; l++) {
+                links[l] = node.links.get(l);
+            }
+            states.add(new NodeState<>(node.level, node.deleted ? null : node.payload, links));
+        }
+        return new GraphSnapshot<>(entryPoint, states);
+    }
+
+    private record NodeState<T>(int level, T payload, int[][] links) {
+    }
+
+    /**
+     * Writes the graph and payloads. Vectors are not included; they live in the storage file.
+     */
+    private record GraphSnapshot<T>(EntryPoint entryPoint, List<NodeState<T>> nodes) implements Snapshot<T> {
+        @Override
+        public void writeTo(DataOutput out, PayloadCodec<T> codec) throws IOException {
+            out.writeInt(nodes.size());
+            out.writeInt(entryPoint != null ? entryPoint.node() : -1);
+            out.writeInt(entryPoint != null ? entryPoint.level() : -1);
+            for (NodeState<T> node : nodes) {
+                out.writeByte(node.level());
+                out.writeBoolean(node.payload() == null);
+                if (node.payload() != null) {
+                    codec.write(out, node.payload());
+                }
+                for (int[] links : node.links()) {
+                    out.writeShort(links.length);
+                    for (int link : links) {
+                        out.writeInt(link);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores a graph written by {@link #writeTo}. The storage must already hold the vectors.
+     */
+    public static <T> HnswIndex<T> readFrom(DataInput in, MappedVectorStorage storage, DistanceFunction distanceFunction,
+                                            int m, int efConstruction, PayloadCodec<T> codec) throws IOException {
+        HnswIndex<T> index = new HnswIndex<>(storage, distanceFunction, m, efConstruction);
+        int count = in.readInt();
+        int entryNode = in.readInt();
+        int entryLevel = in.readInt();
+        storage.ensureCapacity(count);
+        index.ensureNodeCapacity(count);
+        int deleted = 0;
+        for (int i = 0; i < count; i++) {
+            int level = in.readByte();
+            boolean isDeleted = in.readBoolean();
+            T payload = isDeleted ? null : codec.read(in);
+            Node<T> node = new Node<>(level, payload);
+            node.deleted = isDeleted;
+            if (isDeleted) {
+                deleted++;
+            }
+            for (int l = 0; l <= level; l++) {
+                int[] links = new int[in.readUnsignedShort()];
+                for (int j = 0; j < links.length; j++) {
+                    links[j] = in.readInt();
+                }
+                node.links.set(l, links);
+            }
+            index.nodes[i] = node;
+        }
+        index.deletedCount = deleted;
+        index.entryPoint = entryNode >= 0 ? new EntryPoint(entryNode, entryLevel) : null;
+        index.size = count;
+        return index;
+    }
+}
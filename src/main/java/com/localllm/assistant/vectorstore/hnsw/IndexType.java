@@ -0,0 +1,22 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+/**
+ * Search structure used by an embedded collection.
+ */
+public enum IndexType {
+    /** Approximate {@link HnswIndex}; sublinear search, best for very large collections. */
+    HNSW,
+    /** Exact {@link FlatIndex}; parallel linear scan with perfect recall and no build cost. */
+    EXACT;
+
+    public static IndexType fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return HNSW;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case "hnsw" -> HNSW;
+            case "exact", "flat" -> EXACT;
+            default -> throw new IllegalArgumentException("Unsupported embedded index type: " + name);
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fixed-dimension float vectors kept off-heap in a memory-mapped file.
+ * <p>
+ * The file is mapped in segments of {@link #VECTORS_PER_SEGMENT} vectors that are added as the
+ * store grows. A single writer appends; readers may access any slot that was published to them
+ * (through the index) concurrently, since slots are never rewritten once visible.
+ */
+public final class MappedVectorStorage implements Closeable {
+
+    static final int VECTORS_PER_SEGMENT = 8192;
+
+    private final Path file;
+    private final int dimension;
+    private final FileChannel channel;
+    private volatile FloatBuffer[] segments = new FloatBuffer[0];
+    private MappedByteBuffer[] mapped = new MappedByteBuffer[0];
+
+    private MappedVectorStorage(Path file, int dimension, FileChannel channel) {
+        this.file = file;
+        this.dimension = dimension;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens (or creates) a storage file. Existing contents are kept.
+     */
+    public static MappedVectorStorage open(Path file, int dimension) throws IOException {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Vector dimension must be positive: " + dimension);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedVectorStorage(file, dimension, channel);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Makes sure slots {@code [0, count)} are mapped. Only called by the writer or before the store is shared.
+     */
+    public synchronized void ensureCapacity(int count) throws IOException {
+        int needed = (count + VECTORS_PER_SEGMENT - 1) / VECTORS_PER_SEGMENT;
+        if (needed <= mapped.length) {
+            return;
+        }
+        long segmentBytes = (long) VECTORS_PER_SEGMENT * dimension * Float.BYTES;
+        MappedByteBuffer[] grownMapped = Arrays.copyOf(mapped, needed);
+        FloatBuffer[] grownSegments = Arrays.copyOf(segments, needed);
+        for (int i = mapped.length; i < needed; i++) {
+            grownMapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+            grownSegments[i] = grownMapped[i].order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+        mapped = grownMapped;
+        segments = grownSegments;
+    }
+
+    /**
+     * Writes a vector into a slot. The slot must be mapped and not yet visible to readers.
+     */
+    public void set(int slot, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        FloatBuffer segment = segments[slot / VECTORS_PER_SEGMENT];
+        segment.put((slot % VECTORS_PER_SEGMENT) * dimension, vector);
+    }
+
+    public float[] get(int slot) {
+        float[] vector = new float[dimension];
+        FloatBuffer segment = segments[slot / VECTORS_PER_SEGMENT];
+        segment.get((slot % VECTORS_PER_SEGMENT) * dimension, vector);
+        return vector;
+    }
+
+    /**
+     * Dot product of a stored vector with {@code query}. Four independent accumulators break the
+     * floating-point dependency chain so the JIT can keep several multiply-adds in flight; this is
+     * the inner loop of every search.
+     */
+    public float dot(int slot, float[] query) {
+        FloatBuffer segment = segments[slot / VECTORS_PER_SEGMENT];
+        int base = (slot % VECTORS_PER_SEGMENT) * dimension;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (int bound = dimension & ~3; i < bound; i += 4) {
+            s0 += segment.get(base + i) * query[i];
+            s1 += segment.get(base + i + 1) * query[i + 1];
+            s2 += segment.get(base + i + 2) * query[i + 2];
+            s3 += segment.get(base + i + 3) * query[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += segment.get(base + i) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public float squaredDistance(int slot, float[] query) {
+        FloatBuffer segment = segments[slot / VECTORS_PER_SEGMENT];
+        int base = (slot % VECTORS_PER_SEGMENT) * dimension;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (int bound = dimension & ~3; i < bound; i += 4) {
+            float d0 = segment.get(base + i) - query[i];
+            float d1 = segment.get(base + i + 1) - query[i + 1];
+            float d2 = segment.get(base + i + 2) - query[i + 2];
+            float d3 = segment.get(base + i + 3) - query[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < dimension; i++) {
+            float d = segment.get(base + i) - query[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Flushes written vectors to disk.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer buffer : mapped) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,107 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates ChromaDB-style {@code where} filters against a metadata map.
+ * <p>
+ * Supported: plain equality ({@code {"type": "METHOD"}}), the operators {@code $eq, $ne, $gt, $gte,
+ * $lt, $lte, $in, $nin}, and the combinators {@code $and} / {@code $or}. Several top-level keys are
+ * combined with AND. Numbers compare by value regardless of their boxed type.
+ */
+public final class MetadataFilter {
+
+    private MetadataFilter() {
+    }
+
+    public static boolean matches(Map<String, Object> where, Map<String, Object> metadata) {
+        if (where == null || where.isEmpty()) {
+            return true;
+        }
+        for (Map.Entry<String, Object> clause : where.entrySet()) {
+            if (!matchesClause(clause.getKey(), clause.getValue(), metadata)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean matchesClause(String key, Object condition, Map<String, Object> metadata) {
+        switch (key) {
+            case "$and" -> {
+                for (Object sub : asCollection(key, condition)) {
+                    if (!matches((Map<String, Object>) sub, metadata)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case "$or" -> {
+                for (Object sub : asCollection(key, condition)) {
+                    if (matches((Map<String, Object>) sub, metadata)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            default -> {
+                Object actual = metadata != null ? metadata.get(key) : null;
+                if (condition instanceof Map<?, ?> operators) {
+                    for (Map.Entry<?, ?> op : operators.entrySet()) {
+                        if (!matchesOperator(String.valueOf(op.getKey()), actual, op.getValue())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                return valueEquals(actual, condition);
+            }
+        }
+    }
+
+    private static boolean matchesOperator(String operator, Object actual, Object operand) {
+        return switch (operator) {
+            case "$eq" -> valueEquals(actual, operand);
+            case "$ne" -> !valueEquals(actual, operand);
+            case "$gt" -> compares(actual, operand, c -> c > 0);
+            case "$gte" -> compares(actual, operand, c -> c >= 0);
+            case "$lt" -> compares(actual, operand, c -> c < 0);
+            case "$lte" -> compares(actual, operand, c -> c <= 0);
+            case "$in" -> asCollection(operator, operand).stream().anyMatch(v -> valueEquals(actual, v));
+            case "$nin" -> asCollection(operator, operand).stream().noneMatch(v -> valueEquals(actual, v));
+            default -> throw new IllegalArgumentException("Unsupported metadata filter operator: " + operator);
+        };
+    }
+
+    private static boolean valueEquals(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number e) {
+            return Double.compare(a.doubleValue(), e.doubleValue()) == 0;
+        }
+        return Objects.equals(actual, expected);
+    }
+
+    /**
+     * Compares numbers numerically and strings lexicographically; anything else (including a missing
+     * value) never satisfies an ordering operator.
+     */
+    private static boolean compares(Object actual, Object operand, IntPredicate test) {
+        if (actual instanceof Number a && operand instanceof Number o) {
+            return test.test(Double.compare(a.doubleValue(), o.doubleValue()));
+        }
+        if (actual instanceof String a && operand instanceof String o) {
+            return test.test(a.compareTo(o));
+        }
+        return false;
+    }
+
+    private static Collection<?> asCollection(String operator, Object operand) {
+        if (operand instanceof Collection<?> values) {
+            return values;
+        }
+        throw new IllegalArgumentException("Metadata filter operator " + operator + " expects a list, got: " + operand);
+    }
+}
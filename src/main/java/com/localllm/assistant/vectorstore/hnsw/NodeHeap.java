@@ -0,0 +1,119 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (node, distance) pairs on primitive arrays, ordered either nearest-first or
+ * farthest-first. Avoids boxing in the search loop.
+ */
+final class NodeHeap {
+
+    private final boolean farthestFirst;
+    private int[] nodes;
+    private float[] distances;
+    private int size;
+
+    private NodeHeap(int initialCapacity, boolean farthestFirst) {
+        this.farthestFirst = farthestFirst;
+        this.nodes = new int[Math.max(4, initialCapacity)];
+        this.distances = new float[nodes.length];
+    }
+
+    static NodeHeap nearestFirst(int initialCapacity) {
+        return new NodeHeap(initialCapacity, false);
+    }
+
+    static NodeHeap farthestFirst(int initialCapacity) {
+        return new NodeHeap(initialCapacity, true);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int peekNode() {
+        return nodes[0];
+    }
+
+    float peekDistance() {
+        return distances[0];
+    }
+
+    void push(int node, float distance) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(distance, distances[parent])) {
+                break;
+            }
+            nodes[i] = nodes[parent];
+            distances[i] = distances[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        distances[i] = distance;
+    }
+
+    void pop() {
+        size--;
+        if (size == 0) {
+            return;
+        }
+        int node = nodes[size];
+        float distance = distances[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && before(distances[right], distances[child])) {
+                child = right;
+            }
+            if (!before(distances[child], distance)) {
+                break;
+            }
+            nodes[i] = nodes[child];
+            distances[i] = distances[child];
+            i = child;
+        }
+        nodes[i] = node;
+        distances[i] = distance;
+    }
+
+    /**
+     * Pushes a pair into a farthest-first heap holding the {@code k} nearest pairs seen so far,
+     * dropping the farthest when the heap overflows.
+     */
+    void offer(int node, float distance, int k) {
+        if (size < k) {
+            push(node, distance);
+        } else if (distance < distances[0]) {
+            push(node, distance);
+            pop();
+        }
+    }
+
+    /**
+     * Empties a farthest-first heap into the given arrays in ascending distance order.
+     * The arrays must have exactly {@link #size()} elements.
+     */
+    void drainAscending(int[] nodesOut, float[] distancesOut) {
+        for (int i = nodesOut.length - 1; i >= 0; i--) {
+            nodesOut[i] = nodes[0];
+            distancesOut[i] = distances[0];
+            pop();
+        }
+    }
+
+    private boolean before(float a, float b) {
+        return farthestFirst ? a > b : a < b;
+    }
+}
@@ -0,0 +1,95 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Nearest-neighbor index over a {@link MappedVectorStorage}, with a payload per node. Node ids are
+ * dense storage slots assigned in insertion order; deletion is a tombstone.
+ * <p>
+ * Implementations allow a single writer and any number of concurrent, lock-free searches.
+ *
+ * @param <T> Payload type stored with each node.
+ */
+public interface VectorIndex<T> {
+
+    /**
+     * Result of a search: a node, its payload and its distance to the query.
+     */
+    record Hit<T>(int node, T payload, float distance) {
+    }
+
+    /**
+     * Point-in-time copy of everything {@link #writeTo} persists, taken without copying vectors or
+     * payloads, so it can be written out while inserts continue.
+     */
+    interface Snapshot<T> {
+        void writeTo(DataOutput out, PayloadCodec<T> codec) throws IOException;
+    }
+
+    /**
+     * Reads and writes node payloads when the index is persisted.
+     */
+    interface PayloadCodec<T> {
+        void write(DataOutput out, T payload) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Number of nodes ever inserted, including tombstones.
+     */
+    int size();
+
+    int deletedCount();
+
+    int dimension();
+
+    DistanceFunction distanceFunction();
+
+    boolean isDeleted(int node);
+
+    /**
+     * Payload of a node, or null once it is deleted.
+     */
+    T payload(int node);
+
+    /**
+     * Returns a copy of the stored (for cosine: normalized) vector of a node.
+     */
+    float[] vector(int node);
+
+    /**
+     * Inserts a vector and returns its node id.
+     */
+    int add(float[] vector, T payload) throws IOException;
+
+    /**
+     * Tombstones a node and drops its payload. Returns false if it was already deleted.
+     */
+    boolean markDeleted(int node);
+
+    /**
+     * Finds the {@code k} nearest live nodes whose payload passes {@code filter} (null accepts all).
+     * {@code ef} is the candidate list size for approximate indexes and ignored by exact ones.
+     *
+     * @return Hits ordered by ascending distance.
+     */
+    List<Hit<T>> search(float[] query, int k, int ef, Predicate<T> filter);
+
+    /**
+     * Captures the current nodes, links and payloads. Waits for an insert in progress, but not for
+     * the snapshot to be written.
+     */
+    Snapshot<T> snapshot();
+
+    /**
+     * Writes everything but the vectors, which already live in the storage file.
+     */
+    default void writeTo(DataOutput out, PayloadCodec<T> codec) throws IOException {
+        snapshot().writeTo(out, codec);
+    }
+}
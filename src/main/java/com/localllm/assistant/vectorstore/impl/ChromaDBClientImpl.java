@@ -1,30 +1,42 @@
 // --- File: /src/main/java/com/localllm/assistant/vectorstore/impl/ChromaDBClientImpl.java ---
 package com.localllm.assistant.vectorstore.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
 import com.localllm.assistant.config.AsyncConfig;
 import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.config.LimiterConfig;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.exception.VectorStoreException;
 import com.localllm.assistant.vectorstore.VectorStoreClient;
+import com.localllm.assistant.vectorstore.metrics.UpsertPayloadMetrics;
 import com.localllm.assistant.vectorstore.model.VectorEntry;
 import jakarta.annotation.PostConstruct;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
 import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
 import org.apache.hc.core5.reactor.IOReactorStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -33,25 +45,40 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
+@ConditionalOnProperty(name = "vectorstore.backend", havingValue = "chromadb", matchIfMissing = true)
 public class ChromaDBClientImpl implements VectorStoreClient {
 
     private static final Logger log = LoggerFactory.getLogger(ChromaDBClientImpl.class);
     private static final String API_V2_BASE = "/api/v2";
     private static final String DEFAULT_TENANT = "default_tenant";
     private static final String DEFAULT_DATABASE = "default_database";
+    /** Upper bound for the text of one float written by Jackson, including the separator. */
+    private static final int BYTES_PER_JSON_FLOAT = 16;
+    /** Allowance for one serialized metadata map (file path, lines, type, annotations). */
+    private static final int BYTES_PER_METADATA = 512;
+    private static final int UPSERT_BUFFER_POOL_SIZE = 4;
+    private static final int UPSERT_BUFFER_MAX_RETAINED_BYTES = 16 * 1024 * 1024;
 
     private final ChromaDBConfig chromaDBConfig;
     private final ObjectMapper objectMapper;
     private final CloseableHttpAsyncClient httpAsyncClient;
+    private final AdaptiveConcurrencyLimiter chromaLimiter;
+    private final UpsertPayloadMetrics upsertPayloadMetrics;
     private final Map<String, String> collectionNameToUuidCache = new ConcurrentHashMap<>();
+    private final UpsertBodyBuffer.Pool upsertBuffers =
+        new UpsertBodyBuffer.Pool(UPSERT_BUFFER_POOL_SIZE, UPSERT_BUFFER_MAX_RETAINED_BYTES);
 
 
     public ChromaDBClientImpl(ChromaDBConfig chromaDBConfig,
                               ObjectMapper objectMapper,
-                              @Qualifier("sharedHttpAsyncClient") CloseableHttpAsyncClient sharedHttpAsyncClient) {
+                              @Qualifier("sharedHttpAsyncClient") CloseableHttpAsyncClient sharedHttpAsyncClient,
+                              @Qualifier(LimiterConfig.LIMITER_CHROMADB) AdaptiveConcurrencyLimiter chromaLimiter,
+                              UpsertPayloadMetrics upsertPayloadMetrics) {
         this.chromaDBConfig = chromaDBConfig;
         this.objectMapper = objectMapper;
         this.httpAsyncClient = sharedHttpAsyncClient;
+        this.chromaLimiter = chromaLimiter;
+        this.upsertPayloadMetrics = upsertPayloadMetrics;
         log.info("ChromaDBClientImpl initialized with config: {} and shared HTTP client. API Base: {}", chromaDBConfig, API_V2_BASE);
     }
 
@@ -137,7 +164,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                 .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
                 .build();
 
-            httpAsyncClient.execute(createRequest, new FutureCallback<SimpleHttpResponse>() {
+            chromaLimiter.execute(httpAsyncClient, createRequest, "collection", 1, new FutureCallback<SimpleHttpResponse>() {
                 @Override
                 public void completed(SimpleHttpResponse response) {
                     String responseBody = response.getBodyText();
@@ -202,99 +229,48 @@ public class ChromaDBClientImpl implements VectorStoreClient {
         CompletableFuture<Void> result = new CompletableFuture<>();
 
         getCollectionUuid(collectionName).thenAccept(collectionUuid -> {
+            UpsertBodyBuffer requestBody = null;
             try {
                 String addUrlPath = getCollectionBasePath(collectionUuid, true) + "/add";
                 String addFullUrl = chromaDBConfig.getUrl() + addUrlPath;
 
-                ObjectNode requestBody = objectMapper.createObjectNode();
-                ArrayNode idsArray = objectMapper.createArrayNode();
-                ArrayNode embeddingsArray = objectMapper.createArrayNode();
-                ArrayNode metadatasArray = objectMapper.createArrayNode();
-                ArrayNode documentsArray = objectMapper.createArrayNode();
-
-                for (VectorEntry entry : entries) {
-                    /* ids */
-                    idsArray.add(entry.getId());
-
-                    /* embeddings */
-                    if (entry.getEmbedding() != null && !entry.getEmbedding().isEmpty()) {
-                        ArrayNode emb = objectMapper.createArrayNode();
-                        entry.getEmbedding().forEach(emb::add);
-                        embeddingsArray.add(emb);
-                    } else {
-                        embeddingsArray.add(objectMapper.createArrayNode());
-                    }
-
-                    /* metadata – flatten complex objects to JSON strings */
-                    if (entry.getMetadata() != null && !entry.getMetadata().isEmpty()) {
-                        ObjectNode metaNode = objectMapper.createObjectNode();
-                        for (Map.Entry<String, Object> m : entry.getMetadata().entrySet()) {
-                            Object value = m.getValue();
-                            if (value == null) {
-                                metaNode.putNull(m.getKey());
-                            } else if (value instanceof String s) {
-                                metaNode.put(m.getKey(), s);
-                            } else if (value instanceof Integer i) {
-                                metaNode.put(m.getKey(), i);
-                            } else if (value instanceof Long l) {
-                                metaNode.put(m.getKey(), l);
-                            } else if (value instanceof Double d) {
-                                metaNode.put(m.getKey(), d);
-                            } else if (value instanceof Float f) {
-                                metaNode.put(m.getKey(), f);
-                            } else if (value instanceof Boolean b) {
-                                metaNode.put(m.getKey(), b);
-                            } else {
-                                /* Map / Collection / any other object -> store as JSON string */
-                                metaNode.put(m.getKey(), objectMapper.writeValueAsString(value));
-                            }
-                        }
-                        metadatasArray.add(metaNode);
-                    } else {
-                        metadatasArray.addNull();
-                    }
-
-                    /* document */
-                    documentsArray.add(entry.getDocument() == null ? null : entry.getDocument());
-                }
-
-                requestBody.set("ids", idsArray);
-                requestBody.set("embeddings", embeddingsArray);
-                requestBody.set("metadatas", metadatasArray);
-                requestBody.set("documents", documentsArray);
-
-                String requestBodyJson = objectMapper.writeValueAsString(requestBody);
+                requestBody = writeUpsertBody(entries);
+                upsertPayloadMetrics.record(entries.size(), requestBody.size(), requestBody.outgrewReservation());
 
                 if (log.isTraceEnabled() && entries.size() < 5) {
-                    log.trace("Upsert body for '{}' (UUID: {}) -> {}: {}", collectionName, collectionUuid, addFullUrl, requestBodyJson);
+                    log.trace("Upsert body for '{}' (UUID: {}) -> {}: {}", collectionName, collectionUuid, addFullUrl,
+                        requestBody.toString(StandardCharsets.UTF_8));
                 } else {
-                    log.debug("Upsert {} embeddings to '{}' (UUID: {}). First id={}", entries.size(), collectionName,
-                        collectionUuid, entries.get(0).getId());
+                    log.debug("Upsert {} embeddings ({} bytes) to '{}' (UUID: {}). First id={}", entries.size(), requestBody.size(),
+                        collectionName, collectionUuid, entries.get(0).getId());
                 }
 
-                SimpleHttpRequest upsertRequest = SimpleRequestBuilder.post(addFullUrl)
-                    .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
-                    .build();
+                UpsertBodyBuffer body = requestBody;
+                AsyncRequestProducer upsertRequest = new BasicRequestProducer(Method.POST, URI.create(addFullUrl),
+                    body.toEntityProducer(ContentType.APPLICATION_JSON));
 
-                httpAsyncClient.execute(upsertRequest, new FutureCallback<>() {
+                chromaLimiter.execute(httpAsyncClient, upsertRequest, "upsert", entries.size(), SimpleResponseConsumer.create(),
+                    SimpleHttpResponse::getCode, new FutureCallback<>() {
                     @Override
                     public void completed(SimpleHttpResponse response) {
                         String responseBody = response.getBodyText();
                         if (response.getCode() == 200 || response.getCode() == 201) { // 201 Created is also success
+                            upsertBuffers.release(body);
                             log.info("Successfully upserted {} embeddings to '{}' (UUID: {}). ({} ms)",
                                 entries.size(), collectionName, collectionUuid, System.currentTimeMillis() - startTime);
                             result.complete(null);
                         } else {
                             String msg = "Failed to upsert embeddings to '" + collectionName + "' (UUID: " + collectionUuid +
                                 "): " + response.getCode() + " - " + responseBody;
-                            log.error("{}. Request body (first 1000 chars): {}", msg,
-                                requestBodyJson.substring(0, Math.min(1000, requestBodyJson.length())));
+                            log.error("{}. Request body (first 1000 bytes): {}", msg, body.preview(1000));
+                            upsertBuffers.release(body);
                             result.completeExceptionally(new VectorStoreException(msg));
                         }
                     }
 
                     @Override
                     public void failed(Exception ex) {
+                        upsertBuffers.release(body);
                         log.error("HTTP upsert to '{}' (UUID: {}) failed after {} ms: {}",
                             collectionName, collectionUuid, System.currentTimeMillis() - startTime, ex.getMessage(), ex);
                         result.completeExceptionally(new VectorStoreException(
@@ -303,6 +279,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
 
                     @Override
                     public void cancelled() {
+                        upsertBuffers.release(body);
                         log.warn("Upsert to '{}' (UUID: {}) cancelled after {} ms",
                             collectionName, collectionUuid, System.currentTimeMillis() - startTime);
                         result.cancel(true);
@@ -310,6 +287,8 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                 });
 
             } catch (Exception e) {
+                // Nothing was sent, so the buffer is not being read.
+                upsertBuffers.release(requestBody);
                 log.error("Error building upsert request for '{}': {}", collectionName, e.getMessage(), e);
                 result.completeExceptionally(new VectorStoreException("Error upserting embeddings", e));
             }
@@ -323,6 +302,108 @@ public class ChromaDBClientImpl implements VectorStoreClient {
         return result;
     }
 
+    /**
+     * Serializes an upsert batch with a streaming generator into a buffer that is sent as the request
+     * body as is. Vectors are written straight from their float arrays, so no intermediate JSON tree,
+     * String or exact-size copy of the batch is built. The buffer is taken from the pool with room for
+     * the estimated body, so it normally never grows; the caller returns it once the request is done.
+     */
+    UpsertBodyBuffer writeUpsertBody(List<VectorEntry> entries) throws IOException {
+        UpsertBodyBuffer buffer = upsertBuffers.acquire(estimateUpsertBodyBytes(entries));
+        try (JsonGenerator generator = objectMapper.createGenerator(buffer)) {
+            generator.writeStartObject();
+
+            generator.writeArrayFieldStart("ids");
+            for (VectorEntry entry : entries) {
+                generator.writeString(entry.getId());
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("embeddings");
+            for (VectorEntry entry : entries) {
+                generator.writeStartArray();
+                if (entry.getVector() != null) {
+                    for (float value : entry.getVector().array()) {
+                        generator.writeNumber(value);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("metadatas");
+            for (VectorEntry entry : entries) {
+                writeMetadata(generator, entry.getMetadata());
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("documents");
+            for (VectorEntry entry : entries) {
+                generator.writeString(entry.getDocument());
+            }
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        }
+        return buffer;
+    }
+
+    /**
+     * Estimates the serialized size of an upsert batch from its ids, vector dimensions and document
+     * lengths, erring on the high side so the body fits without the buffer being copied.
+     */
+    static int estimateUpsertBodyBytes(List<VectorEntry> entries) {
+        long bytes = 64;
+        for (VectorEntry entry : entries) {
+            bytes += lengthOf(entry.getId()) + 4;
+            if (entry.getVector() != null) {
+                bytes += (long) entry.getVector().array().length * BYTES_PER_JSON_FLOAT + 4;
+            }
+            bytes += BYTES_PER_METADATA;
+            // Mostly ASCII source; the margin covers escapes and the odd multi-byte character.
+            bytes += lengthOf(entry.getDocument()) * 11L / 10 + 4;
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE - 8);
+    }
+
+    private static int lengthOf(String value) {
+        return value == null ? 4 : value.length();
+    }
+
+    /**
+     * Writes one metadata map. Chroma only accepts scalar values, so maps, collections and other
+     * objects are flattened to JSON strings.
+     */
+    private void writeMetadata(JsonGenerator generator, Map<String, Object> metadata) throws IOException {
+        if (metadata == null || metadata.isEmpty()) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> m : metadata.entrySet()) {
+            generator.writeFieldName(m.getKey());
+            Object value = m.getValue();
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof String s) {
+                generator.writeString(s);
+            } else if (value instanceof Integer i) {
+                generator.writeNumber(i);
+            } else if (value instanceof Long l) {
+                generator.writeNumber(l);
+            } else if (value instanceof Double d) {
+                generator.writeNumber(d);
+            } else if (value instanceof Float f) {
+                generator.writeNumber(f);
+            } else if (value instanceof Boolean b) {
+                generator.writeBoolean(b);
+            } else {
+                generator.writeString(objectMapper.writeValueAsString(value));
+            }
+        }
+        generator.writeEndObject();
+    }
+
     private CompletableFuture<String> getCollectionUuid(String collectionName) {
         String cachedUuid = collectionNameToUuidCache.get(collectionName);
         if (cachedUuid != null) {
@@ -337,7 +418,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
 
         log.debug("Fetching collection UUID for '{}' from URL: {}", collectionName, listCollectionsFullUrl);
 
-        httpAsyncClient.execute(getRequest, new FutureCallback<SimpleHttpResponse>() {
+        chromaLimiter.execute(httpAsyncClient, getRequest, "collection", 1, new FutureCallback<SimpleHttpResponse>() {
             @Override
             public void completed(SimpleHttpResponse response) {
                 try {
@@ -399,8 +480,8 @@ public class ChromaDBClientImpl implements VectorStoreClient {
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
-    public CompletableFuture<List<VectorEntry>> searchSimilarEmbeddingsAsync(String collectionName, List<Float> queryEmbedding, int k,
-                                                                             Map<String, Object> metadataFilter) {
+    public CompletableFuture<List<VectorEntry>> searchSimilarVectorsAsync(String collectionName, EmbeddingVector queryEmbedding, int k,
+                                                                          Map<String, Object> metadataFilter) {
         long startTime = System.currentTimeMillis();
         log.debug("Searching for similar embeddings in collection '{}' with k={}, filter: {}", collectionName, k, metadataFilter);
         CompletableFuture<List<VectorEntry>> result = new CompletableFuture<>();
@@ -415,7 +496,9 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                 if (queryEmbedding != null && !queryEmbedding.isEmpty()) {
                     ArrayNode queryEmbeddingsArrayNode = objectMapper.createArrayNode();
                     ArrayNode singleQueryEmbeddingNode = objectMapper.createArrayNode();
-                    queryEmbedding.forEach(singleQueryEmbeddingNode::add);
+                    for (float value : queryEmbedding.array()) {
+                        singleQueryEmbeddingNode.add(value);
+                    }
                     queryEmbeddingsArrayNode.add(singleQueryEmbeddingNode);
                     requestBody.set("query_embeddings", queryEmbeddingsArrayNode);
                 } else if (metadataFilter == null || metadataFilter.isEmpty()) {
@@ -455,7 +538,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                     .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
                     .build();
 
-                httpAsyncClient.execute(queryRequest, new FutureCallback<SimpleHttpResponse>() {
+                chromaLimiter.execute(httpAsyncClient, queryRequest, "query", 1, new FutureCallback<SimpleHttpResponse>() {
                     @Override
                     public void completed(SimpleHttpResponse response) {
                         try {
@@ -559,19 +642,21 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                 document = documentsForQuery.get(i).asText();
             }
 
-            List<Float> embedding = null;
+            EmbeddingVector embedding = null;
             if (embeddingsForQuery != null && !embeddingsForQuery.isMissingNode() && i < embeddingsForQuery.size() &&
                 embeddingsForQuery.get(i) != null && embeddingsForQuery.get(i).isArray()) {
-                embedding = new ArrayList<>();
-                for (JsonNode val : embeddingsForQuery.get(i)) {
-                    embedding.add(val.floatValue());
+                JsonNode embeddingNode = embeddingsForQuery.get(i);
+                float[] values = new float[embeddingNode.size()];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = embeddingNode.get(j).floatValue();
                 }
+                embedding = EmbeddingVector.wrap(values);
             }
 
 
             VectorEntry entry = VectorEntry.builder()
                 .id(id)
-                .embedding(embedding)
+                .vector(embedding)
                 .metadata(metadata)
                 .document(document)
                 .build();
@@ -607,7 +692,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                     .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
                     .build();
 
-                httpAsyncClient.execute(deleteRequest, new FutureCallback<SimpleHttpResponse>() {
+                chromaLimiter.execute(httpAsyncClient, deleteRequest, "delete", 1, new FutureCallback<SimpleHttpResponse>() {
                     @Override
                     public void completed(SimpleHttpResponse response) {
                         String responseBody = response.getBodyText();
@@ -681,7 +766,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                     .setBody(requestBodyJson, ContentType.APPLICATION_JSON)
                     .build();
 
-                httpAsyncClient.execute(deleteRequest, new FutureCallback<SimpleHttpResponse>() {
+                chromaLimiter.execute(httpAsyncClient, deleteRequest, "delete", ids.size(), new FutureCallback<SimpleHttpResponse>() {
                     @Override
                     public void completed(SimpleHttpResponse response) {
                         String responseBody = response.getBodyText();
@@ -740,7 +825,7 @@ public class ChromaDBClientImpl implements VectorStoreClient {
                 SimpleHttpRequest countRequest = SimpleRequestBuilder.post(countFullUrl).build(); // POST for /count
 
                 log.debug("Attempting to count collection items from URL: {}", countFullUrl);
-                httpAsyncClient.execute(countRequest, new FutureCallback<SimpleHttpResponse>() {
+                chromaLimiter.execute(httpAsyncClient, countRequest, "count", 1, new FutureCallback<SimpleHttpResponse>() {
                     @Override
                     public void completed(SimpleHttpResponse response) {
                         try {
@@ -0,0 +1,275 @@
+package com.localllm.assistant.vectorstore.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.config.AsyncConfig;
+import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.exception.VectorStoreException;
+import com.localllm.assistant.vectorstore.VectorStoreClient;
+import com.localllm.assistant.vectorstore.hnsw.DistanceFunction;
+import com.localllm.assistant.vectorstore.hnsw.EmbeddedCollection;
+import com.localllm.assistant.vectorstore.hnsw.IndexType;
+import com.localllm.assistant.vectorstore.model.VectorEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process {@link VectorStoreClient} over memory-mapped vectors, used when
+ * {@code vectorstore.backend=embedded}. Removes the ChromaDB container and the HTTP/JSON hop from
+ * every query; searches run on the calling thread. {@code vectorstore.embedded.index} selects an
+ * approximate HNSW graph ({@code hnsw}) or an exact parallel scan ({@code exact}), which is the
+ * better choice up to a few hundred thousand segments.
+ * <p>
+ * Each collection lives in its own directory under {@code vectorstore.embedded.path}. Writes are
+ * flushed to disk periodically and on shutdown; entries written after the last flush are lost on a
+ * crash. The index manifest still lists them, so {@link #findMissingIdsAsync} reports them: the next
+ * incremental index run marks their files for re-processing, and file updates embed them again
+ * instead of reusing them.
+ */
+@Service
+@ConditionalOnProperty(name = "vectorstore.backend", havingValue = "embedded")
+public class EmbeddedVectorStoreClientImpl implements VectorStoreClient {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedVectorStoreClientImpl.class);
+
+    private final ChromaDBConfig chromaDBConfig;
+    private final ObjectMapper objectMapper;
+    private final Map<String, EmbeddedCollection> collections = new ConcurrentHashMap<>();
+
+    @Value("${vectorstore.embedded.path:./data/vectorstore}")
+    private String storePath;
+
+    @Value("${vectorstore.embedded.index:hnsw}")
+    private String indexType;
+
+    @Value("${vectorstore.embedded.m:16}")
+    private int m;
+
+    @Value("${vectorstore.embedded.efConstruction:200}")
+    private int efConstruction;
+
+    @Value("${vectorstore.embedded.efSearch:64}")
+    private int efSearch;
+
+    @Value("${vectorstore.embedded.flushIntervalSeconds:10}")
+    private long flushIntervalSeconds;
+
+    @Value("${vectorstore.embedded.compactDeletedRatio:0.3}")
+    private double compactDeletedRatio;
+
+    private EmbeddedCollection.Settings settings;
+    private ScheduledExecutorService flushExecutor;
+
+    public EmbeddedVectorStoreClientImpl(ChromaDBConfig chromaDBConfig, ObjectMapper objectMapper) {
+        this.chromaDBConfig = chromaDBConfig;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        settings = new EmbeddedCollection.Settings(IndexType.fromName(indexType), chromaDBConfig.getEmbeddingDimension(),
+            DistanceFunction.fromName(chromaDBConfig.getDistanceFunction()), m, efConstruction, compactDeletedRatio);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "EmbeddedVectorStoreFlusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushAll, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Embedded vector store initialized at {} ({}, dimension {}, {}, M={}, efConstruction={}, efSearch={}).",
+            Path.of(storePath).toAbsolutePath(), settings.indexType(), settings.dimension(), settings.distanceFunction(),
+            m, efConstruction, efSearch);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        for (EmbeddedCollection collection : collections.values()) {
+            try {
+                collection.close();
+            } catch (IOException e) {
+                log.error("Failed to close embedded collection '{}': {}", collection.getName(), e.getMessage(), e);
+            }
+        }
+        collections.clear();
+    }
+
+    @Override
+    @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
+    public CompletableFuture<Void> ensureCollectionExists(String collectionName) {
+        try {
+            collection(collectionName);
+            return CompletableFuture.completedFuture(null);
+        } catch (VectorStoreException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
+    public CompletableFuture<Void> upsertEmbeddingsAsync(String collectionName, List<VectorEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            log.warn("No entries to upsert for collection: {}", collectionName);
+            return CompletableFuture.completedFuture(null);
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            collection(collectionName).upsert(entries);
+            log.info("Upserted {} embeddings to embedded collection '{}' ({}ms)",
+                entries.size(), collectionName, System.currentTimeMillis() - startTime);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Failed to upsert {} embeddings to embedded collection '{}': {}", entries.size(), collectionName, e.getMessage(), e);
+            return CompletableFuture.failedFuture(new VectorStoreException("Failed to upsert embeddings: " + e.getMessage(), e));
+        } catch (VectorStoreException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Runs on the caller's thread: an in-memory search is cheaper than an executor hand-off (the exact
+     * index fans large scans out to the fork/join pool itself).
+     */
+    @Override
+    public CompletableFuture<List<VectorEntry>> searchSimilarVectorsAsync(String collectionName, EmbeddingVector queryVector, int k,
+                                                                          Map<String, Object> metadataFilter) {
+        long startTime = System.nanoTime();
+        try {
+            EmbeddedCollection collection = collection(collectionName);
+            List<VectorEntry> results;
+            if (queryVector != null && !queryVector.isEmpty()) {
+                if (queryVector.dimension() != settings.dimension()) {
+                    throw new VectorStoreException("Query vector has dimension " + queryVector.dimension() +
+                        " but collection '" + collectionName + "' expects " + settings.dimension());
+                }
+                results = collection.search(queryVector.array(), k, Math.max(efSearch, k), metadataFilter);
+            } else if (metadataFilter != null && !metadataFilter.isEmpty()) {
+                results = collection.find(metadataFilter, k);
+            } else {
+                throw new VectorStoreException("Query requires a query vector or a metadata filter.");
+            }
+            log.debug("Embedded search in '{}' returned {} results (k={}, filter: {}) in {}us",
+                collectionName, results.size(), k, metadataFilter, (System.nanoTime() - startTime) / 1000);
+            return CompletableFuture.completedFuture(results);
+        } catch (VectorStoreException e) {
+            log.error("Embedded search in '{}' failed: {}", collectionName, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        } catch (RuntimeException e) {
+            log.error("Embedded search in '{}' failed: {}", collectionName, e.getMessage(), e);
+            return CompletableFuture.failedFuture(new VectorStoreException("Search failed: " + e.getMessage(), e));
+        }
+    }
+
+    @Override
+    @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
+    public CompletableFuture<Void> deleteEmbeddingsByMetadataAsync(String collectionName, Map<String, Object> metadataFilter) {
+        if (metadataFilter == null || metadataFilter.isEmpty()) {
+            log.error("Metadata filter cannot be null or empty for delete operation on collection '{}' for safety.", collectionName);
+            return CompletableFuture.failedFuture(new VectorStoreException("Metadata filter cannot be null or empty for safety"));
+        }
+        try {
+            int deleted = collection(collectionName).deleteWhere(metadataFilter);
+            log.info("Deleted {} embeddings from embedded collection '{}' matching {}", deleted, collectionName, metadataFilter);
+            return CompletableFuture.completedFuture(null);
+        } catch (VectorStoreException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(new VectorStoreException("Delete by metadata failed: " + e.getMessage(), e));
+        }
+    }
+
+    @Override
+    @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
+    public CompletableFuture<Void> deleteEmbeddingsByIdsAsync(String collectionName, List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            log.warn("No IDs provided for deletion from collection '{}'", collectionName);
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            int deleted = collection(collectionName).deleteByIds(ids);
+            log.info("Deleted {} of {} requested embeddings from embedded collection '{}'", deleted, ids.size(), collectionName);
+            return CompletableFuture.completedFuture(null);
+        } catch (VectorStoreException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> countEmbeddingsAsync(String collectionName) {
+        try {
+            return CompletableFuture.completedFuture((long) collection(collectionName).count());
+        } catch (VectorStoreException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> findMissingIdsAsync(String collectionName, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        try {
+            return CompletableFuture.completedFuture(collection(collectionName).missingIds(ids));
+        } catch (VectorStoreException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void clearCacheForCollection(String collectionName) {
+        // Nothing is cached by name; collections are opened once and stay resident.
+        log.debug("clearCacheForCollection('{}') is a no-op for the embedded vector store.", collectionName);
+    }
+
+    private EmbeddedCollection collection(String collectionName) {
+        if (collectionName == null || collectionName.isBlank()) {
+            throw new VectorStoreException("Collection name must not be empty");
+        }
+        try {
+            return collections.computeIfAbsent(collectionName, name -> {
+                try {
+                    return EmbeddedCollection.open(name, Path.of(storePath).resolve(directoryName(name)), settings, objectMapper);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.error("Failed to open embedded collection '{}': {}", collectionName, e.getCause().getMessage(), e);
+            throw new VectorStoreException("Failed to open embedded collection '" + collectionName + "': " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void flushAll() {
+        for (EmbeddedCollection collection : collections.values()) {
+            try {
+                collection.flush();
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to flush embedded collection '{}': {}", collection.getName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private static String directoryName(String collectionName) {
+        return collectionName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,178 @@
+package com.localllm.assistant.vectorstore.impl;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Growable buffer an upsert body is serialized into, sent as the request entity without copying it
+ * into a byte array of the exact size first. Buffers come from a {@link Pool}, sized up front from an
+ * estimate of the batch, and go back to it once the request has completed.
+ */
+final class UpsertBodyBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_BYTES = 64 * 1024;
+
+    private final AtomicBoolean pooled = new AtomicBoolean();
+    private int reservedBytes;
+
+    UpsertBodyBuffer() {
+        super(INITIAL_BYTES);
+    }
+
+    /**
+     * Empties the buffer and makes sure it can hold {@code expectedBytes} without growing.
+     */
+    private void prepare(int expectedBytes) {
+        reset();
+        if (buf.length < expectedBytes) {
+            buf = new byte[expectedBytes];
+        }
+        reservedBytes = buf.length;
+    }
+
+    /**
+     * Whether the body outgrew the capacity reserved for it, i.e. the size estimate was too low and
+     * the buffer was copied at least once while serializing.
+     */
+    boolean outgrewReservation() {
+        return buf.length > reservedBytes;
+    }
+
+    /**
+     * Returns the first {@code maxBytes} of the body as text, for logging.
+     */
+    String preview(int maxBytes) {
+        return new String(buf, 0, Math.min(maxBytes, count), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns an entity producer that writes the buffer's current contents. The buffer must not be
+     * written to while the request is in flight.
+     */
+    AsyncEntityProducer toEntityProducer(ContentType contentType) {
+        return new EntityProducer(ByteBuffer.wrap(buf, 0, count).asReadOnlyBuffer(), contentType);
+    }
+
+    private static final class EntityProducer implements AsyncEntityProducer {
+        private final ByteBuffer content;
+        private final String contentType;
+        private ByteBuffer remaining;
+
+        private EntityProducer(ByteBuffer content, ContentType contentType) {
+            this.content = content;
+            this.contentType = contentType.toString();
+            this.remaining = content.duplicate();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public long getContentLength() {
+            return content.remaining();
+        }
+
+        @Override
+        public int available() {
+            return remaining.remaining();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return null;
+        }
+
+        @Override
+        public void produce(DataStreamChannel channel) throws IOException {
+            if (remaining.hasRemaining()) {
+                channel.write(remaining);
+            }
+            if (!remaining.hasRemaining()) {
+                channel.endStream();
+            }
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            // Reported to the request's callback by the client.
+        }
+
+        @Override
+        public void releaseResources() {
+            // Rewind so a retried request sends the body again.
+            remaining = content.duplicate();
+        }
+    }
+
+    /**
+     * Small pool of body buffers. A buffer is only returned once its request has completed, since the
+     * entity producer reads straight from its array; buffers grown past {@code maxRetainedBytes} are
+     * dropped instead of kept, so one oversized batch does not pin its memory.
+     */
+    static final class Pool {
+        private final BlockingQueue<UpsertBodyBuffer> idle;
+        private final int maxRetainedBytes;
+
+        Pool(int maxIdle, int maxRetainedBytes) {
+            this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+            this.maxRetainedBytes = maxRetainedBytes;
+        }
+
+        /**
+         * Returns an empty buffer with room for at least {@code expectedBytes}.
+         */
+        UpsertBodyBuffer acquire(int expectedBytes) {
+            UpsertBodyBuffer buffer = idle.poll();
+            if (buffer == null) {
+                buffer = new UpsertBodyBuffer();
+            }
+            buffer.pooled.set(false);
+            buffer.prepare(expectedBytes);
+            return buffer;
+        }
+
+        /**
+         * Hands a buffer back once nothing reads from it any more. Releasing the same buffer twice is
+         * harmless.
+         */
+        void release(UpsertBodyBuffer buffer) {
+            if (buffer == null || !buffer.pooled.compareAndSet(false, true)) {
+                return;
+            }
+            if (buffer.buf.length <= maxRetainedBytes) {
+                idle.offer(buffer);
+            }
+        }
+
+        int idleCount() {
+            return idle.size();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.localllm.assistant.vectorstore.impl;
 
 import com.localllm.assistant.config.AsyncConfig;
 import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
 import com.localllm.assistant.exception.VectorStoreException;
 import com.localllm.assistant.parser.model.CodeSegment;
 import com.localllm.assistant.parser.model.SegmentType;
@@ -38,7 +39,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
-    public CompletableFuture<Void> storeSegmentAsync(CodeSegment segment, List<Float> embedding) {
+    public CompletableFuture<Void> storeSegmentVectorAsync(CodeSegment segment, EmbeddingVector embedding) {
         if (segment == null || embedding == null || embedding.isEmpty()) {
             log.error("Attempted to store null or empty segment/embedding.");
             return CompletableFuture.failedFuture(new IllegalArgumentException("Segment and embedding must not be null or empty"));
@@ -51,7 +52,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
-    public CompletableFuture<Void> storeSegmentsAsync(List<CodeSegment> segments, List<List<Float>> embeddings) {
+    public CompletableFuture<Void> storeSegmentVectorsAsync(List<CodeSegment> segments, List<EmbeddingVector> embeddings) {
         if (segments == null || embeddings == null || segments.size() != embeddings.size()) {
             log.error("Mismatched segments ({}) and embeddings ({}) list sizes during store.",
                 segments != null ? segments.size() : "null", embeddings != null ? embeddings.size() : "null");
@@ -69,7 +70,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
-    public CompletableFuture<List<VectorSearchResult>> searchSimilarAsync(List<Float> queryEmbedding, int maxResults, double minScore) {
+    public CompletableFuture<List<VectorSearchResult>> searchSimilarVectorsAsync(EmbeddingVector queryEmbedding, int maxResults, double minScore) {
         if (queryEmbedding == null || queryEmbedding.isEmpty() || maxResults <= 0) {
             log.warn("Invalid search parameters: embedding empty={}, k={}, score={}",
                 queryEmbedding == null || queryEmbedding.isEmpty(), maxResults, minScore);
@@ -80,7 +81,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
         int fetchK = (int) (maxResults * 1.5) + 5;
 
-        return vectorStoreClient.searchSimilarEmbeddingsAsync(collectionName, queryEmbedding, fetchK, null)
+        return vectorStoreClient.searchSimilarVectorsAsync(collectionName, queryEmbedding, fetchK, null)
             .thenApply(entries -> entries.stream()
                 // Use method reference 'this::mapEntryToSearchResult'
                 .map(this::mapEntryToSearchResult)
@@ -111,7 +112,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         // Use search with filter, k=1. No query embedding needed for metadata-only search if client supports it.
         // If client requires an embedding, pass a dummy one or handle differently.
         // Assuming client handles null embedding for metadata search:
-        return vectorStoreClient.searchSimilarEmbeddingsAsync(collectionName, null, 1, idFilter)
+        return vectorStoreClient.searchSimilarVectorsAsync(collectionName, null, 1, idFilter)
             .thenApply(entries -> {
                 if (entries.isEmpty()) {
                     log.debug("Segment ID '{}' not found via search in collection '{}'", segmentId, collectionName);
@@ -167,14 +168,14 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
     @Override
     @Async(AsyncConfig.TASK_EXECUTOR_VECTOR_STORE)
-    public CompletableFuture<List<VectorSearchResult>> findSimilarCodeSegments(
-        List<Float> queryEmbedding,
+    public CompletableFuture<List<VectorSearchResult>> findSimilarCodeSegmentsByVector(
+        EmbeddingVector queryEmbedding,
         int maxResults,
         double minScore,
         Map<String, Object> filters) {
 
         if (queryEmbedding == null || queryEmbedding.isEmpty() || maxResults <= 0) {
-            log.warn("Invalid search parameters for findSimilarCodeSegments: embedding empty={}, k={}, score={}",
+            log.warn("Invalid search parameters for findSimilarCodeSegmentsByVector: embedding empty={}, k={}, score={}",
                 queryEmbedding == null || queryEmbedding.isEmpty(), maxResults, minScore);
             return CompletableFuture.completedFuture(Collections.emptyList());
         }
@@ -186,7 +187,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         // Increase fetch size to account for filtering
         int fetchK = (int) (maxResults * 2) + 10;
 
-        return vectorStoreClient.searchSimilarEmbeddingsAsync(collectionName, queryEmbedding, fetchK, filters)
+        return vectorStoreClient.searchSimilarVectorsAsync(collectionName, queryEmbedding, fetchK, filters)
             .thenApply(entries -> entries.stream()
                 .map(this::mapEntryToSearchResult)
                 .filter(Objects::nonNull)
@@ -217,7 +218,7 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         Map<String, Object> filePathFilter = Map.of("relativeFilePath", relativeFilePath);
 
         // First count how many segments will be deleted
-        return vectorStoreClient.searchSimilarEmbeddingsAsync(collectionName, null, 1000, filePathFilter)
+        return vectorStoreClient.searchSimilarVectorsAsync(collectionName, null, 1000, filePathFilter)
             .thenCompose(entries -> {
                 int count = entries.size();
                 if (count == 0) {
@@ -252,21 +253,21 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
     // --- Helper Methods ---
 
-    private VectorEntry mapSegmentToEntry(CodeSegment segment, List<Float> embedding) {
+    private VectorEntry mapSegmentToEntry(CodeSegment segment, EmbeddingVector embedding) {
         Map<String, Object> metadata = createMetadataMap(segment);
         return VectorEntry.builder()
             .id(segment.getId())
-            .embedding(embedding)
+            .vector(embedding)
             .metadata(metadata)
             .document(segment.getContent())
             .build();
     }
 
-    private List<VectorEntry> mapSegmentsToEntries(List<CodeSegment> segments, List<List<Float>> embeddings) {
+    private List<VectorEntry> mapSegmentsToEntries(List<CodeSegment> segments, List<EmbeddingVector> embeddings) {
         List<VectorEntry> entries = new ArrayList<>();
         for (int i = 0; i < segments.size(); i++) {
             CodeSegment segment = segments.get(i);
-            List<Float> embedding = embeddings.get(i);
+            EmbeddingVector embedding = embeddings.get(i);
             if (segment != null && segment.getId() != null && !segment.getId().isBlank() &&
                 embedding != null && !embedding.isEmpty()) {
                 entries.add(mapSegmentToEntry(segment, embedding));
@@ -288,6 +289,12 @@ public class VectorStoreServiceImpl implements VectorStoreService {
         if (segment.getEntityName() != null) {
             metadata.put("entityName", segment.getEntityName());
         }
+        if (segment.getParentId() != null) {
+            metadata.put("parentId", segment.getParentId());
+        }
+        if (segment.getParentFqn() != null) {
+            metadata.put("parentFqn", segment.getParentFqn());
+        }
         if (segment.getMetadata() != null) {
             segment.getMetadata().forEach((key, value) -> metadata.putIfAbsent(key, value));
         }
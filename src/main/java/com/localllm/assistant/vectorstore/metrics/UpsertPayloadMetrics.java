@@ -0,0 +1,55 @@
+package com.localllm.assistant.vectorstore.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the size of upsert request bodies sent to the vector store, so batch sizes can be tuned
+ * against what the store actually receives.
+ */
+@Component
+public class UpsertPayloadMetrics {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+    private final AtomicLong lastBytes = new AtomicLong();
+    private final AtomicLong maxBytes = new AtomicLong();
+    private final LongAdder bufferResizes = new LongAdder();
+
+    /**
+     * Records one upsert request body.
+     *
+     * @param entryCount Number of vector entries in the batch.
+     * @param bytes Serialized body size in bytes.
+     * @param bufferResized Whether the body outgrew the buffer reserved from the size estimate.
+     */
+    public void record(int entryCount, long bytes, boolean bufferResized) {
+        if (bufferResized) {
+            bufferResizes.increment();
+        }
+        requests.increment();
+        entries.add(entryCount);
+        totalBytes.add(bytes);
+        lastBytes.set(bytes);
+        maxBytes.accumulateAndGet(bytes, Math::max);
+    }
+
+    public UpsertPayloadStats stats() {
+        long requestCount = requests.sum();
+        long entryCount = entries.sum();
+        long bytes = totalBytes.sum();
+        return UpsertPayloadStats.builder()
+            .requests(requestCount)
+            .entries(entryCount)
+            .totalBytes(bytes)
+            .lastBytes(lastBytes.get())
+            .maxBytes(maxBytes.get())
+            .bufferResizes(bufferResizes.sum())
+            .avgBytesPerRequest(requestCount == 0 ? 0 : bytes / requestCount)
+            .avgBytesPerEntry(entryCount == 0 ? 0 : bytes / entryCount)
+            .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.localllm.assistant.vectorstore.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the vector store upsert payload counters.
+ */
+@Getter
+@Builder
+public class UpsertPayloadStats {
+    private final long requests;
+    private final long entries;
+    private final long totalBytes;
+    private final long lastBytes;
+    private final long maxBytes;
+    private final long avgBytesPerRequest;
+    private final long avgBytesPerEntry;
+    /** Requests whose body outgrew the buffer sized from the batch estimate. */
+    private final long bufferResizes;
+}
@@ -3,6 +3,8 @@ package com.localllm.assistant.vectorstore.model;
 import java.util.List;
 import java.util.Map;
 
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -25,9 +27,8 @@ public class VectorEntry {
 
     /**
      * The dense vector embedding representing the code segment's semantics.
-     * Represented as a list of floats.
      */
-    private List<Float> embedding;
+    private EmbeddingVector vector;
 
     /**
      * Metadata associated with this vector embedding.
@@ -44,4 +45,34 @@ public class VectorEntry {
      * if the content can be retrieved via the ID from another source (e.g., CodeSegment cache).
      */
     private String document;
-} 
+
+    /**
+     * List view of {@link #vector} for list-based callers.
+     *
+     * @deprecated Use {@link #getVector()}.
+     */
+    @Deprecated
+    public List<Float> getEmbedding() {
+        return vector != null ? vector.asList() : null;
+    }
+
+    /**
+     * @deprecated Use {@link #setVector(EmbeddingVector)}.
+     */
+    @Deprecated
+    public void setEmbedding(List<Float> embedding) {
+        this.vector = embedding != null ? EmbeddingVector.fromList(embedding) : null;
+    }
+
+    public static class VectorEntryBuilder {
+
+        /**
+         * @deprecated Use {@link #vector(EmbeddingVector)}.
+         */
+        @Deprecated
+        public VectorEntryBuilder embedding(List<Float> embedding) {
+            this.vector = embedding != null ? EmbeddingVector.fromList(embedding) : null;
+            return this;
+        }
+    }
+}
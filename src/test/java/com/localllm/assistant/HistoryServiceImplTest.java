@@ -1,15 +1,22 @@
 package com.localllm.assistant;
 
+import com.localllm.assistant.history.ChatHistoryWriter;
 import com.localllm.assistant.history.ChatMessageRepository;
+import com.localllm.assistant.history.ConversationCursor;
+import com.localllm.assistant.history.ConversationListingRepository;
 import com.localllm.assistant.history.ConversationRepository;
+import com.localllm.assistant.history.RecentMessageCache;
 import com.localllm.assistant.history.model.ChatMessage;
 import com.localllm.assistant.history.model.Conversation;
+import com.localllm.assistant.history.model.ConversationPage;
+import com.localllm.assistant.history.model.ConversationSummary;
 import com.localllm.assistant.history.model.MessageRole;
 import com.localllm.assistant.service.impl.HistoryServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -20,6 +27,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,6 +49,15 @@ class HistoryServiceImplTest {
     @Mock
     private ChatMessageRepository chatMessageRepository;
 
+    @Mock
+    private ChatHistoryWriter chatHistoryWriter;
+
+    @Mock
+    private ConversationListingRepository conversationListingRepository;
+
+    @Mock
+    private RecentMessageCache recentMessageCache;
+
     @InjectMocks
     private HistoryServiceImpl historyService;
 
@@ -301,6 +318,83 @@ class HistoryServiceImplTest {
         assertEquals(Sort.by("timestamp").descending(), pageable.getSort());
     }
 
+    @Test
+    void testGetRecentMessagesForConversation_IncludesQueuedMessages() {
+        // Given
+        String conversationId = "test-conversation-id";
+        ChatMessage persisted = ChatMessage.builder()
+            .id("persisted")
+            .conversationId(conversationId)
+            .timestamp(testTime.minusMinutes(1))
+            .role(MessageRole.ASSISTANT)
+            .content("Earlier answer")
+            .build();
+        ChatMessage queued = ChatMessage.builder()
+            .id("queued")
+            .conversationId(conversationId)
+            .timestamp(testTime)
+            .role(MessageRole.USER)
+            .content("Follow-up question")
+            .build();
+
+        when(chatHistoryWriter.pending(conversationId)).thenReturn(List.of(queued));
+        when(chatMessageRepository.findByConversationIdOrderByTimestampDesc(eq(conversationId), any(Pageable.class)))
+            .thenReturn(new ArrayList<>(List.of(persisted)));
+
+        // When
+        List<ChatMessage> result = historyService.getRecentMessagesForConversation(conversationId, 1);
+
+        // Then: the queued message is newer, so it is the one within the limit
+        assertEquals(List.of(queued), result);
+    }
+
+    @Test
+    void testGetRecentMessagesForConversation_ServedFromCache() {
+        // Given
+        when(recentMessageCache.get("test-conversation-id", 5)).thenReturn(Optional.of(List.of(testMessage)));
+
+        // When
+        List<ChatMessage> result = historyService.getRecentMessagesForConversation("test-conversation-id", 5);
+
+        // Then
+        assertEquals(List.of(testMessage), result);
+        verify(chatMessageRepository, never()).findByConversationIdOrderByTimestampDesc(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void testGetRecentMessagesForConversation_MissFillsCache() {
+        // Given
+        when(recentMessageCache.capacity()).thenReturn(20);
+        when(chatMessageRepository.findByConversationIdOrderByTimestampDesc(eq("test-conversation-id"), any(Pageable.class)))
+            .thenReturn(new ArrayList<>(List.of(testMessage)));
+
+        // When
+        historyService.getRecentMessagesForConversation("test-conversation-id", 5);
+
+        // Then: the whole buffer is loaded, not just the requested messages
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(chatMessageRepository).findByConversationIdOrderByTimestampDesc(eq("test-conversation-id"), pageableCaptor.capture());
+        assertEquals(20, pageableCaptor.getValue().getPageSize());
+        verify(recentMessageCache).beginLoad("test-conversation-id");
+        verify(recentMessageCache).completeLoad("test-conversation-id", List.of(testMessage));
+    }
+
+    @Test
+    void testEnqueueMessage() {
+        // Given
+        when(chatHistoryWriter.enqueue(any(ChatMessage.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        ChatMessage result = historyService.enqueueMessage("test-conversation-id", MessageRole.USER, "Question", null);
+
+        // Then
+        assertEquals("test-conversation-id", result.getConversationId());
+        assertNotNull(result.getTimestamp());
+        assertNotNull(result.getMetadata());
+        verify(chatMessageRepository, never()).save(any(ChatMessage.class));
+        verify(conversationRepository, never()).save(any(Conversation.class));
+    }
+
     @Test
     void testGetRecentMessagesForConversation_InvalidParams() {
         // Test null conversation ID
@@ -397,6 +491,45 @@ class HistoryServiceImplTest {
         assertEquals(Sort.by("updatedAt").descending(), pageable.getSort());
     }
 
+    @Test
+    void testListConversations_FirstPageHasNextCursor() {
+        // Given
+        List<ConversationSummary> fetched = Arrays.asList(summary("c3", testTime), summary("c2", testTime.minusMinutes(1)),
+            summary("c1", testTime.minusMinutes(2)));
+        when(conversationListingRepository.findPage(null, 3, 3)).thenReturn(fetched);
+
+        // When
+        ConversationPage page = historyService.listConversations(null, 2, 3);
+
+        // Then
+        assertEquals(2, page.getConversations().size());
+        assertEquals("c2", page.getConversations().get(1).getId());
+        ConversationCursor next = ConversationCursor.decode(page.getNextCursor());
+        assertEquals("c2", next.id());
+        assertEquals(testTime.minusMinutes(1), next.updatedAt());
+    }
+
+    @Test
+    void testListConversations_LastPageHasNoCursor() {
+        // Given
+        ConversationCursor cursor = new ConversationCursor(testTime, "c3");
+        when(conversationListingRepository.findPage(cursor, 3, 3))
+            .thenReturn(List.of(summary("c1", testTime.minusMinutes(2))));
+
+        // When
+        ConversationPage page = historyService.listConversations(cursor.encode(), 2, 3);
+
+        // Then
+        assertEquals(1, page.getConversations().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testListConversations_MalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> historyService.listConversations("not a cursor", 10, 3));
+        verify(conversationListingRepository, never()).findPage(any(), anyInt(), anyInt());
+    }
+
     @Test
     void testUpdateConversationMetadata() {
         // Given
@@ -470,8 +603,12 @@ class HistoryServiceImplTest {
         // Then
         assertTrue(result);
         verify(conversationRepository).existsById(conversationId);
-        verify(chatMessageRepository).deleteByConversationId(conversationId);
-        verify(conversationRepository).deleteById(conversationId);
+        InOrder order = inOrder(chatHistoryWriter, conversationRepository, chatMessageRepository);
+        order.verify(chatHistoryWriter).flush();
+        order.verify(conversationRepository).deleteById(conversationId);
+        order.verify(conversationRepository).flush();
+        order.verify(chatMessageRepository).deleteByConversationId(conversationId);
+        verify(recentMessageCache).evict(conversationId);
     }
 
     @Test
@@ -591,6 +728,7 @@ class HistoryServiceImplTest {
         verify(chatMessageRepository).deleteByConversationId("1");
         verify(chatMessageRepository).deleteByConversationId("2");
         verify(conversationRepository).deleteAll();
+        verify(recentMessageCache).clear();
     }
 
     @Test
@@ -641,4 +779,14 @@ class HistoryServiceImplTest {
         assertTrue(savedConversation.getTitle().length() <= 53); // 50 chars + "..."
         assertTrue(savedConversation.getTitle().endsWith("..."));
     }
+
+    private static ConversationSummary summary(String id, LocalDateTime updatedAt) {
+        return ConversationSummary.builder()
+            .id(id)
+            .title("Conversation " + id)
+            .createdAt(updatedAt)
+            .updatedAt(updatedAt)
+            .recentMessages(Collections.emptyList())
+            .build();
+    }
 }
@@ -0,0 +1,84 @@
+package com.localllm.assistant.answer;
+
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.parser.model.CodeSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IndexGeneration newGeneration() {
+        IndexGeneration generation = new IndexGeneration();
+        ReflectionTestUtils.setField(generation, "generationPath", tempDir.resolve("index-generation").toString());
+        generation.init();
+        return generation;
+    }
+
+    private static AnswerCache newCache(IndexGeneration generation) {
+        AnswerCache cache = new AnswerCache(null, generation);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        return cache;
+    }
+
+    private static CodeSegment segment(String id, String content) {
+        return CodeSegment.builder().id(id).content(content).build();
+    }
+
+    @Test
+    void keyDependsOnContextAndIndexGeneration() {
+        IndexGeneration generation = newGeneration();
+        AnswerCache cache = newCache(generation);
+        List<CodeSegment> context = List.of(segment("a", "class A {}"), segment("b", "class B {}"));
+
+        AnswerCache.Key key = cache.key("What does A do?", context, List.of(), "model", 0.3, 512);
+        assertEquals(key, cache.key("  what does a   do? ", context, List.of(), "model", 0.3, 512));
+        assertNotEquals(key, cache.key("What does A do?", List.of(context.get(1), context.get(0)), List.of(), "model", 0.3, 512));
+        assertNotEquals(key, cache.key("What does A do?", List.of(segment("a", "class A { int x; }"), context.get(1)),
+            List.of(), "model", 0.3, 512));
+        assertNotEquals(key, cache.key("What does A do?", context, List.of("earlier question"), "model", 0.3, 512));
+        assertNotEquals(key, cache.key("What does A do?", context, List.of(), "model", 0.7, 512));
+
+        generation.bump();
+        assertNotEquals(key, cache.key("What does A do?", context, List.of(), "model", 0.3, 512));
+    }
+
+    @Test
+    void storedAnswersAreReturnedUntilEvicted() {
+        AnswerCache cache = newCache(newGeneration());
+        AnswerCache.Key first = cache.key("q1", List.of(), List.of(), "model", 0.3, 512);
+        AnswerCache.Key second = cache.key("q2", List.of(), List.of(), "model", 0.3, 512);
+        AnswerCache.Key third = cache.key("q3", List.of(), List.of(), "model", 0.3, 512);
+
+        assertEquals(Optional.empty(), cache.get(first));
+        cache.put(first, "answer 1", "model");
+        cache.put(second, "answer 2", "model");
+        assertEquals(Optional.of("answer 1"), cache.get(first));
+        cache.put(third, "answer 3", "model");
+
+        assertEquals(Optional.empty(), cache.get(second));
+        assertEquals(Optional.of("answer 3"), cache.get(third));
+        assertEquals(2, cache.stats().getHits());
+        assertEquals(2, cache.stats().getMisses());
+        assertTrue(cache.stats().getEntries() <= 2);
+    }
+
+    @Test
+    void generationSurvivesRestart() {
+        IndexGeneration generation = newGeneration();
+        long bumped = generation.bump();
+        assertEquals(bumped, newGeneration().current());
+    }
+}
@@ -0,0 +1,183 @@
+package com.localllm.assistant.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
+import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.vectorstore.hnsw.DistanceFunction;
+import com.localllm.assistant.vectorstore.hnsw.EmbeddedCollection;
+import com.localllm.assistant.vectorstore.hnsw.IndexType;
+import com.localllm.assistant.vectorstore.impl.ChromaDBClientImpl;
+import com.localllm.assistant.vectorstore.metrics.UpsertPayloadMetrics;
+import com.localllm.assistant.vectorstore.model.VectorEntry;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Top-10 search latency of the vector store backends on random vectors: the exact fork/join scan,
+ * the embedded HNSW graph, and ChromaDB over HTTP.
+ * <p>
+ * Not part of the test suite. Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.localllm.assistant.benchmark.VectorSearchBenchmark
+ * </pre>
+ * The {@code chromadb} backend needs a running server ({@code -Dbenchmark.chromadb.url}, default
+ * {@code http://localhost:8000}); pass {@code -p backend=exact,hnsw} to the JMH runner to skip it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class VectorSearchBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 256;
+    private static final int UPSERT_BATCH = 200;
+
+    @Param({"exact", "hnsw", "chromadb"})
+    public String backend;
+
+    @Param({"20000", "200000"})
+    public int size;
+
+    @Param({"768"})
+    public int dimension;
+
+    private Path directory;
+    private EmbeddedCollection collection;
+    private CloseableHttpAsyncClient httpClient;
+    private ChromaDBClientImpl chromaClient;
+    private String chromaCollection;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomVector(random);
+        }
+
+        if ("chromadb".equals(backend)) {
+            ChromaDBConfig config = new ChromaDBConfig();
+            config.setUrl(System.getProperty("benchmark.chromadb.url", "http://localhost:8000"));
+            config.setEmbeddingDimension(dimension);
+            httpClient = HttpAsyncClients.createDefault();
+            httpClient.start();
+            chromaClient = new ChromaDBClientImpl(config, new ObjectMapper(), httpClient,
+                new AdaptiveConcurrencyLimiter("chromadb-benchmark", 8, 1, 32, 512, 0.7, 4.0), new UpsertPayloadMetrics());
+            chromaCollection = "benchmark_" + size + "_" + dimension;
+            chromaClient.ensureCollectionExists(chromaCollection).join();
+            if (chromaClient.countEmbeddingsAsync(chromaCollection).join() < size) {
+                forEachBatch(random, batch -> chromaClient.upsertEmbeddingsAsync(chromaCollection, batch).join());
+            }
+        } else {
+            directory = Files.createTempDirectory("vector-benchmark");
+            IndexType indexType = IndexType.fromName(backend);
+            collection = EmbeddedCollection.open("benchmark", directory,
+                new EmbeddedCollection.Settings(indexType, dimension, DistanceFunction.COSINE, 16, 200, 0.3), new ObjectMapper());
+            forEachBatch(random, collection::upsert);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (collection != null) {
+            collection.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
+    @Benchmark
+    public List<VectorEntry> search() {
+        float[] query = queries[next++ & (QUERIES - 1)];
+        if (chromaClient != null) {
+            return chromaClient.searchSimilarVectorsAsync(chromaCollection, EmbeddingVector.wrap(query), K, null).join();
+        }
+        return collection.search(query, K, 64, null);
+    }
+
+    @Benchmark
+    public List<VectorEntry> searchFiltered() {
+        float[] query = queries[next++ & (QUERIES - 1)];
+        Map<String, Object> where = Map.of("entityType", "METHOD");
+        if (chromaClient != null) {
+            return chromaClient.searchSimilarVectorsAsync(chromaCollection, EmbeddingVector.wrap(query), K, where).join();
+        }
+        return collection.search(query, K, 64, where);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VectorSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private interface BatchSink {
+        void accept(List<VectorEntry> batch) throws IOException;
+    }
+
+    private void forEachBatch(SplittableRandom random, BatchSink sink) throws IOException {
+        String[] types = {"METHOD", "CLASS", "FIELD", "CONSTRUCTOR"};
+        List<VectorEntry> batch = new ArrayList<>(UPSERT_BATCH);
+        for (int i = 0; i < size; i++) {
+            batch.add(VectorEntry.builder()
+                .id("seg-" + i)
+                .vector(EmbeddingVector.wrap(randomVector(random)))
+                .metadata(Map.of("entityType", types[i % types.length], "relativeFilePath", "src/File" + (i / 20) + ".java"))
+                .document("segment " + i)
+                .build());
+            if (batch.size() == UPSERT_BATCH) {
+                sink.accept(batch);
+                batch = new ArrayList<>(UPSERT_BATCH);
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+    }
+
+    private float[] randomVector(SplittableRandom random) {
+        float[] v = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            v[i] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return v;
+    }
+}
@@ -0,0 +1,182 @@
+package com.localllm.assistant.concurrency;
+
+import com.localllm.assistant.exception.UpstreamOverloadedException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueue, double latencyToleranceRatio) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, 1, 8, maxQueue, 0.5, latencyToleranceRatio);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void limitGrowsWhileSaturatedRequestsSucceed() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0, 0);
+
+        for (int round = 0; round < 4; round++) {
+            AdaptiveConcurrencyLimiter.Permit first = limiter.acquire().join();
+            AdaptiveConcurrencyLimiter.Permit second = limiter.acquire().join();
+            first.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+            second.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void droppedRequestBacksOff() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 0, 0);
+
+        limiter.acquire().join().release(AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.stats().getDropped());
+    }
+
+    @Test
+    void fullQueueShedsAndQueuedRequestRunsOnRelease() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 0);
+        AdaptiveConcurrencyLimiter.Permit running = limiter.acquire().join();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire();
+
+        CompletionException shed = assertThrows(CompletionException.class, () -> limiter.acquire().join());
+        assertInstanceOf(UpstreamOverloadedException.class, shed.getCause());
+        assertEquals(1, limiter.stats().getRejected());
+        assertFalse(queued.isDone());
+
+        running.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+
+        assertTrue(queued.isDone());
+        assertEquals(1, limiter.getInFlight());
+        queued.join().release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void slowRequestBacksOffOnlyAgainstRequestsOfSimilarSize() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 0, 5.0);
+        limiter.acquire("embed", 1).join().release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+
+        // Thousands of times the work of the first request: slow in absolute terms, but in its own bucket.
+        AdaptiveConcurrencyLimiter.Permit batch = limiter.acquire("embed", 4096).join();
+        sleep(20);
+        batch.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(8, limiter.getLimit());
+
+        AdaptiveConcurrencyLimiter.Permit single = limiter.acquire("embed", 1).join();
+        sleep(20);
+        single.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(4, limiter.getLimit());
+        assertTrue(limiter.stats().getBaselineLatencyMsPerUnit().containsKey("embed:4096"));
+    }
+
+    @Test
+    void baselineBucketsArePowersOfTwoPerClass() {
+        assertEquals("embed:512", AdaptiveConcurrencyLimiter.baselineKey("embed", 1000));
+        assertEquals("embed:1024", AdaptiveConcurrencyLimiter.baselineKey("embed", 1024));
+        assertEquals("query:1", AdaptiveConcurrencyLimiter.baselineKey("query", 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedRequestReleasesItsPermitAsDropped() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, 0);
+        CloseableHttpAsyncClient client = mock(CloseableHttpAsyncClient.class);
+        doAnswer(invocation -> {
+            invocation.<FutureCallback<Object>>getArgument(2).failed(new IOException("connection reset"));
+            return null;
+        }).when(client).execute(any(AsyncRequestProducer.class), any(AsyncResponseConsumer.class), any(FutureCallback.class));
+        FutureCallback<Object> callback = mock(FutureCallback.class);
+
+        limiter.execute(client, mock(AsyncRequestProducer.class), "embed", 10, mock(AsyncResponseConsumer.class), result -> 200, callback);
+
+        verify(callback).failed(any(IOException.class));
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void requestThatCannotBeSentReleasesItsPermit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, 0);
+        CloseableHttpAsyncClient client = mock(CloseableHttpAsyncClient.class);
+        doThrow(new IllegalStateException("client closed"))
+            .when(client).execute(any(SimpleHttpRequest.class), any(FutureCallback.class));
+        FutureCallback<SimpleHttpResponse> callback = mock(FutureCallback.class);
+
+        limiter.execute(client, SimpleHttpRequest.create("GET", "http://localhost/"), callback);
+
+        verify(callback).failed(any(IllegalStateException.class));
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exchangeCancelledWhileQueuedLeavesTheQueueAndIsNeverSent() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 0);
+        CloseableHttpAsyncClient client = mock(CloseableHttpAsyncClient.class);
+        AdaptiveConcurrencyLimiter.Permit running = limiter.acquire().join();
+        FutureCallback<SimpleHttpResponse> callback = mock(FutureCallback.class);
+
+        AdaptiveConcurrencyLimiter.Exchange exchange = limiter.execute(client, SimpleHttpRequest.create("GET", "http://localhost/"), callback);
+        assertEquals(1, limiter.stats().getQueued());
+
+        assertTrue(exchange.cancel());
+        running.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+
+        verify(callback).cancelled();
+        verify(client, never()).execute(any(SimpleHttpRequest.class), any(FutureCallback.class));
+        assertEquals(0, limiter.stats().getQueued());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cancellingASentExchangeCancelsTheHttpFuture() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 0);
+        CloseableHttpAsyncClient client = mock(CloseableHttpAsyncClient.class);
+        Future<SimpleHttpResponse> future = mock(Future.class);
+        when(client.execute(any(SimpleHttpRequest.class), any(FutureCallback.class))).thenReturn(future);
+
+        AdaptiveConcurrencyLimiter.Exchange exchange = limiter.execute(client, SimpleHttpRequest.create("GET", "http://localhost/"),
+            mock(FutureCallback.class));
+        exchange.cancel();
+
+        verify(future).cancel(true);
+        assertFalse(exchange.cancel(), "Already cancelled");
+    }
+}
@@ -0,0 +1,133 @@
+package com.localllm.assistant.controller;
+
+import com.localllm.assistant.controller.dto.QueryRequest;
+import com.localllm.assistant.controller.dto.QueryResponse;
+import com.localllm.assistant.service.QueryService;
+import com.localllm.assistant.service.QueryStreamListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class QueryControllerTest {
+
+    private static final Pattern EVENT = Pattern.compile("^event:(\\w+)$", Pattern.MULTILINE);
+
+    private final ExecutorService streamingExecutor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        streamingExecutor.shutdownNow();
+    }
+
+    private static QueryController controller(QueryService queryService, Executor executor, int maxPendingEvents) {
+        QueryController controller = new QueryController(queryService, executor);
+        ReflectionTestUtils.setField(controller, "streamTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(controller, "streamMaxPendingEvents", maxPendingEvents);
+        return controller;
+    }
+
+    private static List<String> eventNames(String body) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = EVENT.matcher(body);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    @Test
+    void streamSendsSourcesThenTokensThenDone() throws Exception {
+        QueryService queryService = mock(QueryService.class);
+        when(queryService.streamQuery(any(QueryRequest.class), any(QueryStreamListener.class))).thenAnswer(invocation -> {
+            QueryStreamListener listener = invocation.getArgument(1);
+            // Callbacks arrive on another thread, as they do from the HTTP client's I/O reactor.
+            return CompletableFuture.supplyAsync(() -> {
+                listener.onSources("c1", List.of());
+                listener.onToken("Hello");
+                listener.onToken(" world");
+                return QueryResponse.builder().conversationId("c1").answer("Hello world").build();
+            });
+        });
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller(queryService, streamingExecutor, 16)).build();
+
+        MvcResult result = mockMvc.perform(post("/api/v1/query/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"q\"}"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result.getAsyncResult(5_000);
+
+        String body = result.getResponse().getContentAsString();
+        assertEquals(List.of("sources", "token", "token", "done"), eventNames(body));
+        assertTrue(body.contains("data:{\"content\":\" world\"}"), body);
+    }
+
+    @Test
+    void failedQueryEndsWithAnErrorEvent() throws Exception {
+        QueryService queryService = mock(QueryService.class);
+        when(queryService.streamQuery(any(QueryRequest.class), any(QueryStreamListener.class))).thenAnswer(invocation -> {
+            QueryStreamListener listener = invocation.getArgument(1);
+            return CompletableFuture.supplyAsync(() -> {
+                listener.onSources("c1", List.of());
+                throw new IllegalStateException("model unavailable");
+            });
+        });
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller(queryService, streamingExecutor, 16)).build();
+
+        MvcResult result = mockMvc.perform(post("/api/v1/query/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"q\"}"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        result.getAsyncResult(5_000);
+
+        String body = result.getResponse().getContentAsString();
+        assertEquals(List.of("sources", "error"), eventNames(body));
+        assertTrue(body.contains("model unavailable"), body);
+    }
+
+    @Test
+    void clientThatFallsBehindCancelsGenerationWithoutBlockingTheProducer() {
+        CompletableFuture<QueryResponse> generation = new CompletableFuture<>();
+        List<QueryStreamListener> listeners = new ArrayList<>();
+        QueryService queryService = mock(QueryService.class);
+        when(queryService.streamQuery(any(QueryRequest.class), any(QueryStreamListener.class))).thenAnswer(invocation -> {
+            listeners.add(invocation.getArgument(1));
+            return generation;
+        });
+        // Nothing is ever written: the client is not reading.
+        List<Runnable> parkedWrites = new ArrayList<>();
+        QueryController controller = controller(queryService, parkedWrites::add, 4);
+
+        controller.streamQuery(QueryRequest.builder().query("q").build());
+        QueryStreamListener listener = listeners.get(0);
+        listener.onSources("c1", List.of());
+        for (int i = 0; i < 10; i++) {
+            listener.onToken("t" + i);
+        }
+
+        assertTrue(generation.isCancelled());
+        assertEquals(1, parkedWrites.size());
+    }
+}
@@ -0,0 +1,119 @@
+package com.localllm.assistant.embedding.cache;
+
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskEmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DiskEmbeddingCache openCache(Path file, int maxEntries) {
+        DiskEmbeddingCache cache = new DiskEmbeddingCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "cachePath", file.toString());
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "maxDeadFraction", 0.5);
+        cache.open();
+        return cache;
+    }
+
+    private static EmbeddingVector vector(float... values) {
+        return EmbeddingVector.wrap(values);
+    }
+
+    @Test
+    void putThenGet_survivesReopen() {
+        Path file = tempDir.resolve("cache.bin");
+        String key = DiskEmbeddingCache.cacheKey("model-a", "class Foo {}");
+
+        DiskEmbeddingCache cache = openCache(file, 10);
+        assertNull(cache.get(key));
+        cache.put(key, vector(0.5f, -1.25f, 3.0f));
+        assertEquals(vector(0.5f, -1.25f, 3.0f), cache.get(key));
+        cache.close();
+
+        DiskEmbeddingCache reopened = openCache(file, 10);
+        assertEquals(vector(0.5f, -1.25f, 3.0f), reopened.get(key));
+        assertEquals(1, reopened.stats().getHits());
+        reopened.close();
+    }
+
+    @Test
+    void cacheKey_dependsOnModel() {
+        assertNotEquals(DiskEmbeddingCache.cacheKey("model-a", "x"), DiskEmbeddingCache.cacheKey("model-b", "x"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        DiskEmbeddingCache cache = openCache(tempDir.resolve("lru.bin"), 2);
+        cache.put("a", vector(1f));
+        cache.put("b", vector(2f));
+        cache.get("a");
+        cache.put("c", vector(3f));
+
+        assertNull(cache.get("b"));
+        assertEquals(vector(1f), cache.get("a"));
+        assertEquals(vector(3f), cache.get("c"));
+        assertEquals(1, cache.stats().getEvictions());
+        cache.close();
+    }
+
+    @Test
+    void truncatedTailIsDiscardedOnLoad() throws IOException {
+        Path file = tempDir.resolve("torn.bin");
+        DiskEmbeddingCache cache = openCache(file, 10);
+        cache.put("a", vector(1f, 2f));
+        cache.put("b", vector(3f, 4f));
+        cache.close();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        DiskEmbeddingCache reopened = openCache(file, 10);
+        assertEquals(vector(1f, 2f), reopened.get("a"));
+        assertNull(reopened.get("b"));
+        reopened.put("b", vector(5f, 6f));
+        assertEquals(vector(5f, 6f), reopened.get("b"));
+        reopened.close();
+    }
+
+    @Test
+    void fileStaysBoundedWhenMoreDistinctEntriesThanFitArePut() throws IOException {
+        Path file = tempDir.resolve("bounded.bin");
+        DiskEmbeddingCache cache = openCache(file, 10);
+        long recordBytes = Short.BYTES + "key-000".length() + Integer.BYTES + 4 * Float.BYTES;
+
+        for (int i = 0; i < 500; i++) {
+            cache.put(String.format("key-%03d", i), vector(i, i + 1, i + 2, i + 3));
+        }
+
+        // At most maxEntries live records plus as many dead ones before the next compaction.
+        long bound = 8 + 2 * 10 * recordBytes + recordBytes;
+        assertTrue(Files.size(file) <= bound, "file is " + Files.size(file) + " bytes, bound " + bound);
+        assertTrue(cache.stats().getCompactions() > 0);
+        assertEquals(vector(499, 500, 501, 502), cache.get("key-499"));
+        assertEquals(vector(490, 491, 492, 493), cache.get("key-490"));
+        assertNull(cache.get("key-489"));
+        cache.close();
+
+        DiskEmbeddingCache reopened = openCache(file, 10);
+        assertEquals(10, reopened.stats().getEntries());
+        assertEquals(vector(495, 496, 497, 498), reopened.get("key-495"));
+        reopened.close();
+    }
+}
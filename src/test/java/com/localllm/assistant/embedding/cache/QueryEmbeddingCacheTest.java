@@ -0,0 +1,90 @@
+package com.localllm.assistant.embedding.cache;
+
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryEmbeddingCacheTest {
+
+    private static QueryEmbeddingCache newCache(int maxEntries, long ttlSeconds) {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+        return cache;
+    }
+
+    @Test
+    void concurrentIdenticalQueriesShareOneLoad() {
+        QueryEmbeddingCache cache = newCache(10, 60);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<EmbeddingVector> upstream = new CompletableFuture<>();
+
+        CompletableFuture<EmbeddingVector> first = cache.get("m", "How does indexing work?", () -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<EmbeddingVector> second = cache.get("m", "  how does   indexing work? ", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(EmbeddingVector.EMPTY);
+        });
+        upstream.complete(EmbeddingVector.wrap(new float[]{1f, 2f}));
+
+        assertEquals(EmbeddingVector.wrap(new float[]{1f, 2f}), first.join());
+        assertEquals(EmbeddingVector.wrap(new float[]{1f, 2f}), second.join());
+        assertEquals(EmbeddingVector.wrap(new float[]{1f, 2f}), cache.get("m", "how does indexing work?", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(EmbeddingVector.EMPTY);
+        }).join());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getMisses());
+        assertEquals(1, cache.stats().getCoalesced());
+        assertEquals(1, cache.stats().getHits());
+    }
+
+    @Test
+    void failuresAreNotCachedAndModelIsPartOfTheKey() {
+        QueryEmbeddingCache cache = newCache(10, 60);
+        CompletableFuture<EmbeddingVector> failed = cache.get("m", "q",
+            () -> CompletableFuture.failedFuture(new IllegalStateException("down")));
+        assertTrue(failed.isCompletedExceptionally());
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("m", "q", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(EmbeddingVector.wrap(new float[]{1f}));
+        }).join();
+        cache.get("other-model", "q", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(EmbeddingVector.wrap(new float[]{2f}));
+        }).join();
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().getInFlight());
+    }
+
+    @Test
+    void expiredAndEvictedEntriesAreReloaded() {
+        QueryEmbeddingCache cache = newCache(1, 0);
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            cache.get("m", "q", () -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture(EmbeddingVector.wrap(new float[]{1f}));
+            }).join();
+        }
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.stats().getExpirations());
+
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        cache.get("m", "a", () -> CompletableFuture.completedFuture(EmbeddingVector.wrap(new float[]{1f}))).join();
+        cache.get("m", "b", () -> CompletableFuture.completedFuture(EmbeddingVector.wrap(new float[]{1f}))).join();
+        assertEquals(1, cache.stats().getEntries());
+        assertTrue(cache.stats().getEvictions() >= 1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.localllm.assistant.embedding.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddingResponseConsumerTest {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Feeds {@code body} to a new consumer in the given chunks and returns its result.
+     */
+    private static EmbeddingResponseConsumer.Result consume(int status, String body, int... splitPoints) throws IOException {
+        EmbeddingResponseConsumer consumer = new EmbeddingResponseConsumer(JSON_FACTORY, 2);
+        consumer.start(new BasicHttpResponse(status), ContentType.APPLICATION_JSON);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        int from = 0;
+        for (int splitPoint : splitPoints) {
+            consumer.data(ByteBuffer.wrap(bytes, from, splitPoint - from), false);
+            from = splitPoint;
+        }
+        consumer.data(ByteBuffer.wrap(bytes, from, bytes.length - from), true);
+        return consumer.buildResult();
+    }
+
+    private static List<float[]> arrays(EmbeddingResponseConsumer.Result result) {
+        return result.getVectors().stream().map(EmbeddingVector::array).collect(Collectors.toList());
+    }
+
+    @Test
+    void batchResponseIsDecodedWhereverTheChunksSplitIt() throws Exception {
+        String body = "{\"model\":\"nomic-embed-text\",\"embeddings\":[[0.5,-1.25,3],[1e-3,null,-0.0]],"
+            + "\"options\":{\"embedding\":[9]},\"context\":[7,8],\"total_duration\":12}";
+
+        // Every split point, including inside numbers, field names, "null" and "1e-3".
+        for (int split = 0; split <= body.length(); split++) {
+            EmbeddingResponseConsumer.Result result = consume(200, body, split);
+
+            assertNull(result.getError(), "split at " + split);
+            assertFalse(result.isSingleEmbedding());
+            assertEquals(2, result.getVectors().size(), "split at " + split);
+            assertArrayEquals(new float[]{0.5f, -1.25f, 3f}, result.getVectors().get(0).array(), "split at " + split);
+            assertArrayEquals(new float[]{0.001f, 0f, -0f}, result.getVectors().get(1).array(), "split at " + split);
+        }
+    }
+
+    @Test
+    void singleEmbeddingResponseIsDecodedWhereverTheChunksSplitIt() throws Exception {
+        String body = "{\"embedding\":[0.25,-2.5E2,17]}";
+
+        for (int first = 0; first <= body.length(); first++) {
+            for (int second = first; second <= body.length(); second++) {
+                EmbeddingResponseConsumer.Result result = consume(200, body, first, second);
+
+                assertTrue(result.isSingleEmbedding());
+                assertEquals(1, result.getVectors().size());
+                assertArrayEquals(new float[]{0.25f, -250f, 17f}, result.getVectors().get(0).array(),
+                    "splits at " + first + ", " + second);
+            }
+        }
+    }
+
+    @Test
+    void nullEntriesKeepTheirPositionAsEmptyVectors() throws Exception {
+        EmbeddingResponseConsumer.Result result = consume(200, "{\"embeddings\":[[1],null,[]]}");
+
+        assertEquals(3, result.getVectors().size());
+        assertArrayEquals(new float[]{1f}, arrays(result).get(0));
+        assertTrue(result.getVectors().get(1).isEmpty());
+        assertTrue(result.getVectors().get(2).isEmpty());
+    }
+
+    @Test
+    void vectorsLongerThanTheSizeHintGrowAcrossChunks() throws Exception {
+        float[] expected = new float[3000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i / 4f;
+        }
+        String values = IntStream.range(0, expected.length).mapToObj(i -> Float.toString(expected[i])).collect(Collectors.joining(","));
+        String body = "{\"embeddings\":[[" + values + "],[" + values + "]]}";
+
+        // Split into chunks smaller than the consumer's own feed size as well as larger ones.
+        EmbeddingResponseConsumer.Result result = consume(200, body, 100, 5000, 20000, body.length() - 3);
+
+        assertEquals(2, result.getVectors().size());
+        assertArrayEquals(expected, result.getVectors().get(0).array());
+        assertArrayEquals(expected, result.getVectors().get(1).array());
+    }
+
+    @Test
+    void errorStatusKeepsTheBodyCappedAndParsesNothing() throws Exception {
+        char[] filler = new char[5000];
+        Arrays.fill(filler, 'x');
+        String body = "{\"error\":\"model \\\"nomic\\\" not found\",\"detail\":\"" + new String(filler) + "\"}";
+
+        EmbeddingResponseConsumer.Result result = consume(404, body, 10, 3000);
+
+        assertEquals(404, result.getStatusCode());
+        assertTrue(result.getVectors().isEmpty());
+        assertNotNull(result.getError());
+        assertTrue(result.getError().startsWith("{\"error\":\"model \\\"nomic\\\" not found\""));
+        assertEquals(2048, result.getError().length());
+    }
+
+    @Test
+    void malformedBodyIsReportedAsAnError() throws Exception {
+        EmbeddingResponseConsumer.Result result = consume(200, "{\"embeddings\":[[0.1,0.2],[0.3,}", 20);
+
+        assertEquals(200, result.getStatusCode());
+        assertNotNull(result.getError());
+        assertEquals(1, result.getVectors().size());
+    }
+
+    @Test
+    void unexpectedNestingIsReportedAsAnError() throws Exception {
+        EmbeddingResponseConsumer.Result result = consume(200, "{\"embeddings\":[[[0.1]]]}");
+
+        assertNotNull(result.getError());
+        assertTrue(result.getVectors().isEmpty());
+    }
+}
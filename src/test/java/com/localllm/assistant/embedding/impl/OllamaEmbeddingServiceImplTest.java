@@ -0,0 +1,217 @@
+package com.localllm.assistant.embedding.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
+import com.localllm.assistant.config.OllamaConfig;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.parser.model.SegmentType;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.RequestChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class OllamaEmbeddingServiceImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CloseableHttpAsyncClient httpAsyncClient = mock(CloseableHttpAsyncClient.class);
+    private final List<Exchange> exchanges = Collections.synchronizedList(new ArrayList<>());
+    private boolean batchEndpointMissing;
+    private boolean deferResponses;
+    private OllamaEmbeddingServiceImpl service;
+
+    /**
+     * One request seen by the stubbed client, with the callback used to answer it.
+     */
+    private record Exchange(String path, JsonNode body, Runnable respond) {
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            AsyncRequestProducer producer = invocation.getArgument(0);
+            EmbeddingResponseConsumer consumer = invocation.getArgument(1);
+            FutureCallback<EmbeddingResponseConsumer.Result> callback = invocation.getArgument(2);
+            String[] path = new String[1];
+            JsonNode body = objectMapper.readTree(send(producer, path));
+            Runnable respond = () -> answer(path[0], body, consumer, callback);
+            exchanges.add(new Exchange(path[0], body, respond));
+            if (!deferResponses) {
+                respond.run();
+            }
+            return null;
+        }).when(httpAsyncClient).execute(any(AsyncRequestProducer.class), any(AsyncResponseConsumer.class), any(FutureCallback.class));
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("ollama-embedding", 16, 1, 16, 64, 0.7, 0);
+        service = new OllamaEmbeddingServiceImpl(httpAsyncClient, new OllamaConfig(), objectMapper, Runnable::run, limiter);
+        ReflectionTestUtils.setField(service, "ollamaClientBatchSize", 1);
+        ReflectionTestUtils.setField(service, "useBatchEndpoint", true);
+        ReflectionTestUtils.setField(service, "maxBatchChars", 10);
+        ReflectionTestUtils.setField(service, "maxBatchItems", 3);
+    }
+
+    private static CodeSegment segment(String content) {
+        return CodeSegment.builder().id(content).type(SegmentType.METHOD).content(content).build();
+    }
+
+    /**
+     * Answers like Ollama, with one-dimensional vectors holding each input's length so results can be
+     * matched to inputs. {@code /api/embed} is answered with 404 while {@link #batchEndpointMissing} is set.
+     */
+    private void answer(String path, JsonNode body, EmbeddingResponseConsumer consumer,
+                        FutureCallback<EmbeddingResponseConsumer.Result> callback) {
+        try {
+            int status = 200;
+            String response;
+            if (path.equals("/api/embed") && batchEndpointMissing) {
+                status = 404;
+                response = "404 page not found";
+            } else if (path.equals("/api/embed")) {
+                List<String> vectors = new ArrayList<>();
+                body.get("input").forEach(input -> vectors.add("[" + input.asText().length() + "]"));
+                response = "{\"model\":\"m\",\"embeddings\":[" + String.join(",", vectors) + "]}";
+            } else {
+                response = "{\"embedding\":[" + body.get("prompt").asText().length() + "]}";
+            }
+            consumer.start(new BasicHttpResponse(status), ContentType.APPLICATION_JSON);
+            consumer.data(ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8)), true);
+            callback.completed(consumer.buildResult());
+        } catch (Exception e) {
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * Runs the request producer and returns the body it sends; the request path goes into {@code path[0]}.
+     */
+    private static byte[] send(AsyncRequestProducer producer, String[] path) throws Exception {
+        RequestChannel requestChannel = (HttpRequest request, EntityDetails entityDetails, HttpContext context) ->
+            path[0] = request.getPath();
+        producer.sendRequest(requestChannel, HttpCoreContext.create());
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        boolean[] ended = new boolean[1];
+        DataStreamChannel dataChannel = new DataStreamChannel() {
+            @Override
+            public void requestOutput() {
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                while (src.hasRemaining()) {
+                    sent.write(src.get());
+                }
+                return n;
+            }
+
+            @Override
+            public void endStream() {
+                ended[0] = true;
+            }
+
+            @Override
+            public void endStream(List<? extends Header> trailers) {
+                ended[0] = true;
+            }
+        };
+        while (!ended[0]) {
+            producer.produce(dataChannel);
+        }
+        return sent.toByteArray();
+    }
+
+    private static List<String> inputs(Exchange exchange) {
+        List<String> inputs = new ArrayList<>();
+        exchange.body().get("input").forEach(input -> inputs.add(input.asText()));
+        return inputs;
+    }
+
+    private static float firstComponent(EmbeddingVector vector) {
+        return vector.array()[0];
+    }
+
+    @Test
+    void batchesAreBoundedByCharactersAndItems() {
+        List<CodeSegment> segments = List.of(segment("aaaa"), segment("bbbb"), segment("cccc"), segment("dddddddddddd"),
+            segment("e"), segment("f"), segment("g"), segment("h"));
+
+        service.embedSegmentsAsync(segments).join();
+
+        List<List<String>> batches = exchanges.stream().map(OllamaEmbeddingServiceImplTest::inputs).collect(Collectors.toList());
+        // 10 chars / 3 items per batch; the 12-char segment is over budget and goes alone.
+        assertEquals(List.of(List.of("aaaa", "bbbb"), List.of("cccc"), List.of("dddddddddddd"), List.of("e", "f", "g"), List.of("h")),
+            batches);
+        assertTrue(exchanges.stream().allMatch(exchange -> exchange.path().equals("/api/embed")));
+    }
+
+    @Test
+    void resultsAreAlignedWithInputsWhateverOrderBatchesFinishIn() {
+        deferResponses = true;
+        List<CodeSegment> segments = List.of(segment("aaaaaaa"), segment(" "), segment("bb"), segment("cccccccccc"), segment("ddd"));
+
+        CompletableFuture<List<EmbeddingVector>> result = service.embedSegmentsAsync(segments);
+        assertFalse(result.isDone());
+        List<Exchange> sent = new ArrayList<>(exchanges);
+        Collections.reverse(sent);
+        sent.forEach(exchange -> exchange.respond().run());
+
+        List<EmbeddingVector> vectors = result.join();
+        assertEquals(5, vectors.size());
+        assertEquals(7f, firstComponent(vectors.get(0)));
+        // Blank content is not sent and gets no vector.
+        assertTrue(vectors.get(1).isEmpty());
+        assertEquals(2f, firstComponent(vectors.get(2)));
+        assertEquals(10f, firstComponent(vectors.get(3)));
+        assertEquals(3f, firstComponent(vectors.get(4)));
+    }
+
+    @Test
+    void missingBatchEndpointFallsBackToLegacyEndpointForGood() {
+        batchEndpointMissing = true;
+
+        List<EmbeddingVector> first = service.embedSegmentsAsync(List.of(segment("aaaa"), segment("bb"))).join();
+
+        assertEquals(4f, firstComponent(first.get(0)));
+        assertEquals(2f, firstComponent(first.get(1)));
+        assertEquals("/api/embed", exchanges.get(0).path());
+        assertEquals(List.of("/api/embeddings", "/api/embeddings"),
+            exchanges.subList(1, exchanges.size()).stream().map(Exchange::path).collect(Collectors.toList()));
+
+        exchanges.clear();
+        List<EmbeddingVector> second = service.embedSegmentsAsync(List.of(segment("ccc"))).join();
+
+        assertEquals(3f, firstComponent(second.get(0)));
+        assertEquals(List.of("/api/embeddings"), exchanges.stream().map(Exchange::path).collect(Collectors.toList()));
+        assertEquals("ccc", exchanges.get(0).body().get("prompt").asText());
+    }
+}
@@ -0,0 +1,186 @@
+package com.localllm.assistant.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.history.model.MessageRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatHistoryWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ChatHistoryWriter writer;
+    private int touchResult;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        touchResult = 1;
+        when(jdbcTemplate.batchUpdate(eq(ChatHistoryWriter.INSERT_MESSAGE_SQL), anyList()))
+            .thenAnswer(invocation -> rowCounts(invocation.getArgument(1), 1));
+        when(jdbcTemplate.batchUpdate(eq(ChatHistoryWriter.TOUCH_CONVERSATION_SQL), anyList()))
+            .thenAnswer(invocation -> rowCounts(invocation.getArgument(1), touchResult));
+        writer = new ChatHistoryWriter(jdbcTemplate, mock(PlatformTransactionManager.class), new ObjectMapper());
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "batchSize", 50);
+        ReflectionTestUtils.setField(writer, "maxDelayMs", 1000L);
+        ReflectionTestUtils.setField(writer, "maxAttempts", 3);
+        ReflectionTestUtils.setField(writer, "retryBackoffMs", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void queuedMessagesAreVisibleUntilWrittenInOneBatch() {
+        writer.start();
+        // Accept messages into the queue without a drain thread, so flush() writes them all at once.
+        ReflectionTestUtils.setField(writer, "running", true);
+
+        ChatMessage question = writer.enqueue(message("c1", MessageRole.USER, "How is X parsed?"));
+        ChatMessage answer = writer.enqueue(message("c1", MessageRole.ASSISTANT, "By the parser."));
+        writer.enqueue(message("c2", MessageRole.USER, "Other question"));
+
+        assertNotNull(question.getId());
+        assertNotNull(question.getTimestamp());
+        assertEquals(List.of(question, answer), writer.pending("c1"));
+
+        writer.flush();
+
+        assertTrue(writer.pending("c1").isEmpty());
+        ChatHistoryWriterStats stats = writer.stats();
+        assertEquals(3, stats.getWritten());
+        assertEquals(1, stats.getBatches());
+        assertEquals(2, stats.getConversationTouches(), "One updatedAt touch per conversation");
+        assertEquals(0, stats.getCallerWrites());
+    }
+
+    @Test
+    void drainThreadWritesQueuedMessages() throws InterruptedException {
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "maxDelayMs", 10L);
+        writer.start();
+
+        writer.enqueue(message("c1", MessageRole.USER, "Question"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!writer.pending("c1").isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, writer.stats().getWritten());
+        assertEquals(0, writer.stats().getCallerWrites());
+        assertTrue(writer.pending("c1").isEmpty());
+    }
+
+    @Test
+    void messageRowsCarryMetadataAsJson() {
+        writer.start();
+
+        writer.enqueue(message("c1", MessageRole.ASSISTANT, "Answer", Map.of("chatModelUsed", "m")));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(ChatHistoryWriter.INSERT_MESSAGE_SQL), rows.capture());
+        Object[] row = rows.getValue().get(0);
+        assertEquals("c1", row[1]);
+        assertEquals("ASSISTANT", row[3]);
+        assertEquals("{\"chatModelUsed\":\"m\"}", new String((byte[]) row[5], StandardCharsets.UTF_8));
+        assertEquals(1, writer.stats().getCallerWrites(), "Write-behind disabled: written by the caller");
+    }
+
+    @Test
+    void touchSetsTitleFromFirstUserMessage() {
+        writer.start();
+
+        writer.enqueue(message("c1", MessageRole.USER, "Where is the rerank cache invalidated?"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(ChatHistoryWriter.TOUCH_CONVERSATION_SQL), rows.capture());
+        Object[] row = rows.getValue().get(0);
+        assertEquals("Where is the rerank cache invalidated?", row[1]);
+        assertEquals("c1", row[2]);
+    }
+
+    @Test
+    void messagesOfDeletedConversationAreDroppedNotRecreated() {
+        touchResult = 0;
+        writer.start();
+
+        writer.enqueue(message("deleted-conversation", MessageRole.USER, "Late question"));
+
+        verify(jdbcTemplate, never()).batchUpdate(eq(ChatHistoryWriter.INSERT_MESSAGE_SQL), anyList());
+        assertEquals(1, writer.stats().getDropped());
+        assertEquals(0, writer.stats().getWritten());
+        assertTrue(writer.pending("deleted-conversation").isEmpty());
+    }
+
+    @Test
+    void failedBatchIsRetried() {
+        when(jdbcTemplate.batchUpdate(eq(ChatHistoryWriter.INSERT_MESSAGE_SQL), anyList()))
+            .thenThrow(new IllegalStateException("lock timeout"))
+            .thenAnswer(invocation -> rowCounts(invocation.getArgument(1), 1));
+        writer.start();
+
+        writer.enqueue(message("c1", MessageRole.USER, "Question"));
+
+        ChatHistoryWriterStats stats = writer.stats();
+        assertEquals(1, stats.getRetries());
+        assertEquals(1, stats.getWritten());
+        assertEquals(0, stats.getFailed());
+        assertTrue(writer.pending("c1").isEmpty());
+    }
+
+    @Test
+    void batchIsGivenUpOnlyAfterTheLastAttempt() {
+        when(jdbcTemplate.batchUpdate(eq(ChatHistoryWriter.INSERT_MESSAGE_SQL), anyList()))
+            .thenThrow(new IllegalStateException("database unavailable"));
+        writer.start();
+
+        writer.enqueue(message("c1", MessageRole.USER, "Question"));
+
+        verify(jdbcTemplate, times(3)).batchUpdate(eq(ChatHistoryWriter.INSERT_MESSAGE_SQL), anyList());
+        ChatHistoryWriterStats stats = writer.stats();
+        assertEquals(2, stats.getRetries());
+        assertEquals(1, stats.getFailed());
+        assertEquals(0, stats.getWritten());
+        assertTrue(writer.pending("c1").isEmpty());
+    }
+
+    private static ChatMessage message(String conversationId, MessageRole role, String content) {
+        return message(conversationId, role, content, Map.of());
+    }
+
+    private static ChatMessage message(String conversationId, MessageRole role, String content, Map<String, Object> metadata) {
+        return ChatMessage.builder().conversationId(conversationId).role(role).content(content).metadata(metadata).build();
+    }
+
+    private static int[] rowCounts(List<?> rows, int count) {
+        int[] counts = new int[rows.size()];
+        Arrays.fill(counts, count);
+        return counts;
+    }
+}
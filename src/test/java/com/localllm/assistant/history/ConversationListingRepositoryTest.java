@@ -0,0 +1,105 @@
+package com.localllm.assistant.history;
+
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.history.model.Conversation;
+import com.localllm.assistant.history.model.ConversationSummary;
+import com.localllm.assistant.history.model.MessageRole;
+import com.localllm.assistant.history.model.MessageSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the listing query against H2 with the schema Hibernate generates from the entities.
+ */
+@DataJpaTest
+@Import(ConversationListingRepository.class)
+class ConversationListingRepositoryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ConversationListingRepository listingRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Listing order is updatedAt DESC, id DESC: a, c, b, d ("b" and "c" share updatedAt).
+        conversation("a", T0.plusHours(3));
+        conversation("b", T0.plusHours(2));
+        conversation("c", T0.plusHours(2));
+        conversation("d", T0.plusHours(1));
+        for (int i = 1; i <= 4; i++) {
+            message("a", "question " + i, T0.plusMinutes(i));
+        }
+        message("b", "only question", T0.plusMinutes(1));
+        chatMessageRepository.flush();
+    }
+
+    @Test
+    void firstPageHasTheMostRecentConversationsWithTheirLastMessages() {
+        List<ConversationSummary> page = listingRepository.findPage(null, 2, 2);
+
+        assertEquals(List.of("a", "c"), ids(page));
+        List<MessageSummary> messages = page.get(0).getRecentMessages();
+        assertEquals(List.of("question 3", "question 4"), messages.stream().map(MessageSummary::getContent).collect(Collectors.toList()));
+        assertEquals(MessageRole.USER, messages.get(0).getRole());
+        assertEquals(T0.plusMinutes(3), messages.get(0).getTimestamp());
+        assertEquals(T0.plusHours(3), page.get(0).getUpdatedAt());
+        assertEquals("Conversation a", page.get(0).getTitle());
+        assertTrue(page.get(1).getRecentMessages().isEmpty());
+    }
+
+    @Test
+    void cursorContinuesAfterTheLastConversationOfThePreviousPage() {
+        List<ConversationSummary> page = listingRepository.findPage(new ConversationCursor(T0.plusHours(2), "c"), 2, 3);
+
+        assertEquals(List.of("b", "d"), ids(page));
+        assertEquals(1, page.get(0).getRecentMessages().size());
+        assertTrue(listingRepository.findPage(new ConversationCursor(T0.plusHours(1), "d"), 2, 3).isEmpty());
+    }
+
+    @Test
+    void unlimitedListingReturnsEveryConversation() {
+        assertEquals(List.of("a", "c", "b", "d"), ids(listingRepository.findPage(null, Integer.MAX_VALUE, 0)));
+    }
+
+    private void conversation(String id, LocalDateTime updatedAt) {
+        conversationRepository.save(Conversation.builder()
+            .id(id)
+            .title("Conversation " + id)
+            .createdAt(T0)
+            .updatedAt(updatedAt)
+            .metadata(Map.of("tags", List.of("test")))
+            .build());
+    }
+
+    private void message(String conversationId, String content, LocalDateTime timestamp) {
+        chatMessageRepository.save(ChatMessage.builder()
+            .conversationId(conversationId)
+            .role(MessageRole.USER)
+            .content(content)
+            .timestamp(timestamp)
+            .metadata(Map.of("codeReferences", List.of()))
+            .build());
+    }
+
+    private static List<String> ids(List<ConversationSummary> page) {
+        return page.stream().map(ConversationSummary::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,117 @@
+package com.localllm.assistant.history;
+
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.history.model.MessageRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentMessageCacheTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private RecentMessageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentMessageCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "messagesPerConversation", 3);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+    }
+
+    @Test
+    void newConversationIsServedFromWrites() {
+        cache.createEmpty("c1");
+        assertEquals(List.of(), cache.get("c1", 3).orElseThrow());
+
+        for (int i = 1; i <= 4; i++) {
+            cache.append(message("c1", "m" + i, i));
+        }
+
+        assertEquals(List.of("m2", "m3", "m4"), ids(cache.get("c1", 3).orElseThrow()), "Ring keeps the last three");
+        assertEquals(List.of("m4"), ids(cache.get("c1", 1).orElseThrow()));
+        assertTrue(cache.get("c1", 4).isEmpty(), "Longer histories go to the database");
+    }
+
+    @Test
+    void firstReadLoadsAndKeepsWritesMadeDuringTheLoad() {
+        cache.append(message("c1", "ignored", 1));
+        assertTrue(cache.get("c1", 3).isEmpty(), "Not cached before the first read");
+
+        cache.beginLoad("c1");
+        cache.append(message("c1", "m3", 3)); // written while the database query runs
+        cache.completeLoad("c1", List.of(message("c1", "m1", 1), message("c1", "m2", 2), message("c1", "m3", 3)));
+
+        assertEquals(List.of("m1", "m2", "m3"), ids(cache.get("c1", 3).orElseThrow()));
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void outOfOrderAppendsAreSortedByTimestamp() {
+        cache.createEmpty("c1");
+        cache.append(message("c1", "m2", 2));
+        cache.append(message("c1", "m1", 1));
+
+        assertEquals(List.of("m1", "m2"), ids(cache.get("c1", 3).orElseThrow()));
+    }
+
+    @Test
+    void leastRecentlyUsedConversationsAreEvictedOverTheMemoryCap() {
+        ReflectionTestUtils.setField(cache, "maxBytes", 1000L);
+        cache.createEmpty("c1");
+        cache.append(messageWithContent("c1", "a", 1, 100));
+        cache.createEmpty("c2");
+        cache.append(messageWithContent("c2", "b", 1, 100));
+        cache.get("c1", 1);
+        cache.createEmpty("c3");
+        cache.append(messageWithContent("c3", "c", 1, 100));
+
+        assertTrue(cache.get("c2", 1).isEmpty(), "Least recently used conversation was evicted");
+        assertTrue(cache.get("c1", 1).isPresent());
+        assertTrue(cache.get("c3", 1).isPresent());
+        assertEquals(1, cache.stats().getEvictions());
+        assertTrue(cache.stats().getEstimatedBytes() <= 1000);
+    }
+
+    @Test
+    void deletesDropCachedMessages() {
+        cache.createEmpty("c1");
+        cache.createEmpty("c2");
+        cache.append(message("c1", "m1", 1));
+
+        cache.evict("c1");
+        assertTrue(cache.get("c1", 1).isEmpty());
+        assertTrue(cache.get("c2", 1).isPresent());
+
+        cache.clear();
+        assertTrue(cache.get("c2", 1).isEmpty());
+        assertEquals(0, cache.stats().getEstimatedBytes());
+    }
+
+    private static ChatMessage message(String conversationId, String id, int minute) {
+        return messageWithContent(conversationId, id, minute, 10);
+    }
+
+    private static ChatMessage messageWithContent(String conversationId, String id, int minute, int contentLength) {
+        return ChatMessage.builder()
+            .id(id)
+            .conversationId(conversationId)
+            .timestamp(T0.plusMinutes(minute))
+            .role(MessageRole.USER)
+            .content("x".repeat(contentLength))
+            .build();
+    }
+
+    private static List<String> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,121 @@
+package com.localllm.assistant.lexical.index;
+
+import com.localllm.assistant.parser.model.SegmentType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    @Test
+    void tokenizerSplitsIdentifiersAndKeepsCompounds() {
+        assertEquals(List.of("chroma", "db", "client", "impl", "chromadbclientimpl"),
+            CodeTokenizer.tokenize("ChromaDBClientImpl"));
+        assertEquals(List.of("max", "token", "length", "max_token_length"),
+            CodeTokenizer.tokenize("MAX_TOKEN_LENGTH"));
+        assertEquals(List.of("base", "64", "encoder", "base64encoder", "upsert"),
+            CodeTokenizer.tokenize("public Base64Encoder upsert()"));
+    }
+
+    @Test
+    void exactIdentifierRanksItsDefinitionFirst() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.replaceFile("src/ChromaDBClientImpl.java", List.of(
+            document("a1", "src/ChromaDBClientImpl.java", "public CompletableFuture<Void> upsertEmbeddingsAsync(String collection) { }"),
+            document("a2", "src/ChromaDBClientImpl.java", "private String getCollectionBasePath(String uuid) { }")));
+        index.replaceFile("src/EmbeddingService.java", List.of(
+            document("b1", "src/EmbeddingService.java", "CompletableFuture<EmbeddingVector> embedAsync(String text);"),
+            document("b2", "src/EmbeddingService.java", "List<EmbeddingVector> embeddings = embedAll(texts);")));
+
+        List<InvertedIndex.Hit> hits = index.search("where is upsertEmbeddingsAsync implemented?", 10);
+        assertEquals("a1", hits.get(0).document().segmentId());
+        assertTrue(hits.stream().allMatch(hit -> hit.score() > 0));
+        assertEquals("a1", index.search("ChromaDBClientImpl upsert", 1).get(0).document().segmentId());
+    }
+
+    @Test
+    void findSymbolMatchesSimpleAndQualifiedNames() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        String path = "src/OllamaReRankerServiceImpl.java";
+        index.replaceFile(path, List.of(
+            symbol("c", path, 10, SegmentType.CLASS, "com.acme.OllamaReRankerServiceImpl"),
+            symbol("m1", path, 20, SegmentType.METHOD, "com.acme.OllamaReRankerServiceImpl#reRankAsync"),
+            symbol("m2", path, 40, SegmentType.METHOD, "com.acme.OllamaReRankerServiceImpl#reRankAsync")));
+        index.replaceFile("src/NoOp.java", List.of(
+            symbol("n", "src/NoOp.java", 5, SegmentType.METHOD, "com.acme.NoOp#reRankAsync")));
+
+        assertEquals(List.of("n", "m1", "m2"), docIds(index.findSymbol("reRankAsync", 10)));
+        assertEquals(List.of("m1", "m2"), docIds(index.findSymbol("OllamaReRankerServiceImpl.reRankAsync", 10)));
+        assertEquals(List.of("m1", "m2"), docIds(index.findSymbol("com.acme.OllamaReRankerServiceImpl#reRankAsync()", 10)));
+        assertEquals(List.of("c"), docIds(index.findSymbol("ollamarerankerserviceimpl", 10)));
+        assertTrue(index.findSymbol("Impl.reRankAsync", 10).isEmpty());
+
+        index.removeFile(path);
+        assertEquals(List.of("n"), docIds(index.findSymbol("reRankAsync", 10)));
+    }
+
+    @Test
+    void replaceAndRemoveFileKeepOnlyCurrentSegments() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.replaceFile("A.java", List.of(document("a1", "A.java", "void oldName() { }")));
+        index.replaceFile("A.java", List.of(document("a2", "A.java", "void newName() { }")));
+        assertEquals(List.of("a2"), ids(index.search("oldName", 10)));
+        assertEquals("a2", index.search("newName", 10).get(0).document().segmentId());
+
+        index.removeFile("A.java");
+        assertEquals(0, index.size());
+        assertTrue(index.search("newName", 10).isEmpty());
+    }
+
+    @Test
+    void compactionAndSnapshotPreserveResults() throws Exception {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        for (int round = 0; round < 3; round++) {
+            for (int file = 0; file < 500; file++) {
+                List<InvertedIndex.Document> documents = new ArrayList<>();
+                for (int s = 0; s < 4; s++) {
+                    documents.add(document("f" + file + "-" + s + "-r" + round, "File" + file + ".java",
+                        "void method" + s + "Of" + file + "() { handleRound" + round + "(); }"));
+                }
+                index.replaceFile("File" + file + ".java", documents);
+            }
+        }
+        assertEquals(2000, index.size());
+        assertTrue(ids(index.search("handleRound0", 10)).stream().noneMatch(id -> id.endsWith("-r0")));
+        List<String> expected = ids(index.search("method2Of17 handleRound2", 5));
+        assertEquals("f17-2-r2", expected.get(0));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        InvertedIndex restored = new InvertedIndex(1.2, 0.75);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(2000, restored.size());
+        assertEquals(expected, ids(restored.search("method2Of17 handleRound2", 5)));
+    }
+
+    private static InvertedIndex.Document document(String id, String path, String content) {
+        return new InvertedIndex.Document(id, path, 1, 1, SegmentType.METHOD, null, null, content);
+    }
+
+    private static InvertedIndex.Document symbol(String id, String path, int line, SegmentType type, String fqn) {
+        return new InvertedIndex.Document(id, path, line, line + 5, type, null, fqn, "// " + fqn);
+    }
+
+    private static List<String> docIds(List<InvertedIndex.Document> documents) {
+        return documents.stream().map(InvertedIndex.Document::segmentId).collect(Collectors.toList());
+    }
+
+    private static List<String> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.document().segmentId()).collect(Collectors.toList());
+    }
+}
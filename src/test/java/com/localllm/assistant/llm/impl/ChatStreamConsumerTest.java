@@ -0,0 +1,82 @@
+package com.localllm.assistant.llm.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatStreamConsumerTest {
+
+    private final List<String> tokens = new ArrayList<>();
+    private final ChatStreamConsumer consumer = new ChatStreamConsumer(new ObjectMapper(), tokens::add);
+
+    private void receive(String chunk, boolean endOfStream) throws IOException {
+        consumer.data(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)), endOfStream);
+    }
+
+    @Test
+    void linesSplitAcrossChunksAreParsedOnceComplete() throws Exception {
+        consumer.start(new BasicHttpResponse(200), ContentType.APPLICATION_JSON);
+
+        receive("{\"message\":{\"content\":\"Hel\"},\"done\":false}\n{\"message\":{\"con", false);
+        assertEquals(List.of("Hel"), tokens);
+        receive("tent\":\"lo, wörld\"},\"done\":false}\n\n", false);
+        // The final line has no trailing newline.
+        receive("{\"message\":{\"content\":\"\"},\"done\":true,\"eval_count\":3}", true);
+
+        ChatStreamConsumer.Result result = consumer.buildResult();
+        assertEquals(List.of("Hel", "lo, wörld"), tokens);
+        assertEquals("Hello, wörld", result.getContent());
+        assertTrue(result.isDone());
+        assertEquals(3, result.getGeneratedTokens());
+        assertNull(result.getError());
+    }
+
+    @Test
+    void inStreamErrorIsReported() throws Exception {
+        consumer.start(new BasicHttpResponse(200), ContentType.APPLICATION_JSON);
+
+        receive("{\"message\":{\"content\":\"partial\"},\"done\":false}\n{\"error\":\"model ran out of memory\"}\n", true);
+
+        ChatStreamConsumer.Result result = consumer.buildResult();
+        assertEquals(200, result.getStatusCode());
+        assertEquals("model ran out of memory", result.getError());
+        assertFalse(result.isDone());
+    }
+
+    @Test
+    void nonOkBodyIsKeptAsErrorAndNotParsed() throws Exception {
+        consumer.start(new BasicHttpResponse(404), ContentType.APPLICATION_JSON);
+
+        receive("{\"error\":\"model 'x' not found\"}", false);
+        receive("", true);
+
+        ChatStreamConsumer.Result result = consumer.buildResult();
+        assertEquals(404, result.getStatusCode());
+        assertEquals("{\"error\":\"model 'x' not found\"}", result.getError());
+        assertTrue(tokens.isEmpty());
+    }
+
+    @Test
+    void cancelAbortsAtTheNextChunk() throws Exception {
+        consumer.start(new BasicHttpResponse(200), ContentType.APPLICATION_JSON);
+        receive("{\"message\":{\"content\":\"a\"},\"done\":false}\n", false);
+
+        consumer.cancel();
+
+        assertThrows(IOException.class, () -> receive("{\"message\":{\"content\":\"b\"},\"done\":false}\n", false));
+        assertEquals(List.of("a"), tokens);
+    }
+}
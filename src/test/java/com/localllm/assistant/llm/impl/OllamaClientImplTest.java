@@ -0,0 +1,87 @@
+package com.localllm.assistant.llm.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
+import com.localllm.assistant.config.OllamaConfig;
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.history.model.MessageRole;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OllamaClientImplTest {
+
+    private CloseableHttpAsyncClient httpClient;
+    private AdaptiveConcurrencyLimiter chatLimiter;
+    private OllamaClientImpl client;
+
+    @BeforeEach
+    void setUp() {
+        httpClient = mock(CloseableHttpAsyncClient.class);
+        chatLimiter = new AdaptiveConcurrencyLimiter("ollama-chat", 1, 1, 1, 4, 0.5, 0);
+        client = new OllamaClientImpl(httpClient, new OllamaConfig(), new ObjectMapper(), chatLimiter);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamCancelledWhileQueuedIsNeverSent() {
+        AdaptiveConcurrencyLimiter.Permit busy = chatLimiter.acquire().join();
+
+        CompletableFuture<String> answer = client.streamChatCompletionAsync(question(), "m", 0.1, 16, token -> { });
+        assertEquals(1, chatLimiter.stats().getQueued());
+
+        answer.cancel(true);
+        busy.release(AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+
+        assertEquals(0, chatLimiter.stats().getQueued());
+        assertEquals(0, chatLimiter.getInFlight());
+        verify(httpClient, never()).execute(any(AsyncRequestProducer.class), any(AsyncResponseConsumer.class), any(FutureCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamCancelledBeforeFirstTokenAbortsTheExchange() {
+        Future<Object> exchange = mock(Future.class);
+        when(httpClient.execute(any(AsyncRequestProducer.class), any(AsyncResponseConsumer.class), any(FutureCallback.class)))
+            .thenReturn(exchange);
+
+        CompletableFuture<String> answer = client.streamChatCompletionAsync(question(), "m", 0.1, 16, token -> { });
+        answer.cancel(true);
+
+        verify(exchange).cancel(anyBoolean());
+        assertTrue(answer.isCancelled());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cancelledCompletionAbortsTheExchange() {
+        Future<SimpleHttpResponse> exchange = mock(Future.class);
+        when(httpClient.execute(any(SimpleHttpRequest.class), any(FutureCallback.class))).thenReturn(exchange);
+
+        client.generateChatCompletionAsync(question(), "m", 0.1, 16).cancel(true);
+
+        verify(exchange).cancel(anyBoolean());
+    }
+
+    private static List<ChatMessage> question() {
+        return List.of(ChatMessage.builder().role(MessageRole.USER).content("How is X parsed?").build());
+    }
+}
@@ -0,0 +1,76 @@
+package com.localllm.assistant.manifest;
+
+import com.localllm.assistant.manifest.model.FileFingerprint;
+import com.localllm.assistant.manifest.model.IndexedFile;
+import com.localllm.assistant.service.impl.IndexManifestServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the manifest against H2 with the schema Hibernate generates from the entities.
+ */
+@DataJpaTest
+@Import(IndexManifestServiceImpl.class)
+class IndexedFileRepositoryTest {
+
+    @TempDir
+    Path baseDir;
+
+    @Autowired
+    private IndexedFileRepository indexedFileRepository;
+
+    @Autowired
+    private IndexManifestServiceImpl manifest;
+
+    @Test
+    void sameFileIsRecordedSeparatelyPerCollection() throws Exception {
+        Path file = Files.writeString(baseDir.resolve("A.java"), "class A {}");
+
+        manifest.recordIndexedFile(baseDir, "code", file, FileFingerprint.capture(file), List.of("code-1", "code-2"));
+        manifest.recordIndexedFile(baseDir, "docs", file, FileFingerprint.capture(file), List.of("docs-1"));
+        indexedFileRepository.flush();
+
+        assertEquals(2, indexedFileRepository.count());
+        assertEquals(Set.of("code-1", "code-2"), manifest.getSegmentIds("code", file));
+        assertEquals(Set.of("docs-1"), manifest.getSegmentIds("docs", file));
+        assertEquals(List.of("docs"), collections(indexedFileRepository.findByBasePathAndCollectionName(normalize(baseDir), "docs")));
+
+        manifest.removeFile("docs", file);
+
+        assertFalse(manifest.hasEntries(baseDir, "docs"));
+        assertTrue(manifest.hasEntries(baseDir, "code"));
+        assertEquals(Set.of("code-1", "code-2"), manifest.getSegmentIds("code", file));
+    }
+
+    @Test
+    void clearingOneCollectionKeepsTheOther() throws Exception {
+        Path file = Files.writeString(baseDir.resolve("B.java"), "class B {}");
+        manifest.recordIndexedFile(baseDir, "code", file, FileFingerprint.capture(file), List.of("code-1"));
+        manifest.recordIndexedFile(baseDir, "docs", file, FileFingerprint.capture(file), List.of("docs-1"));
+
+        manifest.clearManifest(baseDir, "code");
+
+        assertEquals(List.of("docs"), collections(indexedFileRepository.findAll()));
+    }
+
+    private static List<String> collections(List<IndexedFile> entries) {
+        return entries.stream().map(IndexedFile::getCollectionName).collect(Collectors.toList());
+    }
+
+    private static String normalize(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+}
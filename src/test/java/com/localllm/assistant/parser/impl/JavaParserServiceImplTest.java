@@ -2,6 +2,8 @@ package com.localllm.assistant.parser.impl;
 
 import com.localllm.assistant.parser.model.CodeSegment;
 import com.localllm.assistant.parser.model.SegmentType;
+import com.localllm.assistant.tokenizer.HeuristicTokenCounter;
+import com.localllm.assistant.tokenizer.TokenCounter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -33,7 +35,7 @@ class JavaParserServiceImplTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         Executor immediateExecutor = Runnable::run;
-        parserService = new JavaParserServiceImpl(immediateExecutor);
+        parserService = new JavaParserServiceImpl(immediateExecutor, new HeuristicTokenCounter(3.5));
         setMaxSegmentCharLength(2000);
         setSubChunkOverlapChars(100);
     }
@@ -303,6 +305,27 @@ class JavaParserServiceImplTest {
         }
     }
 
+    @Test
+    void testSegmentsCarryTokenCounts(@TempDir Path tempDir) throws Exception {
+        StringBuilder content = new StringBuilder("package com.example.test;\n\npublic class Counted {\n    public void run() {\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("        System.out.println(\"line ").append(i).append("\");\n");
+        }
+        content.append("    }\n}\n");
+        Path testFilePath = createTestFile(tempDir, "Counted.java", content.toString());
+        TokenCounter counter = new HeuristicTokenCounter(3.5);
+
+        List<CodeSegment> segments = parserService.parseFileAsync(testFilePath, tempDir).join();
+
+        assertTrue(segments.stream().anyMatch(CodeSegment::isSubChunk), "Method should be chunked");
+        for (CodeSegment segment : segments) {
+            assertEquals(counter.name(), segment.getMetadata().get(TokenCounter.METADATA_TOKENIZER));
+            assertEquals(counter.countTokens(segment.getContent().trim()), segment.getMetadata().get(TokenCounter.METADATA_TOKEN_COUNT),
+                "Token count of " + segment.getId());
+            assertEquals(counter.countTokens(segment.getContent().trim()), counter.countSegmentTokens(segment));
+        }
+    }
+
     private Optional<CodeSegment> findSegmentByTypeAndName(List<CodeSegment> segments, SegmentType type, String name) {
         return segments.stream()
             .filter(s -> s.getType() == type && name.equals(s.getEntityName()))
@@ -0,0 +1,129 @@
+package com.localllm.assistant.prompt;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.tokenizer.HeuristicTokenCounter;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextConsolidatorTest {
+
+    private final TokenCounter tokenCounter = new HeuristicTokenCounter(1.0);
+    private final ContextConsolidator consolidator = new ContextConsolidator(true, 1, tokenCounter);
+
+    @Test
+    void consecutiveSubChunksAreJoinedWithoutOverlap() {
+        List<VectorSearchResult> context = List.of(
+            result(chunk("Big.java:10:METHOD:run", 1, 3, "ABCDEfghij", 10, 60), 0.7),
+            result(segment("Other.java:1:CLASS:Other", "Other.java", 1, 5, null, "class Other {}"), 0.6),
+            result(chunk("Big.java:10:METHOD:run", 0, 3, "0123456789ABCDE", 10, 60), 0.9));
+
+        List<VectorSearchResult> consolidated = consolidator.consolidate(context);
+
+        assertEquals(2, consolidated.size());
+        CodeSegment joined = consolidated.get(0).getSegment();
+        assertEquals("0123456789ABCDEfghij", joined.getContent());
+        assertEquals(0.9, consolidated.get(0).getScore());
+        assertTrue(joined.isSubChunk(), "Two of three chunks are still a partial segment");
+        assertEquals(20, tokenCounter.countSegmentTokens(joined));
+        assertEquals("Other.java:1:CLASS:Other", consolidated.get(1).getSegment().getId());
+    }
+
+    @Test
+    void retrievedParentReplacesContainedChildrenAndKeepsBestScore() {
+        List<VectorSearchResult> context = List.of(
+            result(segment("A.java:12:METHOD:run", "A.java", 12, 20, "A.java:1:CLASS:A", "void run() {}"), 0.9),
+            result(segment("A.java:30:FIELD:count", "A.java", 30, 30, null, "int count;"), 0.8),
+            result(segment("A.java:1:CLASS:A", "A.java", 1, 40, null, "class A { void run() {} int count; }"), 0.6));
+
+        List<VectorSearchResult> consolidated = consolidator.consolidate(context);
+
+        assertEquals(List.of("A.java:1:CLASS:A"), ids(consolidated));
+        assertEquals(0.9, consolidated.get(0).getScore());
+    }
+
+    @Test
+    void partialChunkDoesNotCoverButCompleteChunkRunDoes() {
+        List<VectorSearchResult> partial = List.of(
+            result(chunk("A.java:1:CLASS:A", 0, 2, "class A { void run", 1, 40), 0.9),
+            result(segment("A.java:12:METHOD:run", "A.java", 12, 20, null, "void run() {}"), 0.8));
+        assertEquals(2, consolidator.consolidate(partial).size());
+
+        List<VectorSearchResult> complete = List.of(
+            result(chunk("A.java:1:CLASS:A", 0, 2, "class A { void run", 1, 40), 0.9),
+            result(segment("A.java:12:METHOD:run", "A.java", 12, 20, null, "void run() {}"), 0.8),
+            result(chunk("A.java:1:CLASS:A", 1, 2, "void run() {} }", 1, 40), 0.7));
+        List<VectorSearchResult> consolidated = consolidator.consolidate(complete);
+
+        assertEquals(1, consolidated.size());
+        assertFalse(consolidated.get(0).getSegment().isSubChunk());
+    }
+
+    @Test
+    void identicalRangesKeepTheBetterRankedSegment() {
+        List<VectorSearchResult> context = List.of(
+            result(segment("A.java:5:FIELD:beta", "A.java", 5, 5, null, "private int alpha, beta;"), 0.9),
+            result(segment("A.java:5:FIELD:alpha", "A.java", 5, 5, null, "private int alpha, beta;"), 0.8));
+
+        assertEquals(List.of("A.java:5:FIELD:beta"), ids(consolidator.consolidate(context)));
+    }
+
+    @Test
+    void adjacentSiblingsAreMergedButDistantOrForeignOnesAreNot() {
+        List<VectorSearchResult> context = List.of(
+            result(segment("A.java:10:METHOD:a", "A.java", 10, 14, "P", "void a() {}"), 0.9),
+            result(segment("A.java:16:METHOD:b", "A.java", 16, 20, "P", "void b() {}"), 0.5),
+            result(segment("A.java:24:METHOD:c", "A.java", 24, 28, "P", "void c() {}"), 0.8),
+            result(segment("A.java:29:METHOD:d", "A.java", 29, 30, "Q", "void d() {}"), 0.7));
+
+        List<VectorSearchResult> consolidated = consolidator.consolidate(context);
+
+        assertEquals(List.of("A.java:10:METHOD:a", "A.java:24:METHOD:c", "A.java:29:METHOD:d"), ids(consolidated));
+        CodeSegment merged = consolidated.get(0).getSegment();
+        assertEquals("void a() {}\n\nvoid b() {}", merged.getContent());
+        assertEquals(10, merged.getStartLine());
+        assertEquals(20, merged.getEndLine());
+        assertEquals(merged.getContent().length(), tokenCounter.countSegmentTokens(merged));
+    }
+
+    @Test
+    void disabledConsolidatorReturnsContextUnchanged() {
+        List<VectorSearchResult> context = List.of(
+            result(segment("A.java:1:CLASS:A", "A.java", 1, 40, null, "class A {}"), 0.6),
+            result(segment("A.java:12:METHOD:run", "A.java", 12, 20, null, "void run() {}"), 0.9));
+
+        assertEquals(context, new ContextConsolidator(false, 1, tokenCounter).consolidate(context));
+    }
+
+    private CodeSegment segment(String id, String file, int start, int end, String parentId, String content) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(TokenCounter.METADATA_TOKEN_COUNT, tokenCounter.countTokens(content.trim()));
+        metadata.put(TokenCounter.METADATA_TOKENIZER, tokenCounter.name());
+        return CodeSegment.builder().id(id).relativeFilePath(file).startLine(start).endLine(end).parentId(parentId)
+            .content(content).metadata(metadata).build();
+    }
+
+    private CodeSegment chunk(String baseId, int number, int total, String content, int start, int end) {
+        CodeSegment segment = segment(baseId + "_chunk" + number + ":0123abcd", baseId.substring(0, baseId.indexOf(':')),
+            start, end, null, content);
+        segment.getMetadata().put("totalChunks", total);
+        return segment.toBuilder().isSubChunk(true).chunkNumber(number).build();
+    }
+
+    private static VectorSearchResult result(CodeSegment segment, double score) {
+        return new VectorSearchResult(segment, score);
+    }
+
+    private static List<String> ids(List<VectorSearchResult> results) {
+        return results.stream().map(r -> r.getSegment().getId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,104 @@
+package com.localllm.assistant.prompt;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.prompt.metrics.ContextPackingMetrics;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextPackerTest {
+
+    private final ContextPackingMetrics metrics = new ContextPackingMetrics();
+
+    @Test
+    void greedyStopsAtFirstOversizedSegment() {
+        ContextPacker packer = new ContextPacker(PackingStrategy.GREEDY, 0, metrics);
+
+        PackedContext packed = packer.pack(oversizedFirst(), 1000);
+
+        assertEquals(List.of("big"), ids(packed));
+        assertEquals(900, packed.usedTokens());
+    }
+
+    @Test
+    void knapsackMaximizesSummedScoreUnderBudget() {
+        ContextPacker packer = new ContextPacker(PackingStrategy.KNAPSACK, 0, metrics);
+
+        PackedContext packed = packer.pack(oversizedFirst(), 1000);
+
+        // Four 0.8-0.85 segments beat one 0.9 segment that takes 90% of the budget.
+        assertEquals(List.of("a", "b", "c", "d"), ids(packed));
+        assertEquals(1000, packed.usedTokens());
+        assertEquals(1.0, packed.utilization(), 1e-9);
+        assertEquals(1, metrics.stats().getPacks());
+    }
+
+    @Test
+    void densityPrefersScorePerToken() {
+        ContextPacker packer = new ContextPacker(PackingStrategy.DENSITY, 0, metrics);
+
+        PackedContext packed = packer.pack(oversizedFirst(), 700);
+
+        assertEquals(List.of("a", "b", "c"), ids(packed));
+        assertTrue(packed.usedTokens() <= 700);
+    }
+
+    @Test
+    void knapsackNeverExceedsLargeCoarsenedBudget() {
+        ContextPacker packer = new ContextPacker(PackingStrategy.KNAPSACK, 0, metrics);
+        List<ContextPacker.Candidate> candidates = List.of(
+            candidate("a", "A.java", 0.9, 6001),
+            candidate("b", "B.java", 0.8, 6001),
+            candidate("c", "C.java", 0.7, 8000));
+
+        PackedContext packed = packer.pack(candidates, 14001);
+
+        assertTrue(packed.usedTokens() <= 14001, "Used " + packed.usedTokens());
+        assertEquals(List.of("a", "b"), ids(packed));
+    }
+
+    @Test
+    void perFileCapKeepsHighestScoredSegmentsAndRefillsFromOtherFiles() {
+        ContextPacker packer = new ContextPacker(PackingStrategy.KNAPSACK, 2, metrics);
+        List<ContextPacker.Candidate> candidates = List.of(
+            candidate("a1", "A.java", 0.9, 100),
+            candidate("a2", "A.java", 0.8, 100),
+            candidate("a3", "A.java", 0.7, 100),
+            candidate("b1", "B.java", 0.3, 100));
+
+        PackedContext packed = packer.pack(candidates, 300);
+
+        assertEquals(List.of("a1", "a2", "b1"), ids(packed));
+    }
+
+    @Test
+    void emptyOrZeroBudgetSelectsNothing() {
+        ContextPacker packer = new ContextPacker(PackingStrategy.KNAPSACK, 0, metrics);
+
+        assertTrue(packer.pack(oversizedFirst(), 0).selected().isEmpty());
+        assertTrue(packer.pack(List.of(), 1000).selected().isEmpty());
+    }
+
+    private static List<ContextPacker.Candidate> oversizedFirst() {
+        return List.of(
+            candidate("big", "Big.java", 0.9, 900),
+            candidate("a", "A.java", 0.85, 250),
+            candidate("b", "B.java", 0.84, 250),
+            candidate("c", "C.java", 0.82, 200),
+            candidate("d", "D.java", 0.8, 300));
+    }
+
+    private static ContextPacker.Candidate candidate(String id, String file, double score, int tokens) {
+        CodeSegment segment = CodeSegment.builder().id(id).relativeFilePath(file).content("class X {}").build();
+        return new ContextPacker.Candidate(new VectorSearchResult(segment, score), tokens);
+    }
+
+    private static List<String> ids(PackedContext packed) {
+        return packed.selected().stream().map(c -> c.result().getSegment().getId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,136 @@
+package com.localllm.assistant.prompt;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.prompt.metrics.SnippetCompressionMetrics;
+import com.localllm.assistant.prompt.metrics.SnippetCompressionStats;
+import com.localllm.assistant.tokenizer.HeuristicTokenCounter;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnippetCompressorTest {
+
+    private static final String PERSON = """
+        /**
+         * A person.
+         */
+        public class Person {
+
+            // the name
+            private String name;
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            public String greet() {
+                String prefix = "Hello // not a comment";
+                return prefix + name;
+            }
+        }""";
+
+    private final TokenCounter tokenCounter = new HeuristicTokenCounter(1.0);
+    private final SnippetCompressionMetrics metrics = new SnippetCompressionMetrics();
+
+    @Test
+    void commentsAndAccessorsAreRemovedAndSavingsReportedPerMode() {
+        SnippetCompressor compressor = compressor(EnumSet.of(CompressionMode.COMMENTS, CompressionMode.ACCESSORS));
+
+        List<VectorSearchResult> compressed = compressor.compress(List.of(result("Person", PERSON, 0.9)));
+
+        String content = compressed.get(0).getSegment().getContent();
+        assertFalse(content.contains("A person"));
+        assertFalse(content.contains("the name"));
+        assertFalse(content.contains("return name;"));
+        assertFalse(content.contains("this.name = name;"));
+        assertTrue(content.contains("// trivial accessors elided: getName(), setName(String)"));
+        assertTrue(content.contains("\"Hello // not a comment\""));
+        assertEquals(content.trim().length(), tokenCounter.countSegmentTokens(compressed.get(0).getSegment()));
+
+        SnippetCompressionStats stats = metrics.stats();
+        assertTrue(stats.getTokensSavedByMode().get("comments") > 0);
+        assertTrue(stats.getTokensSavedByMode().get("accessors") > 0);
+        assertEquals(0L, (long) stats.getTokensSavedByMode().get("bodies"));
+        assertEquals(stats.getTokensBefore() - stats.getTokensAfter(),
+            stats.getTokensSavedByMode().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void bodiesAreOnlyElidedForLowScoringSnippetsOutsideTheTopN() {
+        SnippetCompressor compressor = new SnippetCompressor(true, EnumSet.of(CompressionMode.BODIES), 1, 0.5, tokenCounter, metrics);
+        String method = "public int sum(int a, int b) {\n    int s = a + b;\n    return s;\n}";
+
+        List<VectorSearchResult> compressed = compressor.compress(List.of(
+            result("a", method, 0.2),
+            result("b", method, 0.5),
+            result("c", method, 0.05)));
+
+        assertEquals(method, compressed.get(0).getSegment().getContent(), "Top-ranked snippet keeps its body");
+        assertEquals(method, compressed.get(1).getSegment().getContent(), "Score is not low enough relative to the best");
+        assertEquals("public int sum(int a, int b) { ... }", compressed.get(2).getSegment().getContent());
+        assertEquals(0.05, compressed.get(2).getScore());
+    }
+
+    @Test
+    void singleAccessorSnippetIsKept() {
+        SnippetCompressor compressor = compressor(EnumSet.of(CompressionMode.ACCESSORS));
+        String getter = "public String getName() {\n    return name;\n}";
+
+        assertEquals(getter, compressor.compress(List.of(result("g", getter, 0.9))).get(0).getSegment().getContent());
+    }
+
+    @Test
+    void unparseableChunksGetTextCommentAndWhitespaceCompression() {
+        SnippetCompressor compressor = compressor(EnumSet.of(CompressionMode.COMMENTS, CompressionMode.WHITESPACE));
+        String chunk = "        int x = 1; // one\n\n        /* block\n         comment */\n        String s = \"/* kept */\";\n    }\n\n    void next() {";
+
+        List<VectorSearchResult> compressed = compressor.compress(List.of(result("chunk", chunk, 0.9)));
+
+        assertEquals("    int x = 1;\n    String s = \"/* kept */\";\n  }\n  void next() {",
+            compressed.get(0).getSegment().getContent());
+        assertEquals(1L, metrics.stats().getUnparsedSegments());
+    }
+
+    @Test
+    void disabledOrUnchangedSnippetsAreReturnedAsIs() {
+        List<VectorSearchResult> context = List.of(result("Person", PERSON, 0.9));
+        assertSame(context, new SnippetCompressor(false, EnumSet.allOf(CompressionMode.class), 0, 1.0, tokenCounter, metrics)
+            .compress(context));
+
+        VectorSearchResult plain = result("field", "private int count;", 0.9);
+        assertSame(plain, compressor(EnumSet.allOf(CompressionMode.class)).compress(List.of(plain)).get(0));
+    }
+
+    @Test
+    void modesAreParsedFromCommaSeparatedNames() {
+        assertEquals(EnumSet.of(CompressionMode.COMMENTS, CompressionMode.BODIES), CompressionMode.fromNames(" comments, bodies "));
+        assertTrue(CompressionMode.fromNames("").isEmpty());
+    }
+
+    private SnippetCompressor compressor(Set<CompressionMode> modes) {
+        return new SnippetCompressor(true, modes, 0, 0.0, tokenCounter, metrics);
+    }
+
+    private VectorSearchResult result(String id, String content, double score) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(TokenCounter.METADATA_TOKEN_COUNT, tokenCounter.countTokens(content.trim()));
+        metadata.put(TokenCounter.METADATA_TOKENIZER, tokenCounter.name());
+        CodeSegment segment = CodeSegment.builder().id(id).relativeFilePath("Person.java").content(content).metadata(metadata).build();
+        return new VectorSearchResult(segment, score);
+    }
+}
@@ -0,0 +1,116 @@
+package com.localllm.assistant.rerank;
+
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReRankCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IndexGeneration newGeneration() {
+        IndexGeneration generation = new IndexGeneration();
+        ReflectionTestUtils.setField(generation, "generationPath", tempDir.resolve("index-generation").toString());
+        generation.init();
+        return generation;
+    }
+
+    private static ReRankCache newCache(IndexGeneration generation, int maxEntries) {
+        ReRankCache cache = new ReRankCache(generation);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "minOverlap", 0.8);
+        return cache;
+    }
+
+    @Test
+    void sameQueryAndCandidatesReturnTheCachedOrderWithCurrentObjects() {
+        ReRankCache cache = newCache(newGeneration(), 10);
+        List<VectorSearchResult> candidates = candidates("a", "b", "c", "d");
+        cache.put("Where is X parsed?", "model", 2, candidates, List.of(candidates.get(2), candidates.get(0)));
+
+        List<VectorSearchResult> fresh = candidates("a", "b", "c", "d");
+        List<VectorSearchResult> cached = cache.get("  where is x   PARSED? ", "model", 2, fresh).orElseThrow();
+
+        assertEquals(List.of("c", "a"), ids(cached));
+        assertSame(fresh.get(2), cached.get(0));
+        assertTrue(cache.get("Where is X parsed?", "other-model", 2, fresh).isEmpty());
+        assertTrue(cache.get("Where is X parsed?", "model", 3, fresh).isEmpty());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(2, cache.stats().getMisses());
+    }
+
+    @Test
+    void changedContentIsADifferentCandidate() {
+        ReRankCache cache = newCache(newGeneration(), 10);
+        List<VectorSearchResult> candidates = candidates("a", "b");
+        cache.put("q", "model", 1, candidates, List.of(candidates.get(1)));
+
+        List<VectorSearchResult> edited = List.of(candidates.get(0), result("b", "void b() { changed(); }"));
+
+        assertTrue(cache.get("q", "model", 1, edited).isEmpty(), "Overlap 1/3 is below the threshold");
+    }
+
+    @Test
+    void mostlyOverlappingCandidatesReuseTheCachedOrder() {
+        ReRankCache cache = newCache(newGeneration(), 10);
+        List<VectorSearchResult> candidates = candidates("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        cache.put("q", "model", 3, candidates, List.of(candidates.get(9), candidates.get(5), candidates.get(1)));
+
+        // "f" dropped out and "k" is new: Jaccard overlap 9/11.
+        List<VectorSearchResult> next = candidates("a", "b", "c", "d", "e", "g", "h", "i", "j", "k");
+        List<VectorSearchResult> reused = cache.get("q", "model", 3, next).orElseThrow();
+
+        assertEquals(List.of("j", "b", "k"), ids(reused));
+        assertEquals(1, cache.stats().getPartialHits());
+        assertEquals(1.0, cache.stats().getHitRate(), 1e-9);
+    }
+
+    @Test
+    void indexChangesAndLruEvictionDropEntries() {
+        IndexGeneration generation = newGeneration();
+        ReRankCache cache = newCache(generation, 2);
+        List<VectorSearchResult> candidates = candidates("a", "b");
+        cache.put("q1", "model", 1, candidates, List.of(candidates.get(1)));
+        cache.put("q2", "model", 1, candidates, List.of(candidates.get(1)));
+        cache.get("q1", "model", 1, candidates);
+        cache.put("q3", "model", 1, candidates, List.of(candidates.get(1)));
+
+        assertTrue(cache.get("q1", "model", 1, candidates).isPresent());
+        assertTrue(cache.get("q2", "model", 1, candidates).isEmpty(), "Least recently used entry was evicted");
+        assertEquals(1, cache.stats().getEvictions());
+
+        generation.bump();
+        assertTrue(cache.get("q1", "model", 1, candidates).isEmpty());
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    private static List<VectorSearchResult> candidates(String... ids) {
+        List<VectorSearchResult> results = new ArrayList<>();
+        for (String id : ids) {
+            results.add(result(id, "void " + id + "() {}"));
+        }
+        return results;
+    }
+
+    private static VectorSearchResult result(String id, String content) {
+        return new VectorSearchResult(CodeSegment.builder().id(id).content(content).build(), 0.5);
+    }
+
+    private static List<String> ids(List<VectorSearchResult> results) {
+        return results.stream().map(r -> r.getSegment().getId()).collect(Collectors.toList());
+    }
+}
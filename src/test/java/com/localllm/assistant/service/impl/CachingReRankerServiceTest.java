@@ -0,0 +1,68 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.rerank.ReRankCache;
+import com.localllm.assistant.rerank.ReRankOutcome;
+import com.localllm.assistant.service.ReRankerService;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingReRankerServiceTest {
+
+    private final List<VectorSearchResult> candidates = List.of(candidate("a"), candidate("b"), candidate("c"));
+
+    private ReRankerService delegate;
+    private ReRankCache cache;
+    private CachingReRankerService service;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ReRankerService.class);
+        cache = mock(ReRankCache.class);
+        when(cache.isEnabled()).thenReturn(true);
+        when(cache.get(anyString(), anyString(), anyInt(), anyList())).thenReturn(Optional.empty());
+        service = new CachingReRankerService(delegate, cache, "local");
+    }
+
+    @Test
+    void completeRankingIsCached() {
+        List<VectorSearchResult> ranked = List.of(candidates.get(2), candidates.get(0));
+        when(delegate.reRankWithOutcomeAsync("q", candidates, 2, "model"))
+            .thenReturn(CompletableFuture.completedFuture(ReRankOutcome.complete(ranked)));
+
+        assertEquals(ranked, service.reRankAsync("q", candidates, 2, "model").join());
+
+        verify(cache).put("q", "model", 2, candidates, ranked);
+    }
+
+    @Test
+    void incompleteRankingIsReturnedButNotCached() {
+        // e.g. one pointwise batch timed out: graded candidates first, the rest in retrieval order.
+        List<VectorSearchResult> degraded = List.of(candidates.get(1), candidates.get(0));
+        when(delegate.reRankWithOutcomeAsync("q", candidates, 2, "model"))
+            .thenReturn(CompletableFuture.completedFuture(ReRankOutcome.incomplete(degraded)));
+
+        assertEquals(degraded, service.reRankAsync("q", candidates, 2, "model").join());
+
+        verify(cache, never()).put(anyString(), anyString(), anyInt(), anyList(), any());
+    }
+
+    private static VectorSearchResult candidate(String id) {
+        return new VectorSearchResult(CodeSegment.builder().id(id).content("void " + id + "() {}").build(), 0.5);
+    }
+}
@@ -0,0 +1,49 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.manifest.IndexedFileRepository;
+import com.localllm.assistant.manifest.model.IndexedFile;
+import com.localllm.assistant.manifest.model.ManifestDiff;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexManifestServiceImplTest {
+
+    @TempDir
+    Path baseDir;
+
+    @Mock
+    private IndexedFileRepository indexedFileRepository;
+
+    @Test
+    void incompleteEntryIsReprocessedReusingOnlyItsStoredSegments() throws Exception {
+        Path file = Files.writeString(baseDir.resolve("A.java"), "class A { void a() {} void b() {} }");
+        IndexManifestServiceImpl manifest = new IndexManifestServiceImpl(indexedFileRepository);
+        manifest.recordIncompleteFile(baseDir, "code", file, List.of("a"));
+        ArgumentCaptor<IndexedFile> saved = ArgumentCaptor.forClass(IndexedFile.class);
+        verify(indexedFileRepository).save(saved.capture());
+        when(indexedFileRepository.findByBasePathAndCollectionName(anyString(), eq("code"))).thenReturn(List.of(saved.getValue()));
+
+        // The file itself did not change since it was recorded.
+        ManifestDiff diff = manifest.computeDiff(baseDir, "code", List.of(file), false);
+
+        assertEquals(List.of(file), diff.getFilesToProcess());
+        assertEquals(1, diff.getChangedCount());
+        assertEquals(Set.of("a"), diff.getPreviousSegmentIds().get("A.java"));
+    }
+}
@@ -0,0 +1,170 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.lexical.LexicalIndexService;
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.manifest.model.FileFingerprint;
+import com.localllm.assistant.manifest.model.ManifestDiff;
+import com.localllm.assistant.parser.ParserService;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.parser.model.SegmentType;
+import com.localllm.assistant.service.FileMonitorService;
+import com.localllm.assistant.service.IndexManifestService;
+import com.localllm.assistant.vectorstore.VectorStoreClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IndexingServiceImplTest {
+
+    @TempDir
+    Path baseDir;
+
+    @Mock
+    private ParserService parserService;
+    @Mock
+    private EmbeddingService embeddingService;
+    @Mock
+    private VectorStoreClient vectorStoreClient;
+    @Mock
+    private ChromaDBConfig chromaDBConfig;
+    @Mock
+    private FileMonitorService fileMonitorService;
+    @Mock
+    private IndexManifestService indexManifestService;
+    @Mock
+    private LexicalIndexService lexicalIndexService;
+    @Mock
+    private IndexGeneration indexGeneration;
+
+    private static CodeSegment segment(String id, String relativePath) {
+        return CodeSegment.builder().id(id).type(SegmentType.METHOD).relativeFilePath(relativePath).content("void " + id + "() {}").build();
+    }
+
+    private IndexingServiceImpl indexingService;
+
+    @BeforeEach
+    void setUp() {
+        indexingService = new IndexingServiceImpl(parserService, embeddingService, vectorStoreClient, chromaDBConfig,
+            fileMonitorService, indexManifestService, lexicalIndexService, indexGeneration);
+        ReflectionTestUtils.setField(indexingService, "pipelineFileBatchSize", 10);
+        ReflectionTestUtils.setField(indexingService, "pipelineMaxInFlightBatches", 1);
+        ReflectionTestUtils.setField(indexingService, "incrementalIndexingEnabled", true);
+
+        when(chromaDBConfig.getDefaultCollectionName()).thenReturn("code");
+        when(chromaDBConfig.getBatchSize()).thenReturn(100);
+        when(vectorStoreClient.ensureCollectionExists("code")).thenReturn(CompletableFuture.completedFuture(null));
+        when(vectorStoreClient.upsertEmbeddingsAsync(anyString(), anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        when(indexManifestService.computeDiff(eq(baseDir), eq("code"), anyList(), anyBoolean())).thenAnswer(invocation ->
+            ManifestDiff.builder().filesToProcess(invocation.getArgument(2)).deletedFiles(List.of()).previousSegmentIds(Map.of())
+                .addedCount(2).build());
+    }
+
+    @Test
+    void filesWithFailedEmbeddingsAreRecordedAsIncomplete() throws Exception {
+        Path a = Files.writeString(baseDir.resolve("A.java"), "class A { void a1() {} void a2() {} }");
+        Path b = Files.writeString(baseDir.resolve("B.java"), "class B { void b1() {} }");
+        when(parserService.parseFilesAsync(anyList(), eq(baseDir))).thenReturn(CompletableFuture.completedFuture(
+            List.of(segment("a1", "A.java"), segment("a2", "A.java"), segment("b1", "B.java"))));
+        // Ollama failed for a2.
+        when(embeddingService.embedSegmentsAsync(anyList())).thenReturn(CompletableFuture.completedFuture(List.of(
+            EmbeddingVector.wrap(new float[]{0.1f}), EmbeddingVector.EMPTY, EmbeddingVector.wrap(new float[]{0.2f}))));
+
+        indexingService.startIndexing(baseDir).join();
+
+        verify(indexManifestService).recordIncompleteFile(baseDir, "code", a, List.of("a1"));
+        verify(indexManifestService).recordIndexedFile(baseDir, "code", b, FileFingerprint.capture(b), List.of("b1"));
+        verify(indexManifestService, never()).recordIndexedFile(any(), anyString(), eq(a), any(), any());
+    }
+
+    @Test
+    void segmentsLostByTheStoreMarkTheirFilesIncompleteBeforeDiffing() throws Exception {
+        Path a = Files.writeString(baseDir.resolve("A.java"), "class A { void a1() {} void a2() {} }");
+        Path b = Files.writeString(baseDir.resolve("B.java"), "class B { void b1() {} }");
+        when(indexManifestService.hasEntries(baseDir, "code")).thenReturn(true);
+        when(vectorStoreClient.countEmbeddingsAsync("code")).thenReturn(CompletableFuture.completedFuture(2L));
+        when(indexManifestService.getSegmentIdsByFile(baseDir, "code")).thenReturn(Map.of(a, List.of("a1", "a2"), b, List.of("b1")));
+        // a2 was upserted after the embedded store's last flush and lost in a crash.
+        when(vectorStoreClient.findMissingIdsAsync(eq("code"), any())).thenReturn(CompletableFuture.completedFuture(Set.of("a2")));
+        when(parserService.parseFilesAsync(anyList(), eq(baseDir))).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        indexingService.startIndexing(baseDir).join();
+
+        InOrder inOrder = inOrder(indexManifestService);
+        inOrder.verify(indexManifestService).recordIncompleteFile(baseDir, "code", a, List.of("a1"));
+        inOrder.verify(indexManifestService).computeDiff(eq(baseDir), eq("code"), anyList(), eq(false));
+        verify(indexManifestService, never()).recordIncompleteFile(any(), anyString(), eq(b), any());
+    }
+
+    @Test
+    void pipelineKeepsAtMostTheConfiguredBatchesInFlightAndSurvivesAFailedBatch() throws Exception {
+        ReflectionTestUtils.setField(indexingService, "pipelineFileBatchSize", 1);
+        ReflectionTestUtils.setField(indexingService, "pipelineMaxInFlightBatches", 2);
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(baseDir.resolve("F" + i + ".java"), "class F" + i + " {}");
+        }
+        List<List<Path>> parsedBatches = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<List<CodeSegment>>> parses = new CopyOnWriteArrayList<>();
+        when(parserService.parseFilesAsync(anyList(), eq(baseDir))).thenAnswer(invocation -> {
+            parsedBatches.add(List.copyOf(invocation.getArgument(0)));
+            CompletableFuture<List<CodeSegment>> parse = new CompletableFuture<>();
+            parses.add(parse);
+            return parse;
+        });
+
+        CompletableFuture<Void> run = indexingService.startIndexing(baseDir);
+        assertEquals(2, parses.size(), "only the window is admitted up front");
+
+        parses.get(0).completeExceptionally(new IllegalStateException("parser crashed"));
+        assertEquals(3, parses.size(), "a failed batch frees its slot");
+
+        parses.get(1).complete(List.of());
+        assertEquals(4, parses.size());
+        parses.get(2).complete(List.of());
+        parses.get(3).complete(List.of());
+        assertEquals(5, parses.size());
+        assertFalse(run.isDone(), "the last batch is still in flight");
+
+        parses.get(4).complete(List.of());
+        run.get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, parsedBatches.stream().flatMap(List::stream).distinct().count());
+        Path failed = parsedBatches.get(0).get(0);
+        verify(indexManifestService, never()).recordIndexedFile(any(), anyString(), eq(failed), any(), any());
+        verify(indexManifestService, times(4)).recordIndexedFile(eq(baseDir), eq("code"), any(), any(), eq(List.of()));
+        assertFalse(indexingService.isIndexingInProgress());
+    }
+}
@@ -0,0 +1,79 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.parser.model.SegmentType;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalReRankerServiceImplTest {
+
+    @Test
+    void namedEntityAndLexicalMatchesOutrankVectorOrder() throws Exception {
+        LocalReRankerServiceImpl reRanker = new LocalReRankerServiceImpl(new LocalReRankerServiceImpl.Weights(0.35, 0.25, 0.05, 0.1, 0.25));
+        List<VectorSearchResult> candidates = List.of(
+            result("logger", "src/util/Log.java", "log", SegmentType.METHOD, "void log(String message) { out.println(message); }", 0.81),
+            result("flush", "src/cache/EmbeddingCache.java", "flush", SegmentType.METHOD, "void flush() { cache.entries().clear(); }", 0.8),
+            result("evict", "src/cache/EmbeddingCache.java", "evictExpired", SegmentType.METHOD,
+                "void evictExpired() { entries.removeIf(e -> e.expired()); }", 0.7));
+
+        List<VectorSearchResult> reRanked = reRanker.reRankAsync("How does evictExpired remove expired cache entries?",
+            candidates, 2, "local").get();
+
+        assertEquals(List.of("evict", "flush"), ids(reRanked));
+        assertTrue(reRanked.get(0).getScore() > reRanked.get(1).getScore());
+    }
+
+    @Test
+    void onlyTheVectorWeightKeepsRetrievalOrderAndTiesAreStable() {
+        LocalReRankerServiceImpl reRanker = new LocalReRankerServiceImpl(new LocalReRankerServiceImpl.Weights(0, 0, 0, 0, 1));
+        List<VectorSearchResult> candidates = List.of(
+            result("a", "A.java", "a", SegmentType.FIELD, "int evict;", 0.5),
+            result("b", "B.java", "b", SegmentType.METHOD, "void evict() {}", 0.9),
+            result("c", "C.java", "c", SegmentType.METHOD, "void evict() {}", 0.5));
+
+        assertEquals(List.of("b", "a", "c"), ids(reRanker.reRank("evict", candidates, 10)));
+    }
+
+    @Test
+    void directoryOverlapCountsSharedLeadingComponents() {
+        assertEquals(1.0, LocalReRankerServiceImpl.directoryOverlap("src/cache", "src/cache"), 1e-9);
+        assertEquals(0.5, LocalReRankerServiceImpl.directoryOverlap("src/cache", "src/util"), 1e-9);
+        assertEquals(0.0, LocalReRankerServiceImpl.directoryOverlap("", "src"), 1e-9);
+    }
+
+    @Test
+    void scoresFiftyCandidatesWellUnderAMillisecondEach() {
+        LocalReRankerServiceImpl reRanker = new LocalReRankerServiceImpl(new LocalReRankerServiceImpl.Weights(0.35, 0.25, 0.05, 0.1, 0.25));
+        String body = "public List<VectorSearchResult> searchSimilarVectorsAsync(EmbeddingVector query, int topK) {\n"
+            + "    return client.query(collection, query.getValues(), topK).thenApply(this::toResults);\n}\n";
+        List<VectorSearchResult> candidates = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            candidates.add(result("s" + i, "src/store/Store" + i + ".java", "search" + i, SegmentType.METHOD, body.repeat(10), 1.0 - i / 100.0));
+        }
+        for (int i = 0; i < 20; i++) {
+            reRanker.reRank("warm up", candidates, 10);
+        }
+
+        long start = System.nanoTime();
+        reRanker.reRank("How are similar vectors searched in the store?", candidates, 10);
+        long micros = (System.nanoTime() - start) / 1_000;
+
+        assertTrue(micros < 25 * 1_000, "Took " + micros + " us for 50 candidates");
+    }
+
+    private static VectorSearchResult result(String id, String path, String entityName, SegmentType type, String content, double score) {
+        CodeSegment segment = CodeSegment.builder().id(id).relativeFilePath(path).entityName(entityName).type(type).content(content).build();
+        return new VectorSearchResult(segment, score);
+    }
+
+    private static List<String> ids(List<VectorSearchResult> results) {
+        return results.stream().map(r -> r.getSegment().getId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,166 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.history.model.ChatMessage;
+import com.localllm.assistant.llm.LlmClient;
+import com.localllm.assistant.model.ModelDto;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.rerank.ReRankOutcome;
+import com.localllm.assistant.tokenizer.HeuristicTokenCounter;
+import com.localllm.assistant.tokenizer.TokenCounter;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PointwiseReRankerTest {
+
+    private static final Pattern SNIPPET_INDEX = Pattern.compile("(?m)^\\[(\\d+)]");
+
+    private final TokenCounter tokenCounter = new HeuristicTokenCounter(1.0);
+
+    @Test
+    void stopsIssuingBatchesOnceTopNIsStable() throws Exception {
+        FakeLlmClient llm = new FakeLlmClient(i -> i == 5 || i == 1 ? 9 : 2, i -> false);
+        PointwiseReRanker reRanker = new PointwiseReRanker(llm, tokenCounter, 2, 2, 256, 10_000);
+
+        ReRankOutcome outcome = reRanker.reRank("query", candidates(20), 2, "model", 0.0).get();
+
+        assertEquals(List.of("s1", "s5"), ids(outcome.results()));
+        assertTrue(outcome.complete(), "Stopping early on a stable top-N is a complete ranking");
+        // Wave 1 grades 0-3 (top {1, 0}), wave 2 grades 4-7 (top {1, 5}), wave 3 grades 8-11 and is unchanged.
+        assertEquals(6, llm.calls.get());
+    }
+
+    @Test
+    void ungradedCandidatesFollowInRetrievalOrderWhenTheBudgetExpires() throws Exception {
+        FakeLlmClient llm = new FakeLlmClient(i -> i, i -> i >= 2);
+        PointwiseReRanker reRanker = new PointwiseReRanker(llm, tokenCounter, 2, 2, 256, 200);
+
+        long start = System.nanoTime();
+        ReRankOutcome outcome = reRanker.reRank("query", candidates(4), 4, "model", 0.0).get();
+
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 5_000);
+        assertEquals(List.of("s1", "s0", "s2", "s3"), ids(outcome.results()));
+        assertFalse(outcome.complete());
+    }
+
+    @Test
+    void callsStillRunningWhenTheBudgetExpiresAreCancelled() throws Exception {
+        FakeLlmClient llm = new FakeLlmClient(i -> i, i -> i >= 2);
+        PointwiseReRanker reRanker = new PointwiseReRanker(llm, tokenCounter, 2, 2, 256, 100);
+
+        reRanker.reRank("query", candidates(4), 4, "model", 0.0).get();
+
+        assertEquals(1, llm.hanging.size());
+        assertTrue(llm.hanging.get(0).isCancelled(), "Timed-out LLM call must release its permit");
+    }
+
+    @Test
+    void failedBatchesLeaveTheirCandidatesUngraded() throws Exception {
+        LlmClient failing = new FakeLlmClient(i -> 0, i -> false) {
+            @Override
+            public CompletableFuture<String> generateChatCompletionAsync(List<ChatMessage> messages, String modelName,
+                                                                         double temperature, int numPredict) {
+                return CompletableFuture.failedFuture(new IllegalStateException("model not loaded"));
+            }
+        };
+        PointwiseReRanker reRanker = new PointwiseReRanker(failing, tokenCounter, 2, 2, 256, 10_000);
+
+        ReRankOutcome outcome = reRanker.reRank("query", candidates(5), 3, "model", 0.0).get();
+
+        assertEquals(List.of("s0", "s1", "s2"), ids(outcome.results()));
+        assertFalse(outcome.complete());
+    }
+
+    @Test
+    void scoresAreParsedFromCommonAnswerFormats() {
+        assertEquals(Map.of(4, 7.0, 5, 10.0), PointwiseReRanker.parseScores("[4]: 7\n\"5\" = 12", 4, 6));
+        assertEquals(Map.of(4, 8.5), PointwiseReRanker.parseScores("Snippet 4 - 8.5/10, snippet 9: 3", 4, 6));
+        assertEquals(Map.of(4, 3.0, 5, 6.0), PointwiseReRanker.parseScores("3\n6", 4, 6));
+        assertTrue(PointwiseReRanker.parseScores("I cannot grade these.", 4, 6).isEmpty());
+    }
+
+    @Test
+    void longSnippetsAreCutToTheTokenBudgetAtALineBreak() {
+        PointwiseReRanker reRanker = new PointwiseReRanker(new FakeLlmClient(i -> 0, i -> false), tokenCounter, 2, 2, 100, 10_000);
+        String content = "int value = 0;\n".repeat(40);
+
+        String truncated = reRanker.truncate(CodeSegment.builder().content(content).build());
+
+        assertTrue(truncated.endsWith("int value = 0;\n// ..."), truncated);
+        assertTrue(tokenCounter.countTokens(truncated) <= 100 + "\n// ...".length());
+    }
+
+    private static List<VectorSearchResult> candidates(int count) {
+        List<VectorSearchResult> candidates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CodeSegment segment = CodeSegment.builder().id("s" + i).relativeFilePath("S" + i + ".java").content("void s" + i + "() {}").build();
+            candidates.add(new VectorSearchResult(segment, 1.0 - i / 100.0));
+        }
+        return candidates;
+    }
+
+    private static List<String> ids(List<VectorSearchResult> results) {
+        return results.stream().map(r -> r.getSegment().getId()).collect(Collectors.toList());
+    }
+
+    /**
+     * Answers every batch with one "<index>: <score>" line per snippet; batches containing a snippet
+     * matched by {@code hang} never complete.
+     */
+    private static class FakeLlmClient implements LlmClient {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<CompletableFuture<String>> hanging = new CopyOnWriteArrayList<>();
+        private final IntFunction<Integer> score;
+        private final IntPredicate hang;
+
+        FakeLlmClient(IntFunction<Integer> score, IntPredicate hang) {
+            this.score = score;
+            this.hang = hang;
+        }
+
+        @Override
+        public CompletableFuture<String> generateChatCompletionAsync(List<ChatMessage> messages, String modelName,
+                                                                     double temperature, int numPredict) {
+            calls.incrementAndGet();
+            Matcher index = SNIPPET_INDEX.matcher(messages.get(1).getContent());
+            StringBuilder answer = new StringBuilder();
+            while (index.find()) {
+                int i = Integer.parseInt(index.group(1));
+                if (hang.test(i)) {
+                    CompletableFuture<String> never = new CompletableFuture<>();
+                    hanging.add(never);
+                    return never;
+                }
+                answer.append(i).append(": ").append(score.apply(i)).append('\n');
+            }
+            return CompletableFuture.completedFuture(answer.toString());
+        }
+
+        @Override
+        public CompletableFuture<String> streamChatCompletionAsync(List<ChatMessage> messages, String modelName, double temperature,
+                                                                   int numPredict, Consumer<String> onToken) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<List<ModelDto>> getAvailableModelsAsync() {
+            return CompletableFuture.completedFuture(List.of());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.lexical.model.LexicalSearchResult;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.vectorstore.model.VectorSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryServiceImplTest {
+
+    private static final int RRF_K = 60;
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void fusionScoresEachSegmentByItsRanksInBothLists() {
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(
+            vectorHits("a", "b", "c"), keywordHits("c", "a"), 10, RRF_K);
+
+        // a: 1/61 + 1/62, c: 1/63 + 1/61, b: 1/62; normalized by rank 1 in both lists, 2/61.
+        assertEquals(List.of("a", "c", "b"), ids(fused));
+        assertEquals((1.0 / 61 + 1.0 / 62) / (2.0 / 61), fused.get(0).getScore(), EPSILON);
+        assertEquals((1.0 / 63 + 1.0 / 61) / (2.0 / 61), fused.get(1).getScore(), EPSILON);
+        assertEquals((1.0 / 62) / (2.0 / 61), fused.get(2).getScore(), EPSILON);
+    }
+
+    @Test
+    void topOfBothListsScoresOne() {
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(vectorHits("a"), keywordHits("a"), 10, RRF_K);
+
+        assertEquals(1.0, fused.get(0).getScore(), EPSILON);
+    }
+
+    @Test
+    void segmentsFoundByOnlyOneSearchKeepTheirSingleListScore() {
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(
+            vectorHits("v1", "v2"), keywordHits("k1", "k2"), 10, RRF_K);
+
+        // Equal ranks tie; vector hits come first, then keyword hits, each in their own order.
+        assertEquals(List.of("v1", "k1", "v2", "k2"), ids(fused));
+        assertEquals(fused.get(0).getScore(), fused.get(1).getScore(), EPSILON);
+        assertEquals((1.0 / 62) / (2.0 / 61), fused.get(3).getScore(), EPSILON);
+    }
+
+    @Test
+    void keywordOnlyFusionRanksByKeywordOrder() {
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(List.of(), keywordHits("x", "y"), 10, RRF_K);
+
+        assertEquals(List.of("x", "y"), ids(fused));
+        assertEquals(0.5, fused.get(0).getScore(), EPSILON);
+    }
+
+    @Test
+    void segmentListedTwiceInOneListCountsOnceAtItsBestRank() {
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(
+            vectorHits("a", "b", "a"), keywordHits("b"), 10, RRF_K);
+
+        assertEquals(List.of("b", "a"), ids(fused));
+        assertEquals((1.0 / 61) / (2.0 / 61), fused.get(1).getScore(), EPSILON);
+    }
+
+    @Test
+    void fusionIsCutToTheLimitAfterRanking() {
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(
+            vectorHits("a", "b", "c"), keywordHits("c", "b"), 2, RRF_K);
+
+        // c: 1/63 + 1/61 edges out b: 1/62 + 1/62; a, with a single first place, is cut.
+        assertEquals(List.of("c", "b"), ids(fused));
+    }
+
+    @Test
+    void smallerKWeighsTopRanksMoreHeavily() {
+        List<VectorSearchResult> vector = vectorHits("top", "x", "both");
+        List<LexicalSearchResult> keyword = keywordHits("y", "z", "both");
+
+        // k = 60: third place in both lists (2/63) clearly beats first place in one (1/61).
+        assertEquals("both", ids(QueryServiceImpl.fuseReciprocalRank(vector, keyword, 10, RRF_K)).get(0));
+
+        // k = 1: first place in one list (1/2) is worth as much as third place in both (1/4 + 1/4).
+        List<VectorSearchResult> fused = QueryServiceImpl.fuseReciprocalRank(vector, keyword, 10, 1);
+        assertEquals("top", ids(fused).get(0));
+        assertEquals(score(fused, "top"), score(fused, "both"), EPSILON);
+    }
+
+    @Test
+    void camelCaseNamesAreIdentifiers() {
+        assertEquals(List.of("getUserName", "HashMap"),
+            QueryServiceImpl.extractIdentifiers("Why does getUserName return null when the HashMap is empty?"));
+    }
+
+    @Test
+    void snakeCaseNamesAreIdentifiersButLoneUnderscoresAreNot() {
+        assertEquals(List.of("max_batch_size", "MAX_RETRIES"),
+            QueryServiceImpl.extractIdentifiers("Where are max_batch_size and MAX_RETRIES read? Not _private or trailing_"));
+    }
+
+    @Test
+    void dottedMemberReferencesAndCallsAreIdentifiers() {
+        assertEquals(List.of("String.format", "QueryServiceImpl#answer", "flush()"),
+            QueryServiceImpl.extractIdentifiers("Is String.format slower than QueryServiceImpl#answer or flush()?"));
+    }
+
+    @Test
+    void plainWordsAndLowercaseDottedTextAreNotIdentifiers() {
+        assertEquals(List.of(),
+            QueryServiceImpl.extractIdentifiers("How does the indexing work, e.g. for the java.util package? Explain."));
+    }
+
+    @Test
+    void sentencePunctuationIsNotPartOfTheIdentifier() {
+        assertEquals(List.of("UserService"), QueryServiceImpl.extractIdentifiers("Look at UserService. Then explain it."));
+    }
+
+    @Test
+    void backtickQuotedNamesCountEvenWhenTheyLookLikePlainWords() {
+        assertEquals(List.of("index", "parseFile"),
+            QueryServiceImpl.extractIdentifiers("What does `index` do, and who calls `parseFile` or parseFile?"));
+    }
+
+    @Test
+    void backtickSpansThatAreNotNamesAreIgnored() {
+        assertEquals(List.of(), QueryServiceImpl.extractIdentifiers("Why is `a + b` negative here?"));
+    }
+
+    @Test
+    void identifiersAreCappedPerQuery() {
+        assertEquals(List.of("aOne", "aTwo", "aThree", "aFour", "aFive"),
+            QueryServiceImpl.extractIdentifiers("Compare aOne, aTwo, aThree, aFour, aFive and aSix."));
+    }
+
+    private static List<VectorSearchResult> vectorHits(String... ids) {
+        return Arrays.stream(ids).map(id -> new VectorSearchResult(segment(id), 0.5)).collect(Collectors.toList());
+    }
+
+    private static List<LexicalSearchResult> keywordHits(String... ids) {
+        return Arrays.stream(ids).map(id -> LexicalSearchResult.builder().segment(segment(id)).score(3.0).build())
+            .collect(Collectors.toList());
+    }
+
+    private static CodeSegment segment(String id) {
+        return CodeSegment.builder().id(id).content("void " + id + "() {}").build();
+    }
+
+    private static List<String> ids(List<VectorSearchResult> results) {
+        return results.stream().map(r -> r.getSegment().getId()).collect(Collectors.toList());
+    }
+
+    private static double score(List<VectorSearchResult> results, String id) {
+        return results.stream().filter(r -> id.equals(r.getSegment().getId())).findFirst().orElseThrow().getScore();
+    }
+}
@@ -0,0 +1,112 @@
+package com.localllm.assistant.service.impl;
+
+import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.embedding.EmbeddingService;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.lexical.LexicalIndexService;
+import com.localllm.assistant.manifest.IndexGeneration;
+import com.localllm.assistant.manifest.model.FileFingerprint;
+import com.localllm.assistant.parser.ParserService;
+import com.localllm.assistant.parser.model.CodeSegment;
+import com.localllm.assistant.parser.model.SegmentType;
+import com.localllm.assistant.service.FileMonitorService;
+import com.localllm.assistant.service.IndexManifestService;
+import com.localllm.assistant.vectorstore.VectorStoreClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UpdateServiceImplTest {
+
+    @TempDir
+    Path baseDir;
+
+    @Mock
+    private ParserService parserService;
+    @Mock
+    private EmbeddingService embeddingService;
+    @Mock
+    private VectorStoreClient vectorStoreClient;
+    @Mock
+    private ChromaDBConfig chromaDBConfig;
+    @Mock
+    private IndexManifestService indexManifestService;
+    @Mock
+    private LexicalIndexService lexicalIndexService;
+    @Mock
+    private IndexGeneration indexGeneration;
+    @Mock
+    private FileMonitorService fileMonitorService;
+
+    private UpdateServiceImpl updateService;
+
+    @BeforeEach
+    void setUp() {
+        updateService = new UpdateServiceImpl(parserService, embeddingService, vectorStoreClient, chromaDBConfig,
+            indexManifestService, lexicalIndexService, indexGeneration);
+        ReflectionTestUtils.setField(updateService, "fileMonitorService", fileMonitorService);
+        when(fileMonitorService.getMonitoredPath()).thenReturn(baseDir);
+        when(chromaDBConfig.getDefaultCollectionName()).thenReturn("code");
+        when(vectorStoreClient.upsertEmbeddingsAsync(anyString(), anyList())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static CodeSegment segment(String id) {
+        return CodeSegment.builder().id(id).type(SegmentType.METHOD).relativeFilePath("A.java").content("void " + id + "() {}").build();
+    }
+
+    @Test
+    void fileWithAFailedEmbeddingIsRecordedAsIncomplete() throws Exception {
+        Path file = Files.writeString(baseDir.resolve("A.java"), "class A { void a() {} void b() {} }");
+        when(indexManifestService.getSegmentIds(anyString(), eq(file))).thenReturn(Set.of());
+        when(parserService.parseFileAsync(file, baseDir)).thenReturn(CompletableFuture.completedFuture(List.of(segment("a"), segment("b"))));
+        // The limiter shed the second request, which comes back as an empty vector.
+        when(embeddingService.embedSegmentsAsync(anyList())).thenReturn(CompletableFuture.completedFuture(
+            List.of(EmbeddingVector.wrap(new float[]{0.1f, 0.2f}), EmbeddingVector.EMPTY)));
+
+        updateService.processFileChangeInternal(file, FileMonitorService.ChangeType.MODIFY).join();
+
+        verify(indexManifestService).recordIncompleteFile(baseDir, "code", file, List.of("a"));
+        verify(indexManifestService, never()).recordIndexedFile(any(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void fullyStoredFileIsRecordedWithTheFingerprintTakenBeforeParsing() throws Exception {
+        Path file = Files.writeString(baseDir.resolve("A.java"), "class A { void a() {} }");
+        FileFingerprint parsed = FileFingerprint.capture(file);
+        when(indexManifestService.getSegmentIds(anyString(), eq(file))).thenReturn(Set.of());
+        when(parserService.parseFileAsync(file, baseDir)).thenAnswer(invocation -> {
+            // Saved again while the update is in flight; the manifest must not claim this content was indexed.
+            Files.writeString(file, "class A { void a() {} void added() {} }");
+            return CompletableFuture.completedFuture(List.of(segment("a")));
+        });
+        when(embeddingService.embedSegmentsAsync(anyList())).thenReturn(CompletableFuture.completedFuture(
+            List.of(EmbeddingVector.wrap(new float[]{0.1f, 0.2f}))));
+
+        updateService.processFileChangeInternal(file, FileMonitorService.ChangeType.MODIFY).join();
+
+        verify(indexManifestService).recordIndexedFile(baseDir, "code", file, parsed, List.of("a"));
+        verify(indexManifestService, never()).recordIncompleteFile(any(), anyString(), any(), any());
+    }
+}
@@ -0,0 +1,116 @@
+package com.localllm.assistant.tokenizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.localllm.assistant.parser.model.CodeSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BpeTokenizerTest {
+
+    private static final String LLAMA3_PATTERN = "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}"
+        + "| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void byteLevelMergesWordsInRankOrder() throws IOException {
+        BpeTokenizer tokenizer = BpeTokenizer.load(writeByteLevel("tokenizer.json",
+            List.of("h e", "l l", "he ll", "hell o", "Ġ w", "o r", "Ġw or", "l d", "Ġwor ld")));
+
+        assertEquals(2, tokenizer.countTokens("hello world"));
+        // " there": Ġ t he r e
+        assertEquals(6, tokenizer.countTokens("hello there"));
+        // digits are split into groups of at most three by the Llama 3 pattern
+        assertEquals(5, tokenizer.countTokens("12345"));
+        assertEquals(0, tokenizer.countTokens(""));
+    }
+
+    @Test
+    void metaspaceCountsUnknownPiecesAsBytes() throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode model = root.putObject("model");
+        model.put("type", "BPE");
+        model.put("byte_fallback", true);
+        ObjectNode vocab = model.putObject("vocab");
+        int id = 0;
+        for (String piece : List.of("▁", "h", "e", "l", "o", "▁h", "el", "▁hel", "lo", "▁hello")) {
+            vocab.put(piece, id++);
+        }
+        ArrayNode merges = model.putArray("merges");
+        merges.add(objectMapper.createArrayNode().add("▁").add("h"));
+        merges.add(objectMapper.createArrayNode().add("e").add("l"));
+        merges.add(objectMapper.createArrayNode().add("▁h").add("el"));
+        merges.add(objectMapper.createArrayNode().add("l").add("o"));
+        merges.add(objectMapper.createArrayNode().add("▁hel").add("lo"));
+        root.putObject("pre_tokenizer").put("type", "Metaspace").put("replacement", "▁");
+        Path file = tempDir.resolve("metaspace.json");
+        objectMapper.writeValue(file.toFile(), root);
+
+        BpeTokenizer tokenizer = BpeTokenizer.load(file);
+
+        assertEquals(1, tokenizer.countTokens("hello"));
+        // "▁é": "▁" is in the vocabulary, "é" falls back to its two UTF-8 bytes
+        assertEquals(4, tokenizer.countTokens("hello é"));
+    }
+
+    @Test
+    void nameChangesWithVocabularyAndStoredCountsAreOnlyReusedForTheSameName() throws IOException {
+        BpeTokenizer first = BpeTokenizer.load(writeByteLevel("a.json", List.of("h e")));
+        BpeTokenizer second = BpeTokenizer.load(writeByteLevel("a.json", List.of("h e", "l l")));
+        assertNotEquals(first.name(), second.name());
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(TokenCounter.METADATA_TOKEN_COUNT, 42);
+        metadata.put(TokenCounter.METADATA_TOKENIZER, first.name());
+        CodeSegment segment = CodeSegment.builder().content("  hello  ").metadata(metadata).build();
+
+        assertEquals(42, first.countSegmentTokens(segment));
+        assertEquals(second.countTokens("hello"), second.countSegmentTokens(segment));
+    }
+
+    @Test
+    void rejectsNonBpeModels() throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.putObject("model").put("type", "Unigram");
+        Path file = tempDir.resolve("unigram.json");
+        objectMapper.writeValue(file.toFile(), root);
+
+        assertThrows(IOException.class, () -> BpeTokenizer.load(file));
+    }
+
+    private Path writeByteLevel(String fileName, List<String> merges) throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode model = root.putObject("model");
+        model.put("type", "BPE");
+        model.putObject("vocab");
+        ArrayNode mergeArray = model.putArray("merges");
+        merges.forEach(mergeArray::add);
+        ObjectNode preTokenizer = root.putObject("pre_tokenizer");
+        preTokenizer.put("type", "Sequence");
+        ArrayNode steps = preTokenizer.putArray("pretokenizers");
+        ObjectNode split = steps.addObject();
+        split.put("type", "Split");
+        split.putObject("pattern").put("Regex", LLAMA3_PATTERN);
+        steps.addObject().put("type", "ByteLevel").put("use_regex", false);
+        Path file = tempDir.resolve(fileName);
+        Files.deleteIfExists(file);
+        objectMapper.writeValue(file.toFile(), root);
+        return file;
+    }
+}
@@ -0,0 +1,280 @@
+package com.localllm.assistant.vectorstore.hnsw;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.vectorstore.model.VectorEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedCollectionTest {
+
+    private static final int DIMENSION = 32;
+    private static final EmbeddedCollection.Settings SETTINGS =
+        new EmbeddedCollection.Settings(IndexType.HNSW, DIMENSION, DistanceFunction.COSINE, 16, 200, 0.3);
+    private static final EmbeddedCollection.Settings EXACT =
+        new EmbeddedCollection.Settings(IndexType.EXACT, DIMENSION, DistanceFunction.COSINE, 16, 200, 0.3);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(7);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void searchRecallMatchesBruteForce() throws Exception {
+        List<float[]> vectors = randomVectors(2000);
+        try (EmbeddedCollection collection = EmbeddedCollection.open("c", tempDir, SETTINGS, objectMapper)) {
+            collection.upsert(entries(vectors, 0));
+
+            int found = 0;
+            int queries = 50;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVector();
+                Set<String> expected = bruteForce(vectors, query, 10);
+                Set<String> actual = collection.search(query, 10, 64, null).stream()
+                    .map(VectorEntry::getId).collect(Collectors.toSet());
+                actual.retainAll(expected);
+                found += actual.size();
+            }
+            double recall = found / (queries * 10.0);
+            assertTrue(recall >= 0.95, "recall@10 was " + recall);
+        }
+    }
+
+    @Test
+    void exactSearchReturnsBruteForceOrderAcrossParallelSlices() throws Exception {
+        List<float[]> vectors = randomVectors(FlatIndex.PARALLEL_THRESHOLD + 3 * FlatIndex.SLICE_ROWS + 17);
+        try (EmbeddedCollection collection = EmbeddedCollection.open("c", tempDir, EXACT, objectMapper)) {
+            collection.upsert(entries(vectors, 0));
+
+            for (int q = 0; q < 10; q++) {
+                float[] query = randomVector();
+                List<String> expected = IntStream.range(0, vectors.size()).boxed()
+                    .sorted(Comparator.comparingDouble(i -> -cosine(vectors.get(i), query)))
+                    .limit(10)
+                    .map(i -> "id-" + i)
+                    .toList();
+                List<String> actual = collection.search(query, 10, 0, null).stream().map(VectorEntry::getId).toList();
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void searchAppliesMetadataFilterAndReportsDistance(IndexType indexType) throws Exception {
+        List<float[]> vectors = randomVectors(500);
+        try (EmbeddedCollection collection = EmbeddedCollection.open("c", tempDir, settings(indexType), objectMapper)) {
+            collection.upsert(entries(vectors, 0));
+
+            List<VectorEntry> results = collection.search(vectors.get(3), 5, 64, Map.of("bucket", Map.of("$in", List.of(3L))));
+
+            assertEquals(5, results.size());
+            assertEquals("id-3", results.get(0).getId());
+            assertEquals(0.0, ((Number) results.get(0).getMetadata().get("_distance")).doubleValue(), 1e-5);
+            results.forEach(r -> assertEquals(3, ((Number) r.getMetadata().get("bucket")).intValue()));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void upsertReplacesAndDeleteRemovesEntries(IndexType indexType) throws Exception {
+        List<float[]> vectors = randomVectors(100);
+        try (EmbeddedCollection collection = EmbeddedCollection.open("c", tempDir, settings(indexType), objectMapper)) {
+            collection.upsert(entries(vectors, 0));
+            collection.upsert(List.of(entry("id-0", vectors.get(50), 0)));
+
+            assertEquals(100, collection.count());
+            List<VectorEntry> nearest = collection.search(vectors.get(50), 2, 64, null);
+            assertEquals(Set.of("id-0", "id-50"), nearest.stream().map(VectorEntry::getId).collect(Collectors.toSet()));
+
+            assertEquals(1, collection.deleteByIds(List.of("id-50", "missing")));
+            assertEquals(10, collection.deleteWhere(Map.of("bucket", 7)));
+            assertEquals(89, collection.count());
+            assertTrue(collection.find(Map.of("bucket", 7), 100).isEmpty());
+            assertFalse(collection.search(vectors.get(50), 5, 64, null).stream().anyMatch(e -> "id-50".equals(e.getId())));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void reloadRestoresEntriesAndCompactsTombstones(IndexType indexType) throws Exception {
+        List<float[]> vectors = randomVectors(300);
+        try (EmbeddedCollection collection = EmbeddedCollection.open("c", tempDir, settings(indexType), objectMapper)) {
+            collection.upsert(entries(vectors, 0));
+            collection.deleteWhere(Map.of("bucket", Map.of("$lt", 5)));
+        }
+
+        try (EmbeddedCollection reloaded = EmbeddedCollection.open("c", tempDir, settings(indexType), objectMapper)) {
+            assertEquals(150, reloaded.count());
+            assertTrue(Files.exists(tempDir.resolve("vectors-1.f32")), "compaction should write the next generation");
+            assertFalse(Files.exists(tempDir.resolve("vectors-0.f32")));
+
+            VectorEntry hit = reloaded.search(vectors.get(7), 1, 64, null).get(0);
+            assertEquals("id-7", hit.getId());
+            assertEquals("doc 7", hit.getDocument());
+            assertEquals("[\"a\",\"b\"]", hit.getMetadata().get("tags"));
+        }
+    }
+
+    @Test
+    void entriesWrittenAfterTheLastFlushAreReportedMissingAfterACrash() throws Exception {
+        List<float[]> vectors = randomVectors(30);
+        EmbeddedCollection crashed = EmbeddedCollection.open("c", tempDir, EXACT, objectMapper);
+        crashed.upsert(entries(vectors.subList(0, 20), 0));
+        crashed.flush();
+        crashed.upsert(entries(vectors.subList(20, 30), 20));
+
+        // Reopening without close() sees only what the last flush persisted.
+        try (EmbeddedCollection reloaded = EmbeddedCollection.open("c", tempDir, EXACT, objectMapper)) {
+            assertEquals(20, reloaded.count());
+            assertEquals(Set.of("id-25", "id-29"), reloaded.missingIds(List.of("id-3", "id-25", "id-29")));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(IndexType.class)
+    void upsertsProceedWhileAFlushWritesItsSnapshot(IndexType indexType) throws Exception {
+        List<float[]> vectors = randomVectors(25);
+        BlockingObjectMapper blockingMapper = new BlockingObjectMapper();
+        EmbeddedCollection collection = EmbeddedCollection.open("c", tempDir, settings(indexType), blockingMapper);
+        collection.upsert(entries(vectors.subList(0, 20), 0));
+
+        blockingMapper.blockNextWrite();
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> {
+            try {
+                collection.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertTrue(blockingMapper.writing.await(5, TimeUnit.SECONDS), "flush should be writing index.bin");
+
+        // Would wait for the whole write if flush held the collection monitor.
+        CompletableFuture.runAsync(() -> {
+            try {
+                collection.upsert(entries(vectors.subList(20, 25), 20));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        blockingMapper.release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        try (EmbeddedCollection reloaded = EmbeddedCollection.open("c", tempDir, settings(indexType), objectMapper)) {
+            assertEquals(20, reloaded.count(), "the flush persists its snapshot, not later upserts");
+        }
+
+        collection.close();
+        try (EmbeddedCollection reloaded = EmbeddedCollection.open("c", tempDir, settings(indexType), objectMapper)) {
+            assertEquals(25, reloaded.count());
+            assertEquals("id-22", reloaded.search(vectors.get(22), 1, 64, null).get(0).getId());
+        }
+    }
+
+    private static EmbeddedCollection.Settings settings(IndexType indexType) {
+        return indexType == IndexType.EXACT ? EXACT : SETTINGS;
+    }
+
+    private List<VectorEntry> entries(List<float[]> vectors, int offset) {
+        List<VectorEntry> entries = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            entries.add(entry("id-" + (offset + i), vectors.get(i), offset + i));
+        }
+        return entries;
+    }
+
+    private static VectorEntry entry(String id, float[] vector, int i) {
+        return VectorEntry.builder()
+            .id(id)
+            .vector(EmbeddingVector.wrap(vector))
+            .metadata(Map.of("bucket", i % 10, "tags", List.of("a", "b")))
+            .document("doc " + i)
+            .build();
+    }
+
+    private static Set<String> bruteForce(List<float[]> vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.size()).boxed()
+            .sorted(Comparator.comparingDouble(i -> -cosine(vectors.get(i), query)))
+            .limit(k)
+            .map(i -> "id-" + i)
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector());
+        }
+        return vectors;
+    }
+
+    private float[] randomVector() {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    /**
+     * Blocks the first payload write after {@link #blockNextWrite()} until released.
+     */
+    private static final class BlockingObjectMapper extends ObjectMapper {
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean block;
+
+        void blockNextWrite() {
+            block = true;
+        }
+
+        @Override
+        public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+            if (block) {
+                block = false;
+                writing.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.writeValueAsBytes(value);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.localllm.assistant.vectorstore.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localllm.assistant.concurrency.AdaptiveConcurrencyLimiter;
 import com.localllm.assistant.config.ChromaDBConfig;
+import com.localllm.assistant.embedding.model.EmbeddingVector;
+import com.localllm.assistant.vectorstore.metrics.UpsertPayloadMetrics;
 import com.localllm.assistant.vectorstore.model.VectorEntry;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
 import org.apache.hc.core5.reactor.IOReactorStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,12 +21,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -26,6 +40,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -42,6 +57,8 @@ class ChromaDBClientImplTest {
     @Mock
     private CloseableHttpAsyncClient httpAsyncClient;
 
+    private final AdaptiveConcurrencyLimiter chromaLimiter = new AdaptiveConcurrencyLimiter("chromadb", 8, 1, 8, 16, 0.7, 0);
+
     private ChromaDBClientImpl client;
 
     private final String TEST_COLLECTION_NAME = "test_collection";
@@ -53,7 +70,7 @@ class ChromaDBClientImplTest {
         when(chromaDBConfig.getDistanceFunction()).thenReturn("cosine");
         when(httpAsyncClient.getStatus()).thenReturn(IOReactorStatus.ACTIVE);
 
-        client = new ChromaDBClientImpl(chromaDBConfig, objectMapper, httpAsyncClient);
+        client = new ChromaDBClientImpl(chromaDBConfig, objectMapper, httpAsyncClient, chromaLimiter, new UpsertPayloadMetrics());
     }
 
     @Test
@@ -75,7 +92,7 @@ class ChromaDBClientImplTest {
 
     @Test
     void testCheckClientStatus_NullClient() {
-        ChromaDBClientImpl clientWithNullHttp = new ChromaDBClientImpl(chromaDBConfig, objectMapper, null);
+        ChromaDBClientImpl clientWithNullHttp = new ChromaDBClientImpl(chromaDBConfig, objectMapper, null, chromaLimiter, new UpsertPayloadMetrics());
         assertDoesNotThrow(() -> clientWithNullHttp.checkClientStatus());
     }
 
@@ -300,6 +317,125 @@ class ChromaDBClientImplTest {
         assertTrue(result2.isCompletedExceptionally());
     }
 
+    @Test
+    void upsertBodyWritesNullsAndFlattensNonScalarMetadata() throws Exception {
+        ObjectMapper realMapper = new ObjectMapper();
+        ChromaDBClientImpl serializingClient = new ChromaDBClientImpl(chromaDBConfig, realMapper, httpAsyncClient, chromaLimiter,
+            new UpsertPayloadMetrics());
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("filePath", "A.java");
+        metadata.put("startLine", 3);
+        metadata.put("score", 0.5);
+        metadata.put("public", true);
+        metadata.put("annotations", List.of("Override", "Deprecated"));
+        metadata.put("missing", null);
+        List<VectorEntry> entries = List.of(
+            VectorEntry.builder().id("a").vector(EmbeddingVector.wrap(new float[]{0.25f, -1.5f})).metadata(metadata).document("void a() {}").build(),
+            VectorEntry.builder().id("b").vector(null).metadata(null).document(null).build());
+
+        UpsertBodyBuffer body = serializingClient.writeUpsertBody(entries);
+
+        JsonNode json = realMapper.readTree(body.toByteArray());
+        assertEquals("[\"a\",\"b\"]", json.get("ids").toString());
+        assertEquals("[[0.25,-1.5],[]]", json.get("embeddings").toString());
+        assertEquals("{\"filePath\":\"A.java\",\"startLine\":3,\"score\":0.5,\"public\":true,"
+            + "\"annotations\":\"[\\\"Override\\\",\\\"Deprecated\\\"]\",\"missing\":null}", json.get("metadatas").get(0).toString());
+        assertTrue(json.get("metadatas").get(1).isNull());
+        assertEquals("void a() {}", json.get("documents").get(0).asText());
+        assertTrue(json.get("documents").get(1).isNull());
+    }
+
+    @Test
+    void upsertBodyIsSentFromTheBufferAndCanBeResent() throws Exception {
+        UpsertBodyBuffer body = new UpsertBodyBuffer();
+        body.write("{\"ids\":[]}".getBytes(StandardCharsets.UTF_8));
+        AsyncEntityProducer producer = body.toEntityProducer(ContentType.APPLICATION_JSON);
+        assertEquals(10, producer.getContentLength());
+        assertTrue(producer.getContentType().startsWith("application/json"));
+
+        assertEquals("{\"ids\":[]}", drain(producer));
+        producer.releaseResources();
+        assertEquals("{\"ids\":[]}", drain(producer));
+    }
+
+    @Test
+    void upsertBodyFitsTheBufferSizedFromTheEstimate() throws Exception {
+        ChromaDBClientImpl serializingClient = new ChromaDBClientImpl(chromaDBConfig, new ObjectMapper(), httpAsyncClient, chromaLimiter,
+            new UpsertPayloadMetrics());
+        Random random = new Random(42);
+        List<VectorEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            float[] vector = new float[768];
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] = (random.nextFloat() - 0.5f) / 7f;
+            }
+            entries.add(VectorEntry.builder().id("seg-" + i).vector(EmbeddingVector.wrap(vector))
+                .metadata(Map.of("filePath", "src/main/java/p/File" + i + ".java", "startLine", i, "endLine", i + 20))
+                .document("public void method" + i + "() {\n    return \"value\";\n}").build());
+        }
+
+        UpsertBodyBuffer body = serializingClient.writeUpsertBody(entries);
+
+        assertFalse(body.outgrewReservation(), "estimate " + ChromaDBClientImpl.estimateUpsertBodyBytes(entries)
+            + " bytes, body " + body.size() + " bytes");
+    }
+
+    @Test
+    void upsertBuffersAreReusedOnceReleased() {
+        UpsertBodyBuffer.Pool pool = new UpsertBodyBuffer.Pool(2, 1024 * 1024);
+        UpsertBodyBuffer first = pool.acquire(128 * 1024);
+        first.write(7);
+
+        pool.release(first);
+        pool.release(first);
+        assertEquals(1, pool.idleCount());
+
+        UpsertBodyBuffer second = pool.acquire(1024);
+        assertSame(first, second);
+        assertEquals(0, second.size());
+        assertEquals(0, pool.idleCount());
+
+        UpsertBodyBuffer oversized = pool.acquire(2 * 1024 * 1024);
+        pool.release(oversized);
+        assertEquals(0, pool.idleCount());
+    }
+
+    /**
+     * Produces the whole entity into a channel that accepts at most 4 bytes per write.
+     */
+    private static String drain(AsyncEntityProducer producer) throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        boolean[] ended = new boolean[1];
+        DataStreamChannel channel = new DataStreamChannel() {
+            @Override
+            public void requestOutput() {
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                int n = Math.min(4, src.remaining());
+                for (int i = 0; i < n; i++) {
+                    sent.write(src.get());
+                }
+                return n;
+            }
+
+            @Override
+            public void endStream() {
+                ended[0] = true;
+            }
+
+            @Override
+            public void endStream(List<? extends Header> trailers) {
+                ended[0] = true;
+            }
+        };
+        while (!ended[0]) {
+            producer.produce(channel);
+        }
+        return sent.toString(StandardCharsets.UTF_8);
+    }
+
     // Helper method
     private List<VectorEntry> createTestVectorEntries() {
         Map<String, Object> metadata = new HashMap<>();